@@ -0,0 +1,123 @@
+package org.jsuffixarrays.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Generated input corpora. All symbols are in <code>[1, 255]</code>, which every
+ * {@link org.jsuffixarrays.Algorithm} accepts without decorators.
+ */
+public enum Corpus
+{
+    /** Uniformly random symbols, alphabet of 4. */
+    RANDOM_SMALL
+    {
+        @Override
+        void fill(Random rnd, int [] input, int size)
+        {
+            random(rnd, input, 0, size, 4);
+        }
+    },
+
+    /** Uniformly random symbols, alphabet of 255 (the largest accepted by all algorithms). */
+    RANDOM_LARGE
+    {
+        @Override
+        void fill(Random rnd, int [] input, int size)
+        {
+            random(rnd, input, 0, size, 255);
+        }
+    },
+
+    /** A random block of 1000 symbols repeated over and over, with rare mutations. */
+    REPETITIVE
+    {
+        @Override
+        void fill(Random rnd, int [] input, int size)
+        {
+            final int period = Math.min(1000, size);
+            random(rnd, input, 0, period, 20);
+            for (int i = period; i < size; i++)
+            {
+                input[i] = rnd.nextInt(10000) == 0 ? 1 + rnd.nextInt(20) : input[i - period];
+            }
+        }
+    },
+
+    /** Prefix of the infinite Fibonacci word (a worst case for many algorithms). */
+    FIBONACCI
+    {
+        @Override
+        void fill(Random rnd, int [] input, int size)
+        {
+            if (size > 0) input[0] = 1;
+            if (size > 1) input[1] = 2;
+            for (int length = 2, prev = 1; length < size;)
+            {
+                // F(k + 1) = F(k) F(k - 1)
+                final int copy = Math.min(prev, size - length);
+                System.arraycopy(input, 0, input, length, copy);
+                prev = length;
+                length += copy;
+            }
+        }
+    },
+
+    /**
+     * DNA-like sequence: alphabet of 4 with skewed frequencies, about a half of it made of
+     * (mutated) copies of earlier segments.
+     */
+    DNA
+    {
+        @Override
+        void fill(Random rnd, int [] input, int size)
+        {
+            final int [] weighted = new int [] {1, 1, 1, 2, 2, 3, 3, 4, 4, 4};
+            for (int i = 0; i < size;)
+            {
+                final int segment = Math.min(size - i, 100 + rnd.nextInt(2000));
+                if (i > segment && rnd.nextBoolean())
+                {
+                    final int from = rnd.nextInt(i - segment);
+                    for (int j = 0; j < segment; j++)
+                    {
+                        input[i + j] = rnd.nextInt(100) == 0 ? 1 + rnd.nextInt(4)
+                            : input[from + j];
+                    }
+                }
+                else
+                {
+                    for (int j = 0; j < segment; j++)
+                    {
+                        input[i + j] = weighted[rnd.nextInt(weighted.length)];
+                    }
+                }
+                i += segment;
+            }
+        }
+    };
+
+    /**
+     * Extra trailing cells after the input (some algorithms need them).
+     */
+    public final static int EXTRA_TRAILING_SPACE = 1024;
+
+    /**
+     * Generate <code>size</code> symbols (followed by zeroed trailing space).
+     */
+    public int [] generate(long seed, int size)
+    {
+        final int [] input = new int [size + EXTRA_TRAILING_SPACE];
+        fill(new Random(seed), input, size);
+        return input;
+    }
+
+    abstract void fill(Random rnd, int [] input, int size);
+
+    private static void random(Random rnd, int [] input, int from, int to, int alphabet)
+    {
+        for (int i = from; i < to; i++)
+        {
+            input[i] = 1 + rnd.nextInt(alphabet);
+        }
+    }
+}
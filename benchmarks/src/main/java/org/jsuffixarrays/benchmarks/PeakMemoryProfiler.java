@@ -0,0 +1,62 @@
+package org.jsuffixarrays.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+/**
+ * Reports the peak heap usage during each iteration (the maximum is taken across
+ * iterations). Peaks of individual heap memory pools are summed, so the result is an
+ * upper bound of the actual peak: pools may peak at different moments. Use with:
+ * <code>-prof org.jsuffixarrays.benchmarks.PeakMemoryProfiler</code>.
+ */
+public class PeakMemoryProfiler implements InternalProfiler
+{
+    @Override
+    public String getDescription()
+    {
+        return "Peak heap usage (sum of heap memory pools' peaks).";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams,
+        IterationParams iterationParams)
+    {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP)
+            {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams,
+        IterationParams iterationParams, IterationResult result)
+    {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP)
+            {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        final ArrayList<Result> results = new ArrayList<Result>();
+        results.add(new ScalarResult("peak.heap", peak / (1024.0 * 1024.0), "MB",
+            AggregationPolicy.MAX));
+        return results;
+    }
+}
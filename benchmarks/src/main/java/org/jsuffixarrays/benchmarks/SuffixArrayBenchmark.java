@@ -0,0 +1,86 @@
+package org.jsuffixarrays.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jsuffixarrays.Algorithm;
+import org.jsuffixarrays.ISuffixArrayBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Suffix array construction throughput for every {@link Algorithm} constant and
+ * {@link Corpus}. Besides builds per second, {@link SymbolCounters} reports input
+ * symbols per second. Allocation rate is available with <code>-prof gc</code>, peak
+ * heap usage with <code>-prof org.jsuffixarrays.benchmarks.PeakMemoryProfiler</code>.
+ * <p>
+ * The naive sort ({@link Algorithm#NS}) is quadratic on highly repetitive inputs; these
+ * combinations are rejected for sizes above {@link #NS_REPETITIVE_LIMIT} (JMH reports
+ * them as failed and continues).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SuffixArrayBenchmark
+{
+    final static int NS_REPETITIVE_LIMIT = 100000;
+
+    @Param
+    public Algorithm algorithm;
+
+    @Param
+    public Corpus corpus;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    /** Generated input (pristine copy). */
+    private int [] corpusInput;
+
+    /** Input passed to the builder (restored before every invocation). */
+    private int [] input;
+
+    private ISuffixArrayBuilder builder;
+
+    @Setup(Level.Trial)
+    public void prepare()
+    {
+        if (algorithm == Algorithm.NS && size > NS_REPETITIVE_LIMIT
+            && (corpus == Corpus.REPETITIVE || corpus == Corpus.FIBONACCI))
+        {
+            throw new IllegalStateException("Naive sort is quadratic on " + corpus
+                + " inputs, skipped for size " + size);
+        }
+
+        corpusInput = corpus.generate(0xdeadbeefL, size);
+        input = corpusInput.clone();
+        // SKEW_D has no plain instance, it is Skew behind the decorators.
+        builder = (algorithm == Algorithm.SKEW_D ? algorithm.getDecoratedInstance()
+            : algorithm.getInstance());
+    }
+
+    @Setup(Level.Invocation)
+    public void restoreInput()
+    {
+        System.arraycopy(corpusInput, 0, input, 0, input.length);
+    }
+
+    @Benchmark
+    public int [] build(SymbolCounters counters)
+    {
+        counters.symbols += size;
+        return builder.buildSuffixArray(input, 0, size);
+    }
+}
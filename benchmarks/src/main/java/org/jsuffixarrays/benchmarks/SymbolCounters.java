@@ -0,0 +1,25 @@
+package org.jsuffixarrays.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary throughput metric: input symbols processed per time unit (comparable across
+ * input sizes, unlike operations per time unit).
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class SymbolCounters
+{
+    /** Input symbols processed. */
+    public long symbols;
+
+    @Setup(Level.Iteration)
+    public void reset()
+    {
+        symbols = 0;
+    }
+}
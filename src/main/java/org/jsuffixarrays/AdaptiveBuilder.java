@@ -0,0 +1,281 @@
+package org.jsuffixarrays;
+
+import java.util.EnumMap;
+
+import com.carrotsearch.hppc.LongOpenHashSet;
+
+/**
+ * A suffix array builder that picks one of the other algorithms depending on the input's
+ * statistics: length, symbol range (see {@link Tools#minmax(int[], int, int)}) and
+ * repetitiveness, within a given memory budget.
+ * <p>
+ * Repetitiveness is estimated from a sample: the ratio of distinct q-grams (fingerprints
+ * of {@link #QGRAM} symbols) among all q-grams in {@link #SAMPLE_WINDOWS} windows spread
+ * evenly over the input. Random-like inputs have nearly all sampled q-grams distinct,
+ * periodic inputs (and, for example, Fibonacci words) very few. Inputs shorter than
+ * {@link #MIN_SAMPLED_LENGTH} are not sampled.
+ * <p>
+ * The candidates, in order of preference, come from the benchmarks module (1M symbols):
+ * <ul>
+ * <li>repetitive input: {@link SAIS} (linear in the worst case; comparison-based
+ * algorithms slow down on long repeats), {@link DivSufSort},</li>
+ * <li>small alphabets (up to {@link #SMALL_ALPHABET} symbols): {@link BPR},
+ * {@link SAIS}, {@link DeepShallow}, {@link DivSufSort},</li>
+ * <li>other byte-range alphabets: {@link DivSufSort}, {@link DeepShallow}, {@link SAIS},
+ * {@link BPR}.</li>
+ * </ul>
+ * The first candidate that accepts the input (some require extra trailing cells in the
+ * input array, no copies are made) and whose estimated memory usage fits in the budget is
+ * used. Inputs with negative symbols or symbols larger than a byte are always passed to
+ * {@link SAIS}, remapped to a dense alphabet if needed. If no candidate fits in the
+ * budget, {@link SAIS} (the least memory-demanding) is used.
+ * <p>
+ * An instance keeps one instance of every selected algorithm and a {@link Workspace} for
+ * the algorithms that support it, so repeated calls do not allocate their tables again.
+ * Instances are not thread-safe; {@link Algorithm#getThreadSafeInstance()} of
+ * {@link Algorithm#ADAPTIVE} gives one instance (and workspace) per thread.
+ */
+public final class AdaptiveBuilder implements IWorkspaceSuffixArrayBuilder
+{
+    /** Largest symbol range considered a small alphabet. */
+    final static int SMALL_ALPHABET = 16;
+
+    /** Distinct q-grams ratio below which the input is considered repetitive. */
+    final static double REPETITIVE_RATIO = 0.5;
+
+    /** Sampled q-gram length. */
+    final static int QGRAM = 32;
+
+    /** Number of sampled windows and their length. */
+    final static int SAMPLE_WINDOWS = 16, WINDOW = 4096;
+
+    /** Shorter inputs are not sampled (any candidate is fast on them). */
+    final static int MIN_SAMPLED_LENGTH = 1 << 14;
+
+    private final long memoryBudget;
+
+    /** Selected algorithms, created on first use. */
+    private final EnumMap<Algorithm, ISuffixArrayBuilder> builders =
+        new EnumMap<Algorithm, ISuffixArrayBuilder>(Algorithm.class);
+
+    /**
+     * {@link DivSufSort} instances by alphabet size (bucket tables sized to the input's
+     * alphabet are borrowed from the workspace).
+     */
+    private final DivSufSort [] divSufSort = new DivSufSort [256 + 1];
+
+    /** {@link SAIS} for inputs remapped to a dense alphabet, created on first use. */
+    private ISuffixArrayBuilder dense;
+
+    /** Used by {@link #buildSuffixArray(int[], int, int)}. */
+    private final Workspace workspace = new Workspace(
+        ThreadLocalBuilder.DEFAULT_RETAINED_BYTES);
+
+    /**
+     * Adaptive builder without a memory limit.
+     */
+    public AdaptiveBuilder()
+    {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * @param memoryBudget Memory budget (in bytes) for the construction, including the
+     *            returned suffix array, excluding the input.
+     */
+    public AdaptiveBuilder(long memoryBudget)
+    {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /*
+     * 
+     */
+    @Override
+    public int [] buildSuffixArray(int [] input, int start, int length)
+    {
+        return buildSuffixArray(input, start, length, null, workspace);
+    }
+
+    /*
+     * 
+     */
+    @Override
+    public int [] buildSuffixArray(int [] input, int start, int length, int [] output,
+        Workspace workspace)
+    {
+        if (length == 0) return (output == null ? new int [0] : output);
+
+        final ISuffixArrayBuilder builder = select(input, start, length);
+        if (builder instanceof IWorkspaceSuffixArrayBuilder)
+        {
+            return ((IWorkspaceSuffixArrayBuilder) builder).buildSuffixArray(input, start,
+                length, output, workspace);
+        }
+
+        final int [] sa = builder.buildSuffixArray(input, start, length);
+        if (output == null) return sa;
+        System.arraycopy(sa, 0, output, 0, length);
+        return output;
+    }
+
+    /**
+     * @return Returns the builder selected for the given input (reused between calls).
+     */
+    ISuffixArrayBuilder select(int [] input, int start, int length)
+    {
+        final Algorithm algorithm = choose(input, start, length);
+        if (algorithm == null)
+        {
+            if (dense == null) dense = new DensePositiveDecorator(new SAIS());
+            return dense;
+        }
+        if (algorithm == Algorithm.DIVSUFSORT)
+        {
+            // Bucket tables sized to the input's alphabet, not the whole byte range.
+            final int alphabetSize = Tools.max(input, start, length) + 1;
+            if (divSufSort[alphabetSize] == null)
+            {
+                divSufSort[alphabetSize] = new DivSufSort(alphabetSize);
+            }
+            return divSufSort[alphabetSize];
+        }
+
+        ISuffixArrayBuilder builder = builders.get(algorithm);
+        if (builder == null)
+        {
+            builder = algorithm.getInstance();
+            builders.put(algorithm, builder);
+        }
+        return builder;
+    }
+
+    /**
+     * @return Returns the algorithm selected for the given input or <code>null</code> if
+     *         the input needs to be remapped to a dense alphabet first (and then passed
+     *         to {@link SAIS}).
+     */
+    Algorithm choose(int [] input, int start, int length)
+    {
+        final MinMax mm = Tools.minmax(input, start, length);
+        if (length < 2 || mm.min < 0 || mm.max >= 256)
+        {
+            if (mm.min >= 0 && mm.max < Math.max(length, 0x10000))
+            {
+                return Algorithm.SAIS;
+            }
+            return null;
+        }
+
+        final Algorithm [] candidates;
+        if (length >= MIN_SAMPLED_LENGTH
+            && distinctRatio(input, start, length) < REPETITIVE_RATIO)
+        {
+            candidates = new Algorithm [] {Algorithm.SAIS, Algorithm.DIVSUFSORT};
+        }
+        else if (mm.max < SMALL_ALPHABET)
+        {
+            candidates = new Algorithm [] {
+                Algorithm.BPR, Algorithm.SAIS, Algorithm.DEEP_SHALLOW, Algorithm.DIVSUFSORT};
+        }
+        else
+        {
+            candidates = new Algorithm [] {
+                Algorithm.DIVSUFSORT, Algorithm.DEEP_SHALLOW, Algorithm.SAIS, Algorithm.BPR};
+        }
+
+        final int trailing = input.length - (start + length);
+        for (Algorithm a : candidates)
+        {
+            if (accepts(a, trailing, mm) && memoryUsage(a, length, mm) <= memoryBudget)
+            {
+                return a;
+            }
+        }
+        return Algorithm.SAIS;
+    }
+
+    /**
+     * @return <code>true</code> if the algorithm accepts a byte-range input with the given
+     *         number of trailing cells and symbol range.
+     */
+    private static boolean accepts(Algorithm algorithm, int trailing, MinMax mm)
+    {
+        switch (algorithm)
+        {
+            case BPR:
+                // BPR fails on unary inputs.
+                return trailing >= BPR.KBS_STRING_EXTENSION_SIZE && mm.min < mm.max;
+            case DEEP_SHALLOW:
+                return trailing >= DeepShallow.OVERSHOOT;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * @return Estimated memory used by the algorithm (including the suffix array), in
+     *         bytes.
+     */
+    static long memoryUsage(Algorithm algorithm, int length, MinMax mm)
+    {
+        switch (algorithm)
+        {
+            case SAIS:
+                return 4L * length + 4L * (mm.max + 1);
+            case DIVSUFSORT:
+                return 4L * length + 4L * (256 + 256 * 256);
+            case DEEP_SHALLOW:
+                // Input copy, suffix array.
+                return 8L * length;
+            case BPR:
+                // Input copy, suffix array, suffix pointers, alphabet mapping.
+                return 16L * length;
+            default:
+                throw new RuntimeException("Not a candidate: " + algorithm);
+        }
+    }
+
+    /**
+     * @return Ratio of distinct q-grams among sampled q-grams (1 for inputs too short to
+     *         sample).
+     */
+    static double distinctRatio(int [] input, int start, int length)
+    {
+        if (length < 2 * QGRAM) return 1;
+
+        final int window = Math.min(WINDOW, length / SAMPLE_WINDOWS);
+        final int windows = (window <= QGRAM ? 1 : SAMPLE_WINDOWS);
+        final int span = (windows == 1 ? length : window);
+
+        final long base = 0x9e3779b97f4a7c15L;
+        long top = 1;
+        for (int i = 0; i < QGRAM; i++)
+        {
+            top *= base;
+        }
+
+        final LongOpenHashSet fingerprints = new LongOpenHashSet();
+        int total = 0;
+        for (int w = 0; w < windows; w++)
+        {
+            final int from = start
+                + (windows == 1 ? 0 : (int) ((long) (length - span) * w / (windows - 1)));
+            long hash = 0;
+            for (int i = 0; i < span; i++)
+            {
+                hash = hash * base + input[from + i];
+                if (i >= QGRAM)
+                {
+                    hash -= top * input[from + i - QGRAM];
+                }
+                if (i >= QGRAM - 1)
+                {
+                    fingerprints.add(hash);
+                    total++;
+                }
+            }
+        }
+        return fingerprints.size() / (double) total;
+    }
+}
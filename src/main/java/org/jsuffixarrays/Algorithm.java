@@ -1,5 +1,7 @@
 package org.jsuffixarrays;
 
+import com.google.common.base.Supplier;
+
 /**
  * An enum with constants indicating algorithms and their variants. This is of little
  * practical use, but a handy factory method {@link #getInstance()} is also provided.
@@ -28,7 +30,10 @@ public enum Algorithm
     DEEP_SHALLOW("Manzini-Ferragina"),
 
     /** "Larrson-Sadakane qsufsort algorithm */
-    QSUFSORT("Larrson-Sadakane qsufsort algorithm");
+    QSUFSORT("Larrson-Sadakane qsufsort algorithm"),
+
+    /** One of the above, selected depending on the input, see {@link AdaptiveBuilder}. */
+    ADAPTIVE("Adaptive selection based on input statistics");
 
     /** Full name of the algorithm. */
     private final String name;
@@ -51,8 +56,9 @@ public enum Algorithm
         switch (this)
         {
             case SKEW:
+            case SKEW_D:
                 return new DensePositiveDecorator(new ExtraTrailingCellsDecorator(
-                    getInstance(), SuffixArrays.MAX_EXTRA_TRAILING_SPACE));
+                    new Skew(), SuffixArrays.MAX_EXTRA_TRAILING_SPACE));
 
             default:
                 return getInstance();
@@ -87,6 +93,8 @@ public enum Algorithm
             case DEEP_SHALLOW:
                 return new DeepShallow();
 
+            case ADAPTIVE:
+                return new AdaptiveBuilder();
         }
 
         throw new RuntimeException("No algorithm for constant: " + this);
@@ -115,6 +123,48 @@ public enum Algorithm
         }
     }
 
+    /**
+     * @return Create and return an algorithm instance that can be shared between threads.
+     *         Algorithms keeping per-build state in instance fields or supporting
+     *         {@link Workspace}s are wrapped in a {@link ThreadLocalBuilder}, so each
+     *         thread reuses its own instance and scratch space across calls
+     *         ({@link #SKEW_D} wraps {@link #getDecoratedInstance()}); other algorithms
+     *         are returned as in {@link #getInstance()}.
+     */
+    public ISuffixArrayBuilder getThreadSafeInstance()
+    {
+        switch (this)
+        {
+            case SKEW:
+            case DIVSUFSORT:
+            case QSUFSORT:
+            case BPR:
+            case DEEP_SHALLOW:
+            case ADAPTIVE:
+                return new ThreadLocalBuilder(new Supplier<ISuffixArrayBuilder>()
+                {
+                    @Override
+                    public ISuffixArrayBuilder get()
+                    {
+                        return getInstance();
+                    }
+                });
+
+            case SKEW_D:
+                return new ThreadLocalBuilder(new Supplier<ISuffixArrayBuilder>()
+                {
+                    @Override
+                    public ISuffixArrayBuilder get()
+                    {
+                        return getDecoratedInstance();
+                    }
+                });
+
+            default:
+                return getInstance();
+        }
+    }
+
     /**
      * Return the full name of the algorithm.
      */
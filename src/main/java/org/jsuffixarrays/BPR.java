@@ -16,7 +16,7 @@ import java.util.Arrays;
  * The implementation of this algorithm makes some assumptions about the input. See
  * {@link #buildSuffixArray(int[], int, int)} for details.
  */
-public class BPR implements ISuffixArrayBuilder
+public class BPR implements IWorkspaceSuffixArrayBuilder
 {
     private final static class Alphabet
     {
@@ -25,7 +25,7 @@ public class BPR implements ISuffixArrayBuilder
         int [] alphaMapping;
         int [] charFreq;
 
-        Alphabet(int [] thisString, int stringLength)
+        Alphabet(int [] thisString, int start, int stringLength)
         {
             int tmpChar;
             size = 0;
@@ -33,7 +33,7 @@ public class BPR implements ISuffixArrayBuilder
             charFreq = new int [KBS_MAX_ALPHABET_SIZE];
             for (int i = 0; i < stringLength; i++)
             {
-                tmpChar = thisString[i];
+                tmpChar = thisString[start + i];
                 Tools.assertAlways(tmpChar >= 0, "Input must be positive");
                 if (charFreq[tmpChar] == 0)
                 {
@@ -78,6 +78,12 @@ public class BPR implements ISuffixArrayBuilder
 
     private int start;
 
+    /** Caller-provided output array, if any. */
+    private int [] output;
+
+    /** Scratch arrays are borrowed from here. */
+    private Workspace workspace;
+
     public BPR()
     {
         this(true);
@@ -104,26 +110,46 @@ public class BPR implements ISuffixArrayBuilder
      */
     @Override
     public int [] buildSuffixArray(int [] input, int start, int length)
+    {
+        return buildSuffixArray(input, start, length, new int [length + 1],
+            new Workspace(0));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The suffix array is refined directly in <code>output</code> if it has at least
+     * <code>length + 1</code> elements, otherwise it is borrowed from the workspace and
+     * copied. The bucket table, bucket pointers, pointer lists and the copy of the input
+     * (if preserved) are borrowed from the workspace.
+     */
+    @Override
+    public int [] buildSuffixArray(int [] input, int start, int length, int [] output,
+        Workspace workspace)
     {
         Tools.assertAlways(input != null, "input must not be null");
         Tools.assertAlways(input.length >= start + length + KBS_STRING_EXTENSION_SIZE,
             "input is too short");
         Tools.assertAlways(length >= 2, "input length must be >= 2");
+        Tools.assertAlways(output == null || output.length >= length,
+            "output is too short");
         this.start = start;
+        this.output = output;
+        this.workspace = workspace;
 
         if (preserveInput)
         {
-
-            seq = new int [length + KBS_STRING_EXTENSION_SIZE];
+            seq = workspace.borrow(length + KBS_STRING_EXTENSION_SIZE);
             this.start = 0;
             System.arraycopy(input, start, seq, 0, length);
+            Arrays.fill(seq, length, length + KBS_STRING_EXTENSION_SIZE, 0);
         }
         else
         {
             seq = input;
         }
 
-        this.alphabet = new Alphabet(seq, length);
+        this.alphabet = new Alphabet(seq, this.start, length);
         this.length = length;
         int alphaSize = alphabet.size;
 
@@ -150,7 +176,45 @@ public class BPR implements ISuffixArrayBuilder
         }
 
         kbs_buildDstepUsePrePlusCopyFreqOrder_SuffixArray(q);
-        return suffixArray;
+
+        if (preserveInput)
+        {
+            workspace.release(seq);
+        }
+        workspace.release(sufPtrMap);
+
+        int [] result = suffixArray;
+        if (result != output)
+        {
+            result = (output != null ? output : new int [length]);
+            System.arraycopy(suffixArray, 0, result, 0, length);
+            workspace.release(suffixArray);
+        }
+        this.seq = this.suffixArray = this.sufPtrMap = this.output = null;
+        this.workspace = null;
+        return result;
+    }
+
+    /**
+     * Borrow a cleared array of <code>length</code> elements, or return
+     * {@link #output} if it is large enough to hold the suffix array.
+     */
+    private int [] borrowSuffixArray(int length)
+    {
+        final int [] array = (output != null && output.length >= length ? output
+            : workspace.borrow(length));
+        Arrays.fill(array, 0, length, 0);
+        return array;
+    }
+
+    /**
+     * Borrow a cleared array of <code>length</code> elements from {@link #workspace}.
+     */
+    private int [] borrowCleared(int length)
+    {
+        final int [] array = workspace.borrow(length);
+        Arrays.fill(array, 0, length, 0);
+        return array;
     }
 
     /**
@@ -173,8 +237,8 @@ public class BPR implements ISuffixArrayBuilder
         /* Sort all level-1 buckets */
         int [] leftPtrList = new int [alphabetSize];
         int [] rightPtrList = new int [alphabetSize];
-        int [] leftPtrList2 = new int [alphabetSize * alphabetSize];
-        int [] rightPtrList2 = new int [alphabetSize * alphabetSize];
+        int [] leftPtrList2 = borrowCleared(alphabetSize * alphabetSize);
+        int [] rightPtrList2 = borrowCleared(alphabetSize * alphabetSize);
         int i;
         int j;
         int c1 = 0;
@@ -313,6 +377,9 @@ public class BPR implements ISuffixArrayBuilder
             isNotSortedLevel1Char[c1] = 0;
         }
 
+        workspace.release(rightPtrList2);
+        workspace.release(leftPtrList2);
+        workspace.release(buckets);
     }
 
     /**
@@ -933,7 +1000,7 @@ public class BPR implements ISuffixArrayBuilder
     {
         int [] buckets = determineAll_Buckets_Sarray(q);
         int strLen = length;
-        sufPtrMap = new int [strLen + 2 * q + 1];
+        sufPtrMap = workspace.borrow(strLen + 2 * q + 1);
 
         /* computation of first hashvalue */
         int alphabetSize = alphabet.size;
@@ -982,7 +1049,7 @@ public class BPR implements ISuffixArrayBuilder
         int strLen = length;
         int alphabetSize = alphabet.size;
         int numberBuckets = kbs_power_Ulong(alphabetSize, q);
-        int [] buckets = new int [numberBuckets + 1];
+        int [] buckets = borrowCleared(numberBuckets + 1);
         for (int i = 0; i < q; i++)
         {
             seq[start + length + i] = alphabet.charArray[0];
@@ -1031,7 +1098,7 @@ public class BPR implements ISuffixArrayBuilder
             alphaMap[j] = -1;
         }
 
-        this.suffixArray = new int [strLen + 1];
+        this.suffixArray = borrowSuffixArray(strLen + 1);
         /* computation of the bucket pointers, pointers into the suffix array */
         for (j = 1; j <= numberBuckets; j++)
         {
@@ -1080,7 +1147,7 @@ public class BPR implements ISuffixArrayBuilder
             throw new RuntimeException("value out of bounds");
         }
         int [] buckets = determinePower2Alpha_Buckets_Sarray(q);
-        this.sufPtrMap = new int [strLen + 2 * q + 1];
+        this.sufPtrMap = workspace.borrow(strLen + 2 * q + 1);
         int mappedUcharArray = 0;
         int hashCode = 0;
         int j;
@@ -1162,7 +1229,7 @@ public class BPR implements ISuffixArrayBuilder
             seq[start + i] = 0;
         }
         int numberBuckets = kbs_power_Ulong(alphabet.size, q);
-        int [] buckets = new int [numberBuckets + 1];
+        int [] buckets = borrowCleared(numberBuckets + 1);
         int hashCode = 0;
         for (int j = 0; j < q; j++)
         {
@@ -1203,7 +1270,7 @@ public class BPR implements ISuffixArrayBuilder
             alphabet.alphaMapping[j] = -1;
         }
 
-        this.suffixArray = new int [strLen + 1];
+        this.suffixArray = borrowSuffixArray(strLen + 1);
 
         /* computation of the bucket pointers, pointers into the suffix array */
         for (j = 1; j <= numberBuckets; j++)
@@ -0,0 +1,53 @@
+package org.jsuffixarrays;
+
+/**
+ * A holder structure for the Burrows-Wheeler transform of a given sequence.
+ * <p>
+ * The transform is defined for the input with a virtual end-of-sequence sentinel,
+ * smaller than any other symbol, appended to it. The transform of such a sequence has
+ * <code>length + 1</code> symbols; the sentinel is not stored, its position is given by
+ * the <i>primary index</i> instead. The first symbol of the transform is always the last
+ * symbol of the input.
+ * 
+ * @see SuffixArrays#createBWT(int[], int, int)
+ * @see SuffixArrays#inverseBWT(BWTData)
+ */
+public final class BWTData
+{
+    private final int [] bwt;
+    private final int length;
+    private final int primaryIndex;
+
+    BWTData(int [] bwt, int length, int primaryIndex)
+    {
+        this.bwt = bwt;
+        this.length = length;
+        this.primaryIndex = primaryIndex;
+    }
+
+    /**
+     * @return The transform (without the sentinel). Only the first {@link #length()}
+     *         elements are of relevance.
+     */
+    public int [] getBWT()
+    {
+        return bwt;
+    }
+
+    /**
+     * @return Number of symbols in the transform (equal to the input's length).
+     */
+    public int length()
+    {
+        return length;
+    }
+
+    /**
+     * @return The position of the (virtual) sentinel in the transform with the
+     *         sentinel.
+     */
+    public int getPrimaryIndex()
+    {
+        return primaryIndex;
+    }
+}
@@ -0,0 +1,153 @@
+package org.jsuffixarrays;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+
+/**
+ * Per-worker state for building suffix arrays (and LCP arrays) of many small inputs:
+ * builder instances, a {@link Workspace} and a reusable buffer for character sequences.
+ * Not thread-safe; each worker thread of a batch gets its own instance.
+ *
+ * @see SuffixArrays#createAll(java.util.List, Algorithm, boolean,
+ *      java.util.concurrent.ExecutorService, int)
+ */
+final class BatchWorker
+{
+    private final Algorithm algorithm;
+    private final boolean withLCP;
+
+    private final Workspace workspace = new Workspace(
+        ThreadLocalBuilder.DEFAULT_RETAINED_BYTES);
+    private final EnumMap<Algorithm, ISuffixArrayBuilder> builders =
+        new EnumMap<Algorithm, ISuffixArrayBuilder>(Algorithm.class);
+    private final AdaptiveBuilder adaptive = new AdaptiveBuilder();
+    private final PhiLCP lcpBuilder = new PhiLCP();
+
+    /** Character sequences are mapped to this buffer. */
+    private int [] buffer = new int [0];
+
+    /** Dense codes of characters in the current sequence (zero if not present). */
+    private final int [] codes = new int [Character.MAX_VALUE + 1];
+
+    /** Distinct characters of the current sequence. */
+    private final int [] distinct = new int [Character.MAX_VALUE + 1];
+
+    BatchWorker(Algorithm algorithm, boolean withLCP)
+    {
+        this.algorithm = algorithm;
+        this.withLCP = withLCP;
+    }
+
+    /**
+     * Build the suffix array of a character sequence, mapped to a dense alphabet of
+     * positive symbols (preserving the order of characters).
+     */
+    SuffixData build(CharSequence s)
+    {
+        final int length = s.length();
+        if (buffer.length < length + SuffixArrays.MAX_EXTRA_TRAILING_SPACE)
+        {
+            buffer = new int [length + length / 2 + SuffixArrays.MAX_EXTRA_TRAILING_SPACE];
+        }
+
+        int k = 0;
+        for (int i = 0; i < length; i++)
+        {
+            final char c = s.charAt(i);
+            if (codes[c] == 0)
+            {
+                codes[c] = -1;
+                distinct[k++] = c;
+            }
+            buffer[i] = c;
+        }
+        Arrays.sort(distinct, 0, k);
+        for (int i = 0; i < k; i++)
+        {
+            codes[distinct[i]] = i + 1;
+        }
+        for (int i = 0; i < length; i++)
+        {
+            buffer[i] = codes[buffer[i]];
+        }
+        for (int i = 0; i < k; i++)
+        {
+            codes[distinct[i]] = 0;
+        }
+        Arrays.fill(buffer, length, length + SuffixArrays.MAX_EXTRA_TRAILING_SPACE, 0);
+
+        return build(buffer, 0, length);
+    }
+
+    /**
+     * Build the suffix array of a slice of symbols. The constraints of the algorithm
+     * apply.
+     */
+    SuffixData build(int [] input, int start, int length)
+    {
+        if (length < 2)
+        {
+            return new SuffixData(new int [length], withLCP ? lcpOfShort(length) : null);
+        }
+
+        final int [] sa = new int [length];
+        final ISuffixArrayBuilder builder = builder(input, start, length);
+        if (builder instanceof IWorkspaceSuffixArrayBuilder)
+        {
+            ((IWorkspaceSuffixArrayBuilder) builder).buildSuffixArray(input, start, length,
+                sa, workspace);
+        }
+        else
+        {
+            System.arraycopy(builder.buildSuffixArray(input, start, length), 0, sa, 0,
+                length);
+        }
+
+        int [] lcp = null;
+        if (withLCP)
+        {
+            final int [] plcp = workspace.borrow(length);
+            lcp = lcpBuilder.buildLCP(input, start, length, sa, new int [length], plcp);
+            workspace.release(plcp);
+        }
+        return new SuffixData(sa, lcp);
+    }
+
+    /**
+     * @return The builder for the given input, reused between calls.
+     */
+    private ISuffixArrayBuilder builder(int [] input, int start, int length)
+    {
+        if (algorithm == Algorithm.ADAPTIVE)
+        {
+            // Keeps its own instances of the selected algorithms.
+            return adaptive;
+        }
+
+        if (algorithm == Algorithm.DIVSUFSORT)
+        {
+            // Bucket tables sized to the input's alphabet (they are borrowed from the
+            // workspace, the instance itself is cheap). Bucket tables are quadratic in
+            // the alphabet size, so symbols outside the byte range go to SA-IS instead.
+            final MinMax mm = Tools.minmax(input, start, length);
+            if (mm.min < 0 || mm.max >= 256)
+            {
+                return new DensePositiveDecorator(new SAIS());
+            }
+            return new DivSufSort(mm.max + 1);
+        }
+
+        ISuffixArrayBuilder builder = builders.get(algorithm);
+        if (builder == null)
+        {
+            builder = algorithm.getInstance();
+            builders.put(algorithm, builder);
+        }
+        return builder;
+    }
+
+    private static int [] lcpOfShort(int length)
+    {
+        return length == 0 ? new int [0] : new int [] {-1};
+    }
+}
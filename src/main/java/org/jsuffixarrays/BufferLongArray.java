@@ -0,0 +1,219 @@
+package org.jsuffixarrays;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * An {@link ILongArray} stored outside of the Java heap, in direct or memory-mapped
+ * {@link ByteBuffer}s. Elements are stored in little-endian order, using 1, 2, 4 or 8
+ * bytes each (1- and 2-byte elements are unsigned, for texts over small alphabets). The
+ * 4-byte variant is sufficient for suffix arrays (and intermediate values
+ * of builders) of sequences shorter than <code>2^31</code> symbols and takes as much
+ * memory as an <code>int[]</code>.
+ * <p>
+ * Memory-mapped arrays are backed by the operating system's page cache, so they do not
+ * count against the heap and can be shared by multiple processes mapping the same file.
+ * <p>
+ * Only builders implementing {@link ILongSuffixArrayBuilder} (at the moment
+ * {@link LongSAIS}) write their suffix arrays to these arrays directly. The
+ * <code>int</code> builders ({@link ISuffixArrayBuilder}, for example {@link SAIS} or
+ * {@link DivSufSort}) sort in a heap <code>int[]</code>, so their results have to fit in
+ * the heap and be copied here afterwards.
+ * 
+ * @see #allocateDirect(long, int)
+ * @see #map(FileChannel, MapMode, long, long, int)
+ */
+public final class BufferLongArray implements ILongArray
+{
+    /**
+     * Default size of a single buffer (as a power of two), 128MB.
+     */
+    final static int DEFAULT_PAGE_BYTES_BITS = 27;
+
+    private final ByteBuffer [] pages;
+    private final long length;
+    private final int width;
+    private final int widthBits;
+    private final int pageBits;
+    private final int pageMask;
+
+    /*
+     * 
+     */
+    private BufferLongArray(ByteBuffer [] pages, long length, int width, int pageBits)
+    {
+        this.pages = pages;
+        this.length = length;
+        this.width = width;
+        this.widthBits = Integer.numberOfTrailingZeros(width);
+        this.pageBits = pageBits;
+        this.pageMask = (1 << pageBits) - 1;
+    }
+
+    /**
+     * Allocate a zero-initialized array in direct memory.
+     * 
+     * @param length Number of elements.
+     * @param width Number of bytes per element, 1, 2, 4 or 8.
+     */
+    public static BufferLongArray allocateDirect(long length, int width)
+    {
+        return allocateDirect(length, width, DEFAULT_PAGE_BYTES_BITS);
+    }
+
+    /*
+     * 
+     */
+    static BufferLongArray allocateDirect(long length, int width, int pageBytesBits)
+    {
+        final int pageBits = pageBits(width, pageBytesBits);
+        final ByteBuffer [] pages = new ByteBuffer [pageCount(length, pageBits)];
+        for (int i = 0; i < pages.length; i++)
+        {
+            pages[i] = ByteBuffer.allocateDirect(pageBytes(length, i, width, pageBits))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new BufferLongArray(pages, length, width, pageBits);
+    }
+
+    /**
+     * Map a region of a file as an array. In {@link MapMode#READ_WRITE} mode, the file is
+     * extended if the region does not fit in it and changes made to the array are
+     * (eventually) written to the file, see {@link #force()}.
+     * 
+     * @param channel File channel to map.
+     * @param mode Mapping mode.
+     * @param position Byte offset of the first element in the file.
+     * @param length Number of elements.
+     * @param width Number of bytes per element, 1, 2, 4 or 8.
+     */
+    public static BufferLongArray map(FileChannel channel, MapMode mode, long position,
+        long length, int width) throws IOException
+    {
+        return map(channel, mode, position, length, width, DEFAULT_PAGE_BYTES_BITS);
+    }
+
+    /*
+     * 
+     */
+    static BufferLongArray map(FileChannel channel, MapMode mode, long position,
+        long length, int width, int pageBytesBits) throws IOException
+    {
+        final int pageBits = pageBits(width, pageBytesBits);
+        final ByteBuffer [] pages = new ByteBuffer [pageCount(length, pageBits)];
+        long offset = position;
+        for (int i = 0; i < pages.length; i++)
+        {
+            final int size = pageBytes(length, i, width, pageBits);
+            pages[i] = channel.map(mode, offset, size).order(ByteOrder.LITTLE_ENDIAN);
+            offset += size;
+        }
+        return new BufferLongArray(pages, length, width, pageBits);
+    }
+
+    private static int pageBits(int width, int pageBytesBits)
+    {
+        Tools.assertAlways(width == 1 || width == 2 || width == 4 || width == 8,
+            "width must be 1, 2, 4 or 8");
+        Tools.assertAlways(pageBytesBits > 3 && pageBytesBits < 31,
+            "page size out of range");
+        return pageBytesBits - Integer.numberOfTrailingZeros(width);
+    }
+
+    private static int pageCount(long length, int pageBits)
+    {
+        Tools.assertAlways(length >= 0, "length must not be negative");
+        final long pages = (length + (1L << pageBits) - 1) >>> pageBits;
+        Tools.assertAlways(pages < Integer.MAX_VALUE, "array too large for page size");
+        return (int) pages;
+    }
+
+    private static int pageBytes(long length, int page, int width, int pageBits)
+    {
+        final long elements = Math.min(1L << pageBits, length - ((long) page << pageBits));
+        return (int) (elements * width);
+    }
+
+    /**
+     * @return Number of bytes per element (1, 2, 4 or 8).
+     */
+    public int width()
+    {
+        return width;
+    }
+
+    /**
+     * Force any changes made to memory-mapped pages to be written to the storage device.
+     * No-op for direct memory.
+     */
+    public void force()
+    {
+        for (ByteBuffer page : pages)
+        {
+            if (page instanceof MappedByteBuffer)
+            {
+                ((MappedByteBuffer) page).force();
+            }
+        }
+    }
+
+    /*
+     * 
+     */
+    @Override
+    public long length()
+    {
+        return length;
+    }
+
+    /*
+     * 
+     */
+    @Override
+    public long get(long index)
+    {
+        final ByteBuffer page = pages[(int) (index >>> pageBits)];
+        final int offset = ((int) index & pageMask) << widthBits;
+        switch (width)
+        {
+            case 8:
+                return page.getLong(offset);
+            case 4:
+                return page.getInt(offset);
+            case 2:
+                return page.getChar(offset);
+            default:
+                return page.get(offset) & 0xff;
+        }
+    }
+
+    /**
+     * Sets the value at the given index. For 4-byte elements the value must fit in an
+     * <code>int</code>, for 1- and 2-byte elements in the unsigned range of the width.
+     */
+    @Override
+    public void set(long index, long value)
+    {
+        final ByteBuffer page = pages[(int) (index >>> pageBits)];
+        final int offset = ((int) index & pageMask) << widthBits;
+        switch (width)
+        {
+            case 8:
+                page.putLong(offset, value);
+                break;
+            case 4:
+                assert value == (int) value : "value does not fit in 4 bytes: " + value;
+                page.putInt(offset, (int) value);
+                break;
+            default:
+                assert (value >>> (8 * width)) == 0 : "value does not fit in " + width
+                    + " bytes: " + value;
+                if (width == 2) page.putChar(offset, (char) value);
+                else page.put(offset, (byte) value);
+        }
+    }
+}
@@ -265,7 +265,14 @@ public class DeepShallow implements ISuffixArrayBuilder {
 			bigDone[ss] = true;
 		}// endfor
 
-		return suffixArray;
+		// Do not retain per-build arrays in (reused) instances.
+		final int[] result = suffixArray;
+		text = null;
+		suffixArray = null;
+		stack = null;
+		anchorRank = null;
+		anchorOffset = null;
+		return result;
 	}
 
 	/**
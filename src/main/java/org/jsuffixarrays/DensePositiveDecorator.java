@@ -4,10 +4,18 @@ package org.jsuffixarrays;
  * A decorator around {@link ISuffixArrayBuilder} that accepts any input symbols and maps
  * it to non-negative, compact (dense) alphabet. Relative symbols order is preserved (changes are
  * limited to a constant shift and compaction of symbols). The input is remapped in-place,
- * but additional space is required for the mapping.
+ * but additional space is required for the mapping: proportional to the range of symbols
+ * if it does not exceed {@link #DENSE_RANGE_LIMIT}, proportional to the number of distinct
+ * symbols otherwise.
  */
 public final class DensePositiveDecorator implements ISuffixArrayBuilder
 {
+    /**
+     * Inputs with a range of symbols above this limit are mapped with a
+     * {@link SparseAlphabetMapper} instead of a {@link DensePositiveMapper}.
+     */
+    final static int DENSE_RANGE_LIMIT = 0x10000;
+
     private final ISuffixArrayBuilder delegate;
 
     /*
@@ -24,18 +32,7 @@ public final class DensePositiveDecorator implements ISuffixArrayBuilder
     @Override
     public int [] buildSuffixArray(int [] input, final int start, final int length)
     {
-        final MinMax minmax = Tools.minmax(input, start, length);
-
-        final ISymbolMapper mapper;
-        if (minmax.range() > 0x10000)
-        {
-            throw new RuntimeException("Large symbol space not implemented yet.");
-        }
-        else
-        {
-            mapper = new DensePositiveMapper(input, start, length);
-        }
-
+        final ISymbolMapper mapper = createMapper(input, start, length);
         mapper.map(input, start, length);
         try
         {
@@ -46,4 +43,16 @@ public final class DensePositiveDecorator implements ISuffixArrayBuilder
             mapper.undo(input, start, length);
         }
     }
+
+    /**
+     * @return Returns a mapper of the given input's symbols to dense, positive codes.
+     */
+    static ISymbolMapper createMapper(int [] input, int start, int length)
+    {
+        if (length > 0 && Tools.minmax(input, start, length).range() > DENSE_RANGE_LIMIT)
+        {
+            return new SparseAlphabetMapper(input, start, length);
+        }
+        return new DensePositiveMapper(input, start, length);
+    }
 }
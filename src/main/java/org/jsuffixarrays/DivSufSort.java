@@ -2,6 +2,16 @@ package org.jsuffixarrays;
 
 import static org.jsuffixarrays.Tools.assertAlways;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.sorting.IndirectComparator;
+import com.carrotsearch.hppc.sorting.IndirectSort;
+
 /**
  * <p>
  * Straightforward reimplementation of the divsufsort algorithm given in: <pre><code>
@@ -15,9 +25,61 @@ import static org.jsuffixarrays.Tools.assertAlways;
  * <p>
  * The implementation of this algorithm makes some assumptions about the input. See
  * {@link #buildSuffixArray(int[], int, int)} for details.
+ * <p>
+ * Type B* buckets are independent of each other and can be sorted concurrently (this
+ * mirrors the OpenMP variant of libdivsufsort). See {@link #DivSufSort(int, int)}.
+ * <p>
+ * Byte inputs (arrays and buffers, including memory-mapped files) are read directly, as
+ * unsigned 8-bit symbols, without widening them to an <code>int[]</code>.
  */
-public final class DivSufSort implements ISuffixArrayBuilder
+public final class DivSufSort
+    implements IWorkspaceSuffixArrayBuilder, IByteSuffixArrayBuilder
 {
+    /**
+     * Read-only access to the input symbols, relative to the start of the input. A single
+     * final class with a branch on the input's type, rather than an interface with an
+     * implementation per type: calls in the sorting loops stay monomorphic (and inlined)
+     * no matter which input types the JVM has seen, and the branch always goes the same
+     * way within a build.
+     */
+    private static final class Symbols
+    {
+        private final int [] ints;
+        private final byte [] bytes;
+        private final ByteBuffer buffer;
+        private final int start;
+
+        Symbols(int [] ints, int start)
+        {
+            this(ints, null, null, start);
+        }
+
+        Symbols(byte [] bytes, int start)
+        {
+            this(null, bytes, null, start);
+        }
+
+        Symbols(ByteBuffer buffer, int start)
+        {
+            this(null, null, buffer, start);
+        }
+
+        private Symbols(int [] ints, byte [] bytes, ByteBuffer buffer, int start)
+        {
+            this.ints = ints;
+            this.bytes = bytes;
+            this.buffer = buffer;
+            this.start = start;
+        }
+
+        int get(int i)
+        {
+            if (ints != null) return ints[start + i];
+            if (bytes != null) return bytes[start + i] & 0xff;
+            return buffer.get(start + i) & 0xff;
+        }
+    }
+
     /*
      * 
      */
@@ -93,9 +155,7 @@ public final class DivSufSort implements ISuffixArrayBuilder
 
     public DivSufSort()
     {
-        ALPHABET_SIZE = DEFAULT_ALPHABET_SIZE;
-        BUCKET_A_SIZE = ALPHABET_SIZE;
-        BUCKET_B_SIZE = ALPHABET_SIZE * ALPHABET_SIZE;
+        this(DEFAULT_ALPHABET_SIZE);
     }
 
     /**
@@ -103,9 +163,23 @@ public final class DivSufSort implements ISuffixArrayBuilder
      */
     public DivSufSort(int alphabetSize)
     {
+        this(alphabetSize, 1);
+    }
+
+    /**
+     * @param alphabetSize
+     * @param threads The number of threads used to sort type B* buckets. If larger than
+     *            one, a fork-join pool of this size is created for each call to
+     *            {@link #buildSuffixArray(int[], int, int)}. The result is identical to
+     *            the sequential version.
+     */
+    public DivSufSort(int alphabetSize, int threads)
+    {
+        assertAlways(threads >= 1, "the number of threads must be >= 1");
         ALPHABET_SIZE = alphabetSize;
         BUCKET_A_SIZE = ALPHABET_SIZE;
         BUCKET_B_SIZE = ALPHABET_SIZE * ALPHABET_SIZE;
+        this.threads = threads;
     }
 
     /* constants */
@@ -156,9 +230,9 @@ public final class DivSufSort implements ISuffixArrayBuilder
     private final int ALPHABET_SIZE;
     private final int BUCKET_A_SIZE;
     private final int BUCKET_B_SIZE;
+    private final int threads;
     private int [] SA;
-    private int [] T;
-    private int start;
+    private Symbols T;
 
     /**
      * {@inheritDoc}
@@ -173,22 +247,99 @@ public final class DivSufSort implements ISuffixArrayBuilder
      */
     @Override
     public final int [] buildSuffixArray(int [] input, int start, int length)
+    {
+        return buildSuffixArray(input, start, length, null, new Workspace(0));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The bucket arrays are borrowed from the workspace; the suffix array is sorted
+     * directly in <code>output</code>.
+     */
+    @Override
+    public final int [] buildSuffixArray(int [] input, int start, int length,
+        int [] output, Workspace workspace)
     {
         assertAlways(input != null, "input must not be null");
         assertAlways(length >= 2, "input length must be >= 2");
+        assertAlways(output == null || output.length >= length, "output is too short");
         MinMax mm = Tools.minmax(input, start, length);
         assertAlways(mm.min >= 0, "input must not be negative");
         assertAlways(mm.max < ALPHABET_SIZE, "max alphabet size is " + ALPHABET_SIZE);
 
-        final int [] ret = new int [length];
+        return build(new Symbols(input, start), length, output, workspace);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Additional constraints enforced by DivSufSort algorithm: symbols limited by
+     * alphabet size passed in the constructor, length >= 2.
+     */
+    @Override
+    public final int [] buildSuffixArray(byte [] input, int start, int length)
+    {
+        assertAlways(input != null, "input must not be null");
+        assertAlways(length >= 2, "input length must be >= 2");
+        assertAlways(start >= 0 && start + length <= input.length, "input is too short");
+        final Symbols T = new Symbols(input, start);
+        checkAlphabet(T, length);
+
+        return build(T, length, null, new Workspace(0));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Additional constraints enforced by DivSufSort algorithm: symbols limited by
+     * alphabet size passed in the constructor, length >= 2.
+     */
+    @Override
+    public final int [] buildSuffixArray(ByteBuffer input, int start, int length)
+    {
+        assertAlways(input != null, "input must not be null");
+        assertAlways(length >= 2, "input length must be >= 2");
+        assertAlways(start >= 0 && start + length <= input.limit(), "input is too short");
+        final Symbols T = new Symbols(input, start);
+        checkAlphabet(T, length);
+
+        return build(T, length, null, new Workspace(0));
+    }
+
+    /**
+     * Byte symbols are never negative, only the alphabet size needs to be checked.
+     */
+    private void checkAlphabet(Symbols T, int length)
+    {
+        if (ALPHABET_SIZE < 256)
+        {
+            int max = 0;
+            for (int i = 0; i < length; i++)
+            {
+                max = Math.max(max, T.get(i));
+            }
+            assertAlways(max < ALPHABET_SIZE, "max alphabet size is " + ALPHABET_SIZE);
+        }
+    }
+
+    private int [] build(Symbols T, int length, int [] output, Workspace workspace)
+    {
+        final int [] ret = (output != null ? output : new int [length]);
         this.SA = ret;
-        this.T = input;
-        int [] bucket_A = new int [BUCKET_A_SIZE];
-        int [] bucket_B = new int [BUCKET_B_SIZE];
-        this.start = start;
+        this.T = T;
+        int [] bucket_A = workspace.borrow(BUCKET_A_SIZE);
+        int [] bucket_B = workspace.borrow(BUCKET_B_SIZE);
+        Arrays.fill(bucket_A, 0, BUCKET_A_SIZE, 0);
+        Arrays.fill(bucket_B, 0, BUCKET_B_SIZE, 0);
         /* Suffixsort. */
         int m = sortTypeBstar(bucket_A, bucket_B, length);
         constructSuffixArray(bucket_A, bucket_B, length, m);
+
+        workspace.release(bucket_B);
+        workspace.release(bucket_A);
+        this.SA = null;
+        this.T = null;
         return ret;
     }
 
@@ -219,8 +370,8 @@ public final class DivSufSort implements ISuffixArrayBuilder
                         // "");
                         // Tools.assertAlways(T[s - 1] <= T[s], "");
                         SA[j] = ~s;
-                        c0 = T[start + --s];
-                        if ((0 < s) && (T[start + s - 1] > c0))
+                        c0 = T.get(--s);
+                        if ((0 < s) && (T.get(s - 1) > c0))
                         {
                             s = ~s;
                         }
@@ -248,16 +399,16 @@ public final class DivSufSort implements ISuffixArrayBuilder
         /*
          * Construct the suffix array by using the sorted order of type B suffixes.
          */
-        k = bucket_A[c2 = T[start + n - 1]];
-        SA[k++] = (T[start + n - 2] < c2) ? ~(n - 1) : (n - 1);
+        k = bucket_A[c2 = T.get(n - 1)];
+        SA[k++] = (T.get(n - 2) < c2) ? ~(n - 1) : (n - 1);
         /* Scan the suffix array from left to right. */
         for (i = 0, j = n; i < j; ++i)
         {
             if (0 < (s = SA[i]))
             {
                 // Tools.assertAlways(T[s - 1] >= T[s], "");
-                c0 = T[start + --s];
-                if ((s == 0) || (T[start + s - 1] < c0))
+                c0 = T.get(--s);
+                if ((s == 0) || (T.get(s - 1) < c0))
                 {
                     s = ~s;
                 }
@@ -292,21 +443,21 @@ public final class DivSufSort implements ISuffixArrayBuilder
          * A, B and B suffix. Moreover, store the beginning position of all type B
          * suffixes into the array SA.
          */
-        for (i = n - 1, m = n, c0 = T[start + n - 1]; 0 <= i;)
+        for (i = n - 1, m = n, c0 = T.get(n - 1); 0 <= i;)
         {
             /* type A suffix. */
             do
             {
                 ++bucket_A[c1 = c0];
             }
-            while ((0 <= --i) && ((c0 = T[start + i]) >= c1));
+            while ((0 <= --i) && ((c0 = T.get(i)) >= c1));
             if (0 <= i)
             {
                 /* type B suffix. */
                 ++bucket_B[(c0) * ALPHABET_SIZE + (c1)];
                 SA[--m] = i;
                 /* type B suffix. */
-                for (--i, c1 = c0; (0 <= i) && ((c0 = T[start + i]) <= c1); --i, c1 = c0)
+                for (--i, c1 = c0; (0 <= i) && ((c0 = T.get(i)) <= c1); --i, c1 = c0)
                 {
                     ++bucket_B[(c1) * ALPHABET_SIZE + (c0)];
                 }
@@ -341,13 +492,13 @@ public final class DivSufSort implements ISuffixArrayBuilder
             for (i = m - 2; 0 <= i; --i)
             {
                 t = SA[PAb + i];
-                c0 = T[start + t];
-                c1 = T[start + t + 1];
+                c0 = T.get(t);
+                c1 = T.get(t + 1);
                 SA[--bucket_B[(c0) * ALPHABET_SIZE + (c1)]] = i;
             }
             t = SA[PAb + m - 1];
-            c0 = T[start + t];
-            c1 = T[start + t + 1];
+            c0 = T.get(t);
+            c1 = T.get(t + 1);
             SA[--bucket_B[(c0) * ALPHABET_SIZE + (c1)]] = m - 1;
 
             // Sort the type B* substrings using sssort.
@@ -355,14 +506,21 @@ public final class DivSufSort implements ISuffixArrayBuilder
             buf = m;// SA
             bufsize = n - (2 * m);
 
-            for (c0 = ALPHABET_SIZE - 2, j = m; 0 < j; --c0)
+            if (threads > 1)
+            {
+                ssSortParallel(bucket_B, PAb, buf, bufsize, n, m);
+            }
+            else
             {
-                for (c1 = ALPHABET_SIZE - 1; c0 < c1; j = i, --c1)
+                for (c0 = ALPHABET_SIZE - 2, j = m; 0 < j; --c0)
                 {
-                    i = bucket_B[(c0) * ALPHABET_SIZE + (c1)];
-                    if (1 < (j - i))
+                    for (c1 = ALPHABET_SIZE - 1; c0 < c1; j = i, --c1)
                     {
-                        ssSort(PAb, i, j, buf, bufsize, 2, n, SA[i] == (m - 1));
+                        i = bucket_B[(c0) * ALPHABET_SIZE + (c1)];
+                        if (1 < (j - i))
+                        {
+                            ssSort(PAb, i, j, buf, bufsize, 2, n, SA[i] == (m - 1));
+                        }
                     }
                 }
             }
@@ -396,15 +554,15 @@ public final class DivSufSort implements ISuffixArrayBuilder
             // trsort.
             trSort(ISAb, m, 1);
             // Set the sorted order of type B* suffixes.
-            for (i = n - 1, j = m, c0 = T[start + n - 1]; 0 <= i;)
+            for (i = n - 1, j = m, c0 = T.get(n - 1); 0 <= i;)
             {
-                for (--i, c1 = c0; (0 <= i) && ((c0 = T[start + i]) >= c1); --i, c1 = c0)
+                for (--i, c1 = c0; (0 <= i) && ((c0 = T.get(i)) >= c1); --i, c1 = c0)
                 {
                 }
                 if (0 <= i)
                 {
                     t = i;
-                    for (--i, c1 = c0; (0 <= i) && ((c0 = T[start + i]) <= c1); --i, c1 = c0)
+                    for (--i, c1 = c0; (0 <= i) && ((c0 = T.get(i)) <= c1); --i, c1 = c0)
                     {
                     }
                     SA[SA[ISAb + --j]] = ((t == 0) || (1 < (t - i))) ? t : ~t;
@@ -437,6 +595,84 @@ public final class DivSufSort implements ISuffixArrayBuilder
         return m;
     }
 
+    /**
+     * Sort type B* buckets concurrently. Buckets occupy disjoint ranges of
+     * <code>SA[0..m)</code> and only read the (shared) <code>PA</code> and text, so
+     * each task only needs its own slice of the free buffer space
+     * <code>SA[buf..buf+bufsize)</code>. Tasks pull buckets from a shared queue, largest
+     * buckets first.
+     */
+    private final void ssSortParallel(int [] bucket_B, final int PAb, int buf,
+        int bufsize, final int n, final int m)
+    {
+        int i, j, c0, c1;
+
+        final IntArrayList ranges = new IntArrayList();
+        for (c0 = ALPHABET_SIZE - 2, j = m; 0 < j; --c0)
+        {
+            for (c1 = ALPHABET_SIZE - 1; c0 < c1; j = i, --c1)
+            {
+                i = bucket_B[(c0) * ALPHABET_SIZE + (c1)];
+                if (1 < (j - i))
+                {
+                    ranges.add(i, j);
+                }
+            }
+        }
+
+        final int [] r = ranges.buffer;
+        final int [] order = IndirectSort.mergesort(0, ranges.size() / 2,
+            new IndirectComparator()
+            {
+                public int compare(int a, int b)
+                {
+                    final int sizeA = r[2 * a + 1] - r[2 * a];
+                    final int sizeB = r[2 * b + 1] - r[2 * b];
+                    return sizeA > sizeB ? -1 : (sizeA < sizeB ? 1 : 0);
+                }
+            });
+
+        final AtomicInteger next = new AtomicInteger();
+        final int taskBufSize = bufsize / threads;
+        final RecursiveAction [] tasks = new RecursiveAction [threads];
+        for (int t = 0; t < threads; t++)
+        {
+            final int taskBuf = buf + t * taskBufSize;
+            tasks[t] = new RecursiveAction()
+            {
+                @Override
+                protected void compute()
+                {
+                    int k;
+                    while ((k = next.getAndIncrement()) < order.length)
+                    {
+                        final int first = r[2 * order[k]];
+                        final int last = r[2 * order[k] + 1];
+                        ssSort(PAb, first, last, taskBuf, taskBufSize, 2, n,
+                            SA[first] == (m - 1));
+                    }
+                }
+            };
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try
+        {
+            pool.invoke(new RecursiveAction()
+            {
+                @Override
+                protected void compute()
+                {
+                    invokeAll(tasks);
+                }
+            });
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
     /**
      *
      */
@@ -522,11 +758,11 @@ public final class DivSufSort implements ISuffixArrayBuilder
         int U1, U2, U1n, U2n;// pointers to T
 
         for (U1 = depth + pa, U2 = depth + SA[p2], U1n = pb + 2, U2n = SA[p2 + 1] + 2; (U1 < U1n)
-            && (U2 < U2n) && (T[start + U1] == T[start + U2]); ++U1, ++U2)
+            && (U2 < U2n) && (T.get(U1) == T.get(U2)); ++U1, ++U2)
         {
         }
 
-        return U1 < U1n ? (U2 < U2n ? T[start + U1] - T[start + U2] : 1) : (U2 < U2n ? -1
+        return U1 < U1n ? (U2 < U2n ? T.get(U1) - T.get(U2) : 1) : (U2 < U2n ? -1
             : 0);
     }
 
@@ -538,11 +774,11 @@ public final class DivSufSort implements ISuffixArrayBuilder
         int U1, U2, U1n, U2n;// pointers to T
 
         for (U1 = depth + SA[p1], U2 = depth + SA[p2], U1n = SA[p1 + 1] + 2, U2n = SA[p2 + 1] + 2; (U1 < U1n)
-            && (U2 < U2n) && (T[start + U1] == T[start + U2]); ++U1, ++U2)
+            && (U2 < U2n) && (T.get(U1) == T.get(U2)); ++U1, ++U2)
         {
         }
 
-        return U1 < U1n ? (U2 < U2n ? T[start + U1] - T[start + U2] : 1) : (U2 < U2n ? -1
+        return U1 < U1n ? (U2 < U2n ? T.get(U1) - T.get(U2) : 1) : (U2 < U2n ? -1
             : 0);
 
     }
@@ -1257,9 +1493,9 @@ public final class DivSufSort implements ISuffixArrayBuilder
             }
             if (limit < 0)
             {
-                for (a = first + 1, v = T[start + Td + SA[PA + SA[first]]]; a < last; ++a)
+                for (a = first + 1, v = T.get(Td + SA[PA + SA[first]]); a < last; ++a)
                 {
-                    if ((x = T[start + Td + SA[PA + SA[a]]]) != v)
+                    if ((x = T.get(Td + SA[PA + SA[a]])) != v)
                     {
                         if (1 < (a - first))
                         {
@@ -1270,7 +1506,7 @@ public final class DivSufSort implements ISuffixArrayBuilder
                     }
                 }
 
-                if (T[start + Td + SA[PA + SA[first]] - 1] < v)
+                if (T.get(Td + SA[PA + SA[first]] - 1) < v)
                 {
                     first = ssPartition(PA, first, a, depth);
                 }
@@ -1310,16 +1546,16 @@ public final class DivSufSort implements ISuffixArrayBuilder
 
             // choose pivot
             a = ssPivot(Td, PA, first, last);
-            v = T[start + Td + SA[PA + SA[a]]];
+            v = T.get(Td + SA[PA + SA[a]]);
             swapInSA(first, a);
 
             // partition
-            for (b = first; (++b < last) && ((x = T[start + Td + SA[PA + SA[b]]]) == v);)
+            for (b = first; (++b < last) && ((x = T.get(Td + SA[PA + SA[b]])) == v);)
             {
             }
             if (((a = b) < last) && (x < v))
             {
-                for (; (++b < last) && ((x = T[start + Td + SA[PA + SA[b]]]) <= v);)
+                for (; (++b < last) && ((x = T.get(Td + SA[PA + SA[b]])) <= v);)
                 {
                     if (x == v)
                     {
@@ -1329,12 +1565,12 @@ public final class DivSufSort implements ISuffixArrayBuilder
                 }
             }
 
-            for (c = last; (b < --c) && ((x = T[start + Td + SA[PA + SA[c]]]) == v);)
+            for (c = last; (b < --c) && ((x = T.get(Td + SA[PA + SA[c]])) == v);)
             {
             }
             if ((b < (d = c)) && (x > v))
             {
-                for (; (b < --c) && ((x = T[start + Td + SA[PA + SA[c]]]) >= v);)
+                for (; (b < --c) && ((x = T.get(Td + SA[PA + SA[c]])) >= v);)
                 {
                     if (x == v)
                     {
@@ -1347,7 +1583,7 @@ public final class DivSufSort implements ISuffixArrayBuilder
             for (; b < c;)
             {
                 swapInSA(b, c);
-                for (; (++b < c) && ((x = T[start + Td + SA[PA + SA[b]]]) <= v);)
+                for (; (++b < c) && ((x = T.get(Td + SA[PA + SA[b]])) <= v);)
                 {
                     if (x == v)
                     {
@@ -1355,7 +1591,7 @@ public final class DivSufSort implements ISuffixArrayBuilder
                         ++a;
                     }
                 }
-                for (; (b < --c) && ((x = T[start + Td + SA[PA + SA[c]]]) >= v);)
+                for (; (b < --c) && ((x = T.get(Td + SA[PA + SA[c]])) >= v);)
                 {
                     if (x == v)
                     {
@@ -1388,7 +1624,7 @@ public final class DivSufSort implements ISuffixArrayBuilder
 
                 a = first + (b - a);
                 c = last - (d - c);
-                b = (v <= T[start + Td + SA[PA + SA[a]] - 1]) ? a : ssPartition(PA, a, c,
+                b = (v <= T.get(Td + SA[PA + SA[a]] - 1)) ? a : ssPartition(PA, a, c,
                     depth);
 
                 if ((a - first) <= (last - c))
@@ -1444,7 +1680,7 @@ public final class DivSufSort implements ISuffixArrayBuilder
             else
             {
                 limit += 1;
-                if (T[start + Td + SA[PA + SA[first]] - 1] < v)
+                if (T.get(Td + SA[PA + SA[first]] - 1) < v)
                 {
                     first = ssPartition(PA, first, last, depth);
                     limit = ssIlg(last - first);
@@ -1490,20 +1726,20 @@ public final class DivSufSort implements ISuffixArrayBuilder
     private final int ssMedian5(int Td, int PA, int v1, int v2, int v3, int v4, int v5)
     {
         int t;
-        if (T[start + Td + SA[PA + SA[v2]]] > T[start + Td + SA[PA + SA[v3]]])
+        if (T.get(Td + SA[PA + SA[v2]]) > T.get(Td + SA[PA + SA[v3]]))
         {
             t = v2;
             v2 = v3;
             v3 = t;
 
         }
-        if (T[start + Td + SA[PA + SA[v4]]] > T[start + Td + SA[PA + SA[v5]]])
+        if (T.get(Td + SA[PA + SA[v4]]) > T.get(Td + SA[PA + SA[v5]]))
         {
             t = v4;
             v4 = v5;
             v5 = t;
         }
-        if (T[start + Td + SA[PA + SA[v2]]] > T[start + Td + SA[PA + SA[v4]]])
+        if (T.get(Td + SA[PA + SA[v2]]) > T.get(Td + SA[PA + SA[v4]]))
         {
             t = v2;
             v2 = v4;
@@ -1512,13 +1748,13 @@ public final class DivSufSort implements ISuffixArrayBuilder
             v3 = v5;
             v5 = t;
         }
-        if (T[start + Td + SA[PA + SA[v1]]] > T[start + Td + SA[PA + SA[v3]]])
+        if (T.get(Td + SA[PA + SA[v1]]) > T.get(Td + SA[PA + SA[v3]]))
         {
             t = v1;
             v1 = v3;
             v3 = t;
         }
-        if (T[start + Td + SA[PA + SA[v1]]] > T[start + Td + SA[PA + SA[v4]]])
+        if (T.get(Td + SA[PA + SA[v1]]) > T.get(Td + SA[PA + SA[v4]]))
         {
             t = v1;
             v1 = v4;
@@ -1527,7 +1763,7 @@ public final class DivSufSort implements ISuffixArrayBuilder
             v3 = v5;
             v5 = t;
         }
-        if (T[start + Td + SA[PA + SA[v3]]] > T[start + Td + SA[PA + SA[v4]]])
+        if (T.get(Td + SA[PA + SA[v3]]) > T.get(Td + SA[PA + SA[v4]]))
         {
             return v4;
         }
@@ -1539,15 +1775,15 @@ public final class DivSufSort implements ISuffixArrayBuilder
      */
     private final int ssMedian3(int Td, int PA, int v1, int v2, int v3)
     {
-        if (T[start + Td + SA[PA + SA[v1]]] > T[start + Td + SA[PA + SA[v2]]])
+        if (T.get(Td + SA[PA + SA[v1]]) > T.get(Td + SA[PA + SA[v2]]))
         {
             int t = v1;
             v1 = v2;
             v2 = t;
         }
-        if (T[start + Td + SA[PA + SA[v2]]] > T[start + Td + SA[PA + SA[v3]]])
+        if (T.get(Td + SA[PA + SA[v2]]) > T.get(Td + SA[PA + SA[v3]]))
         {
-            if (T[start + Td + SA[PA + SA[v1]]] > T[start + Td + SA[PA + SA[v3]]])
+            if (T.get(Td + SA[PA + SA[v1]]) > T.get(Td + SA[PA + SA[v3]]))
             {
                 return v1;
             }
@@ -1601,8 +1837,7 @@ public final class DivSufSort implements ISuffixArrayBuilder
         if ((size % 2) == 0)
         {
             m--;
-            if (T[start + Td + SA[PA + SA[sa + (m / 2)]]] < T[start + Td
-                + SA[PA + SA[sa + m]]])
+            if (T.get(Td + SA[PA + SA[sa + (m / 2)]]) < T.get(Td + SA[PA + SA[sa + m]]))
             {
                 swapInSA(sa + m, sa + (m / 2));
             }
@@ -1636,11 +1871,11 @@ public final class DivSufSort implements ISuffixArrayBuilder
         int v;
         int c, d, e;
 
-        for (v = SA[sa + i], c = T[start + Td + SA[PA + v]]; (j = 2 * i + 1) < size; SA[sa
+        for (v = SA[sa + i], c = T.get(Td + SA[PA + v]); (j = 2 * i + 1) < size; SA[sa
             + i] = SA[sa + k], i = k)
         {
-            d = T[start + Td + SA[PA + SA[sa + (k = j++)]]];
-            if (d < (e = T[start + Td + SA[PA + SA[sa + j]]]))
+            d = T.get(Td + SA[PA + SA[sa + (k = j++)]]);
+            if (d < (e = T.get(Td + SA[PA + SA[sa + j]])))
             {
                 k = j;
                 d = e;
@@ -0,0 +1,521 @@
+package org.jsuffixarrays;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.carrotsearch.hppc.IntStack;
+
+/**
+ * An enhanced suffix array: a suffix array, its LCP array and a child table, which
+ * together allow top-down navigation of the (virtual) suffix tree without building it.
+ * Nodes of the tree are <i>lcp-intervals</i> of the suffix array, see {@link Interval}.
+ * <p>
+ * The child table stores the first child of every interval and the links between
+ * siblings in a single <code>int</code> array of <code>n + 1</code> elements (the
+ * <i>up</i>, <i>down</i> and <i>next l-index</i> fields never collide and are told apart
+ * by the LCP values they point to). Children of an interval are enumerated in
+ * <code>O(1)</code> time each, so a child with a given symbol is found in
+ * <code>O(sigma)</code> time and a pattern of length <code>m</code> is matched in
+ * <code>O(m sigma)</code> time, independent of the input's length.
+ * <p>
+ * {@link #parent(Interval)} and {@link #suffixLink(Interval)} find the nearest smaller
+ * LCP values on both sides of an interval with range minimum queries and exponential
+ * search, in <code>O(log s)</code> time for a result of <code>s</code> suffixes. The
+ * {@link LCPRangeMinimum} index they use (with the inverse suffix array: about
+ * <code>n</code> integers) is built on the first call to either method.
+ * <p>
+ * The data structure comes from <tt>M. I. Abouelhoda, S. Kurtz and E. Ohlebusch.
+ * Replacing suffix trees with enhanced suffix arrays. Journal of Discrete Algorithms,
+ * 2(1):53–86, 2004.</tt>
+ * <p>
+ * Without a unique terminator, a suffix may be a prefix of other suffixes; its leaf is
+ * then the first child of the node of the same depth. Once constructed, the enhanced
+ * suffix array is immutable and may be shared by multiple threads.
+ */
+public final class EnhancedSuffixArray
+{
+    /**
+     * A node of the (virtual) suffix tree: the interval <code>[lower, upper)</code> of
+     * suffixes (in the suffix array) that share a prefix of <code>depth</code> symbols.
+     */
+    public final static class Interval
+    {
+        private final int lower;
+        private final int upper;
+        private final int depth;
+
+        Interval(int lower, int upper, int depth)
+        {
+            this.lower = lower;
+            this.upper = upper;
+            this.depth = depth;
+        }
+
+        /**
+         * @return Returns the first suffix array index of the interval (inclusive).
+         */
+        public int lower()
+        {
+            return lower;
+        }
+
+        /**
+         * @return Returns the end of the interval (exclusive).
+         */
+        public int upper()
+        {
+            return upper;
+        }
+
+        /**
+         * @return Returns the number of symbols on the path from the root to this node.
+         */
+        public int depth()
+        {
+            return depth;
+        }
+
+        /**
+         * @return Returns the number of suffixes (leaves) in the interval.
+         */
+        public int size()
+        {
+            return upper - lower;
+        }
+
+        /**
+         * @return Returns <code>true</code> if this is a single suffix.
+         */
+        public boolean isLeaf()
+        {
+            return upper - lower == 1;
+        }
+
+        /*
+         *
+         */
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Interval)) return false;
+            final Interval other = (Interval) obj;
+            return lower == other.lower && upper == other.upper && depth == other.depth;
+        }
+
+        /*
+         *
+         */
+        @Override
+        public int hashCode()
+        {
+            return (lower * 31 + upper) * 31 + depth;
+        }
+
+        /*
+         *
+         */
+        @Override
+        public String toString()
+        {
+            return depth + "-[" + lower + ", " + upper + ")";
+        }
+    }
+
+    private final int [] input;
+    private final int start;
+    private final int length;
+    private final SuffixData data;
+    private final int [] sa;
+    private final int [] lcp;
+
+    /** Range minimum queries for parents and suffix links, built on first use. */
+    private volatile LCPRangeMinimum rangeMinimum;
+
+    /**
+     * The child table. For an index <code>i</code>: <code>up(i)</code> is stored at
+     * <code>i - 1</code> if <code>lcp(i - 1) &gt; lcp(i)</code>; <code>down(i)</code> and
+     * <code>next(i)</code> are stored at <code>i</code>, the former if it points to a
+     * greater LCP value, the latter if it points to an equal one.
+     */
+    private final int [] cld;
+
+    /**
+     * Create an enhanced suffix array for a given input sequence of symbols and its suffix
+     * data (the LCP array is required).
+     *
+     * @see SuffixArrays#createWithLCP(int[], int, int)
+     */
+    public EnhancedSuffixArray(int [] input, int start, int length, SuffixData data)
+    {
+        Tools.assertAlways(data.getLCP() != null, "LCP array required");
+
+        this.input = input;
+        this.start = start;
+        this.length = length;
+        this.data = data;
+        this.sa = data.getSuffixArray();
+        this.lcp = data.getLCP();
+
+        this.cld = new int [length + 1];
+        if (length > 1)
+        {
+            buildChildTable();
+        }
+    }
+
+    /**
+     * Create an enhanced suffix array for a given character sequence and its suffix data.
+     *
+     * @see SuffixArrays#createWithLCP(CharSequence)
+     */
+    public EnhancedSuffixArray(CharSequence text, SuffixData data)
+    {
+        this(Tools.toArray(text), 0, text.length(), data);
+    }
+
+    /**
+     * @return Returns the root interval (all suffixes) or <code>null</code> for an empty
+     *         input. The root's depth is the length of the prefix common to all suffixes
+     *         (zero unless the input consists of a single repeated symbol).
+     */
+    public Interval root()
+    {
+        if (length == 0) return null;
+        return interval(0, length - 1);
+    }
+
+    /**
+     * @return Returns child intervals of a node, in the suffix array order (empty for a
+     *         leaf).
+     */
+    public List<Interval> children(Interval node)
+    {
+        final List<Interval> children = new ArrayList<Interval>();
+        if (node.isLeaf()) return children;
+
+        final int i = node.lower, j = node.upper - 1;
+        int l = i;
+        for (int k = firstLIndex(i, j); k >= 0; k = nextLIndex(k))
+        {
+            children.add(interval(l, k - 1));
+            l = k;
+        }
+        children.add(interval(l, j));
+        return children;
+    }
+
+    /**
+     * @return Returns the child of a node whose edge begins with <code>symbol</code>, or
+     *         <code>null</code> if there is none.
+     */
+    public Interval child(Interval node, int symbol)
+    {
+        final int [] bounds = new int [] {node.lower, node.upper - 1};
+        if (!child(bounds, node.depth, symbol)) return null;
+        return interval(bounds[0], bounds[1]);
+    }
+
+    /**
+     * @return Returns the parent of a node or <code>null</code> for the root.
+     */
+    public Interval parent(Interval node)
+    {
+        // The parent's depth is the greater LCP value at the node's boundaries.
+        final int depth = Math.max(lcp(node.lower), lcp(node.upper));
+        if (depth < 0) return null;
+
+        return new Interval(previousSmaller(node.lower, depth), nextSmaller(node.upper,
+            depth), depth);
+    }
+
+    /**
+     * @return Returns the node of <code>w</code> for a node of <code>aw</code> (the
+     *         smallest interval of suffixes starting with <code>w</code>, of depth
+     *         greater than <code>|w|</code> if <code>w</code> is not branching), or
+     *         <code>null</code> for the root.
+     */
+    public Interval suffixLink(Interval node)
+    {
+        if (node.depth == 0 || node.equals(root())) return null;
+        if (node.depth == 1) return root();
+
+        // Suffixes starting with w: LCP values of at least |w| around the rank of w.
+        final int target = node.depth - 1;
+        final int rank = rangeMinimum().getInverseSuffixArray()[sa[node.lower] + 1];
+        return interval(previousSmaller(rank, target), nextSmaller(rank + 1, target) - 1);
+    }
+
+    /**
+     * Locate the suffix array interval of a pattern by descending from the root.
+     *
+     * @param interval A two-element output array for the interval:
+     *            <code>[lower bound, upper bound)</code>.
+     * @return Returns the number of occurrences of the pattern.
+     */
+    public int find(int [] pattern, int pstart, int plength, int [] interval)
+    {
+        interval[0] = interval[1] = 0;
+        if (length == 0) return 0;
+
+        final int [] bounds = new int [] {0, length - 1};
+        int matched = 0;
+        while (true)
+        {
+            final int depth = depth(bounds[0], bounds[1]);
+            final int end = Math.min(depth, plength);
+            final int offset = start + sa[bounds[0]];
+            for (int k = matched; k < end; k++)
+            {
+                if (input[offset + k] != pattern[pstart + k]) return 0;
+            }
+            if (plength <= depth) break;
+
+            matched = depth;
+            if (!child(bounds, depth, pattern[pstart + depth])) return 0;
+            matched++;
+        }
+
+        interval[0] = bounds[0];
+        interval[1] = bounds[1] + 1;
+        return interval[1] - interval[0];
+    }
+
+    /**
+     * @see #find(int[], int, int, int[])
+     */
+    public int find(CharSequence pattern, int [] interval)
+    {
+        final int [] p = Tools.toArray(pattern);
+        return find(p, 0, p.length, interval);
+    }
+
+    /**
+     * @return Returns the number of occurrences of the pattern.
+     */
+    public int count(int [] pattern, int pstart, int plength)
+    {
+        return find(pattern, pstart, plength, new int [2]);
+    }
+
+    /**
+     * @see #count(int[], int, int)
+     */
+    public int count(CharSequence pattern)
+    {
+        final int [] p = Tools.toArray(pattern);
+        return count(p, 0, p.length);
+    }
+
+    /**
+     * Replace <code>bounds</code> (inclusive) of a node of the given depth with the
+     * bounds of its child whose edge begins with <code>symbol</code>.
+     *
+     * @return Returns <code>false</code> (leaving <code>bounds</code> unchanged) if there
+     *         is no such child.
+     */
+    private boolean child(int [] bounds, int depth, int symbol)
+    {
+        final int i = bounds[0], j = bounds[1];
+        if (i == j) return false;
+
+        int l = i;
+        int k = firstLIndex(i, j);
+        while (true)
+        {
+            final int r = (k >= 0 ? k - 1 : j);
+            final int position = sa[l] + depth;
+
+            // A suffix ending at this depth is the first child, with an empty edge.
+            if (position < length)
+            {
+                final int s = input[start + position];
+                if (s == symbol)
+                {
+                    bounds[0] = l;
+                    bounds[1] = r;
+                    return true;
+                }
+                if (s > symbol) return false;
+            }
+            if (k < 0) return false;
+            l = k;
+            k = nextLIndex(k);
+        }
+    }
+
+    /**
+     * @return Returns the last index <code>k &lt;= index</code> with
+     *         <code>lcp(k) &lt; depth</code> (the lower bound of the interval of
+     *         <code>index</code> at that depth).
+     */
+    private int previousSmaller(int index, int depth)
+    {
+        // Exponential search for a range [from, index] containing a smaller value...
+        int to = index, step = 1;
+        int from;
+        do
+        {
+            from = Math.max(0, to - step + 1);
+            if (rangeMin(from, to) < depth) break;
+            to = from - 1;
+            step <<= 1;
+        }
+        while (true);
+
+        // ...then binary search for the last one in it.
+        while (from < to)
+        {
+            final int mid = (from + to + 1) >>> 1;
+            if (rangeMin(mid, to) < depth) from = mid;
+            else to = mid - 1;
+        }
+        return from;
+    }
+
+    /**
+     * @return Returns the first index <code>k &gt;= index</code> with
+     *         <code>lcp(k) &lt; depth</code> (the upper bound, exclusive, of the interval
+     *         of <code>index - 1</code> at that depth).
+     */
+    private int nextSmaller(int index, int depth)
+    {
+        int from = index, step = 1;
+        int to;
+        do
+        {
+            to = Math.min(length, from + step - 1);
+            if (rangeMin(from, to) < depth) break;
+            from = to + 1;
+            step <<= 1;
+        }
+        while (true);
+
+        while (from < to)
+        {
+            final int mid = (from + to) >>> 1;
+            if (rangeMin(from, mid) < depth) to = mid;
+            else from = mid + 1;
+        }
+        return from;
+    }
+
+    /**
+     * @return Returns the minimum of {@link #lcp(int)} over <code>[from, to]</code>
+     *         (inclusive), including the <code>-1</code> sentinels at both ends.
+     */
+    private int rangeMin(int from, int to)
+    {
+        if (from == 0 || to >= length) return -1;
+        return rangeMinimum().min(from, to);
+    }
+
+    private LCPRangeMinimum rangeMinimum()
+    {
+        LCPRangeMinimum rmq = rangeMinimum;
+        if (rmq == null)
+        {
+            synchronized (this)
+            {
+                rmq = rangeMinimum;
+                if (rmq == null)
+                {
+                    rangeMinimum = rmq = new LCPRangeMinimum(data, length, null);
+                }
+            }
+        }
+        return rmq;
+    }
+
+    /**
+     * @return Returns the first l-index (the start of the second child) of a non-leaf
+     *         interval <code>[i, j]</code>.
+     */
+    private int firstLIndex(int i, int j)
+    {
+        // up(j + 1) is always defined for a non-leaf interval ending at j.
+        final int up = cld[j];
+        if (i < up && up <= j) return up;
+        return cld[i];
+    }
+
+    /**
+     * @return Returns the next l-index of the interval after l-index <code>k</code>, or
+     *         <code>-1</code> if <code>k</code> is the last one.
+     */
+    private int nextLIndex(int k)
+    {
+        final int next = cld[k];
+        return (next > k && lcp(next) == lcp(k) ? next : -1);
+    }
+
+    /**
+     * @return Returns the depth of interval <code>[i, j]</code> (inclusive).
+     */
+    private int depth(int i, int j)
+    {
+        return (i == j ? length - sa[i] : lcp(firstLIndex(i, j)));
+    }
+
+    private Interval interval(int i, int j)
+    {
+        return new Interval(i, j + 1, depth(i, j));
+    }
+
+    /**
+     * @return Returns the LCP of suffixes <code>i - 1</code> and <code>i</code>, with
+     *         <code>-1</code> at both ends of the suffix array.
+     */
+    private int lcp(int i)
+    {
+        return (i == 0 || i >= length ? -1 : lcp[i]);
+    }
+
+    /**
+     * Compute the up, down and next l-index fields of the child table with two stack
+     * scans of the LCP array.
+     */
+    private void buildChildTable()
+    {
+        final IntStack stack = new IntStack();
+
+        // up and down.
+        stack.push(0);
+        int last = -1;
+        for (int i = 1; i <= length; i++)
+        {
+            final int h = lcp(i);
+            while (h < lcp(stack.peek()))
+            {
+                last = stack.pop();
+                final int top = stack.peek();
+                if (h <= lcp(top) && lcp(top) != lcp(last))
+                {
+                    cld[top] = last;
+                }
+            }
+            if (last != -1)
+            {
+                cld[i - 1] = last;
+                last = -1;
+            }
+            stack.push(i);
+        }
+
+        // next l-index (overwrites down, which is not needed where it is defined).
+        stack.clear();
+        stack.push(0);
+        for (int i = 1; i < length; i++)
+        {
+            final int h = lcp(i);
+            while (h < lcp(stack.peek()))
+            {
+                stack.pop();
+            }
+            if (h == lcp(stack.peek()))
+            {
+                cld[stack.pop()] = i;
+            }
+            stack.push(i);
+        }
+    }
+}
@@ -0,0 +1,670 @@
+package org.jsuffixarrays;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.carrotsearch.hppc.sorting.IndirectComparator;
+import com.carrotsearch.hppc.sorting.IndirectSort;
+
+/**
+ * External merge sort of fixed-width records of <code>long</code> values. Records are
+ * ordered lexicographically by their first <code>keys</code> values (the order of records
+ * with equal keys is unspecified).
+ * <p>
+ * On disk, every value of a record takes a fixed number of bytes (given per column when
+ * a sort is started): values of columns narrower than 8 bytes must be in
+ * <code>[-1, 2<sup>8 * bytes</sup> - 1)</code> and are stored shifted by one, so that
+ * suffix positions and ranks of inputs shorter than <code>2^39</code> take 5 bytes
+ * instead of 8.
+ * <p>
+ * Sorting is pipelined: records are added to a {@link Sort}, which keeps them in memory
+ * and spills sorted runs to temporary files only when its buffer is full. Sorted records
+ * are then read as a stream merged from the runs, so neither the unsorted input nor the
+ * sorted output is ever written to disk (and sorts that fit in memory do no I/O at all).
+ * If there are more runs than can be merged at once within the memory budget, they are
+ * merged in multiple passes first.
+ * <p>
+ * All files are created in the temporary directory and tracked, so that
+ * {@link #deleteAll()} removes whatever is left after a failure.
+ *
+ * @see ExternalSuffixArrayBuilder
+ */
+final class ExternalSorter
+{
+    /** Size of stream buffers of run readers and writers (bytes). */
+    final static int BUFFER_BYTES = 1 << 16;
+
+    /** Smallest number of records sorted in memory, regardless of the budget. */
+    private final static int MIN_RUN_RECORDS = 1 << 10;
+
+    /**
+     * A stream of sorted records.
+     */
+    static abstract class Reader
+    {
+        /**
+         * Read the next record into <code>record</code>.
+         *
+         * @return Returns <code>false</code> if there are no more records.
+         */
+        abstract boolean next(long [] record) throws IOException;
+
+        /**
+         * Release resources and temporary files of this reader.
+         */
+        abstract void close() throws IOException;
+    }
+
+    /**
+     * Records sorted in memory.
+     */
+    private final static class MemoryReader extends Reader
+    {
+        private final long [] buffer;
+        private final int [] order;
+        private int next;
+
+        MemoryReader(long [] buffer, int [] order)
+        {
+            this.buffer = buffer;
+            this.order = order;
+        }
+
+        /*
+         * 
+         */
+        @Override
+        boolean next(long [] record)
+        {
+            if (next == order.length) return false;
+            System.arraycopy(buffer, order[next++] * record.length, record, 0,
+                record.length);
+            return true;
+        }
+
+        /*
+         * 
+         */
+        @Override
+        void close()
+        {
+            // Nothing to release.
+        }
+    }
+
+    /**
+     * Records of a run file, deleted on close.
+     */
+    private final class FileReader extends Reader
+    {
+        private final File file;
+        private final int [] bytes;
+        private final byte [] packed;
+        private final DataInputStream is;
+        private long remaining;
+
+        FileReader(File file, int [] bytes) throws IOException
+        {
+            this.file = file;
+            this.bytes = bytes;
+            this.packed = new byte [recordBytes(bytes)];
+            this.remaining = file.length() / packed.length;
+            this.is = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), BUFFER_BYTES));
+        }
+
+        /*
+         * 
+         */
+        @Override
+        boolean next(long [] record) throws IOException
+        {
+            if (remaining == 0) return false;
+            is.readFully(packed);
+            unpack(packed, bytes, record);
+            remaining--;
+            return true;
+        }
+
+        /*
+         * 
+         */
+        @Override
+        void close() throws IOException
+        {
+            is.close();
+            delete(file);
+        }
+    }
+
+    /**
+     * Merges sorted streams with a binary min-heap of stream indexes, ordered by their
+     * current records.
+     */
+    private final static class MergeReader extends Reader
+    {
+        private final Reader [] readers;
+        private final long [] heads;
+        private final int [] heap;
+        private final long [] head;
+        private final int width;
+        private final int keys;
+        private int size;
+
+        MergeReader(Reader [] readers, int width, int keys) throws IOException
+        {
+            this.readers = readers;
+            this.width = width;
+            this.keys = keys;
+            this.heads = new long [readers.length * width];
+            this.heap = new int [readers.length];
+            this.head = new long [width];
+
+            for (int i = 0; i < readers.length; i++)
+            {
+                if (readers[i].next(head))
+                {
+                    System.arraycopy(head, 0, heads, i * width, width);
+                    heap[size++] = i;
+                    siftUp(size - 1);
+                }
+            }
+        }
+
+        /*
+         * 
+         */
+        @Override
+        boolean next(long [] record) throws IOException
+        {
+            if (size == 0) return false;
+            final int top = heap[0];
+            System.arraycopy(heads, top * width, record, 0, width);
+            if (readers[top].next(head))
+            {
+                System.arraycopy(head, 0, heads, top * width, width);
+            }
+            else
+            {
+                heap[0] = heap[--size];
+            }
+            siftDown();
+            return true;
+        }
+
+        /*
+         * 
+         */
+        @Override
+        void close() throws IOException
+        {
+            for (Reader r : readers)
+            {
+                r.close();
+            }
+        }
+
+        private void siftUp(int i)
+        {
+            final int v = heap[i];
+            while (i > 0)
+            {
+                final int parent = (i - 1) >>> 1;
+                if (compareRecords(heads, heap[parent] * width, heads, v * width, keys) <= 0)
+                {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = v;
+        }
+
+        private void siftDown()
+        {
+            if (size == 0) return;
+            final int v = heap[0];
+            int i = 0;
+            while (true)
+            {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size
+                    && compareRecords(heads, heap[child + 1] * width, heads, heap[child]
+                        * width, keys) < 0)
+                {
+                    child++;
+                }
+                if (compareRecords(heads, v * width, heads, heap[child] * width, keys) <= 0)
+                {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = v;
+        }
+    }
+
+    /**
+     * A sort in progress: records are added with {@link #add(long[])} and read in order
+     * from the reader returned by {@link #finish()}.
+     */
+    final class Sort
+    {
+        private final int width;
+        private final int keys;
+        private final int [] bytes;
+        private final int capacity;
+        private final List<File> runs = new ArrayList<File>();
+        private long [] buffer = new long [0];
+        private int count;
+        private long records;
+
+        private Sort(int keys, long memoryBudget, int [] bytes)
+        {
+            this.width = bytes.length;
+            this.keys = keys;
+            this.bytes = bytes;
+
+            // Records, packed keys and the permutation (two while sorting by multiple keys).
+            final long recordBytes = 8L * width + 16;
+            this.capacity = (int) Math.max(MIN_RUN_RECORDS, Math.min(
+                Integer.MAX_VALUE / width, memoryBudget / recordBytes));
+        }
+
+        void add(long [] record) throws IOException
+        {
+            if (count == capacity)
+            {
+                spill();
+            }
+            if (buffer.length < (count + 1) * width)
+            {
+                buffer = Arrays.copyOf(buffer, (int) Math.min((long) capacity * width,
+                    Math.max((count + 1) * width, 2L * buffer.length)));
+            }
+            System.arraycopy(record, 0, buffer, count * width, width);
+            count++;
+            records++;
+        }
+
+        /**
+         * @return Returns the number of records added so far.
+         */
+        long records()
+        {
+            return records;
+        }
+
+        /**
+         * @return Returns a reader of all added records in sorted order. The reader must
+         *         be closed to delete temporary files.
+         */
+        Reader finish() throws IOException
+        {
+            if (runs.isEmpty())
+            {
+                final Reader reader = new MemoryReader(buffer, order(buffer, count, width,
+                    keys));
+                buffer = null;
+                return reader;
+            }
+
+            if (count > 0) spill();
+            buffer = null;
+
+            List<File> files = runs;
+            while (files.size() > fanIn)
+            {
+                final List<File> merged = new ArrayList<File>();
+                for (int i = 0; i < files.size(); i += fanIn)
+                {
+                    merged.add(merge(files.subList(i, Math.min(files.size(), i + fanIn))));
+                }
+                files = merged;
+            }
+            return merging(files);
+        }
+
+        private void spill() throws IOException
+        {
+            final int [] order = order(buffer, count, width, keys);
+            final File run = newFile();
+            final OutputStream os = writer(run);
+            try
+            {
+                final byte [] packed = new byte [recordBytes(bytes)];
+                for (int i = 0; i < count; i++)
+                {
+                    pack(buffer, order[i] * width, bytes, packed);
+                    os.write(packed);
+                }
+            }
+            finally
+            {
+                os.close();
+            }
+            runs.add(run);
+            count = 0;
+        }
+
+        private Reader merging(List<File> files) throws IOException
+        {
+            final Reader [] readers = new Reader [files.size()];
+            for (int i = 0; i < readers.length; i++)
+            {
+                readers[i] = new FileReader(files.get(i), bytes);
+            }
+            return new MergeReader(readers, width, keys);
+        }
+
+        private File merge(List<File> files) throws IOException
+        {
+            final File output = newFile();
+            final Reader reader = merging(files);
+            final OutputStream os = writer(output);
+            try
+            {
+                final long [] record = new long [width];
+                final byte [] packed = new byte [recordBytes(bytes)];
+                while (reader.next(record))
+                {
+                    pack(record, 0, bytes, packed);
+                    os.write(packed);
+                }
+            }
+            finally
+            {
+                os.close();
+                reader.close();
+            }
+            return output;
+        }
+    }
+
+    /**
+     * Unsorted records appended to a temporary file (no memory is kept), to be read back
+     * in the order of addition.
+     */
+    final class Spool
+    {
+        private final int [] bytes;
+        private final byte [] packed;
+        private final File file;
+        private final OutputStream os;
+        private long records;
+
+        private Spool(int [] bytes) throws IOException
+        {
+            this.bytes = bytes;
+            this.packed = new byte [recordBytes(bytes)];
+            this.file = newFile();
+            this.os = writer(file);
+        }
+
+        void add(long [] record) throws IOException
+        {
+            pack(record, 0, bytes, packed);
+            os.write(packed);
+            records++;
+        }
+
+        /**
+         * @return Returns the number of records added so far.
+         */
+        long records()
+        {
+            return records;
+        }
+
+        /**
+         * @return Returns a reader of all added records. The reader must be closed to
+         *         delete the file.
+         */
+        Reader finish() throws IOException
+        {
+            os.close();
+            return new FileReader(file, bytes);
+        }
+    }
+
+    private final File tempDir;
+    private final long memoryBudget;
+    private final int fanIn;
+    private final List<File> files = new ArrayList<File>();
+
+    /**
+     * @param tempDir Directory for temporary files (<code>null</code> for the system's
+     *            default temporary directory).
+     * @param memoryBudget Maximum memory (in bytes) used by a single sort.
+     */
+    ExternalSorter(File tempDir, long memoryBudget)
+    {
+        this.tempDir = tempDir;
+        this.memoryBudget = memoryBudget;
+        this.fanIn = (int) Math.max(2, Math.min(1024, memoryBudget / BUFFER_BYTES));
+    }
+
+    /**
+     * Start a new sort within the memory budget given in the constructor.
+     *
+     * @param keys Number of leading values of a record to order by.
+     * @param bytes Number of bytes of each value of a record on disk (1 to 8), one
+     *            element per value.
+     */
+    Sort newSort(int keys, int... bytes)
+    {
+        return newSort(keys, memoryBudget, bytes);
+    }
+
+    /**
+     * Start a new sort with its own memory budget.
+     *
+     * @see #newSort(int, int...)
+     */
+    Sort newSort(int keys, long memoryBudget, int... bytes)
+    {
+        return new Sort(keys, memoryBudget, bytes.clone());
+    }
+
+    /**
+     * Start a new spool of records of the given value widths.
+     *
+     * @see #newSort(int, int...)
+     */
+    Spool newSpool(int... bytes) throws IOException
+    {
+        return new Spool(bytes.clone());
+    }
+
+    /**
+     * @return Returns the number of bytes needed to store values in
+     *         <code>[-1, max]</code>.
+     */
+    static int bytesFor(long max)
+    {
+        return Math.max(1, (64 - Long.numberOfLeadingZeros(max + 1) + 7) / 8);
+    }
+
+    /**
+     * Delete all remaining temporary files.
+     */
+    void deleteAll()
+    {
+        for (File file : files)
+        {
+            file.delete();
+        }
+        files.clear();
+    }
+
+    private File newFile() throws IOException
+    {
+        final File file = File.createTempFile("jsuffixarrays-", ".tmp", tempDir);
+        files.add(file);
+        return file;
+    }
+
+    private void delete(File file)
+    {
+        files.remove(file);
+        file.delete();
+    }
+
+    private static OutputStream writer(File file) throws IOException
+    {
+        return new BufferedOutputStream(new FileOutputStream(file), BUFFER_BYTES);
+    }
+
+    private static int recordBytes(int [] bytes)
+    {
+        int total = 0;
+        for (int b : bytes)
+        {
+            total += b;
+        }
+        return total;
+    }
+
+    /**
+     * Store a record at <code>offset</code> of <code>values</code> in
+     * <code>packed</code> (big-endian values, shifted by one unless 8 bytes wide).
+     */
+    static void pack(long [] values, int offset, int [] bytes, byte [] packed)
+    {
+        int p = 0;
+        for (int i = 0; i < bytes.length; i++)
+        {
+            final int b = bytes[i];
+            final long v = (b == 8 ? values[offset + i] : values[offset + i] + 1);
+            assert b == 8 || (v >>> (8 * b)) == 0 : "value too wide: " + values[offset + i];
+            for (int shift = 8 * (b - 1); shift >= 0; shift -= 8)
+            {
+                packed[p++] = (byte) (v >>> shift);
+            }
+        }
+    }
+
+    /**
+     * Inverse of {@link #pack(long[], int, int[], byte[])}.
+     */
+    static void unpack(byte [] packed, int [] bytes, long [] record)
+    {
+        int p = 0;
+        for (int i = 0; i < bytes.length; i++)
+        {
+            final int b = bytes[i];
+            long v = 0;
+            for (int j = 0; j < b; j++)
+            {
+                v = (v << 8) | (packed[p++] & 0xff);
+            }
+            record[i] = (b == 8 ? v : v - 1);
+        }
+    }
+
+    /**
+     * Sort records in memory. Keys (shifted by their minimum values) are packed together
+     * with record indexes into <code>long</code>s and sorted as primitives: all keys at
+     * once if they fit, otherwise one key at a time (least significant first, the packed
+     * index keeps each pass stable). Keys too wide for packing are compared indirectly.
+     *
+     * @return Returns the order of records.
+     */
+    static int [] order(final long [] buffer, int count, final int width, final int keys)
+    {
+        final int indexBits = 64 - Long.numberOfLeadingZeros(Math.max(1, count - 1));
+        final long [] min = new long [keys];
+        final int [] bits = new int [keys];
+        int total = indexBits;
+        for (int k = 0; k < keys; k++)
+        {
+            long lo = Long.MAX_VALUE, hi = Long.MIN_VALUE;
+            for (int i = 0; i < count; i++)
+            {
+                final long v = buffer[i * width + k];
+                lo = Math.min(lo, v);
+                hi = Math.max(hi, v);
+            }
+            if (count == 0 || hi - lo < 0 || indexBits + (bits[k] = 64 - Long
+                .numberOfLeadingZeros(hi - lo)) > 63)
+            {
+                return IndirectSort.mergesort(0, count, new IndirectComparator()
+                {
+                    public int compare(int a, int b)
+                    {
+                        return compareRecords(buffer, a * width, buffer, b * width, keys);
+                    }
+                });
+            }
+            min[k] = lo;
+            total += bits[k];
+        }
+
+        final long [] packed = new long [count];
+        final long indexMask = (1L << indexBits) - 1;
+        int [] order = new int [count];
+        if (total <= 63)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                long v = 0;
+                for (int k = 0; k < keys; k++)
+                {
+                    v = (v << bits[k]) | (buffer[i * width + k] - min[k]);
+                }
+                packed[i] = (v << indexBits) | i;
+            }
+            Arrays.sort(packed);
+            for (int i = 0; i < count; i++)
+            {
+                order[i] = (int) (packed[i] & indexMask);
+            }
+            return order;
+        }
+
+        for (int i = 0; i < count; i++)
+        {
+            order[i] = i;
+        }
+        final int [] next = new int [count];
+        for (int k = keys - 1; k >= 0; k--)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                packed[i] = ((buffer[order[i] * width + k] - min[k]) << indexBits) | i;
+            }
+            Arrays.sort(packed);
+            for (int i = 0; i < count; i++)
+            {
+                next[i] = order[(int) (packed[i] & indexMask)];
+            }
+            System.arraycopy(next, 0, order, 0, count);
+        }
+        return order;
+    }
+
+    static int compareRecords(long [] a, int ai, long [] b, int bi, int keys)
+    {
+        for (int i = 0; i < keys; i++)
+        {
+            final long x = a[ai + i];
+            final long y = b[bi + i];
+            if (x != y)
+            {
+                return x < y ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+}
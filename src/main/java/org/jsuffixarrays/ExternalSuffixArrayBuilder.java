@@ -0,0 +1,594 @@
+package org.jsuffixarrays;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Disk-based construction of suffix arrays (and, optionally, LCP arrays) of byte files
+ * larger than the available memory. Intermediate data is kept in sorted runs in
+ * temporary files; memory use is bounded by the budget given in the constructor (plus
+ * stream buffers of runs being merged).
+ * <p>
+ * The suffix array is computed by <i>prefix doubling with discarding</i> (R. Dementiev,
+ * J. K&auml;rkk&auml;inen, J. Mehnert, P. Sanders, Better external memory suffix array
+ * construction, 2008). Suffixes are first named by their leading 7 bytes; every
+ * iteration then pairs the names of suffixes <code>i</code> and <code>i + h</code>
+ * (bringing them together with an external sort), sorts the pairs of suffixes whose
+ * names are not unique yet and renames them, doubling <code>h</code>. Suffixes with
+ * unique names are final and are discarded from later iterations as soon as no other
+ * suffix needs their name (they are appended to a temporary file right away and sorted
+ * by rank once, at the end). The text is read only once, sequentially. The number of
+ * iterations is logarithmic in the length of the longest repeated substring. Temporary
+ * records store ranks and positions in 5 bytes each (for inputs shorter than
+ * <code>2^39</code> bytes).
+ * <p>
+ * The LCP array is computed from the suffix array with the <i>Phi</i> algorithm (see
+ * {@link PhiLCP}), with permutations done by external sorts. This step is only
+ * semi-external: it reads the text through a memory mapping with random accesses (one
+ * per suffix, plus the compared symbols), so it requires the text to fit in the
+ * operating system's page cache; otherwise almost every access is a disk seek. For
+ * inputs larger than the available memory, build the suffix array only (see
+ * {@link #build(File, File)}).
+ * <p>
+ * Results are written as little-endian arrays of 4-byte (if the input is shorter than
+ * <code>2^31</code> bytes) or 8-byte values, which can be mapped with
+ * {@link BufferLongArray#map(FileChannel, MapMode, long, long, int)}.
+ */
+public final class ExternalSuffixArrayBuilder
+{
+    /** Default memory budget (bytes). */
+    public final static long DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024;
+
+    /** Number of leading symbols packed (as 9-bit codes) into initial names. */
+    private final static int INITIAL_PREFIX = 7;
+
+    /**
+     * Number of sorts in progress at the same time (records of the current iteration,
+     * unfinished and next suffixes), each gets an equal share of the budget.
+     */
+    private final static int SORTS_IN_PROGRESS = 3;
+
+    /** Size of text pages mapped for LCP computation (as a power of two). */
+    private final static int TEXT_PAGE_BITS = 30;
+
+    /**
+     * Little-endian writer of output arrays.
+     */
+    private final static class ArrayWriter
+    {
+        private final FileOutputStream os;
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final int width;
+
+        ArrayWriter(File file, int width) throws IOException
+        {
+            this.os = new FileOutputStream(file);
+            this.channel = os.getChannel();
+            this.buffer = ByteBuffer.allocate(ExternalSorter.BUFFER_BYTES).order(
+                ByteOrder.LITTLE_ENDIAN);
+            this.width = width;
+        }
+
+        void write(long value) throws IOException
+        {
+            if (buffer.remaining() < width)
+            {
+                flush();
+            }
+            if (width == 8) buffer.putLong(value);
+            else buffer.putInt((int) value);
+        }
+
+        private void flush() throws IOException
+        {
+            buffer.flip();
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        void close() throws IOException
+        {
+            try
+            {
+                flush();
+            }
+            finally
+            {
+                os.close();
+            }
+        }
+    }
+
+    /**
+     * Read-only, random access to the bytes of a memory-mapped file.
+     */
+    private final static class MappedText
+    {
+        private final ByteBuffer [] pages;
+
+        MappedText(FileChannel channel, long length) throws IOException
+        {
+            final long pageSize = 1L << TEXT_PAGE_BITS;
+            pages = new ByteBuffer [(int) ((length + pageSize - 1) >>> TEXT_PAGE_BITS)];
+            for (int i = 0; i < pages.length; i++)
+            {
+                final long offset = (long) i << TEXT_PAGE_BITS;
+                pages[i] = channel.map(MapMode.READ_ONLY, offset, Math.min(pageSize,
+                    length - offset));
+            }
+        }
+
+        int get(long index)
+        {
+            return pages[(int) (index >>> TEXT_PAGE_BITS)].get(
+                (int) (index & ((1 << TEXT_PAGE_BITS) - 1))) & 0xff;
+        }
+    }
+
+    private final File tempDir;
+    private final long memoryBudget;
+
+    /**
+     * Use the system's default temporary directory and {@link #DEFAULT_MEMORY_BUDGET}.
+     */
+    public ExternalSuffixArrayBuilder()
+    {
+        this(null, DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * @param tempDir Directory for temporary files (<code>null</code> for the system's
+     *            default temporary directory). Temporary files take up to about 6
+     *            values per input byte, 5 bytes each for inputs from <code>2^31</code>
+     *            to <code>2^39</code> bytes (fewer for shorter inputs).
+     * @param memoryBudget Memory (in bytes) used for sorting runs of temporary records.
+     */
+    public ExternalSuffixArrayBuilder(File tempDir, long memoryBudget)
+    {
+        Tools.assertAlways(memoryBudget > 0, "memory budget must be positive");
+        this.tempDir = tempDir;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Build the suffix array of a file's bytes (unsigned 8-bit symbols). This is the
+     * supported mode for inputs that do not fit in memory.
+     *
+     * @param input The input file.
+     * @param saOutput Output file for the suffix array (overwritten).
+     * @return Returns the suffix array, mapped read-only from the output file (the LCP
+     *         array is <code>null</code>).
+     */
+    public LongSuffixData build(File input, File saOutput) throws IOException
+    {
+        return build(input, saOutput, null);
+    }
+
+    /**
+     * Build the suffix array of a file's bytes (unsigned 8-bit symbols) and, optionally,
+     * its LCP array (with <code>-1</code> for the first suffix, as in
+     * {@link SuffixArrays#computeLCP(int[], int, int, int[])}).
+     *
+     * @param input The input file.
+     * @param saOutput Output file for the suffix array (overwritten).
+     * @param lcpOutput Output file for the LCP array (overwritten) or <code>null</code>
+     *            if the LCP array is not needed. The LCP array requires the input to fit
+     *            in the page cache (see the class description).
+     * @return Returns the suffix array and the LCP array (or <code>null</code>), mapped
+     *         read-only from the output files.
+     */
+    public LongSuffixData build(File input, File saOutput, File lcpOutput)
+        throws IOException
+    {
+        final long n = input.length();
+        final int width = (n <= Integer.MAX_VALUE ? 4 : 8);
+        // Position keys and flagged ranks (see entry()) are below 2n.
+        final int vb = ExternalSorter.bytesFor(2 * n);
+
+        final ExternalSorter sorter = new ExternalSorter(tempDir, memoryBudget
+            / SORTS_IN_PROGRESS);
+        try
+        {
+            // The phi sort (if any) takes the last share while ranks are read.
+            final ExternalSorter.Reader ranks = sortSuffixes(input, n, vb, memoryBudget
+                - memoryBudget / SORTS_IN_PROGRESS, sorter);
+            final ExternalSorter.Reader phi = writeSuffixArray(ranks, saOutput, width,
+                lcpOutput != null, vb, sorter);
+            if (phi != null)
+            {
+                writeLCP(input, n, phi, lcpOutput, width, vb, sorter);
+            }
+        }
+        finally
+        {
+            sorter.deleteAll();
+        }
+
+        return new LongSuffixData(map(saOutput, n, width), lcpOutput == null ? null : map(
+            lcpOutput, n, width));
+    }
+
+    /**
+     * @return Returns <code>(rank, suffix)</code> records of all suffixes, sorted by rank
+     *         (the rank of a suffix is its position in the suffix array).
+     * @param vb Bytes of a temporary value (rank, position or position key).
+     * @param rankBudget Memory budget of the final sort by rank.
+     */
+    private static ExternalSorter.Reader sortSuffixes(File input, long n, int vb,
+        long rankBudget, ExternalSorter sorter) throws IOException
+    {
+        // Initial names: the first INITIAL_PREFIX symbols, codes 1..256 (0 past the end).
+        final ExternalSorter.Sort names = sorter.newSort(1, 8, vb);
+        final InputStream is = new BufferedInputStream(new FileInputStream(input),
+            ExternalSorter.BUFFER_BYTES);
+        try
+        {
+            final long [] record = new long [2];
+            long key = 0;
+            for (long p = 0; p < n + INITIAL_PREFIX - 1; p++)
+            {
+                int code = 0;
+                if (p < n)
+                {
+                    final int b = is.read();
+                    if (b < 0) throw new EOFException("Input shorter than expected: " + input);
+                    code = b + 1;
+                }
+                key = ((key << 9) | code) & Long.MAX_VALUE;
+
+                record[0] = key;
+                record[1] = p - (INITIAL_PREFIX - 1);
+                if (record[1] >= 0) names.add(record);
+            }
+        }
+        finally
+        {
+            is.close();
+        }
+
+        /*
+         * Ranks of groups of equal names: the index of the first suffix of a group. Records
+         * of an iteration are (position key for h, rank and unique flag), see entry().
+         */
+        long h = INITIAL_PREFIX;
+        ExternalSorter.Sort current = sorter.newSort(1, vb, vb);
+        final ExternalSorter.Reader nr = names.finish();
+        try
+        {
+            final long [] cur = new long [2];
+            final long [] next = new long [2];
+            final long [] record = new long [2];
+            boolean hasNext = nr.next(next);
+            long rank = 0;
+            for (long index = 0; hasNext; index++)
+            {
+                final boolean first = (index == 0 || next[0] != cur[0]);
+                System.arraycopy(next, 0, cur, 0, 2);
+                hasNext = nr.next(next);
+                if (first) rank = index;
+
+                final boolean unique = first && (!hasNext || next[0] != cur[0]);
+                entry(record, cur[1], rank, unique, h, n);
+                current.add(record);
+            }
+        }
+        finally
+        {
+            nr.close();
+        }
+
+        final ExternalSorter.Spool finished = sorter.newSpool(vb, vb);
+        while (current != null)
+        {
+            current = doubling(current.finish(), h, n, vb, finished, sorter);
+            h *= 2;
+        }
+
+        Tools.assertAlways(finished.records() == n, "suffix count mismatch: "
+            + finished.records());
+
+        final ExternalSorter.Sort byRank = sorter.newSort(1, rankBudget, vb, vb);
+        final ExternalSorter.Reader fr = finished.finish();
+        try
+        {
+            final long [] record = new long [2];
+            while (fr.next(record))
+            {
+                byRank.add(record);
+            }
+        }
+        finally
+        {
+            fr.close();
+        }
+        return byRank.finish();
+    }
+
+    /**
+     * A single iteration of prefix doubling: suffixes are ranked by their prefixes of
+     * (at least) <code>h</code> symbols on input and by their prefixes of (at least)
+     * <code>2h</code> symbols on output.
+     *
+     * @param current Records of suffixes still in use (see
+     *            {@link #entry(long[], long, long, boolean, long, long)}) in position key
+     *            order, closed.
+     * @param finished <code>(rank, suffix)</code> records of discarded suffixes.
+     * @return Returns records of the next iteration or <code>null</code> if all suffixes
+     *         are finished.
+     */
+    private static ExternalSorter.Sort doubling(ExternalSorter.Reader current, long h,
+        long n, int vb, ExternalSorter.Spool finished, ExternalSorter sorter)
+        throws IOException
+    {
+        // Pair suffixes i and i + h (adjacent in position key order).
+        final ExternalSorter.Sort unfinished = sorter.newSort(2, vb, vb, vb);
+        final ExternalSorter.Sort next = sorter.newSort(1, vb, vb);
+        try
+        {
+            final long [] cur = new long [2];
+            final long [] following = new long [2];
+            final long [] pair = new long [3];
+            final long [] record = new long [2];
+            long prevSuffix = -1;
+            boolean prevUnique = true;
+            boolean hasNext = current.next(following);
+            while (hasNext)
+            {
+                System.arraycopy(following, 0, cur, 0, 2);
+                hasNext = current.next(following);
+
+                final long i = suffix(cur[0], h, n);
+                final long rank = cur[1] >>> 1;
+                final boolean unique = (cur[1] & 1) != 0;
+                if (unique)
+                {
+                    // Needed only as the partner of an unfinished i - h.
+                    if (prevSuffix != i - h || prevUnique)
+                    {
+                        pair[0] = rank;
+                        pair[1] = i;
+                        finished.add(pair);
+                    }
+                    else
+                    {
+                        entry(record, i, rank, true, 2 * h, n);
+                        next.add(record);
+                    }
+                }
+                else
+                {
+                    pair[0] = rank;
+                    if (hasNext && suffix(following[0], h, n) == i + h)
+                    {
+                        pair[1] = following[1] >>> 1;
+                    }
+                    else
+                    {
+                        // A discarded partner would imply a unique suffix i.
+                        Tools.assertAlways(i + h >= n, "missing partner of " + i);
+                        pair[1] = -1;
+                    }
+                    pair[2] = i;
+                    unfinished.add(pair);
+                }
+
+                prevSuffix = i;
+                prevUnique = unique;
+            }
+        }
+        finally
+        {
+            current.close();
+        }
+
+        if (unfinished.records() == 0)
+        {
+            unfinished.finish().close();
+            finishAll(next.finish(), 2 * h, n, finished);
+            return null;
+        }
+
+        // Rename: ranks of groups of equal (rank, partner rank) pairs.
+        final ExternalSorter.Reader ur = unfinished.finish();
+        try
+        {
+            final long [] cur = new long [3];
+            final long [] following = new long [3];
+            final long [] record = new long [2];
+            boolean hasNext = ur.next(following);
+            long offset = 0, subgroup = 0;
+            for (long index = 0; hasNext; index++)
+            {
+                final boolean newGroup = index == 0 || following[0] != cur[0];
+                final boolean newSubgroup = newGroup || following[1] != cur[1];
+                System.arraycopy(following, 0, cur, 0, 3);
+                hasNext = ur.next(following);
+
+                offset = newGroup ? 0 : offset + 1;
+                if (newSubgroup) subgroup = offset;
+
+                final boolean unique = newSubgroup
+                    && (!hasNext || following[0] != cur[0] || following[1] != cur[1]);
+                entry(record, cur[2], cur[0] + subgroup, unique, 2 * h, n);
+                next.add(record);
+            }
+        }
+        finally
+        {
+            ur.close();
+        }
+        return next;
+    }
+
+    /**
+     * Move all (unique) records of the last iteration to the finished records.
+     */
+    private static void finishAll(ExternalSorter.Reader current, long h, long n,
+        ExternalSorter.Spool finished) throws IOException
+    {
+        try
+        {
+            final long [] record = new long [2];
+            final long [] pair = new long [2];
+            while (current.next(record))
+            {
+                pair[0] = record[1] >>> 1;
+                pair[1] = suffix(record[0], h, n);
+                finished.add(pair);
+            }
+        }
+        finally
+        {
+            current.close();
+        }
+    }
+
+    /**
+     * Write the suffix array.
+     *
+     * @return Returns <code>(suffix, previous suffix, rank)</code> records (the
+     *         <i>Phi</i> array) in suffix order if <code>withPhi</code> is true,
+     *         <code>null</code> otherwise.
+     */
+    private static ExternalSorter.Reader writeSuffixArray(ExternalSorter.Reader ranks,
+        File output, int width, boolean withPhi, int vb, ExternalSorter sorter)
+        throws IOException
+    {
+        final ExternalSorter.Sort phi = withPhi ? sorter.newSort(1, vb, vb, vb) : null;
+        final ArrayWriter saw = new ArrayWriter(output, width);
+        try
+        {
+            final long [] record = new long [2];
+            final long [] triple = new long [3];
+            long previous = -1;
+            while (ranks.next(record))
+            {
+                saw.write(record[1]);
+                if (phi != null)
+                {
+                    triple[0] = record[1];
+                    triple[1] = previous;
+                    triple[2] = record[0];
+                    phi.add(triple);
+                }
+                previous = record[1];
+            }
+        }
+        finally
+        {
+            ranks.close();
+            saw.close();
+        }
+        return phi == null ? null : phi.finish();
+    }
+
+    /**
+     * Compute the permuted LCP array in text order, then permute it to suffix array
+     * order and write it.
+     */
+    private static void writeLCP(File input, long n, ExternalSorter.Reader phi,
+        File output, int width, int vb, ExternalSorter sorter) throws IOException
+    {
+        final ExternalSorter.Sort lcp = sorter.newSort(1, vb, vb);
+        final RandomAccessFile raf = new RandomAccessFile(input, "r");
+        try
+        {
+            final MappedText text = new MappedText(raf.getChannel(), n);
+            final long [] record = new long [3];
+            final long [] pair = new long [2];
+            long l = 0;
+            while (phi.next(record))
+            {
+                final long i = record[0];
+                final long j = record[1];
+                if (j < 0)
+                {
+                    l = -1;
+                }
+                else
+                {
+                    while (i + l < n && j + l < n && text.get(i + l) == text.get(j + l))
+                        l++;
+                }
+
+                pair[0] = record[2];
+                pair[1] = l;
+                lcp.add(pair);
+                l = Math.max(l - 1, 0);
+            }
+        }
+        finally
+        {
+            phi.close();
+            raf.close();
+        }
+
+        final ArrayWriter aw = new ArrayWriter(output, width);
+        final ExternalSorter.Reader lr = lcp.finish();
+        try
+        {
+            final long [] pair = new long [2];
+            while (lr.next(pair))
+            {
+                aw.write(pair[1]);
+            }
+        }
+        finally
+        {
+            lr.close();
+            aw.close();
+        }
+    }
+
+    /**
+     * Fill a record of a doubling iteration: a sort key placing suffixes <code>i</code>
+     * and <code>i + h</code> next to each other, <code>(i mod h, i div h)</code>, and the
+     * suffix's rank with a flag marking unique ranks in the lowest bit.
+     */
+    private static void entry(long [] record, long i, long rank, boolean unique, long h,
+        long n)
+    {
+        final long q = (n + h - 1) / h;
+        record[0] = (i % h) * q + i / h;
+        record[1] = (rank << 1) | (unique ? 1 : 0);
+    }
+
+    /**
+     * @return Returns the suffix of a position key.
+     * @see #entry(long[], long, long, boolean, long, long)
+     */
+    private static long suffix(long key, long h, long n)
+    {
+        final long q = (n + h - 1) / h;
+        return (key % q) * h + key / q;
+    }
+
+    private static BufferLongArray map(File file, long length, int width)
+        throws IOException
+    {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try
+        {
+            return BufferLongArray.map(raf.getChannel(), MapMode.READ_ONLY, 0, length,
+                width);
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package org.jsuffixarrays;
+
+import java.util.Arrays;
+
+/**
+ * A compressed full-text index (an <i>FM-index</i>) supporting pattern counting,
+ * locating occurrences and extracting substrings of the indexed sequence, without
+ * storing the sequence or its full suffix array.
+ * <p>
+ * The index consists of:
+ * <ul>
+ * <li>the Burrows-Wheeler transform of the sequence (see {@link BWTData} for the
+ * conventions), stored in a wavelet matrix over the (dense) alphabet of symbols
+ * occurring in the sequence; it takes <code>n * ceil(log2(sigma))</code> bits
+ * (<code>n</code> bytes for a byte alphabet),</li>
+ * <li>suffix array samples for text positions divisible by the sampling rate and a bit
+ * vector marking sampled rows, used by {@link #locate(int[], int, int)},</li>
+ * <li>inverse suffix array samples at the same positions, used by
+ * {@link #extract(int, int)}.</li>
+ * </ul>
+ * The samples take <code>8n / rate + n / 8</code> bytes. Counting takes
+ * <code>O(m log sigma)</code> time for a pattern of length <code>m</code> (the
+ * alphabet is usually small, so it is effectively linear in <code>m</code>), locating
+ * additionally <code>O(rate log sigma)</code> per occurrence.
+ * <p>
+ * Construction requires the full suffix array (built with the provided
+ * {@link ISuffixArrayBuilder}) and one temporary array of the input's length. Once
+ * constructed, the index is immutable and may be shared by multiple threads.
+ * <p>
+ * The index comes from <tt>P. Ferragina and G. Manzini. Opportunistic data structures
+ * with applications. In Proc. 41st Symposium on Foundations of Computer Science (FOCS
+ * ’00), pages 390–398. IEEE, 2000.</tt>
+ */
+public final class FMIndex
+{
+    /**
+     * Default suffix array sampling rate.
+     */
+    public final static int DEFAULT_SAMPLE_RATE = 32;
+
+    private final int length;
+    private final int sampleRate;
+
+    /** Sorted, unique symbols of the input. */
+    private final int [] alphabet;
+
+    /** Number of rows (of the matrix with the sentinel) starting with a smaller symbol. */
+    private final int [] C;
+
+    private final WaveletMatrix bwt;
+    private final int primaryIndex;
+
+    /** Rows (of the matrix with the sentinel) with sampled suffix array values. */
+    private final RankBitVector sampledRows;
+    private final int [] saSamples;
+    private final int [] isaSamples;
+
+    /**
+     * Build an FM-index for a character sequence, with the default sampling rate.
+     */
+    public FMIndex(CharSequence s)
+    {
+        this(s, DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * Build an FM-index for a character sequence.
+     */
+    public FMIndex(CharSequence s, int sampleRate)
+    {
+        this(Tools.toArray(s, SuffixArrays.MAX_EXTRA_TRAILING_SPACE), 0, s.length(),
+            new DensePositiveDecorator(SuffixArrays.defaultAlgorithm()), sampleRate);
+    }
+
+    /**
+     * Build an FM-index for a given input sequence of symbols.
+     * 
+     * @param builder Suffix array building strategy (must accept the input, see
+     *            {@link ISuffixArrayBuilder}).
+     * @param sampleRate Suffix array sampling rate: every <code>sampleRate</code>-th
+     *            text position is sampled.
+     */
+    public FMIndex(int [] input, int start, int length, ISuffixArrayBuilder builder,
+        int sampleRate)
+    {
+        Tools.assertAlways(sampleRate >= 1, "sampling rate must be >= 1");
+        this.length = length;
+        this.sampleRate = sampleRate;
+
+        final int [] sa = builder.buildSuffixArray(input, start, length);
+
+        // Sample the suffix array and its inverse, rows are shifted by the sentinel's row.
+        final long [] sampled = RankBitVector.words(length + 1);
+        this.saSamples = new int [(length + sampleRate - 1) / sampleRate];
+        this.isaSamples = new int [saSamples.length];
+        for (int i = 0; i < length; i++)
+        {
+            if (sa[i] % sampleRate == 0)
+            {
+                RankBitVector.set(sampled, i + 1);
+                isaSamples[sa[i] / sampleRate] = i + 1;
+            }
+        }
+        this.sampledRows = new RankBitVector(sampled, length + 1);
+        for (int i = 0, j = 0; i < length; i++)
+        {
+            if (sa[i] % sampleRate == 0)
+            {
+                saSamples[j++] = sa[i];
+            }
+        }
+
+        // Transform in place, then map symbols to [0, sigma).
+        this.primaryIndex = SuffixArrays.toBWT(input, start, length, sa);
+        this.alphabet = alphabet(input, start, length);
+        this.C = new int [alphabet.length + 1];
+        for (int i = 0; i < length; i++)
+        {
+            final int symbol = Arrays.binarySearch(alphabet, sa[i]);
+            sa[i] = symbol;
+            C[symbol + 1]++;
+        }
+        C[0] = 1;
+        for (int i = 1; i < C.length; i++)
+        {
+            C[i] += C[i - 1];
+        }
+
+        this.bwt = new WaveletMatrix(sa, length, Math.max(1, alphabet.length));
+    }
+
+    /**
+     * @return The number of symbols in the indexed sequence.
+     */
+    public int length()
+    {
+        return length;
+    }
+
+    /**
+     * @return Number of occurrences of the pattern.
+     */
+    public int count(int [] pattern, int pstart, int plength)
+    {
+        final long range = search(pattern, pstart, plength);
+        return (int) (range >>> 32) - (int) range;
+    }
+
+    /**
+     * @see #count(int[], int, int)
+     */
+    public int count(CharSequence pattern)
+    {
+        final int [] p = Tools.toArray(pattern);
+        return count(p, 0, p.length);
+    }
+
+    /**
+     * @return Starting positions of all occurrences of the pattern, in suffix array order.
+     */
+    public int [] locate(int [] pattern, int pstart, int plength)
+    {
+        final long range = search(pattern, pstart, plength);
+        final int sp = (int) range;
+        final int ep = (int) (range >>> 32);
+
+        final int [] positions = new int [ep - sp];
+        for (int row = sp; row < ep; row++)
+        {
+            positions[row - sp] = position(row);
+        }
+        return positions;
+    }
+
+    /**
+     * @see #locate(int[], int, int)
+     */
+    public int [] locate(CharSequence pattern)
+    {
+        final int [] p = Tools.toArray(pattern);
+        return locate(p, 0, p.length);
+    }
+
+    /**
+     * @return Symbols of the indexed sequence in <code>[from, to)</code>.
+     */
+    public int [] extract(int from, int to)
+    {
+        Tools.assertAlways(0 <= from && from <= to && to <= length, "range out of bounds");
+
+        final int [] output = new int [to - from];
+        int sample = (to + sampleRate - 1) / sampleRate;
+        int position = sample * sampleRate;
+        int row;
+        if (position >= length)
+        {
+            position = length;
+            row = 0;
+        }
+        else
+        {
+            row = isaSamples[sample];
+        }
+
+        while (position > from)
+        {
+            final int symbol = symbolAt(row);
+            position--;
+            if (position < to)
+            {
+                output[position - from] = alphabet[symbol];
+            }
+            row = C[symbol] + rank(symbol, row);
+        }
+        return output;
+    }
+
+    /**
+     * @return Approximate memory used by this index, in bytes.
+     */
+    public long sizeInBytes()
+    {
+        return bwt.sizeInBytes() + sampledRows.sizeInBytes() + 4L * saSamples.length
+            + 4L * isaSamples.length + 4L * alphabet.length + 4L * C.length;
+    }
+
+    /**
+     * Backward search. Returns the range of rows <code>[sp, ep)</code> prefixed with the
+     * pattern, packed into a long (<code>ep</code> in the upper bits). Rows are shifted by
+     * one compared to suffix array indices (row 0 is the sentinel's).
+     */
+    private long search(int [] pattern, int pstart, int plength)
+    {
+        int sp = 0, ep = length + 1;
+        for (int i = pstart + plength - 1; i >= pstart && sp < ep; i--)
+        {
+            final int symbol = Arrays.binarySearch(alphabet, pattern[i]);
+            if (symbol < 0)
+            {
+                sp = ep = 0;
+                break;
+            }
+            sp = C[symbol] + rank(symbol, sp);
+            ep = C[symbol] + rank(symbol, ep);
+        }
+
+        // Skip the sentinel's row (only for an empty pattern).
+        if (sp == 0 && ep > 0) sp = 1;
+        if (ep < sp) ep = sp;
+        return ((long) ep << 32) | sp;
+    }
+
+    /**
+     * @return Text position of the suffix at the given row (walks backwards to the
+     *         nearest sampled position).
+     */
+    private int position(int row)
+    {
+        int steps = 0;
+        while (!sampledRows.get(row))
+        {
+            final int symbol = symbolAt(row);
+            row = C[symbol] + rank(symbol, row);
+            steps++;
+        }
+        return saSamples[sampledRows.rank1(row)] + steps;
+    }
+
+    /**
+     * @return Mapped symbol in the last column of the matrix with the sentinel at the
+     *         given row (must not be the primary index).
+     */
+    private int symbolAt(int row)
+    {
+        return bwt.access(row < primaryIndex ? row : row - 1);
+    }
+
+    /**
+     * @return Number of occurrences of a mapped symbol in the last column of the matrix
+     *         with the sentinel, in rows <code>[0, row)</code>.
+     */
+    private int rank(int symbol, int row)
+    {
+        return bwt.rank(symbol, row <= primaryIndex ? row : row - 1);
+    }
+
+    /**
+     * @return Sorted, unique symbols of the input.
+     */
+    static int [] alphabet(int [] input, int start, int length)
+    {
+        if (length == 0) return new int [0];
+
+        final MinMax minmax = Tools.minmax(input, start, length);
+        final int [] alphabet;
+        if (minmax.range() < (1 << 24))
+        {
+            final long [] present = RankBitVector.words((int) minmax.range() + 1);
+            for (int i = start; i < start + length; i++)
+            {
+                RankBitVector.set(present, input[i] - minmax.min);
+            }
+            final RankBitVector bv = new RankBitVector(present,
+                (int) minmax.range() + 1);
+            alphabet = new int [bv.rank1(bv.size())];
+            for (int i = 0, j = 0; i < bv.size(); i++)
+            {
+                if (bv.get(i)) alphabet[j++] = i + minmax.min;
+            }
+        }
+        else
+        {
+            final int [] sorted = Arrays.copyOfRange(input, start, start + length);
+            Arrays.sort(sorted);
+            int unique = 0;
+            for (int i = 0; i < sorted.length; i++)
+            {
+                if (i == 0 || sorted[i] != sorted[i - 1]) sorted[unique++] = sorted[i];
+            }
+            alphabet = Arrays.copyOf(sorted, unique);
+        }
+        return alphabet;
+    }
+}
@@ -0,0 +1,516 @@
+package org.jsuffixarrays;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A suffix array of a collection of documents (a <i>generalized suffix array</i>).
+ * Documents are concatenated, each followed by a unique separator symbol smaller than
+ * any document symbol, and a single suffix array is built for the concatenation.
+ * Separator suffixes are then dropped, so the suffix array, the LCP array and the
+ * document-id array cover exactly the symbols of all documents.
+ * <p>
+ * Because separators are unique, no two suffixes share a separator at the same offset
+ * and LCP values never cross document boundaries. Suffixes equal up to the end of their
+ * documents are ordered by document number.
+ * <p>
+ * Positions in the suffix array are positions in the concatenation; use
+ * {@link #getDocumentStart(int)} and {@link #getDocumentIds()} to translate them to
+ * document offsets. Once constructed, instances are immutable and may be shared by
+ * multiple threads.
+ */
+public final class GeneralizedSuffixArray
+{
+    /** Concatenated documents, mapped to symbols above the separators. */
+    private final int [] text;
+
+    /** Start of each document in {@link #text}, plus the end of the last one. */
+    private final int [] starts;
+
+    /**
+     * Range of document symbols; symbol <code>s</code> is mapped to
+     * <code>s - min + documents + 1</code>.
+     */
+    private final int min, max;
+
+    /**
+     * Codes of document symbols if their range is large (symbol <code>s</code> is then
+     * mapped to <code>alphabet.code(s) + documents</code>), <code>null</code> otherwise.
+     */
+    private final SparseAlphabetMapper alphabet;
+
+    private final int [] sa;
+    private final int [] lcp;
+    private final int [] docIds;
+
+    /**
+     * Build a generalized suffix array of the given documents of int symbols (any values
+     * are allowed).
+     */
+    public GeneralizedSuffixArray(int [][] documents)
+    {
+        this(documents, null, null);
+    }
+
+    /**
+     * Build a generalized suffix array of the given documents, merging the suffix arrays
+     * of <code>a</code> and <code>b</code> (their documents, in this order) if they are
+     * not <code>null</code>.
+     */
+    private GeneralizedSuffixArray(int [][] documents, GeneralizedSuffixArray a,
+        GeneralizedSuffixArray b)
+    {
+        final int n = documents.length;
+        int total = n;
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        for (int [] doc : documents)
+        {
+            total += doc.length;
+            if (doc.length > 0)
+            {
+                final MinMax mm = Tools.minmax(doc, 0, doc.length);
+                min = Math.min(min, mm.min);
+                max = Math.max(max, mm.max);
+            }
+        }
+        if (min > max)
+        {
+            min = max = 0;
+        }
+
+        this.min = min;
+        this.max = max;
+        this.starts = new int [n + 1];
+        this.text = new int [total];
+
+        // Concatenate documents (separators are filled in below).
+        int p = 0;
+        for (int d = 0; d < n; d++)
+        {
+            starts[d] = p;
+            final int [] doc = documents[d];
+            System.arraycopy(doc, 0, text, p, doc.length);
+            p += doc.length;
+            text[p++] = min;
+        }
+        starts[n] = p;
+
+        if ((long) max - min > DensePositiveDecorator.DENSE_RANGE_LIMIT)
+        {
+            this.alphabet = new SparseAlphabetMapper(text, 0, total);
+            alphabet.map(text, 0, total);
+            for (int i = 0; i < total; i++)
+            {
+                text[i] += n;
+            }
+        }
+        else
+        {
+            this.alphabet = null;
+            for (int i = 0; i < total; i++)
+            {
+                text[i] += n + 1 - min;
+            }
+        }
+        for (int d = 0; d < n; d++)
+        {
+            text[starts[d + 1] - 1] = d + 1;
+        }
+
+        final int [] fullSA;
+        final int [] fullLCP;
+        if (a == null)
+        {
+            fullSA = new SAIS().buildSuffixArray(text, 0, total);
+            fullLCP = new PhiLCP().buildLCP(text, 0, total, fullSA);
+        }
+        else
+        {
+            /*
+             * The encoding preserves the order of symbols and separators of both
+             * arrays, so their suffix arrays are valid for their parts of the text.
+             */
+            final int split = a.text.length;
+            final SuffixData merged = SuffixArrayMerger.merge(text, 0, split, a
+                .fullSuffixArray(), a.fullLCP(), text, split, total - split, b
+                .fullSuffixArray(), b.fullLCP());
+            fullSA = merged.getSuffixArray();
+            fullLCP = merged.getLCP();
+        }
+
+        // Separator suffixes are the n smallest ones.
+        final int length = total - n;
+        this.sa = new int [length];
+        this.lcp = new int [length];
+        this.docIds = new int [length];
+        System.arraycopy(fullSA, n, sa, 0, length);
+        System.arraycopy(fullLCP, n, lcp, 0, length);
+        if (length > 0)
+        {
+            lcp[0] = -1;
+        }
+
+        final int [] docOf = fullLCP;
+        for (int d = 0; d < n; d++)
+        {
+            for (int i = starts[d]; i < starts[d + 1]; i++)
+            {
+                docOf[i] = d;
+            }
+        }
+        for (int i = 0; i < length; i++)
+        {
+            docIds[i] = docOf[sa[i]];
+        }
+    }
+
+    /**
+     * Build a generalized suffix array of the given character sequences.
+     */
+    public GeneralizedSuffixArray(List<? extends CharSequence> documents)
+    {
+        this(toArrays(documents));
+    }
+
+    /**
+     * Merge generalized suffix arrays of two document collections, without sorting
+     * suffixes again (see {@link SuffixArrays#merge(int[], int, int, SuffixData, int[],
+     * int, int, SuffixData)}). Documents of <code>b</code> follow documents of
+     * <code>a</code> in the result.
+     */
+    public static GeneralizedSuffixArray merge(GeneralizedSuffixArray a,
+        GeneralizedSuffixArray b)
+    {
+        final int [][] documents = new int [a.documents() + b.documents()][];
+        for (int d = 0; d < a.documents(); d++)
+        {
+            documents[d] = a.getDocument(d);
+        }
+        for (int d = 0; d < b.documents(); d++)
+        {
+            documents[a.documents() + d] = b.getDocument(d);
+        }
+        return new GeneralizedSuffixArray(documents, a, b);
+    }
+
+    /**
+     * @return Returns the number of documents.
+     */
+    public int documents()
+    {
+        return starts.length - 1;
+    }
+
+    /**
+     * @return Returns the number of suffixes (the total length of all documents).
+     */
+    public int length()
+    {
+        return sa.length;
+    }
+
+    /**
+     * @return Returns the suffix array: positions of suffixes in the concatenation of
+     *         documents (including separators), in lexicographic order.
+     */
+    public int [] getSuffixArray()
+    {
+        return sa;
+    }
+
+    /**
+     * @return Returns the LCP array aligned with {@link #getSuffixArray()}. The LCP of
+     *         the first suffix is <code>-1</code>; no LCP value extends past the end of a
+     *         document.
+     */
+    public int [] getLCP()
+    {
+        return lcp;
+    }
+
+    /**
+     * @return Returns the document of each suffix, aligned with
+     *         {@link #getSuffixArray()}.
+     */
+    public int [] getDocumentIds()
+    {
+        return docIds;
+    }
+
+    /**
+     * @return Returns the position of the first symbol of a document in the
+     *         concatenation (the offset of suffix array position <code>p</code> in its
+     *         document is <code>p - getDocumentStart(document)</code>).
+     */
+    public int getDocumentStart(int document)
+    {
+        return starts[document];
+    }
+
+    /**
+     * @return Returns the length of a document.
+     */
+    public int getDocumentLength(int document)
+    {
+        return starts[document + 1] - starts[document] - 1;
+    }
+
+    /**
+     * @return Returns a copy of a document's symbols.
+     */
+    public int [] getDocument(int document)
+    {
+        final int [] symbols = Arrays.copyOfRange(text, starts[document],
+            starts[document + 1] - 1);
+        if (alphabet != null)
+        {
+            for (int i = 0; i < symbols.length; i++)
+            {
+                symbols[i] -= documents();
+            }
+            alphabet.undo(symbols, 0, symbols.length);
+        }
+        else
+        {
+            for (int i = 0; i < symbols.length; i++)
+            {
+                symbols[i] += min - documents() - 1;
+            }
+        }
+        return symbols;
+    }
+
+    /**
+     * Locate the suffix array interval of suffixes starting with a pattern.
+     *
+     * @param interval A two-element output array for the interval:
+     *            <code>[lower bound, upper bound)</code>.
+     * @return Returns the number of occurrences of the pattern in all documents.
+     */
+    public int find(int [] pattern, int pstart, int plength, int [] interval)
+    {
+        final int [] codes = new int [plength];
+        for (int i = 0; i < plength; i++)
+        {
+            codes[i] = encode(pattern[pstart + i]);
+            if (codes[i] < 0)
+            {
+                interval[0] = interval[1] = 0;
+                return 0;
+            }
+        }
+
+        interval[0] = bound(codes, false);
+        interval[1] = bound(codes, true);
+        return interval[1] - interval[0];
+    }
+
+    /**
+     * @see #find(int[], int, int, int[])
+     */
+    public int find(CharSequence pattern, int [] interval)
+    {
+        final int [] p = Tools.toArray(pattern);
+        return find(p, 0, p.length, interval);
+    }
+
+    /**
+     * @return Returns the sorted, distinct documents containing the pattern.
+     */
+    public int [] listDocuments(int [] pattern, int pstart, int plength)
+    {
+        final int [] interval = new int [2];
+        find(pattern, pstart, plength, interval);
+        return listDocuments(interval[0], interval[1]);
+    }
+
+    /**
+     * @see #listDocuments(int[], int, int)
+     */
+    public int [] listDocuments(CharSequence pattern)
+    {
+        final int [] p = Tools.toArray(pattern);
+        return listDocuments(p, 0, p.length);
+    }
+
+    /**
+     * @return Returns the sorted, distinct documents of suffixes in a suffix array
+     *         interval <code>[from, to)</code>.
+     */
+    public int [] listDocuments(int from, int to)
+    {
+        final BitSet seen = new BitSet(documents());
+        for (int i = from; i < to; i++)
+        {
+            seen.set(docIds[i]);
+        }
+
+        final int [] result = new int [seen.cardinality()];
+        for (int d = seen.nextSetBit(0), k = 0; d >= 0; d = seen.nextSetBit(d + 1))
+        {
+            result[k++] = d;
+        }
+        return result;
+    }
+
+    /**
+     * Find the longest substring common to at least <code>k</code> documents, in a
+     * single pass over the suffix array (a sliding window of suffixes from at least
+     * <code>k</code> documents, with a monotonic queue for the window's minimum LCP).
+     *
+     * @return Returns a three-element array: a document containing the substring, the
+     *         substring's offset in that document and its length (zero if no symbol is
+     *         shared by <code>k</code> documents), or <code>null</code> if there are
+     *         fewer than <code>k</code> documents.
+     */
+    public int [] longestCommonSubstring(int k)
+    {
+        Tools.assertAlways(k >= 1, "k must be >= 1");
+        final int n = documents();
+        if (k > n)
+        {
+            return null;
+        }
+
+        final int [] best = new int [] {0, 0, 0};
+        if (k == 1)
+        {
+            for (int d = 0; d < n; d++)
+            {
+                if (getDocumentLength(d) > best[2])
+                {
+                    best[0] = d;
+                    best[2] = getDocumentLength(d);
+                }
+            }
+            return best;
+        }
+
+        final int [] counts = new int [n];
+        final int [] queue = new int [sa.length];
+        int head = 0, tail = 0;
+        int distinct = 0;
+        for (int l = 0, r = 0; r < sa.length; r++)
+        {
+            if (counts[docIds[r]]++ == 0) distinct++;
+
+            // The queue holds indexes of lcp[l + 1...r] with increasing values.
+            if (r > l)
+            {
+                while (tail > head && lcp[queue[tail - 1]] >= lcp[r])
+                    tail--;
+                queue[tail++] = r;
+            }
+
+            while (distinct >= k)
+            {
+                if (r > l && lcp[queue[head]] > best[2])
+                {
+                    best[0] = docIds[r];
+                    best[1] = sa[r] - starts[docIds[r]];
+                    best[2] = lcp[queue[head]];
+                }
+
+                if (--counts[docIds[l]] == 0) distinct--;
+                l++;
+                if (tail > head && queue[head] <= l) head++;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return Returns the suffix array of {@link #text}, with separator suffixes (the
+     *         smallest ones, in document order).
+     */
+    private int [] fullSuffixArray()
+    {
+        final int n = documents();
+        final int [] full = new int [n + sa.length];
+        for (int d = 0; d < n; d++)
+        {
+            full[d] = starts[d + 1] - 1;
+        }
+        System.arraycopy(sa, 0, full, n, sa.length);
+        return full;
+    }
+
+    /**
+     * @return Returns the LCP array aligned with {@link #fullSuffixArray()}.
+     */
+    private int [] fullLCP()
+    {
+        final int n = documents();
+        final int [] full = new int [n + lcp.length];
+        System.arraycopy(lcp, 0, full, n, lcp.length);
+        // Separators are unique, LCPs with separator suffixes are zero.
+        if (lcp.length > 0) full[n] = 0;
+        if (n > 0) full[0] = -1;
+        return full;
+    }
+
+    /**
+     * @return Returns the symbol of {@link #text} for a document symbol or
+     *         <code>-1</code> if the symbol does not occur in any document.
+     */
+    private int encode(int symbol)
+    {
+        if (alphabet != null)
+        {
+            final int code = alphabet.code(symbol);
+            return code == 0 ? -1 : code + documents();
+        }
+        if (symbol < min || symbol > max)
+        {
+            return -1;
+        }
+        return symbol - min + documents() + 1;
+    }
+
+    /**
+     * @return Returns the first suffix array index whose suffix is not smaller than the
+     *         (encoded) pattern or, if <code>upper</code> is <code>true</code>, greater
+     *         than the pattern and does not begin with it.
+     */
+    private int bound(int [] pattern, boolean upper)
+    {
+        int lo = 0, hi = sa.length;
+        while (lo < hi)
+        {
+            final int mid = (lo + hi) >>> 1;
+            final int c = compare(sa[mid], pattern);
+            if (c < 0 || (upper && c == 0)) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Compare the suffix at <code>position</code>, truncated to the pattern's length,
+     * with the (encoded) pattern.
+     */
+    private int compare(int position, int [] pattern)
+    {
+        for (int i = 0; i < pattern.length; i++)
+        {
+            final int a = text[position + i];
+            final int b = pattern[i];
+            if (a != b)
+            {
+                return a < b ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    private static int [][] toArrays(List<? extends CharSequence> documents)
+    {
+        final int [][] arrays = new int [documents.size()][];
+        for (int i = 0; i < arrays.length; i++)
+        {
+            arrays[i] = Tools.toArray(documents.get(i));
+        }
+        return arrays;
+    }
+}
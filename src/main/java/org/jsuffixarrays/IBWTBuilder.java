@@ -0,0 +1,20 @@
+package org.jsuffixarrays;
+
+/**
+ * An algorithm that can produce the <i>Burrows-Wheeler transform</i> of a sequence of
+ * integer symbols directly, without materializing its full suffix array.
+ * 
+ * @see SuffixArrays#createBWT(int[], int, int, ISuffixArrayBuilder)
+ */
+public interface IBWTBuilder
+{
+    /**
+     * Computes the Burrows-Wheeler transform of a sequence of symbols, with the
+     * conventions described in {@link BWTData}. The input must not be modified.
+     * 
+     * @param input A sequence of input symbols, int-coded.
+     * @param start The starting index (inclusive) in <code>input</code>.
+     * @param length Number of symbols to process.
+     */
+    BWTData buildBWT(int [] input, int start, int length);
+}
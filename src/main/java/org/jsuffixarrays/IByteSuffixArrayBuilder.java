@@ -0,0 +1,37 @@
+package org.jsuffixarrays;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An algorithm that can build suffix arrays of byte sequences directly, reading bytes as
+ * unsigned 8-bit symbols (<code>0...255</code>) without widening the input to an
+ * <code>int[]</code>. The input is never modified.
+ *
+ * @see SuffixArrays#create(java.io.File, IByteSuffixArrayBuilder)
+ */
+public interface IByteSuffixArrayBuilder
+{
+    /**
+     * Computes suffix array for a sequence of bytes.
+     *
+     * @param input A sequence of input bytes.
+     * @param start The starting index (inclusive) in <code>input</code>.
+     * @param length Number of bytes to process.
+     * @return An array of <code>length</code> suffix positions, relative to
+     *         <code>start</code>.
+     */
+    int [] buildSuffixArray(byte [] input, int start, int length);
+
+    /**
+     * Computes suffix array for a sequence of bytes in a buffer (for example a
+     * memory-mapped file).
+     *
+     * @param input A buffer with input bytes. Bytes are read with absolute indexes, the
+     *            buffer's position is ignored and not changed.
+     * @param start The starting index (inclusive) in <code>input</code>.
+     * @param length Number of bytes to process.
+     * @return An array of <code>length</code> suffix positions, relative to
+     *         <code>start</code>.
+     */
+    int [] buildSuffixArray(ByteBuffer input, int start, int length);
+}
@@ -0,0 +1,24 @@
+package org.jsuffixarrays;
+
+/**
+ * An algorithm that computes the <i>longest common prefix</i> (LCP) array for a sequence
+ * of integer symbols and its suffix array.
+ * 
+ * @see SuffixArrays#createWithLCP(int[], int, int, ISuffixArrayBuilder, ILCPBuilder)
+ */
+public interface ILCPBuilder
+{
+    /**
+     * Computes the LCP array. Index <code>i</code> of the returned array indicates the
+     * length of the common prefix between suffix <code>sa[i]</code> and
+     * <code>sa[i-1]</code>. The 0-th index has a constant value of <code>-1</code>.
+     * 
+     * @param input A sequence of input symbols, int-coded.
+     * @param start The starting index (inclusive) in <code>input</code>.
+     * @param length Number of symbols to process.
+     * @param sa The suffix array of the processed sequence (as returned from
+     *            {@link ISuffixArrayBuilder#buildSuffixArray(int[], int, int)}).
+     * @return An array of at least <code>length</code> elements with the LCP values.
+     */
+    int [] buildLCP(int [] input, int start, int length, int [] sa);
+}
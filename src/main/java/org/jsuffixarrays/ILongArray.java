@@ -0,0 +1,25 @@
+package org.jsuffixarrays;
+
+/**
+ * A long-indexed array of long values. Used by builders and data structures that must
+ * address more than <code>2^31</code> elements (see {@link ILongSuffixArrayBuilder}).
+ * 
+ * @see PagedLongArray
+ */
+public interface ILongArray
+{
+    /**
+     * @return The number of elements in this array.
+     */
+    long length();
+
+    /**
+     * @return Returns the value at the given index.
+     */
+    long get(long index);
+
+    /**
+     * Sets the value at the given index.
+     */
+    void set(long index, long value);
+}
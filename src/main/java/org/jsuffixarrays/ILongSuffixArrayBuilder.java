@@ -0,0 +1,41 @@
+package org.jsuffixarrays;
+
+/**
+ * An algorithm that can produce a <i>suffix array</i> for a sequence of symbols longer
+ * than <code>2^31</code> elements. The long-indexed counterpart of
+ * {@link ISuffixArrayBuilder}. {@link LongSAIS} is the only implementation at the moment,
+ * and the only builder that can write to off-heap or memory-mapped arrays.
+ * 
+ * @see #buildSuffixArray(ILongArray, long, long)
+ */
+public interface ILongSuffixArrayBuilder
+{
+    /**
+     * Computes suffix array for sequence of symbols. The processed sequence is a
+     * subsequence of <code>input</code> determined by <code>start</code> and
+     * <code>length</code> parameters.
+     * 
+     * @param input A sequence of input symbols.
+     * @param start The starting index (inclusive) in <code>input</code>.
+     * @param length Number of symbols to process.
+     * @return An array of <code>length</code> indices such that the suffix of
+     *         <code>input</code> at index <code>result[i]</code> is lexicographically
+     *         larger or equal to any other suffix that precede it. The returned array
+     *         contains suffix indexes starting from 0.
+     * @see ISuffixArrayBuilder#buildSuffixArray(int[], int, int)
+     */
+    ILongArray buildSuffixArray(ILongArray input, long start, long length);
+
+    /**
+     * Computes suffix array for sequence of symbols and stores it in the first
+     * <code>length</code> elements of <code>output</code>. This allows the suffix array
+     * to be written directly to an off-heap or memory-mapped array (see
+     * {@link BufferLongArray}). Implementations may use the remaining elements of
+     * <code>output</code> (if any) as working space.
+     * 
+     * @return Returns <code>output</code>.
+     * @see #buildSuffixArray(ILongArray, long, long)
+     */
+    ILongArray buildSuffixArray(ILongArray input, long start, long length,
+        ILongArray output);
+}
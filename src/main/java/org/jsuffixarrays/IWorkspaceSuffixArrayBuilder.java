@@ -0,0 +1,25 @@
+package org.jsuffixarrays;
+
+/**
+ * A suffix array builder that can take its scratch arrays from a {@link Workspace} and
+ * write the suffix array to a caller-provided output array, so that repeated calls need
+ * (nearly) no allocations.
+ *
+ * @see #buildSuffixArray(int[], int, int, int[], Workspace)
+ */
+public interface IWorkspaceSuffixArrayBuilder extends ISuffixArrayBuilder
+{
+    /**
+     * Same as {@link #buildSuffixArray(int[], int, int)}, but the suffix array is
+     * written to <code>output[0...length-1]</code> and temporary arrays are borrowed from
+     * (and returned to) <code>workspace</code>. The input constraints of the concrete
+     * implementation apply.
+     *
+     * @param output The output array, at least <code>length</code> elements long. If
+     *            <code>null</code>, a new array is allocated.
+     * @param workspace The workspace to borrow scratch arrays from.
+     * @return Returns <code>output</code> (or the newly allocated array).
+     */
+    int [] buildSuffixArray(int [] input, int start, int length, int [] output,
+        Workspace workspace);
+}
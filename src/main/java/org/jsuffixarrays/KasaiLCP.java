@@ -0,0 +1,18 @@
+package org.jsuffixarrays;
+
+/**
+ * LCP computation using Kasai's algorithm; requires a temporary rank array.
+ * 
+ * @see SuffixArrays#computeLCP(int[], int, int, int[])
+ */
+public final class KasaiLCP implements ILCPBuilder
+{
+    /*
+     * 
+     */
+    @Override
+    public int [] buildLCP(int [] input, int start, int length, int [] sa)
+    {
+        return SuffixArrays.computeLCP(input, start, length, sa);
+    }
+}
@@ -0,0 +1,336 @@
+package org.jsuffixarrays;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Range minimum queries over an LCP array, for the longest common prefix of any two
+ * suffixes in constant time: the LCP of suffixes of ranks <code>r1 &lt; r2</code> is the
+ * minimum of <code>lcp[r1 + 1..r2]</code>. Suffixes given by their positions in the input
+ * are mapped to ranks with the inverse suffix array, computed (in parallel, if a pool is
+ * given) on construction.
+ * <p>
+ * The LCP array is split into blocks of 64 values. Every block has two bit masks: the
+ * positions of its prefix minima (values smaller than all before them) and of its suffix
+ * minima (values not greater than any after them). The minimum of any range that starts
+ * or ends at a block boundary is thus found with a single bit operation, and the minimum
+ * of the whole block is its first suffix minimum. Ranges of whole blocks are answered with
+ * two sparse tables: one over the blocks of every superblock of 16 blocks (with 4-bit
+ * offsets) and one over superblock minima. A query takes at most a handful of array reads;
+ * only a range strictly inside a block that contains none of the block's prefix or suffix
+ * minima is scanned (at most 64 values).
+ * <p>
+ * The index takes about <code>2.75n</code> bits on top of the LCP array: <code>2n</code>
+ * bits of masks, <code>n / 4</code> bits of offsets and <code>32 log(n / 1024)</code> bits
+ * per superblock. The inverse suffix array takes another <code>n</code> integers. Once
+ * constructed, the index is immutable and may be shared by multiple threads.
+ * <p>
+ * The block masks are the in-block technique of <tt>N. Baumstark, S. Gog, T. Heuer and
+ * J. Labeit. Practical range minimum queries revisited. In Proc. 16th Symposium on
+ * Experimental Algorithms (SEA '17), pages 12:1–12:16, 2017</tt>, reduced to two masks
+ * per block.
+ */
+public final class LCPRangeMinimum
+{
+    private final static int BLOCK_BITS = 6;
+    private final static int BLOCK_MASK = (1 << BLOCK_BITS) - 1;
+
+    /** log2 of the number of blocks in a superblock (offsets take 4 bits). */
+    private final static int SUPERBLOCK_BITS = 4;
+    private final static int SUPERBLOCK_MASK = (1 << SUPERBLOCK_BITS) - 1;
+
+    /** Minimum number of LCP values for which construction splits the work. */
+    private final static int PARALLEL_THRESHOLD = 1 << 16;
+
+    private final int length;
+    private final int [] sa;
+    private final int [] lcp;
+    private final int [] isa;
+
+    /** Positions (bits) of prefix and suffix minima of every block. */
+    private final long [] prefixMinima, suffixMinima;
+
+    /**
+     * For every block <code>b</code> and level <code>k = 1..4</code>, bits
+     * <code>4(k - 1)..4k - 1</code> hold the offset (in the superblock) of the block with
+     * the minimum of blocks <code>[b, b + 2<sup>k</sup>)</code>, clipped to the
+     * superblock.
+     */
+    private final short [] blockTable;
+
+    /**
+     * <code>superTable[k][s]</code>: the minimum of superblocks
+     * <code>[s, s + 2<sup>k</sup>)</code>.
+     */
+    private final int [][] superTable;
+
+    /**
+     * Create the index for suffix data of a sequence of a given length (the LCP array is
+     * required).
+     *
+     * @param pool The pool to construct the index in or <code>null</code>.
+     */
+    public LCPRangeMinimum(SuffixData data, int length, ForkJoinPool pool)
+    {
+        Tools.assertAlways(data.getLCP() != null, "LCP array required");
+
+        this.length = length;
+        this.sa = data.getSuffixArray();
+        this.lcp = data.getLCP();
+        this.isa = SuffixArrays.computeISA(sa, length, pool);
+
+        final int blocks = (length + BLOCK_MASK) >>> BLOCK_BITS;
+        final int superblocks = (blocks + SUPERBLOCK_MASK) >>> SUPERBLOCK_BITS;
+        this.prefixMinima = new long [blocks];
+        this.suffixMinima = new long [blocks];
+        this.blockTable = new short [blocks];
+
+        final int chunks = (pool == null || length < PARALLEL_THRESHOLD ? 1 : pool
+            .getParallelism());
+        Tools.parallelFor(pool, 0, superblocks, chunks, new Tools.IRangeProcedure()
+        {
+            public void apply(int chunk, int from, int to)
+            {
+                final int last = Math.min(to << SUPERBLOCK_BITS, prefixMinima.length);
+                for (int b = from << SUPERBLOCK_BITS; b < last; b++)
+                {
+                    buildMasks(b);
+                }
+                for (int s = from; s < to; s++)
+                {
+                    buildBlockTable(s);
+                }
+            }
+        });
+
+        int levels = 1;
+        while ((2 << (levels - 1)) <= superblocks)
+        {
+            levels++;
+        }
+        this.superTable = new int [levels][];
+        superTable[0] = new int [superblocks];
+        for (int s = 0; s < superblocks; s++)
+        {
+            final int from = s << SUPERBLOCK_BITS;
+            final int to = Math.min(from + SUPERBLOCK_MASK, blocks - 1);
+            superTable[0][s] = blocksMin(from, to);
+        }
+        for (int k = 1; k < levels; k++)
+        {
+            final int [] previous = superTable[k - 1];
+            final int [] current = superTable[k] = new int [superblocks - (1 << k) + 1];
+            final int half = 1 << (k - 1);
+            for (int s = 0; s < current.length; s++)
+            {
+                current[s] = Math.min(previous[s], previous[s + half]);
+            }
+        }
+    }
+
+    /**
+     * @return Returns the minimum of LCP values in the range <code>[from, to]</code>
+     *         (inclusive).
+     */
+    public int min(int from, int to)
+    {
+        assert 0 <= from && from <= to && to < length;
+
+        final int bf = from >>> BLOCK_BITS;
+        final int bt = to >>> BLOCK_BITS;
+        if (bf == bt)
+        {
+            return inBlockMin(from, to);
+        }
+
+        int min = Math.min(suffixMin(from), prefixMin(to));
+        if (bt - bf > 1)
+        {
+            min = Math.min(min, blocksMin(bf + 1, bt - 1));
+        }
+        return min;
+    }
+
+    /**
+     * @return Returns the length of the longest common prefix of suffixes of ranks (their
+     *         indices in the suffix array) <code>r1</code> and <code>r2</code>.
+     */
+    public int lcpOfRanks(int r1, int r2)
+    {
+        if (r1 == r2) return length - sa[r1];
+        return (r1 < r2 ? min(r1 + 1, r2) : min(r2 + 1, r1));
+    }
+
+    /**
+     * @return Returns the length of the longest common prefix of suffixes starting at
+     *         positions <code>i</code> and <code>j</code> of the input.
+     */
+    public int lcp(int i, int j)
+    {
+        if (i == j) return length - i;
+        return lcpOfRanks(isa[i], isa[j]);
+    }
+
+    /**
+     * @return Returns the inverse suffix array (ranks of suffixes). The array is shared,
+     *         it must not be modified.
+     */
+    public int [] getInverseSuffixArray()
+    {
+        return isa;
+    }
+
+    /**
+     * @return Returns the minimum of a range within a single block.
+     */
+    private int inBlockMin(int from, int to)
+    {
+        final int base = from & ~BLOCK_MASK;
+
+        // The first suffix minimum at or after from, if not after to, is the minimum.
+        final long suffix = suffixMinima[from >>> BLOCK_BITS]
+            & (-1L << (from & BLOCK_MASK));
+        final int p = base + Long.numberOfTrailingZeros(suffix);
+        if (p <= to) return lcp[p];
+
+        // The last prefix minimum at or before to, if not before from, is the minimum.
+        final long prefix = prefixMinima[to >>> BLOCK_BITS]
+            & (-1L >>> (BLOCK_MASK - (to & BLOCK_MASK)));
+        final int q = base + BLOCK_MASK - Long.numberOfLeadingZeros(prefix);
+        if (q >= from) return lcp[q];
+
+        int min = lcp[from];
+        for (int i = from + 1; i <= to; i++)
+        {
+            if (lcp[i] < min) min = lcp[i];
+        }
+        return min;
+    }
+
+    /**
+     * @return Returns the minimum from <code>from</code> to the end of its block.
+     */
+    private int suffixMin(int from)
+    {
+        final long mask = suffixMinima[from >>> BLOCK_BITS] & (-1L << (from & BLOCK_MASK));
+        return lcp[(from & ~BLOCK_MASK) + Long.numberOfTrailingZeros(mask)];
+    }
+
+    /**
+     * @return Returns the minimum from the start of the block of <code>to</code> to
+     *         <code>to</code>.
+     */
+    private int prefixMin(int to)
+    {
+        final long mask = prefixMinima[to >>> BLOCK_BITS]
+            & (-1L >>> (BLOCK_MASK - (to & BLOCK_MASK)));
+        return lcp[(to & ~BLOCK_MASK) + BLOCK_MASK - Long.numberOfLeadingZeros(mask)];
+    }
+
+    /**
+     * @return Returns the minimum of a whole block.
+     */
+    private int blockMin(int block)
+    {
+        return lcp[(block << BLOCK_BITS) + Long.numberOfTrailingZeros(suffixMinima[block])];
+    }
+
+    /**
+     * @return Returns the minimum of blocks <code>[from, to]</code> (inclusive).
+     */
+    private int blocksMin(int from, int to)
+    {
+        final int sf = from >>> SUPERBLOCK_BITS;
+        final int st = to >>> SUPERBLOCK_BITS;
+        if (sf == st)
+        {
+            return inSuperblockMin(from, to);
+        }
+
+        int min = Math.min(inSuperblockMin(from, from | SUPERBLOCK_MASK), inSuperblockMin(
+            to & ~SUPERBLOCK_MASK, to));
+        if (st - sf > 1)
+        {
+            final int k = 31 - Integer.numberOfLeadingZeros(st - sf - 1);
+            final int [] level = superTable[k];
+            min = Math.min(min, Math.min(level[sf + 1], level[st - (1 << k)]));
+        }
+        return min;
+    }
+
+    /**
+     * @return Returns the minimum of blocks <code>[from, to]</code> of one superblock.
+     */
+    private int inSuperblockMin(int from, int to)
+    {
+        if (from == to) return blockMin(from);
+
+        final int k = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+        final int shift = SUPERBLOCK_BITS * (k - 1);
+        final int base = from & ~SUPERBLOCK_MASK;
+        final int a = base + ((blockTable[from] >>> shift) & SUPERBLOCK_MASK);
+        final int b = base + ((blockTable[to - (1 << k) + 1] >>> shift) & SUPERBLOCK_MASK);
+        return Math.min(blockMin(a), blockMin(b));
+    }
+
+    private void buildMasks(int block)
+    {
+        final int from = block << BLOCK_BITS;
+        final int to = Math.min(from + BLOCK_MASK + 1, length);
+
+        long prefix = 0;
+        int min = Integer.MAX_VALUE;
+        for (int i = from; i < to; i++)
+        {
+            if (lcp[i] < min)
+            {
+                min = lcp[i];
+                prefix |= 1L << (i - from);
+            }
+        }
+
+        long suffix = 0;
+        min = Integer.MAX_VALUE;
+        for (int i = to - 1; i >= from; i--)
+        {
+            if (lcp[i] <= min)
+            {
+                min = lcp[i];
+                suffix |= 1L << (i - from);
+            }
+        }
+
+        prefixMinima[block] = prefix;
+        suffixMinima[block] = suffix;
+    }
+
+    private void buildBlockTable(int superblock)
+    {
+        final int from = superblock << SUPERBLOCK_BITS;
+        final int to = Math.min(from + SUPERBLOCK_MASK + 1, blockTable.length);
+
+        // Level 0: every block is its own minimum.
+        final int [] best = new int [to - from];
+        for (int b = from; b < to; b++)
+        {
+            best[b - from] = b;
+        }
+
+        for (int k = 1; k <= SUPERBLOCK_BITS; k++)
+        {
+            final int half = 1 << (k - 1);
+            for (int b = from; b < to; b++)
+            {
+                if (b + half < to)
+                {
+                    final int other = best[b + half - from];
+                    if (blockMin(other) < blockMin(best[b - from]))
+                    {
+                        best[b - from] = other;
+                    }
+                }
+                final int offset = best[b - from] - from;
+                blockTable[b] |= (short) (offset << (SUPERBLOCK_BITS * (k - 1)));
+            }
+        }
+    }
+}
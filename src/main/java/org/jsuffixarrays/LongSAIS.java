@@ -0,0 +1,354 @@
+package org.jsuffixarrays;
+
+import static org.jsuffixarrays.Tools.assertAlways;
+
+/**
+ * A long-indexed version of the SA-IS algorithm (see {@link SAIS}) for sequences longer
+ * than <code>2^31</code> symbols. The input and output are {@link ILongArray}s, so the
+ * text may be stored compactly (for example in a {@link PagedByteArray}) and the suffix
+ * array is allocated as a {@link PagedLongArray}.
+ * <p>
+ * The algorithm runs in O(n) time and needs the suffix array (8n bytes) plus
+ * <code>max(n, 2k)</code> longs of extra working space in the worst case, where k is the
+ * alphabet size. The suffix array can be written directly to an off-heap or
+ * memory-mapped {@link BufferLongArray} (4 bytes per element suffice for inputs shorter
+ * than <code>2^31</code>).
+ */
+public final class LongSAIS implements ILongSuffixArrayBuilder
+{
+    /**
+     * A view of another array shifted by a constant offset.
+     */
+    private static final class View implements ILongArray
+    {
+        private final ILongArray array;
+        private final long offset;
+
+        View(ILongArray array, long offset)
+        {
+            this.array = array;
+            this.offset = offset;
+        }
+
+        public long length()
+        {
+            return array.length() - offset;
+        }
+
+        public long get(long index)
+        {
+            return array.get(offset + index);
+        }
+
+        public void set(long index, long value)
+        {
+            array.set(offset + index, value);
+        }
+    }
+
+    /** Page size of the allocated arrays. */
+    private final int pageBits;
+
+    public LongSAIS()
+    {
+        this(PagedLongArray.DEFAULT_PAGE_BITS);
+    }
+
+    /*
+     * 
+     */
+    LongSAIS(int pageBits)
+    {
+        this.pageBits = pageBits;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Additional constraints enforced by this implementation:
+     * <ul>
+     * <li>non-negative (&ge;0) symbols in the input</li>
+     * <li>the alphabet size (maximum symbol + 1) is used for bucket counts, so the
+     * symbols should be dense (see {@link DensePositiveDecorator} for an equivalent in the
+     * <code>int</code> world)</li>
+     * </ul>
+     */
+    @Override
+    public ILongArray buildSuffixArray(ILongArray input, long start, long length)
+    {
+        return buildSuffixArray(input, start, length, new PagedLongArray(length,
+            pageBits));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Any elements of <code>output</code> past <code>length</code> are used as working
+     * space for bucket counters and the reduced problem, which limits additional
+     * allocations.
+     */
+    @Override
+    public ILongArray buildSuffixArray(ILongArray input, long start, long length,
+        ILongArray SA)
+    {
+        assertAlways(input != null, "input must not be null");
+        assertAlways(start >= 0 && length >= 0 && start + length <= input.length(),
+            "input range out of bounds");
+        assertAlways(SA.length() >= length, "output array too short");
+
+        if (length <= 1)
+        {
+            if (length == 1) SA.set(0, 0);
+            return SA;
+        }
+
+        final ILongArray T = (start == 0 ? input : new View(input, start));
+        long max = 0;
+        for (long i = 0; i < length; i++)
+        {
+            final long v = T.get(i);
+            assertAlways(v >= 0, "input must not be negative");
+            if (v > max) max = v;
+        }
+
+        SA_IS(T, SA, SA.length() - length, length, max + 1);
+        return SA;
+    }
+
+    /* find the start or end of each bucket */
+    private void getCounts(ILongArray T, ILongArray C, long n, long k)
+    {
+        long i, c;
+        for (i = 0; i < k; ++i)
+            C.set(i, 0);
+        for (i = 0; i < n; ++i)
+        {
+            c = T.get(i);
+            C.set(c, C.get(c) + 1);
+        }
+    }
+
+    private void getBuckets(ILongArray C, ILongArray B, long k, boolean end)
+    {
+        long i, sum = 0;
+        if (end)
+        {
+            for (i = 0; i < k; ++i)
+            {
+                sum += C.get(i);
+                B.set(i, sum);
+            }
+        }
+        else
+        {
+            for (i = 0; i < k; ++i)
+            {
+                sum += C.get(i);
+                B.set(i, sum - C.get(i));
+            }
+        }
+    }
+
+    /* compute SA */
+    private void induceSA(ILongArray T, ILongArray SA, ILongArray C, ILongArray B,
+        long n, long k)
+    {
+        long b, i, j;
+        long c0, c1;
+
+        /* compute SAl */
+        if (C == B) getCounts(T, C, n, k);
+        getBuckets(C, B, k, false); /* find starts of buckets */
+        j = n - 1;
+        b = B.get(c1 = T.get(j));
+        SA.set(b++, ((0 < j) && (T.get(j - 1) < c1)) ? ~j : j);
+        for (i = 0; i < n; ++i)
+        {
+            j = SA.get(i);
+            SA.set(i, ~j);
+            if (0 < j)
+            {
+                if ((c0 = T.get(--j)) != c1)
+                {
+                    B.set(c1, b);
+                    b = B.get(c1 = c0);
+                }
+                SA.set(b++, ((0 < j) && (T.get(j - 1) < c1)) ? ~j : j);
+            }
+        }
+
+        /* compute SAs */
+        if (C == B) getCounts(T, C, n, k);
+        getBuckets(C, B, k, true); /* find ends of buckets */
+        for (i = n - 1, b = B.get(c1 = 0); 0 <= i; --i)
+        {
+            if (0 < (j = SA.get(i)))
+            {
+                if ((c0 = T.get(--j)) != c1)
+                {
+                    B.set(c1, b);
+                    b = B.get(c1 = c0);
+                }
+                SA.set(--b, ((j == 0) || (T.get(j - 1) > c1)) ? ~j : j);
+            }
+            else
+            {
+                SA.set(i, ~j);
+            }
+        }
+    }
+
+    /*
+     * find the suffix array SA of T[0..n-1] in {0..k-1}^n, SA has fs cells of free
+     * space after the first n.
+     */
+    private void SA_IS(ILongArray T, ILongArray SA, long fs, long n, long k)
+    {
+        ILongArray C, B, RA;
+        long i, j, b, c, m, p, q, plen, qlen, name;
+        long c0, c1;
+        boolean diff;
+
+        /*
+         * stage 1: reduce the problem by at least 1/2 sort all the S-substrings
+         */
+        if (k <= fs)
+        {
+            C = new View(SA, n);
+            B = (k <= (fs - k)) ? new View(SA, n + k) : C;
+        }
+        else
+        {
+            B = C = new PagedLongArray(k, pageBits);
+        }
+        getCounts(T, C, n, k);
+        getBuckets(C, B, k, true); /* find ends of buckets */
+        for (i = 0; i < n; ++i)
+            SA.set(i, 0);
+        for (i = n - 2, c = 0, c1 = T.get(n - 1); 0 <= i; --i, c1 = c0)
+        {
+            if ((c0 = T.get(i)) < (c1 + c))
+            {
+                c = 1;
+            }
+            else if (c != 0)
+            {
+                b = B.get(c1) - 1;
+                B.set(c1, b);
+                SA.set(b, i + 1);
+                c = 0;
+            }
+        }
+        induceSA(T, SA, C, B, n, k);
+        C = null;
+        B = null;
+
+        /*
+         * compact all the sorted substrings into the first m items of SA 2*m must be not
+         * larger than n (proveable)
+         */
+        for (i = 0, m = 0; i < n; ++i)
+        {
+            p = SA.get(i);
+            if ((0 < p) && (T.get(p - 1) > (c0 = T.get(p))))
+            {
+                for (j = p + 1; (j < n) && (c0 == (c1 = T.get(j))); ++j)
+                {
+                }
+                if ((j < n) && (c0 < c1)) SA.set(m++, p);
+            }
+        }
+        j = m + (n >> 1);
+        for (i = m; i < j; ++i)
+            SA.set(i, 0); /* init the name array buffer */
+        /* store the length of all substrings */
+        for (i = n - 2, j = n, c = 0, c1 = T.get(n - 1); 0 <= i; --i, c1 = c0)
+        {
+            if ((c0 = T.get(i)) < (c1 + c))
+            {
+                c = 1;
+            }
+            else if (c != 0)
+            {
+                SA.set(m + ((i + 1) >> 1), j - i - 1);
+                j = i + 1;
+                c = 0;
+            }
+        }
+        /* find the lexicographic names of all substrings */
+        for (i = 0, name = 0, q = n, qlen = 0; i < m; ++i)
+        {
+            p = SA.get(i);
+            plen = SA.get(m + (p >> 1));
+            diff = true;
+            if (plen == qlen)
+            {
+                for (j = 0; (j < plen) && (T.get(p + j) == T.get(q + j)); ++j)
+                {
+                }
+                if (j == plen) diff = false;
+            }
+            if (diff)
+            {
+                ++name;
+                q = p;
+                qlen = plen;
+            }
+            SA.set(m + (p >> 1), name);
+        }
+
+        /*
+         * stage 2: solve the reduced problem recurse if names are not yet unique
+         */
+        if (name < m)
+        {
+            RA = new View(SA, n + fs - m);
+            for (i = m + (n >> 1) - 1, j = n + fs - 1; m <= i; --i)
+            {
+                if (SA.get(i) != 0) SA.set(j--, SA.get(i) - 1);
+            }
+            SA_IS(RA, SA, fs + n - m * 2, m, name);
+            RA = null;
+            for (i = n - 2, j = m * 2 - 1, c = 0, c1 = T.get(n - 1); 0 <= i; --i, c1 = c0)
+            {
+                if ((c0 = T.get(i)) < (c1 + c))
+                {
+                    c = 1;
+                }
+                else if (c != 0)
+                {
+                    SA.set(j--, i + 1);
+                    c = 0;
+                } /* get p1 */
+            }
+            for (i = 0; i < m; ++i)
+                SA.set(i, SA.get(SA.get(i) + m)); /* get index */
+        }
+
+        /* stage 3: induce the result for the original problem */
+        if (k <= fs)
+        {
+            C = new View(SA, n);
+            B = (k <= (fs - k)) ? new View(SA, n + k) : C;
+        }
+        else
+        {
+            B = C = new PagedLongArray(k, pageBits);
+        }
+        /* put all left-most S characters into their buckets */
+        getCounts(T, C, n, k);
+        getBuckets(C, B, k, true); /* find ends of buckets */
+        for (i = m; i < n; ++i)
+            SA.set(i, 0); /* init SA[m..n-1] */
+        for (i = m - 1; 0 <= i; --i)
+        {
+            j = SA.get(i);
+            SA.set(i, 0);
+            c0 = T.get(j);
+            b = B.get(c0) - 1;
+            B.set(c0, b);
+            SA.set(b, j);
+        }
+        induceSA(T, SA, C, B, n, k);
+    }
+}
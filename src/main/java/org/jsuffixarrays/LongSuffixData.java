@@ -0,0 +1,30 @@
+package org.jsuffixarrays;
+
+/**
+ * A holder structure for a long-indexed suffix array and longest common prefix array of
+ * a given sequence.
+ * 
+ * @see SuffixData
+ * @see SuffixArrays#createWithLCP(ILongArray, long, long)
+ */
+public final class LongSuffixData
+{
+    private final ILongArray suffixArray;
+    private final ILongArray lcp;
+
+    LongSuffixData(ILongArray sa, ILongArray lcp)
+    {
+        this.suffixArray = sa;
+        this.lcp = lcp;
+    }
+
+    public ILongArray getSuffixArray()
+    {
+        return suffixArray;
+    }
+
+    public ILongArray getLCP()
+    {
+        return lcp;
+    }
+}
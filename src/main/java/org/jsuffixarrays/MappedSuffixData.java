@@ -0,0 +1,56 @@
+package org.jsuffixarrays;
+
+/**
+ * A suffix index memory-mapped from a file written with {@link SuffixDataFile}. All
+ * arrays are views of the mapped file (no data is copied to the heap).
+ * 
+ * @see SuffixDataFile#map(java.io.File, boolean)
+ */
+public final class MappedSuffixData
+{
+    private final long length;
+    private final ILongArray text;
+    private final LongSuffixData suffixData;
+    private final ILongArray inverseSuffixArray;
+
+    MappedSuffixData(long length, ILongArray text, ILongArray sa, ILongArray lcp,
+        ILongArray isa)
+    {
+        this.length = length;
+        this.text = text;
+        this.suffixData = new LongSuffixData(sa, lcp);
+        this.inverseSuffixArray = isa;
+    }
+
+    /**
+     * @return The number of symbols in the indexed sequence.
+     */
+    public long length()
+    {
+        return length;
+    }
+
+    /**
+     * @return The indexed sequence of symbols.
+     */
+    public ILongArray getText()
+    {
+        return text;
+    }
+
+    /**
+     * @return The suffix array and the LCP array.
+     */
+    public LongSuffixData getSuffixData()
+    {
+        return suffixData;
+    }
+
+    /**
+     * @return The inverse suffix array or <code>null</code> if it was not saved.
+     */
+    public ILongArray getInverseSuffixArray()
+    {
+        return inverseSuffixArray;
+    }
+}
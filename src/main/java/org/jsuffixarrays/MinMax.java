@@ -16,8 +16,12 @@ final class MinMax
         this.max = max;
     }
 
-    public int range()
+    /**
+     * @return Returns <code>max - min</code> (computed on longs, so it does not overflow
+     *         for symbols spanning the whole int range).
+     */
+    public long range()
     {
-        return max - min;
+        return (long) max - min;
     }
 }
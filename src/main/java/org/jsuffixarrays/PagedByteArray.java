@@ -0,0 +1,83 @@
+package org.jsuffixarrays;
+
+/**
+ * An {@link ILongArray} of unsigned 8-bit values (<code>0..255</code>) stored on the heap
+ * in fixed-size pages of <code>byte[]</code>. A compact input representation for large
+ * byte-oriented texts (genomes, archives) processed by {@link ILongSuffixArrayBuilder}s.
+ */
+public final class PagedByteArray implements ILongArray
+{
+    /**
+     * Default page size (as a power of two), 16MB per page.
+     */
+    final static int DEFAULT_PAGE_BITS = 24;
+
+    private final byte [][] pages;
+    private final long length;
+    private final int pageBits;
+    private final int pageMask;
+
+    /**
+     * Create an array of the given length, initialized with zeros.
+     */
+    public PagedByteArray(long length)
+    {
+        this(length, DEFAULT_PAGE_BITS);
+    }
+
+    /*
+     * 
+     */
+    PagedByteArray(long length, int pageBits)
+    {
+        Tools.assertAlways(length >= 0, "length must not be negative");
+        Tools.assertAlways(pageBits > 0 && pageBits < 31, "page bits out of range");
+
+        this.length = length;
+        this.pageBits = pageBits;
+        this.pageMask = (1 << pageBits) - 1;
+
+        final int pageSize = 1 << pageBits;
+        final long fullPages = length >>> pageBits;
+        final int lastPage = (int) (length & pageMask);
+        Tools.assertAlways(fullPages < Integer.MAX_VALUE, "array too large for page size");
+
+        this.pages = new byte [(int) fullPages + (lastPage > 0 ? 1 : 0)] [];
+        for (int i = 0; i < fullPages; i++)
+        {
+            pages[i] = new byte [pageSize];
+        }
+        if (lastPage > 0)
+        {
+            pages[pages.length - 1] = new byte [lastPage];
+        }
+    }
+
+    /*
+     * 
+     */
+    @Override
+    public long length()
+    {
+        return length;
+    }
+
+    /*
+     * 
+     */
+    @Override
+    public long get(long index)
+    {
+        return pages[(int) (index >>> pageBits)][(int) (index & pageMask)] & 0xff;
+    }
+
+    /**
+     * Sets the value at the given index, only the lower 8 bits of the value are stored.
+     */
+    @Override
+    public void set(long index, long value)
+    {
+        assert value >= 0 && value <= 0xff : "value out of range: " + value;
+        pages[(int) (index >>> pageBits)][(int) (index & pageMask)] = (byte) value;
+    }
+}
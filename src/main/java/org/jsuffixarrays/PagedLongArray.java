@@ -0,0 +1,81 @@
+package org.jsuffixarrays;
+
+/**
+ * An {@link ILongArray} stored on the heap in fixed-size pages of <code>long[]</code>, so
+ * that its size is not limited by the maximum size of a Java array.
+ */
+public final class PagedLongArray implements ILongArray
+{
+    /**
+     * Default page size (as a power of two), 1M elements (8MB) per page.
+     */
+    final static int DEFAULT_PAGE_BITS = 20;
+
+    private final long [][] pages;
+    private final long length;
+    private final int pageBits;
+    private final int pageMask;
+
+    /**
+     * Create an array of the given length, initialized with zeros.
+     */
+    public PagedLongArray(long length)
+    {
+        this(length, DEFAULT_PAGE_BITS);
+    }
+
+    /*
+     * 
+     */
+    PagedLongArray(long length, int pageBits)
+    {
+        Tools.assertAlways(length >= 0, "length must not be negative");
+        Tools.assertAlways(pageBits > 0 && pageBits < 31, "page bits out of range");
+
+        this.length = length;
+        this.pageBits = pageBits;
+        this.pageMask = (1 << pageBits) - 1;
+
+        final int pageSize = 1 << pageBits;
+        final long fullPages = length >>> pageBits;
+        final int lastPage = (int) (length & pageMask);
+        Tools.assertAlways(fullPages < Integer.MAX_VALUE, "array too large for page size");
+
+        this.pages = new long [(int) fullPages + (lastPage > 0 ? 1 : 0)] [];
+        for (int i = 0; i < fullPages; i++)
+        {
+            pages[i] = new long [pageSize];
+        }
+        if (lastPage > 0)
+        {
+            pages[pages.length - 1] = new long [lastPage];
+        }
+    }
+
+    /*
+     * 
+     */
+    @Override
+    public long length()
+    {
+        return length;
+    }
+
+    /*
+     * 
+     */
+    @Override
+    public long get(long index)
+    {
+        return pages[(int) (index >>> pageBits)][(int) (index & pageMask)];
+    }
+
+    /*
+     * 
+     */
+    @Override
+    public void set(long index, long value)
+    {
+        pages[(int) (index >>> pageBits)][(int) (index & pageMask)] = value;
+    }
+}
@@ -0,0 +1,198 @@
+package org.jsuffixarrays;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * LCP computation using the <i>PHI</i> algorithm, given in:
+ * <tt>J. Kärkkäinen, G. Manzini, and S. J. Puglisi. Permuted longest-common-prefix
+ * array. In Proc. 20th Symposium on Combinatorial Pattern Matching (CPM ’09), pages
+ * 181–192. Springer-Verlag LNCS n. 5577, 2009.</tt>
+ * <p>
+ * The algorithm first computes the <i>permuted</i> LCP array (PLCP, in text order) by
+ * comparing every suffix with its predecessor in the suffix array (the <i>PHI</i>
+ * function), then permutes it into suffix array order. Unlike Kasai's algorithm, no
+ * rank array is needed and the PLCP is computed in a cache-friendly, sequential text
+ * scan. Both the output and the PLCP work buffer can be supplied by the caller (and
+ * reused between builds); if no work buffer is given, the PLCP is kept in the output
+ * array and permuted in place, which needs no extra memory at all but is about two times
+ * slower (the permutation's cycles are followed one random access at a time).
+ * <p>
+ * With more than one thread, all phases except the in-place permutation are split
+ * across threads. The PLCP phase is split by text ranges: each range restarts the
+ * amortized comparison from zero, so the extra work is bounded by the number of ranges
+ * times the maximum LCP.
+ * <p>
+ * Instances are thread-safe and can be reused.
+ */
+public final class PhiLCP implements ILCPBuilder
+{
+    /**
+     * Minimum input length for which multiple threads are used.
+     */
+    final static int PARALLEL_THRESHOLD = 1 << 16;
+
+    private final int threads;
+
+    /**
+     * Single-threaded PHI.
+     */
+    public PhiLCP()
+    {
+        this(1);
+    }
+
+    /**
+     * @param threads Number of threads to use for sufficiently large inputs.
+     */
+    public PhiLCP(int threads)
+    {
+        Tools.assertAlways(threads >= 1, "threads must be >= 1");
+        this.threads = threads;
+    }
+
+    /*
+     * 
+     */
+    @Override
+    public int [] buildLCP(int [] input, int start, int length, int [] sa)
+    {
+        return buildLCP(input, start, length, sa, new int [length], new int [length]);
+    }
+
+    /**
+     * Computes the LCP array into caller-supplied buffers.
+     * 
+     * @param lcp Output array of at least <code>length</code> elements. Its previous
+     *            content is irrelevant.
+     * @param plcp Work buffer of at least <code>length</code> elements or
+     *            <code>null</code> to compute the LCP in place (slower, see class
+     *            documentation). Its content is undefined afterwards.
+     * @return Returns <code>lcp</code>.
+     * @see #buildLCP(int[], int, int, int[])
+     */
+    public int [] buildLCP(int [] input, int start, int length, int [] sa, int [] lcp,
+        int [] plcp)
+    {
+        Tools.assertAlways(lcp.length >= length, "lcp buffer too small");
+        Tools.assertAlways(plcp == null || plcp.length >= length, "plcp buffer too small");
+        if (length == 0) return lcp;
+
+        if (threads > 1 && length >= PARALLEL_THRESHOLD)
+        {
+            final ForkJoinPool pool = new ForkJoinPool(threads);
+            try
+            {
+                compute(input, start, length, sa, lcp, plcp, pool, threads);
+            }
+            finally
+            {
+                pool.shutdown();
+            }
+        }
+        else
+        {
+            compute(input, start, length, sa, lcp, plcp, null, 1);
+        }
+        return lcp;
+    }
+
+    private static void compute(final int [] input, final int start, final int length,
+        final int [] sa, final int [] lcp, int [] work, ForkJoinPool pool, int chunks)
+    {
+        final boolean inPlace = (work == null);
+        final int [] plcp = inPlace ? lcp : work;
+
+        /*
+         * PHI: plcp[sa[i]] = sa[i - 1], -1 for the smallest suffix.
+         */
+        Tools.parallelFor(pool, 0, length, chunks, new Tools.IRangeProcedure()
+        {
+            public void apply(int chunk, int from, int to)
+            {
+                for (int i = from; i < to; i++)
+                {
+                    plcp[sa[i]] = (i == 0 ? -1 : sa[i - 1]);
+                }
+            }
+        });
+
+        /*
+         * PLCP, in place over PHI. Values are stored shifted by one (0 for the smallest
+         * suffix), so that they are non-negative for the in-place permutation.
+         */
+        Tools.parallelFor(pool, 0, length, chunks, new Tools.IRangeProcedure()
+        {
+            public void apply(int chunk, int from, int to)
+            {
+                int h = 0;
+                for (int i = from; i < to; i++)
+                {
+                    final int j = plcp[i];
+                    if (j < 0)
+                    {
+                        plcp[i] = 0;
+                        h = 0;
+                        continue;
+                    }
+
+                    final int max = length - Math.max(i, j);
+                    while (h < max && input[start + i + h] == input[start + j + h])
+                    {
+                        h++;
+                    }
+                    plcp[i] = h + 1;
+                    if (h > 0) h--;
+                }
+            }
+        });
+
+        if (inPlace)
+        {
+            permuteInPlace(sa, lcp, length);
+        }
+        else
+        {
+            Tools.parallelFor(pool, 0, length, chunks, new Tools.IRangeProcedure()
+            {
+                public void apply(int chunk, int from, int to)
+                {
+                    for (int i = from; i < to; i++)
+                    {
+                        lcp[i] = plcp[sa[i]] - 1;
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Permute PLCP into suffix array order (lcp[k] = plcp[sa[k]] - 1), following the
+     * permutation's cycles. Visited cells are marked by complementing their values.
+     */
+    private static void permuteInPlace(int [] sa, int [] lcp, int length)
+    {
+        for (int k = 0; k < length; k++)
+        {
+            if (lcp[k] < 0) continue;
+
+            final int first = lcp[k];
+            int cur = k;
+            while (true)
+            {
+                final int src = sa[cur];
+                if (src == k)
+                {
+                    lcp[cur] = ~first;
+                    break;
+                }
+                lcp[cur] = ~lcp[src];
+                cur = src;
+            }
+        }
+
+        for (int i = 0; i < length; i++)
+        {
+            lcp[i] = ~lcp[i] - 1;
+        }
+    }
+}
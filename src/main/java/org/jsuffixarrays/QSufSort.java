@@ -21,7 +21,7 @@ import static org.jsuffixarrays.Tools.assertAlways;
  * <p>
  * Algorithm modifies input during processing, see {@link #QSufSort(boolean)}.
  */
-public class QSufSort implements ISuffixArrayBuilder
+public class QSufSort implements IWorkspaceSuffixArrayBuilder
 {
     /** group array, ultimately suffix array. */
     private int I[];
@@ -73,15 +73,32 @@ public class QSufSort implements ISuffixArrayBuilder
      */
     @Override
     public final int [] buildSuffixArray(int [] input, int start, int length)
+    {
+        return buildSuffixArray(input, start, length, new int [length + 1],
+            new Workspace(0));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The group array is sorted directly in <code>output</code> if it has at least
+     * <code>length + 1</code> elements, otherwise it is borrowed from the workspace and
+     * copied. The copy of the input (if preserved) is borrowed from the workspace.
+     */
+    @Override
+    public final int [] buildSuffixArray(int [] input, int start, int length,
+        int [] output, Workspace workspace)
     {
         assertAlways(input.length >= start + length + 1, "no extra space after input end");
+        assertAlways(output == null || output.length >= length, "output is too short");
         MinMax minmax = Tools.minmax(input, start, length);
         assertAlways(minmax.min >= 0, "input must not be negative");
-        I = new int [length + 1];
+        I = (output != null && output.length > length ? output : workspace
+            .borrow(length + 1));
         this.start = start;
         if (preserveInput)
         {
-            V = new int [length + 1];
+            V = workspace.borrow(length + 1);
             this.start = 0;
             System.arraycopy(input, start, V, 0, length);
         }
@@ -91,9 +108,21 @@ public class QSufSort implements ISuffixArrayBuilder
         }
         suffixsort(length, minmax.max + 1, minmax.min);
 
+        if (preserveInput)
+        {
+            workspace.release(V);
+        }
         final int [] tmp = I;
         V = I = null;
-        return tmp;
+
+        if (tmp == output)
+        {
+            return output;
+        }
+        final int [] result = (output != null ? output : new int [length]);
+        System.arraycopy(tmp, 0, result, 0, length);
+        workspace.release(tmp);
+        return result;
     }
 
     /**
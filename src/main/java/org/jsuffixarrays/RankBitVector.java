@@ -0,0 +1,99 @@
+package org.jsuffixarrays;
+
+/**
+ * A static bit vector with constant-time <code>rank</code>. Cumulative counts of set bits
+ * are stored for blocks of 512 bits (an overhead of 6.25%), the remainder is counted
+ * with {@link Long#bitCount(long)} over at most 8 words.
+ */
+final class RankBitVector
+{
+    private final static int BLOCK_WORDS_BITS = 3;
+    private final static int BLOCK_BITS = 6 + BLOCK_WORDS_BITS;
+
+    private final long [] words;
+    private final int [] blocks;
+    private final int size;
+
+    /**
+     * @param words Bits, packed into words (least significant bit first). The array is
+     *            not copied.
+     * @param size Number of bits.
+     */
+    RankBitVector(long [] words, int size)
+    {
+        this.words = words;
+        this.size = size;
+        this.blocks = new int [(words.length >>> BLOCK_WORDS_BITS) + 1];
+
+        int count = 0;
+        for (int w = 0; w < words.length; w++)
+        {
+            if ((w & ((1 << BLOCK_WORDS_BITS) - 1)) == 0)
+            {
+                blocks[w >>> BLOCK_WORDS_BITS] = count;
+            }
+            count += Long.bitCount(words[w]);
+        }
+        if ((words.length & ((1 << BLOCK_WORDS_BITS) - 1)) == 0)
+        {
+            blocks[words.length >>> BLOCK_WORDS_BITS] = count;
+        }
+    }
+
+    /**
+     * @return Allocate a zeroed words buffer for the given number of bits.
+     */
+    static long [] words(int size)
+    {
+        return new long [(size + 63) >>> 6];
+    }
+
+    static void set(long [] words, int i)
+    {
+        words[i >>> 6] |= 1L << (i & 63);
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    boolean get(int i)
+    {
+        return (words[i >>> 6] & (1L << (i & 63))) != 0;
+    }
+
+    /**
+     * @return Number of set bits in <code>[0, i)</code>.
+     */
+    int rank1(int i)
+    {
+        int rank = blocks[i >>> BLOCK_BITS];
+        final int word = i >>> 6;
+        for (int w = (i >>> BLOCK_BITS) << BLOCK_WORDS_BITS; w < word; w++)
+        {
+            rank += Long.bitCount(words[w]);
+        }
+        if ((i & 63) != 0)
+        {
+            rank += Long.bitCount(words[word] & ((1L << (i & 63)) - 1));
+        }
+        return rank;
+    }
+
+    /**
+     * @return Number of cleared bits in <code>[0, i)</code>.
+     */
+    int rank0(int i)
+    {
+        return i - rank1(i);
+    }
+
+    /**
+     * @return Approximate memory used by this structure, in bytes.
+     */
+    long sizeInBytes()
+    {
+        return 8L * words.length + 4L * blocks.length;
+    }
+}
@@ -26,6 +26,11 @@ package org.jsuffixarrays;
  * OTHER DEALINGS IN THE SOFTWARE.
  */
 
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
 /*
  * TODO: [dw] Clean up the code, resign from interfaces and use primitive types instead?
  */
@@ -39,11 +44,62 @@ package org.jsuffixarrays;
  * <p>
  * Ge Nong, Sen Zhang and Wai Hong Chan, Two Efficient Algorithms for Linear Suffix Array
  * Construction, 2008.
+ * <p>
+ * A parallel variant can be requested with {@link #SAIS(int)}. It counts symbols and
+ * computes bucket boundaries on a fork-join pool, names LMS-substrings concurrently and
+ * pipelines the induction passes: while one block of the suffix array is scanned, the
+ * text symbols preceding the suffixes of the next block are fetched into a buffer by
+ * other threads (random accesses to the text dominate the cost of induced sorting).
+ * The recursive, reduced problem is solved the same way. The result is identical to the
+ * sequential version. The parallel routines only pay off with as many processors as
+ * threads (they are slower than the sequential version when threads share a processor),
+ * so the number of threads is capped at the number of available processors and a single
+ * processor means sequential construction.
+ * <p>
+ * The Burrows-Wheeler transform can be induced directly, without the suffix array, see
+ * {@link #buildBWT(int[], int, int)}.
+ * <p>
+ * Byte inputs (arrays and buffers, including memory-mapped files) are read directly, as
+ * unsigned 8-bit symbols, see {@link #buildSuffixArray(ByteBuffer, int, int)}.
  * 
  * @see "http://yuta.256.googlepages.com/sais"
  */
-public final class SAIS implements ISuffixArrayBuilder
+public final class SAIS implements ISuffixArrayBuilder, IBWTBuilder, IByteSuffixArrayBuilder
 {
+  /** Minimum problem (or alphabet) size for which parallel routines are used. */
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  /** Number of suffix array cells in a single block of pipelined induction. */
+  private static final int INDUCE_BLOCK_SIZE = 1 << 15;
+
+  /** Number of threads, <code>1</code> means sequential construction. */
+  private final int threads;
+
+  public SAIS()
+  {
+    this(1);
+  }
+
+  /**
+   * @param threads The number of threads to use for construction, at most
+   *          {@link Runtime#availableProcessors()}. If the effective number is larger
+   *          than one, a fork-join pool of this size is created for each call to
+   *          {@link #buildSuffixArray(int[], int, int)}.
+   */
+  public SAIS(int threads)
+  {
+    this(threads, Runtime.getRuntime().availableProcessors());
+  }
+
+  /*
+   * 
+   */
+  SAIS(int threads, int processors)
+  {
+    Tools.assertAlways(threads >= 1, "the number of threads must be >= 1");
+    this.threads = Math.max(1, Math.min(threads, processors));
+  }
+
   private static interface BaseArray
   {
     public int get(int i);
@@ -102,6 +158,16 @@ public final class SAIS implements ISuffixArrayBuilder
     public int update(int i, int val) { return 0; }
   }
 
+  private static final class ByteBufferArray implements BaseArray
+  {
+    private ByteBuffer m_A;
+    private int m_pos;
+    ByteBufferArray(ByteBuffer A, int pos) { m_A = A; m_pos = pos; }
+    public int get(int i) { return m_A.get(m_pos + i) & 0xff; }
+    public void set(int i, int val) { }
+    public int update(int i, int val) { return 0; }
+  }
+
   /* find the start or end of each bucket */
   private static void getCounts(BaseArray T, BaseArray C, int n, int k) {
     for(int i = 0; i < k; ++i) { C.set(i, 0); }
@@ -114,6 +180,188 @@ public final class SAIS implements ISuffixArrayBuilder
     else { for(i = 0; i < k; ++i) { sum += C.get(i); B.set(i, sum - C.get(i)); } }
   }
 
+  /* the number of chunks to split a problem of the given size into */
+  private static int chunks(ForkJoinPool pool, int size) {
+    if((pool == null) || (size < PARALLEL_THRESHOLD)) { return 1; }
+    return pool.getParallelism();
+  }
+
+  /* parallel getCounts, each chunk counts symbols into its own array */
+  private static void getCounts(final BaseArray T, BaseArray C, int n, final int k, ForkJoinPool pool) {
+    final int chunks = chunks(pool, n);
+    if((chunks <= 1) || ((long) k * chunks > n)) { getCounts(T, C, n, k); return; }
+    final int[][] local = new int[chunks][];
+    Tools.parallelFor(pool, 0, n, chunks, new Tools.IRangeProcedure() {
+      public void apply(int chunk, int from, int to) {
+        final int[] cnt = local[chunk] = new int[k];
+        for(int i = from; i < to; ++i) { ++cnt[T.get(i)]; }
+      }
+    });
+    for(int i = 0; i < k; ++i) {
+      int sum = 0;
+      for(int c = 0; c < chunks; ++c) { sum += local[c][i]; }
+      C.set(i, sum);
+    }
+  }
+
+  /* parallel getBuckets (a blocked prefix sum), only pays off for large alphabets */
+  private static void getBuckets(final BaseArray C, final BaseArray B, int k, final boolean end, ForkJoinPool pool) {
+    final int chunks = chunks(pool, k);
+    if(chunks <= 1) { getBuckets(C, B, k, end); return; }
+    final int[] offsets = new int[chunks + 1];
+    Tools.parallelFor(pool, 0, k, chunks, new Tools.IRangeProcedure() {
+      public void apply(int chunk, int from, int to) {
+        int sum = 0;
+        for(int i = from; i < to; ++i) { sum += C.get(i); }
+        offsets[chunk + 1] = sum;
+      }
+    });
+    for(int c = 0; c < chunks; ++c) { offsets[c + 1] += offsets[c]; }
+    Tools.parallelFor(pool, 0, k, chunks, new Tools.IRangeProcedure() {
+      public void apply(int chunk, int from, int to) {
+        int i, sum = offsets[chunk];
+        if (end != false) { for(i = from; i < to; ++i) { sum += C.get(i); B.set(i, sum); } }
+        else { for(i = from; i < to; ++i) { sum += C.get(i); B.set(i, sum - C.get(i)); } }
+      }
+    });
+  }
+
+  /*
+   * A buffer for one block of pipelined induction. For every cell i of the block that
+   * holds a suffix j > 0 it keeps: key = j, sym = T[j - 1] and val, the value written to
+   * the bucket of sym. The block may be modified after it has been prepared, so entries
+   * are only used if the key still matches the cell's content.
+   */
+  private static final class InduceBuffer {
+    final int[] key = new int[INDUCE_BLOCK_SIZE];
+    final int[] sym = new int[INDUCE_BLOCK_SIZE];
+    final int[] val = new int[INDUCE_BLOCK_SIZE];
+
+    /* prepare SA[from..to) for the L-type (left to right) or S-type pass */
+    void prepare(final BaseArray T, final int[] SA, final int from, int to, final boolean ltype, ForkJoinPool pool) {
+      Tools.parallelFor(pool, from, to, pool.getParallelism(), new Tools.IRangeProcedure() {
+        public void apply(int chunk, int a, int b) {
+          int i, j, c0, o;
+          for(i = a, o = a - from; i < b; ++i, ++o) {
+            if(0 < (j = SA[i])) {
+              key[o] = j;
+              sym[o] = c0 = T.get(j - 1);
+              if(ltype != false) { val[o] = ((1 < j) && (T.get(j - 2) < c0)) ? ~(j - 1) : (j - 1); }
+              else { val[o] = ((j == 1) || (T.get(j - 2) > c0)) ? ~(j - 1) : (j - 1); }
+            } else {
+              key[o] = 0;
+            }
+          }
+        }
+      });
+    }
+
+    /* submit preparation of SA[from..to) to the pool */
+    ForkJoinTask<?> prepareAsync(final BaseArray T, final int[] SA, final int from, final int to, final boolean ltype, final ForkJoinPool pool) {
+      return pool.submit(new RecursiveAction() {
+        @Override
+        protected void compute() { prepare(T, SA, from, to, ltype, pool); }
+      });
+    }
+  }
+
+  /* pipelined induceSA, see InduceBuffer */
+  private static void induceSA(BaseArray T, int[] SA, BaseArray C, BaseArray B, int n, int k, ForkJoinPool pool)
+  {
+    if((pool == null) || (n < PARALLEL_THRESHOLD)) { induceSA(T, SA, C, B, n, k); return; }
+    int b, i, j, o, s, e, v;
+    int c0, c1;
+    InduceBuffer cur = new InduceBuffer(), next = new InduceBuffer(), tmp;
+    ForkJoinTask<?> pending;
+    /* compute SAl */
+    if(C == B) { getCounts(T, C, n, k, pool); }
+    getBuckets(C, B, k, false, pool); /* find starts of buckets */
+    j = n - 1;
+    b = B.get(c1 = T.get(j));
+    SA[b++] = ((0 < j) && (T.get(j - 1) < c1)) ? ~j : j;
+    cur.prepare(T, SA, 0, Math.min(n, INDUCE_BLOCK_SIZE), true, pool);
+    for(s = 0; s < n; s = e) {
+      e = Math.min(n, s + INDUCE_BLOCK_SIZE);
+      pending = (e < n) ? next.prepareAsync(T, SA, e, Math.min(n, e + INDUCE_BLOCK_SIZE), true, pool) : null;
+      for(i = s, o = 0; i < e; ++i, ++o) {
+        j = SA[i]; SA[i] = ~j;
+        if(0 < j) {
+          if(cur.key[o] == j) { c0 = cur.sym[o]; v = cur.val[o]; }
+          else { c0 = T.get(j - 1); v = ((1 < j) && (T.get(j - 2) < c0)) ? ~(j - 1) : (j - 1); }
+          if(c0 != c1) { B.set(c1, b); b = B.get(c1 = c0); }
+          SA[b++] = v;
+        }
+      }
+      if(pending != null) { pending.join(); }
+      tmp = cur; cur = next; next = tmp;
+    }
+    /* compute SAs */
+    if(C == B) { getCounts(T, C, n, k, pool); }
+    getBuckets(C, B, k, true, pool); /* find ends of buckets */
+    b = B.get(c1 = 0);
+    cur.prepare(T, SA, Math.max(0, n - INDUCE_BLOCK_SIZE), n, false, pool);
+    for(e = n; 0 < e; e = s) {
+      s = Math.max(0, e - INDUCE_BLOCK_SIZE);
+      pending = (0 < s) ? next.prepareAsync(T, SA, Math.max(0, s - INDUCE_BLOCK_SIZE), s, false, pool) : null;
+      for(i = e - 1, o = i - s; s <= i; --i, --o) {
+        if(0 < (j = SA[i])) {
+          if(cur.key[o] == j) { c0 = cur.sym[o]; v = cur.val[o]; }
+          else { c0 = T.get(j - 1); v = ((j == 1) || (T.get(j - 2) > c0)) ? ~(j - 1) : (j - 1); }
+          if(c0 != c1) { B.set(c1, b); b = B.get(c1 = c0); }
+          SA[--b] = v;
+        } else {
+          SA[i] = ~j;
+        }
+      }
+      if(pending != null) { pending.join(); }
+      tmp = cur; cur = next; next = tmp;
+    }
+  }
+
+  /* name sorted LMS-substrings SA[0..m), the lengths are stored in SA[m..m+n/2) */
+  private static int nameSubstrings(final BaseArray T, final int[] SA, final int n, final int m, ForkJoinPool pool) {
+    int i, j, p, q, plen, qlen, name;
+    boolean diff;
+    final int chunks = chunks(pool, m);
+    if(chunks <= 1) {
+      /* find the lexicographic names of all substrings */
+      for(i = 0, name = 0, q = n, qlen = 0; i < m; ++i) {
+        p = SA[i]; plen = SA[m + (p >> 1)]; diff = true;
+        if(plen == qlen) {
+          for(j = 0; (j < plen) && (T.get(p + j) == T.get(q + j)); ++j) { }
+          if(j == plen) { diff = false; }
+        }
+        if(diff != false) { ++name; q = p; qlen = plen; }
+        SA[m + (p >> 1)] = name;
+      }
+      return name;
+    }
+
+    /* mark (by negation) substrings different from their predecessor */
+    Tools.parallelFor(pool, 0, m, chunks, new Tools.IRangeProcedure() {
+      public void apply(int chunk, int from, int to) {
+        int i, j, p, q, plen, qlen;
+        for(i = from; i < to; ++i) {
+          p = SA[i];
+          if(i == 0) { SA[i] = ~p; continue; }
+          /* the predecessor may have been marked already */
+          if((q = SA[i - 1]) < 0) { q = ~q; }
+          plen = SA[m + (p >> 1)]; qlen = SA[m + (q >> 1)];
+          if(plen == qlen) {
+            for(j = 0; (j < plen) && (T.get(p + j) == T.get(q + j)); ++j) { }
+            if(j == plen) { continue; }
+          }
+          SA[i] = ~p;
+        }
+      }
+    });
+    for(i = 0, name = 0; i < m; ++i) {
+      if((p = SA[i]) < 0) { SA[i] = p = ~p; ++name; }
+      SA[m + (p >> 1)] = name;
+    }
+    return name;
+  }
+
   /* compute SA and BWT */
   private static void induceSA(BaseArray T, int[] SA, BaseArray C, BaseArray B, int n, int k)
   {
@@ -183,11 +431,10 @@ public final class SAIS implements ISuffixArrayBuilder
 
   /* find the suffix array SA of T[0..n-1] in {0..k-1}^n
      use a working space (excluding T and SA) of at most 2n+O(1) for a constant alphabet */
-  private static int SA_IS(BaseArray T, int[] SA, int fs, int n, int k, boolean isbwt) {
+  private static int SA_IS(BaseArray T, int[] SA, int fs, int n, int k, boolean isbwt, ForkJoinPool pool) {
     BaseArray C, B, RA;
-    int i, j, c, m, p, q, plen, qlen, name, pidx = 0;
+    int i, j, c, m, p, name, pidx = 0;
     int c0, c1;
-    boolean diff;
 
     /* stage 1: reduce the problem by at least 1/2
        sort all the S-substrings */
@@ -197,13 +444,13 @@ public final class SAIS implements ISuffixArrayBuilder
     } else {
       B = C = new IntArray(new int[k], 0);
     }
-    getCounts(T, C, n, k); getBuckets(C, B, k, true); /* find ends of buckets */
+    getCounts(T, C, n, k, pool); getBuckets(C, B, k, true, pool); /* find ends of buckets */
     for(i = 0; i < n; ++i) { SA[i] = 0; }
     for(i = n - 2, c = 0, c1 = T.get(n - 1); 0 <= i; --i, c1 = c0) {
       if((c0 = T.get(i)) < (c1 + c)) { c = 1; }
       else if(c != 0) { SA[B.update(c1, -1)] = i + 1; c = 0; }
     }
-    induceSA(T, SA, C, B, n, k);
+    induceSA(T, SA, C, B, n, k, pool);
     C = null; B = null;
 
     /* compact all the sorted substrings into the first m items of SA
@@ -223,15 +470,7 @@ public final class SAIS implements ISuffixArrayBuilder
       else if(c != 0) { SA[m + ((i + 1) >> 1)] = j - i - 1; j = i + 1; c = 0; }
     }
     /* find the lexicographic names of all substrings */
-    for(i = 0, name = 0, q = n, qlen = 0; i < m; ++i) {
-      p = SA[i]; plen = SA[m + (p >> 1)]; diff = true;
-      if(plen == qlen) {
-        for(j = 0; (j < plen) && (T.get(p + j) == T.get(q + j)); ++j) { }
-        if(j == plen) { diff = false; }
-      }
-      if(diff != false) { ++name; q = p; qlen = plen; }
-      SA[m + (p >> 1)] = name;
-    }
+    name = nameSubstrings(T, SA, n, m, pool);
 
     /* stage 2: solve the reduced problem
        recurse if names are not yet unique */
@@ -240,7 +479,7 @@ public final class SAIS implements ISuffixArrayBuilder
       for(i = m + (n >> 1) - 1, j = n + fs - 1; m <= i; --i) {
         if(SA[i] != 0) { SA[j--] = SA[i] - 1; }
       }
-      SA_IS(RA, SA, fs + n - m * 2, m, name, false);
+      SA_IS(RA, SA, fs + n - m * 2, m, name, false, pool);
       RA = null;
       for(i = n - 2, j = m * 2 - 1, c = 0, c1 = T.get(n - 1); 0 <= i; --i, c1 = c0) {
         if((c0 = T.get(i)) < (c1 + c)) { c = 1; }
@@ -257,13 +496,13 @@ public final class SAIS implements ISuffixArrayBuilder
       B = C = new IntArray(new int[k], 0);
     }
     /* put all left-most S characters into their buckets */
-    getCounts(T, C, n, k); getBuckets(C, B, k, true); /* find ends of buckets */
+    getCounts(T, C, n, k, pool); getBuckets(C, B, k, true, pool); /* find ends of buckets */
     for(i = m; i < n; ++i) { SA[i] = 0; } /* init SA[m..n-1] */
     for(i = m - 1; 0 <= i; --i) {
       j = SA[i]; SA[i] = 0;
       SA[B.update(T.get(j), -1)] = j;
     }
-    if(isbwt == false) { induceSA(T, SA, C, B, n, k); }
+    if(isbwt == false) { induceSA(T, SA, C, B, n, k, pool); }
     else { pidx = computeBWT(T, SA, C, B, n, k); }
     C = null; B = null;
     return pidx;
@@ -277,7 +516,7 @@ public final class SAIS implements ISuffixArrayBuilder
   suffixsort(byte[] T, int[] SA, int n) {
     if((T == null) || (SA == null) || (T.length < n) || (SA.length < n)) { return -1; }
     if(n <= 1) { if(n == 1) { SA[0] = 0; } return 0; }
-    return SA_IS(new ByteArray(T, 0), SA, 0, n, 256, false);
+    return SA_IS(new ByteArray(T, 0), SA, 0, n, 256, false, null);
   }
   /* char */
   public static
@@ -285,7 +524,7 @@ public final class SAIS implements ISuffixArrayBuilder
   suffixsort(char[] T, int[] SA, int n) {
     if((T == null) || (SA == null) || (T.length < n) || (SA.length < n)) { return -1; }
     if(n <= 1) { if(n == 1) { SA[0] = 0; } return 0; }
-    return SA_IS(new CharArray(T, 0), SA, 0, n, 65536, false);
+    return SA_IS(new CharArray(T, 0), SA, 0, n, 65536, false, null);
   }
   /* short */
   public static
@@ -295,7 +534,7 @@ public final class SAIS implements ISuffixArrayBuilder
        (T.length < n) || (SA.length < n) ||
        (k <= 0) || (65536 < k)) { return -1; }
     if(n <= 1) { if(n == 1) { SA[0] = 0; } return 0; }
-    return SA_IS(new ShortArray(T, 0), SA, 0, n, k, false);
+    return SA_IS(new ShortArray(T, 0), SA, 0, n, k, false, null);
   }
   /* int */
   public static
@@ -305,7 +544,7 @@ public final class SAIS implements ISuffixArrayBuilder
        (T.length < n) || (SA.length < n) ||
        (k <= 0)) { return -1; }
     if(n <= 1) { if(n == 1) { SA[0] = 0; } return 0; }
-    return SA_IS(new IntArray(T, 0), SA, 0, n, k, false);
+    return SA_IS(new IntArray(T, 0), SA, 0, n, k, false, null);
   }
   /* String */
   public static
@@ -314,7 +553,16 @@ public final class SAIS implements ISuffixArrayBuilder
     if((T == null) || (SA == null) ||
        (T.length() < n) || (SA.length < n)) { return -1; }
     if(n <= 1) { if(n == 1) { SA[0] = 0; } return 0; }
-    return SA_IS(new StringArray(T, 0), SA, 0, n, 65536, false);
+    return SA_IS(new StringArray(T, 0), SA, 0, n, 65536, false, null);
+  }
+  /* ByteBuffer, absolute indexes from an offset */
+  public static
+  int
+  suffixsort(ByteBuffer T, int start, int[] SA, int n) {
+    if((T == null) || (SA == null) ||
+       (T.limit() < start + n) || (SA.length < n)) { return -1; }
+    if(n <= 1) { if(n == 1) { SA[0] = 0; } return 0; }
+    return SA_IS(new ByteBufferArray(T, start), SA, 0, n, 256, false, null);
   }
 
   /** Burrows-Wheeler Transform **/
@@ -326,7 +574,7 @@ public final class SAIS implements ISuffixArrayBuilder
     if((T == null) || (U == null) || (A == null) ||
        (T.length < n) || (U.length < n) || (A.length < n)) { return -1; }
     if(n <= 1) { if(n == 1) { U[0] = T[0]; } return n; }
-    pidx = SA_IS(new ByteArray(T, 0), A, 0, n, 256, true);
+    pidx = SA_IS(new ByteArray(T, 0), A, 0, n, 256, true, null);
     U[0] = T[n - 1];
     for(i = 0; i < pidx; ++i) { U[i + 1] = (byte)(A[i] & 0xff); }
     for(i += 1; i < n; ++i) { U[i] = (byte)(A[i] & 0xff); }
@@ -340,7 +588,7 @@ public final class SAIS implements ISuffixArrayBuilder
     if((T == null) || (U == null) || (A == null) ||
        (T.length < n) || (U.length < n) || (A.length < n)) { return -1; }
     if(n <= 1) { if(n == 1) { U[0] = T[0]; } return n; }
-    pidx = SA_IS(new CharArray(T, 0), A, 0, n, 65536, true);
+    pidx = SA_IS(new CharArray(T, 0), A, 0, n, 65536, true, null);
     U[0] = T[n - 1];
     for(i = 0; i < pidx; ++i) { U[i + 1] = (char)(A[i] & 0xffff); }
     for(i += 1; i < n; ++i) { U[i] = (char)(A[i] & 0xffff); }
@@ -353,9 +601,9 @@ public final class SAIS implements ISuffixArrayBuilder
     int i, pidx;
     if((T == null) || (U == null) || (A == null) ||
        (T.length < n) || (U.length < n) || (A.length < n) ||
-       (0 <= k) || (65536 < k)) { return -1; }
+       (k <= 0) || (65536 < k)) { return -1; }
     if(n <= 1) { if(n == 1) { U[0] = T[0]; } return n; }
-    pidx = SA_IS(new ShortArray(T, 0), A, 0, n, k, true);
+    pidx = SA_IS(new ShortArray(T, 0), A, 0, n, k, true, null);
     U[0] = T[n - 1];
     for(i = 0; i < pidx; ++i) { U[i + 1] = (short)(A[i] & 0xffff); }
     for(i += 1; i < n; ++i) { U[i] = (short)(A[i] & 0xffff); }
@@ -368,22 +616,106 @@ public final class SAIS implements ISuffixArrayBuilder
     int i, pidx;
     if((T == null) || (U == null) || (A == null) ||
        (T.length < n) || (U.length < n) || (A.length < n) ||
-       (0 <= k)) { return -1; }
+       (k <= 0)) { return -1; }
     if(n <= 1) { if(n == 1) { U[0] = T[0]; } return n; }
-    pidx = SA_IS(new IntArray(T, 0), A, 0, n, k, true);
+    pidx = SA_IS(new IntArray(T, 0), A, 0, n, k, true, null);
     U[0] = T[n - 1];
     for(i = 0; i < pidx; ++i) { U[i + 1] = A[i]; }
     for(i += 1; i < n; ++i) { U[i] = A[i]; }
     return pidx + 1;
   }
+  /* int, at an offset, the transform is stored in A */
+  static
+  int
+  bwtransform(int[] T, int start, int[] A, int n, int k) {
+    int i, pidx;
+    if((T == null) || (A == null) ||
+       (T.length < start + n) || (A.length < n) ||
+       (k <= 0)) { return -1; }
+    if(n <= 1) { if(n == 1) { A[0] = T[start]; } return n; }
+    pidx = SA_IS(new IntArray(T, start), A, 0, n, k, true, null);
+    for(i = pidx; 0 < i; --i) { A[i] = A[i - 1]; }
+    A[0] = T[start + n - 1];
+    return pidx + 1;
+  }
 
   @Override
   public int [] buildSuffixArray(int [] input, int start, int length)
   {
       // TODO: [dw] add constraints here. 
-      final int [] SA = new int [length];
+      if (length == 0) return new int [0];
       MinMax mm = Tools.minmax(input, start, length);
-      suffixsort(input, SA, length, mm.max + 1);
+      return build(new IntArray(input, start), length, mm.max + 1);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Bytes are read in place; the only allocation proportional to the input is the
+   * suffix array itself.
+   */
+  @Override
+  public int [] buildSuffixArray(byte [] input, int start, int length)
+  {
+      Tools.assertAlways(start >= 0 && start + length <= input.length,
+          "input is too short");
+      return build(new ByteArray(input, start), length, 256);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Bytes are read in place; the only allocation proportional to the input is the
+   * suffix array itself.
+   */
+  @Override
+  public int [] buildSuffixArray(ByteBuffer input, int start, int length)
+  {
+      Tools.assertAlways(start >= 0 && start + length <= input.limit(),
+          "input is too short");
+      return build(new ByteBufferArray(input, start), length, 256);
+  }
+
+  /**
+   * Sort suffixes of <code>T</code>, with symbols in <code>[0, k)</code>.
+   */
+  private int [] build(BaseArray T, int length, int k)
+  {
+      final int [] SA = new int [length];
+      if (length <= 1) return SA;
+      if (threads > 1)
+      {
+          final ForkJoinPool pool = new ForkJoinPool(threads);
+          try
+          {
+              SA_IS(T, SA, 0, length, k, false, pool);
+          }
+          finally
+          {
+              pool.shutdown();
+          }
+      }
+      else
+      {
+          SA_IS(T, SA, 0, length, k, false, null);
+      }
       return SA;
   }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The transform is induced directly in the output array, so no suffix array is
+   * materialized. Input symbols must be non-negative.
+   */
+  @Override
+  public BWTData buildBWT(int [] input, int start, int length)
+  {
+      if (length == 0) return new BWTData(new int [0], 0, 0);
+      final MinMax mm = Tools.minmax(input, start, length);
+      Tools.assertAlways(mm.min >= 0, "input must not be negative");
+      final int [] A = new int [length];
+      final int pidx = bwtransform(input, start, A, length, mm.max + 1);
+      return new BWTData(A, length, pidx);
+  }
 }
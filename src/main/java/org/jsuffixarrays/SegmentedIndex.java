@@ -0,0 +1,416 @@
+package org.jsuffixarrays;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * An appendable index of documents, kept as a list of immutable segments, each a
+ * {@link GeneralizedSuffixArray} of a contiguous range of documents. Every batch of
+ * added documents becomes a new segment, so the cost of adding is proportional to the
+ * size of the batch, not the whole index. Queries are answered by all segments.
+ * <p>
+ * To keep the number of segments logarithmic, adjacent segments of the same size tier
+ * are merged: a segment of <code>s</code> symbols belongs to tier
+ * <code>max(0, floor(log<sub>f</sub>(s / FLOOR_SIZE)))</code>, where <code>f</code> is
+ * the merge factor, and <code>f</code> adjacent segments of a tier are merged into one
+ * (of a higher tier) with
+ * {@link GeneralizedSuffixArray#merge(GeneralizedSuffixArray, GeneralizedSuffixArray)},
+ * without sorting suffixes again. Every symbol is thus merged a logarithmic number of
+ * times. Merges run on the executor given in the constructor (or on the thread that adds
+ * documents, if there is none or it rejects a merge); queries see the old segments until
+ * a merge is complete.
+ * <p>
+ * A failed merge (for example, out of memory) leaves its segments unmerged, so queries
+ * are not affected. The failure is reported once, by the next call to
+ * <code>add</code> or {@link #waitForMerges()}, and then cleared: merges stop until it
+ * is reported, then resume (and are retried) with later additions.
+ * <p>
+ * Documents are numbered consecutively, starting at zero, in the order of addition. All
+ * methods are thread-safe.
+ */
+public final class SegmentedIndex
+{
+    /** Default number of segments of a tier that are merged together. */
+    public final static int DEFAULT_MERGE_FACTOR = 10;
+
+    /**
+     * Size (in symbols, including separators) below which segments are not told apart:
+     * all segments smaller than <code>FLOOR_SIZE * f</code> are in tier 0.
+     */
+    final static int FLOOR_SIZE = 1 << 10;
+
+    /**
+     * An immutable segment: documents <code>[first, first + index.documents())</code>.
+     */
+    private final static class Segment
+    {
+        final int first;
+        final GeneralizedSuffixArray index;
+        final int tier;
+
+        /** Set (under the index's lock) while the segment is being merged. */
+        boolean merging;
+
+        Segment(int first, GeneralizedSuffixArray index, int mergeFactor)
+        {
+            this.first = first;
+            this.index = index;
+            this.tier = tier(index.length() + index.documents(), mergeFactor);
+        }
+    }
+
+    private final ExecutorService executor;
+    private final int mergeFactor;
+
+    /** Current segments in document order, replaced (never modified) on changes. */
+    private volatile Segment [] segments = new Segment [0];
+
+    /** Total number of documents, guarded by <code>this</code>. */
+    private int documents;
+
+    /** Number of merges in progress, guarded by <code>this</code>. */
+    private int merges;
+
+    /**
+     * The first failure of a merge not reported yet, guarded by <code>this</code>.
+     */
+    private Throwable failure;
+
+    /**
+     * Merge segments on the adding thread, with {@link #DEFAULT_MERGE_FACTOR}.
+     */
+    public SegmentedIndex()
+    {
+        this(null, DEFAULT_MERGE_FACTOR);
+    }
+
+    /**
+     * @param executor The executor to run merges on or <code>null</code> to merge on the
+     *            thread adding documents.
+     * @param mergeFactor Number of segments of a tier to merge together.
+     */
+    public SegmentedIndex(ExecutorService executor, int mergeFactor)
+    {
+        Tools.assertAlways(mergeFactor >= 2, "merge factor must be >= 2");
+        this.executor = executor;
+        this.mergeFactor = mergeFactor;
+    }
+
+    /**
+     * Add a batch of documents of int symbols (any values are allowed) as a new segment.
+     *
+     * @return Returns the number of the first added document.
+     * @throws RuntimeException If a merge failed (see the class description). A failure
+     *             of an earlier merge is reported before the batch is added, a failure of
+     *             a merge run on this thread after it is added.
+     */
+    public int add(int [][] batch)
+    {
+        return addSegment(batch);
+    }
+
+    /**
+     * Add a batch of character sequences as a new segment.
+     *
+     * @return Returns the number of the first added document.
+     * @see #add(int[][])
+     */
+    public int add(List<? extends CharSequence> batch)
+    {
+        final int [][] arrays = new int [batch.size()][];
+        for (int i = 0; i < arrays.length; i++)
+        {
+            arrays[i] = Tools.toArray(batch.get(i));
+        }
+        return addSegment(arrays);
+    }
+
+    /**
+     * @return Returns the number of documents in the index.
+     */
+    public synchronized int documents()
+    {
+        return documents;
+    }
+
+    /**
+     * @return Returns the current number of segments.
+     */
+    public int segments()
+    {
+        return segments.length;
+    }
+
+    /**
+     * @return Returns the number of occurrences of a pattern in all documents.
+     */
+    public int count(int [] pattern, int pstart, int plength)
+    {
+        final int [] interval = new int [2];
+        int count = 0;
+        for (Segment s : segments)
+        {
+            count += s.index.find(pattern, pstart, plength, interval);
+        }
+        return count;
+    }
+
+    /**
+     * @see #count(int[], int, int)
+     */
+    public int count(CharSequence pattern)
+    {
+        final int [] p = Tools.toArray(pattern);
+        return count(p, 0, p.length);
+    }
+
+    /**
+     * @return Returns the sorted, distinct documents containing the pattern.
+     */
+    public int [] listDocuments(int [] pattern, int pstart, int plength)
+    {
+        final Segment [] current = segments;
+        final int [][] found = new int [current.length][];
+        int total = 0;
+        for (int i = 0; i < current.length; i++)
+        {
+            found[i] = current[i].index.listDocuments(pattern, pstart, plength);
+            total += found[i].length;
+        }
+
+        // Segments cover increasing ranges of documents.
+        final int [] result = new int [total];
+        int k = 0;
+        for (int i = 0; i < current.length; i++)
+        {
+            for (int d : found[i])
+            {
+                result[k++] = current[i].first + d;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @see #listDocuments(int[], int, int)
+     */
+    public int [] listDocuments(CharSequence pattern)
+    {
+        final int [] p = Tools.toArray(pattern);
+        return listDocuments(p, 0, p.length);
+    }
+
+    /**
+     * Wait until all merges in progress (and merges they trigger) are complete.
+     *
+     * @throws RuntimeException If a merge failed since the last report (see the class
+     *             description).
+     */
+    public synchronized void waitForMerges() throws InterruptedException
+    {
+        while (merges > 0)
+        {
+            wait();
+        }
+        checkFailure();
+    }
+
+    private int addSegment(int [][] batch)
+    {
+        // Built outside of the lock, documents are numbered when the segment is published.
+        final GeneralizedSuffixArray index = new GeneralizedSuffixArray(batch);
+        final int first;
+        synchronized (this)
+        {
+            checkFailure();
+            first = documents;
+            documents += batch.length;
+
+            final Segment [] current = segments;
+            final Segment [] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = new Segment(first, index, mergeFactor);
+            segments = updated;
+        }
+        mergeSegments();
+        return first;
+    }
+
+    /**
+     * Start merges of all runs of {@link #mergeFactor} adjacent segments of the same tier
+     * that are not being merged already.
+     */
+    private void mergeSegments()
+    {
+        while (true)
+        {
+            final Segment [] group;
+            synchronized (this)
+            {
+                group = select();
+                if (group == null) return;
+                for (Segment s : group)
+                {
+                    s.merging = true;
+                }
+                merges++;
+            }
+
+            boolean here = (executor == null);
+            if (!here)
+            {
+                try
+                {
+                    executor.execute(new Runnable()
+                    {
+                        public void run()
+                        {
+                            try
+                            {
+                                merge(group);
+                                mergeSegments();
+                            }
+                            finally
+                            {
+                                finished();
+                            }
+                        }
+                    });
+                }
+                catch (RejectedExecutionException e)
+                {
+                    // The executor is shut down (or saturated): merge on this thread.
+                    here = true;
+                }
+            }
+
+            if (here)
+            {
+                merge(group);
+                finished();
+                synchronized (this)
+                {
+                    checkFailure();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Returns the first run of segments to merge or <code>null</code>.
+     */
+    private Segment [] select()
+    {
+        if (failure != null) return null;
+
+        final Segment [] current = segments;
+        int runStart = 0;
+        for (int i = 0; i < current.length; i++)
+        {
+            if (current[i].merging
+                || (i > runStart && current[i].tier != current[runStart].tier))
+            {
+                runStart = current[i].merging ? i + 1 : i;
+                continue;
+            }
+            if (i - runStart + 1 == mergeFactor)
+            {
+                return Arrays.copyOfRange(current, runStart, i + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Merge a run of adjacent segments and replace them with the result.
+     */
+    private void merge(Segment [] group)
+    {
+        Segment merged = null;
+        Throwable error = null;
+        try
+        {
+            // Merge adjacent pairs, so every suffix is merged log2(group.length) times.
+            GeneralizedSuffixArray [] indexes = new GeneralizedSuffixArray [group.length];
+            for (int i = 0; i < group.length; i++)
+            {
+                indexes[i] = group[i].index;
+            }
+            while (indexes.length > 1)
+            {
+                final GeneralizedSuffixArray [] next =
+                    new GeneralizedSuffixArray [(indexes.length + 1) / 2];
+                for (int i = 0; i < next.length; i++)
+                {
+                    next[i] = (2 * i + 1 < indexes.length ? GeneralizedSuffixArray.merge(
+                        indexes[2 * i], indexes[2 * i + 1]) : indexes[2 * i]);
+                }
+                indexes = next;
+            }
+            merged = new Segment(group[0].first, indexes[0], mergeFactor);
+        }
+        catch (Throwable t)
+        {
+            error = t;
+        }
+
+        synchronized (this)
+        {
+            if (merged != null)
+            {
+                // Merged segments are still adjacent: only merges remove segments.
+                final Segment [] current = segments;
+                final int from = Arrays.asList(current).indexOf(group[0]);
+                final List<Segment> updated = new ArrayList<Segment>(Arrays.asList(current));
+                updated.subList(from, from + group.length).clear();
+                updated.add(from, merged);
+                segments = updated.toArray(new Segment [updated.size()]);
+            }
+            else
+            {
+                for (Segment s : group)
+                {
+                    s.merging = false;
+                }
+                if (failure == null) failure = error;
+            }
+        }
+    }
+
+    /**
+     * Count down a merge (after merges it triggered are started).
+     */
+    private synchronized void finished()
+    {
+        merges--;
+        notifyAll();
+    }
+
+    /**
+     * Report the failure of a merge (once: the failure is cleared).
+     */
+    private void checkFailure()
+    {
+        if (failure != null)
+        {
+            final Throwable t = failure;
+            failure = null;
+            throw new RuntimeException("Segment merge failed.", t);
+        }
+    }
+
+    /**
+     * @return Returns the tier of a segment of <code>size</code> symbols.
+     */
+    static int tier(long size, int mergeFactor)
+    {
+        int tier = 0;
+        for (long limit = (long) FLOOR_SIZE * mergeFactor; size >= limit; limit *= mergeFactor)
+        {
+            tier++;
+        }
+        return tier;
+    }
+}
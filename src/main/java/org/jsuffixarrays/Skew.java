@@ -18,7 +18,7 @@ import java.util.Arrays;
  * The implementation of this algorithm makes some assumptions about the input. See
  * {@link #buildSuffixArray(int[], int, int)} for details.
  */
-public final class Skew implements ISuffixArrayBuilder
+public final class Skew implements IWorkspaceSuffixArrayBuilder
 {
     /**
      * Lexicographic order for pairs.
@@ -69,15 +69,25 @@ public final class Skew implements ISuffixArrayBuilder
      * 0, n >= 2.
      */
     static final int[] suffixArray(int [] s, int [] SA, int n, final int K, int start, int [] cnt)
+    {
+        return suffixArray(s, SA, n, K, start, cnt, new Workspace(0));
+    }
+
+    /**
+     * Same as {@link #suffixArray(int[], int[], int, int, int, int[])}, but the arrays of
+     * each recursion level are borrowed from (and returned to) <code>workspace</code>.
+     */
+    static final int[] suffixArray(int [] s, int [] SA, int n, final int K, int start, int [] cnt,
+        Workspace workspace)
     {
         final int n0 = (n + 2) / 3, n1 = (n + 1) / 3, n2 = n / 3, n02 = n0 + n2;
 
-        final int [] s12 = new int [n02 + 3];
+        final int [] s12 = workspace.borrow(n02 + 3);
         s12[n02] = s12[n02 + 1] = s12[n02 + 2] = 0;
-        final int [] SA12 = new int [n02 + 3];
+        final int [] SA12 = workspace.borrow(n02 + 3);
         SA12[n02] = SA12[n02 + 1] = SA12[n02 + 2] = 0;
-        final int [] s0 = new int [n0];
-        final int [] SA0 = new int [n0];
+        final int [] s0 = workspace.borrow(n0);
+        final int [] SA0 = workspace.borrow(n0);
 
         /*
          * generate positions of mod 1 and mod 2 suffixes the "+(n0-n1)" adds a dummy mod
@@ -120,7 +130,8 @@ public final class Skew implements ISuffixArrayBuilder
         // recurse if names are not yet unique
         if (name < n02)
         {
-            cnt = suffixArray(s12, SA12, n02, name, start, cnt);
+            // s12 is indexed from zero, regardless of the input's offset.
+            cnt = suffixArray(s12, SA12, n02, name, 0, cnt, workspace);
             // store unique names in s12 using the suffix array
             for (int i = 0; i < n02; i++)
                 s12[SA12[i]] = i + 1;
@@ -174,6 +185,10 @@ public final class Skew implements ISuffixArrayBuilder
             }
         }
 
+        workspace.release(SA0);
+        workspace.release(s0);
+        workspace.release(SA12);
+        workspace.release(s12);
         return cnt;
     }
 
@@ -216,24 +231,44 @@ public final class Skew implements ISuffixArrayBuilder
      */
     @Override
     public int [] buildSuffixArray(int [] input, int start, int length)
+    {
+        return buildSuffixArray(input, start, length, new int [length + 3],
+            new Workspace(0));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The arrays of each recursion level and the radix sort counters are borrowed from
+     * the workspace.
+     */
+    @Override
+    public int [] buildSuffixArray(int [] input, int start, int length, int [] output,
+        Workspace workspace)
     {
         assertAlways(input != null, "input must not be null");
         assertAlways(length >= 2, "input length must be >= 2");
         assertAlways(input.length >= start + length + 3, "no extra space after input end");
+        assertAlways(output == null || output.length >= length, "output is too short");
         assert Tools.allPositive(input, start, length);
 
         final int alphabetSize = Tools.max(input, start, length);
-        final int [] SA = new int [length + 3];
+        final int [] SA = (output != null ? output : new int [length]);
 
         // Preserve the tail of the input (destroyed when constructing the array).
-        final int [] tail = new int [3];
-        System.arraycopy(input, start + length, tail, 0, 3);
+        final int tail0 = input[start + length];
+        final int tail1 = input[start + length + 1];
+        final int tail2 = input[start + length + 2];
         Arrays.fill(input, start + length, start + length + 3, 0);
 
-        suffixArray(input, SA, length, alphabetSize, start, new int [alphabetSize + 2]);
+        final int [] cnt = suffixArray(input, SA, length, alphabetSize, start,
+            workspace.borrow(alphabetSize + 2), workspace);
+        workspace.release(cnt);
 
         // Reconstruct the input's tail.
-        System.arraycopy(tail, 0, input, start + length, 3);
+        input[start + length] = tail0;
+        input[start + length + 1] = tail1;
+        input[start + length + 2] = tail2;
         return SA;
     }
 }
@@ -0,0 +1,95 @@
+package org.jsuffixarrays;
+
+import java.util.Arrays;
+
+import com.carrotsearch.hppc.IntIntOpenHashMap;
+import com.carrotsearch.hppc.cursors.IntIntCursor;
+
+/**
+ * In the "sparse" scenario symbols are spread over a range too large for the dense
+ * <code>forward</code> table of {@link DensePositiveMapper}. Distinct symbols are collected
+ * in a hash map, sorted and assigned consecutive codes starting at 1 (so the relative
+ * order of symbols is preserved). Memory is proportional to the number of distinct
+ * symbols <code>σ</code>, not to their range; construction takes
+ * <code>O(n + σ log σ)</code> and mapping a symbol is a single hash lookup.
+ */
+final class SparseAlphabetMapper implements ISymbolMapper
+{
+    /** Codes of symbols present in the input. */
+    private final IntIntOpenHashMap forward;
+
+    /** Symbols by their codes (the element at index 0 is unused). */
+    private final int [] backward;
+
+    /*
+     *
+     */
+    public SparseAlphabetMapper(int [] input, int start, int length)
+    {
+        final IntIntOpenHashMap forward = new IntIntOpenHashMap();
+        final int end = start + length;
+        for (int i = start; i < end; i++)
+        {
+            forward.put(input[i], 0);
+        }
+
+        // Collect present symbols, assign unique codes in symbol order.
+        final int [] backward = new int [forward.size() + 1];
+        int k = 1;
+        for (IntIntCursor c : forward)
+        {
+            backward[k++] = c.key;
+        }
+        Arrays.sort(backward, 1, k);
+        for (int code = 1; code < k; code++)
+        {
+            forward.put(backward[code], code);
+        }
+
+        this.forward = forward;
+        this.backward = backward;
+    }
+
+    /**
+     * @return Returns the code of a symbol or <code>0</code> if the symbol was not present
+     *         in the input.
+     */
+    int code(int symbol)
+    {
+        return forward.get(symbol);
+    }
+
+    /**
+     * @return Returns the number of distinct symbols (codes are
+     *         <code>1...symbols()</code>).
+     */
+    int symbols()
+    {
+        return backward.length - 1;
+    }
+
+    /*
+     *
+     */
+    @Override
+    public void map(int [] input, final int start, final int length)
+    {
+        final IntIntOpenHashMap forward = this.forward;
+        for (int i = start, l = length; l > 0; l--, i++)
+        {
+            input[i] = forward.get(input[i]);
+        }
+    }
+
+    /*
+     *
+     */
+    @Override
+    public void undo(int [] input, final int start, final int length)
+    {
+        for (int i = start, l = length; l > 0; l--, i++)
+        {
+            input[i] = backward[input[i]];
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package org.jsuffixarrays;
+
+import java.util.Arrays;
+
+/**
+ * Merges suffix arrays (and LCP arrays) of two sequences <code>A</code> and
+ * <code>B</code> into the suffix array of the collection <code>{A, B}</code>, without
+ * sorting suffixes again.
+ * <p>
+ * Suffixes are compared as in a generalized suffix array: as if each sequence ended with
+ * a unique terminator smaller than any symbol, the terminator of <code>A</code> being the
+ * smaller one. Relative orders of suffixes of <code>A</code> and suffixes of
+ * <code>B</code> are thus unchanged, and the merge only needs to know, for every suffix
+ * of <code>B</code>, how many suffixes of <code>A</code> are smaller (the <i>gap
+ * array</i>). These ranks are computed for suffixes of <code>B</code> from the last one
+ * to the first, with backward search steps over the Burrows-Wheeler transform of
+ * <code>A</code>, in <code>O(|B| sigma)</code> time for alphabets of up to 256 symbols
+ * (with sampled symbol counts) and <code>O(|B| log sigma)</code> time for larger ones
+ * (with a {@link WaveletMatrix}).
+ * <p>
+ * LCP values of adjacent suffixes of the same sequence come from the input LCP arrays.
+ * For a suffix <code>B[j..]</code>, the LCPs with its nearest smaller and greater suffix
+ * of <code>A</code> shrink by at most one from <code>j</code> to <code>j + 1</code> (as
+ * in the algorithm of Kasai et al.), so they are computed by symbol comparisons in
+ * <code>O(|B|)</code> total time.
+ * <p>
+ * The result is the suffix array of the concatenation <code>AB</code> if the last symbol
+ * of <code>A</code> is smaller than all other symbols of both sequences and does not
+ * occur elsewhere (it then acts as the terminator).
+ * <p>
+ * The algorithm is a variant of <tt>P. Ferragina, T. Gagie and G. Manzini. Lightweight
+ * data indexing and compression in external memory. Algorithmica 63(3):707–730,
+ * 2012.</tt>
+ */
+final class SuffixArrayMerger
+{
+    /**
+     * Counts of symbols in prefixes of the Burrows-Wheeler transform.
+     */
+    private interface Occurrences
+    {
+        /**
+         * @return Number of occurrences of <code>symbol</code> in <code>[0, i)</code>.
+         */
+        int rank(int symbol, int i);
+    }
+
+    /**
+     * Occurrences of symbols of a small alphabet (at most 256 symbols): the sequence is
+     * kept in bytes, with counts of all symbols sampled at the boundaries of blocks at
+     * least as long as the alphabet (so the counts take at most <code>4n</code> bytes).
+     * A rank takes one sample and a scan of at most half a block, to the nearest
+     * boundary; unlike a {@link WaveletMatrix}, which needs a few cache misses on every
+     * level, this is mostly sequential memory access.
+     */
+    private final static class SampledOccurrences implements Occurrences
+    {
+        private final byte [] symbols;
+        private final int [] counts;
+        private final int sigma;
+        private final int blockBits;
+        private final int blocks;
+
+        SampledOccurrences(int [] input, int length, int sigma)
+        {
+            this.sigma = sigma;
+            this.blockBits = Math.max(6, 32 - Integer.numberOfLeadingZeros(sigma - 1));
+            this.blocks = length >>> blockBits;
+            this.symbols = new byte [length];
+            this.counts = new int [(blocks + 1) * sigma];
+
+            final int [] running = new int [sigma];
+            final int mask = (1 << blockBits) - 1;
+            for (int i = 0; i <= length; i++)
+            {
+                if ((i & mask) == 0)
+                {
+                    System.arraycopy(running, 0, counts, (i >>> blockBits) * sigma, sigma);
+                }
+                if (i < length)
+                {
+                    symbols[i] = (byte) input[i];
+                    running[input[i]]++;
+                }
+            }
+        }
+
+        /*
+         * 
+         */
+        public int rank(int symbol, int i)
+        {
+            final byte b = (byte) symbol;
+            final int block = i >>> blockBits;
+            final int from = block << blockBits;
+            if (i - from > (1 << (blockBits - 1)) && block < blocks)
+            {
+                final int to = from + (1 << blockBits);
+                int r = counts[(block + 1) * sigma + symbol];
+                for (int k = i; k < to; k++)
+                {
+                    if (symbols[k] == b) r--;
+                }
+                return r;
+            }
+
+            int r = counts[block * sigma + symbol];
+            for (int k = from; k < i; k++)
+            {
+                if (symbols[k] == b) r++;
+            }
+            return r;
+        }
+    }
+
+    private SuffixArrayMerger()
+    {
+        // no instances.
+    }
+
+    /**
+     * Merge suffix arrays of two sequences. Positions of suffixes of <code>B</code> in the
+     * result are shifted by <code>aLength</code> (they are positions in the
+     * concatenation).
+     *
+     * @param saA Suffix array of <code>A</code> (not modified).
+     * @param lcpA LCP array of <code>A</code> or <code>null</code>.
+     * @param saB Suffix array of <code>B</code> (not modified).
+     * @param lcpB LCP array of <code>B</code> or <code>null</code>.
+     * @return Returns the merged suffix array and the merged LCP array (<code>null</code>
+     *         unless both LCP arrays are given).
+     */
+    static SuffixData merge(int [] a, int aStart, int aLength, int [] saA, int [] lcpA,
+        int [] b, int bStart, int bLength, int [] saB, int [] lcpB)
+    {
+        final int [] ranks = ranks(a, aStart, aLength, saA, b, bStart, bLength);
+
+        // gaps[r]: number of suffixes of B preceded by exactly r rows of A's matrix.
+        final int [] gaps = new int [aLength + 2];
+        for (int j = 0; j < bLength; j++)
+        {
+            gaps[ranks[j]]++;
+        }
+
+        final boolean withLCP = lcpA != null && lcpB != null;
+        int [] predLCP = null, succLCP = null;
+        if (withLCP)
+        {
+            predLCP = new int [bLength];
+            succLCP = ranks;
+            neighborLCPs(a, aStart, aLength, saA, b, bStart, bLength, ranks, predLCP,
+                succLCP);
+        }
+
+        /*
+         * Row 0 of A's matrix is its (empty) terminator suffix, row k > 0 is suffix
+         * saA[k - 1]. Suffixes of B with rank r follow row r - 1.
+         */
+        final int length = aLength + bLength;
+        final int [] sa = new int [length];
+        final int [] lcp = withLCP ? new int [length] : null;
+        int i = 0, jb = 0;
+        boolean previousInA = false;
+        for (int row = 0; row <= aLength; row++)
+        {
+            if (row > 0)
+            {
+                sa[i] = saA[row - 1];
+                if (withLCP)
+                {
+                    lcp[i] = (i == 0 ? -1 : previousInA ? lcpA[row - 1]
+                        : succLCP[saB[jb - 1]]);
+                }
+                previousInA = true;
+                i++;
+            }
+
+            for (int g = gaps[row + 1]; g > 0; g--, jb++)
+            {
+                final int j = saB[jb];
+                sa[i] = aLength + j;
+                if (withLCP)
+                {
+                    lcp[i] = (i == 0 ? -1 : previousInA ? predLCP[j] : lcpB[jb]);
+                }
+                previousInA = false;
+                i++;
+            }
+        }
+        return new SuffixData(sa, lcp);
+    }
+
+    /**
+     * @return Returns the number of rows of <code>A</code>'s matrix (including its
+     *         terminator's row) smaller than each suffix of <code>B</code>.
+     */
+    private static int [] ranks(int [] a, int aStart, int aLength, int [] saA, int [] b,
+        int bStart, int bLength)
+    {
+        final int [] ranks = new int [bLength];
+        if (aLength == 0)
+        {
+            Arrays.fill(ranks, 1);
+            return ranks;
+        }
+
+        final int [] alphabet = FMIndex.alphabet(a, aStart, aLength);
+        final int [] bwt = Arrays.copyOf(saA, aLength);
+        final int primaryIndex = SuffixArrays.toBWT(a, aStart, aLength, bwt);
+
+        // C[s]: rows starting with a symbol smaller than alphabet[s] (or the terminator).
+        final int [] C = new int [alphabet.length + 1];
+        for (int i = 0; i < aLength; i++)
+        {
+            final int symbol = Arrays.binarySearch(alphabet, bwt[i]);
+            bwt[i] = symbol;
+            C[symbol + 1]++;
+        }
+        C[0] = 1;
+        for (int s = 1; s < C.length; s++)
+        {
+            C[s] += C[s - 1];
+        }
+        final Occurrences occurrences;
+        if (alphabet.length <= 256)
+        {
+            occurrences = new SampledOccurrences(bwt, aLength, alphabet.length);
+        }
+        else
+        {
+            final WaveletMatrix matrix = new WaveletMatrix(bwt, aLength, alphabet.length);
+            occurrences = new Occurrences()
+            {
+                public int rank(int symbol, int i)
+                {
+                    return matrix.rank(symbol, i);
+                }
+            };
+        }
+
+        // The empty suffix of B follows the empty suffix of A.
+        int r = 1;
+        for (int j = bLength - 1; j >= 0; j--)
+        {
+            final int symbol = Arrays.binarySearch(alphabet, b[bStart + j]);
+            if (symbol < 0)
+            {
+                r = C[-symbol - 1];
+            }
+            else
+            {
+                r = C[symbol] + occurrences.rank(symbol, r <= primaryIndex ? r : r - 1);
+            }
+            ranks[j] = r;
+        }
+        return ranks;
+    }
+
+    /**
+     * Compute LCPs of each suffix of <code>B</code> with the nearest smaller and greater
+     * suffixes of <code>A</code> (zero if there is none). <code>succLCP</code> may be the
+     * same array as <code>ranks</code>.
+     */
+    private static void neighborLCPs(int [] a, int aStart, int aLength, int [] saA,
+        int [] b, int bStart, int bLength, int [] ranks, int [] predLCP, int [] succLCP)
+    {
+        int pred = 0, succ = 0;
+        for (int j = 0; j < bLength; j++)
+        {
+            final int r = ranks[j];
+            pred = (r >= 2 ? match(a, aStart, aLength, saA[r - 2], b, bStart, bLength, j,
+                pred) : 0);
+            succ = (r <= aLength ? match(a, aStart, aLength, saA[r - 1], b, bStart,
+                bLength, j, succ) : 0);
+            predLCP[j] = pred;
+            succLCP[j] = succ;
+            pred = Math.max(pred - 1, 0);
+            succ = Math.max(succ - 1, 0);
+        }
+    }
+
+    /**
+     * @return Returns the LCP of <code>A[i..]</code> and <code>B[j..]</code>, known to be
+     *         at least <code>from</code>.
+     */
+    private static int match(int [] a, int aStart, int aLength, int i, int [] b,
+        int bStart, int bLength, int j, int from)
+    {
+        final int max = Math.min(aLength - i, bLength - j);
+        int l = from;
+        while (l < max && a[aStart + i + l] == b[bStart + j + l])
+        {
+            l++;
+        }
+        return l;
+    }
+}
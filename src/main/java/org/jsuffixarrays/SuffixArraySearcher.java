@@ -0,0 +1,493 @@
+package org.jsuffixarrays;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.sorting.IndirectComparator;
+import com.carrotsearch.hppc.sorting.IndirectSort;
+
+/**
+ * Pattern search over a suffix array. Every pattern occurrence corresponds to a
+ * contiguous interval of the suffix array; this class finds the interval's bounds using
+ * binary search accelerated with precomputed longest common prefixes of the search
+ * boundaries (the <i>LCP-LR</i> arrays), so that a pattern of length <code>m</code> is
+ * located in <code>O(m + log n)</code> symbol comparisons.
+ * <p>
+ * The algorithm comes from <tt>U. Manber and G. Myers. Suffix arrays: a new method for
+ * on-line string searches. SIAM Journal on Computing, 22(5):935–948, 1993.</tt>
+ * <p>
+ * The searcher requires two extra <code>int</code> arrays of the input's length. Once
+ * constructed, it is immutable and may be shared by multiple threads.
+ */
+public final class SuffixArraySearcher
+{
+    private final int [] input;
+    private final int start;
+    private final int length;
+    private final int [] sa;
+
+    /**
+     * <code>llcp[M]</code> is the LCP of suffixes <code>L</code> and <code>M</code>,
+     * <code>rlcp[M]</code> is the LCP of suffixes <code>M</code> and <code>R</code>,
+     * where <code>(L, R)</code> is the (unique) search interval with middle point
+     * <code>M</code>.
+     */
+    private final int [] llcp, rlcp;
+
+    /**
+     * Create a searcher for a given input sequence of symbols and its suffix data.
+     * 
+     * @see SuffixArrays#createWithLCP(int[], int, int)
+     */
+    public SuffixArraySearcher(int [] input, int start, int length, SuffixData data)
+    {
+        this.input = input;
+        this.start = start;
+        this.length = length;
+        this.sa = data.getSuffixArray();
+
+        this.llcp = new int [length];
+        this.rlcp = new int [length];
+        if (length > 1)
+        {
+            computeLcpLR(data.getLCP(), 0, length - 1);
+        }
+    }
+
+    /**
+     * Create a searcher for a given character sequence and its suffix data.
+     * 
+     * @see SuffixArrays#createWithLCP(CharSequence)
+     */
+    public SuffixArraySearcher(CharSequence text, SuffixData data)
+    {
+        this(Tools.toArray(text), 0, text.length(), data);
+    }
+
+    /**
+     * @return Returns the index of the first suffix in the suffix array that is not
+     *         smaller than the pattern (begins with the pattern if it occurs).
+     */
+    public int lowerBound(int [] pattern, int pstart, int plength)
+    {
+        return search(pattern, pstart, plength, false);
+    }
+
+    /**
+     * @return Returns the index of the first suffix in the suffix array that is greater
+     *         than the pattern and does not begin with it (the exclusive end of the
+     *         occurrences interval).
+     */
+    public int upperBound(int [] pattern, int pstart, int plength)
+    {
+        return search(pattern, pstart, plength, true);
+    }
+
+    /**
+     * Locate the suffix array interval of a pattern.
+     * 
+     * @param interval A two-element output array for the interval:
+     *            <code>[lower bound, upper bound)</code>.
+     * @return Returns the number of occurrences of the pattern.
+     */
+    public int find(int [] pattern, int pstart, int plength, int [] interval)
+    {
+        interval[0] = lowerBound(pattern, pstart, plength);
+        interval[1] = upperBound(pattern, pstart, plength);
+        return interval[1] - interval[0];
+    }
+
+    /**
+     * @see #find(int[], int, int, int[])
+     */
+    public int find(CharSequence pattern, int [] interval)
+    {
+        final int [] p = Tools.toArray(pattern);
+        return find(p, 0, p.length, interval);
+    }
+
+    /**
+     * @return Returns the number of occurrences of the pattern.
+     */
+    public int count(int [] pattern, int pstart, int plength)
+    {
+        return upperBound(pattern, pstart, plength) - lowerBound(pattern, pstart, plength);
+    }
+
+    /**
+     * @see #count(int[], int, int)
+     */
+    public int count(CharSequence pattern)
+    {
+        final int [] p = Tools.toArray(pattern);
+        return count(p, 0, p.length);
+    }
+
+    /**
+     * @return Returns an iterator over starting positions (relative to the input's
+     *         <code>start</code>) of the pattern's occurrences, in suffix array order.
+     *         The returned cursor object is reused between calls to
+     *         {@link Iterator#next()}.
+     */
+    public Iterator<IntCursor> positions(int [] pattern, int pstart, int plength)
+    {
+        return positions(lowerBound(pattern, pstart, plength), upperBound(pattern,
+            pstart, plength));
+    }
+
+    /**
+     * @see #positions(int[], int, int)
+     */
+    public Iterator<IntCursor> positions(CharSequence pattern)
+    {
+        final int [] p = Tools.toArray(pattern);
+        return positions(p, 0, p.length);
+    }
+
+    /**
+     * Locate suffix array intervals of many patterns at once, on the calling thread.
+     * 
+     * @see #findAll(int[][], int[], int[], ExecutorService, int)
+     */
+    public void findAll(int [][] patterns, int [] lower, int [] upper)
+    {
+        findAll(patterns, lower, upper, null, 1);
+    }
+
+    /**
+     * Locate suffix array intervals of many patterns at once. Patterns are sorted
+     * lexicographically and split into <code>chunks</code> contiguous ranges, processed
+     * in parallel. Within a range, the interval of each pattern is narrowed symbol by
+     * symbol, starting from the interval of the prefix it shares with the previous
+     * pattern, so shared prefixes are searched only once.
+     * 
+     * @param lower Output array for lower bounds of intervals, indexed like
+     *            <code>patterns</code>.
+     * @param upper Output array for upper bounds (exclusive) of intervals, indexed like
+     *            <code>patterns</code>.
+     * @param executor The executor to run the chunks on or <code>null</code> to process
+     *            all patterns on the calling thread.
+     * @param chunks Number of chunks to split the work into.
+     */
+    public void findAll(final int [][] patterns, final int [] lower, final int [] upper,
+        ExecutorService executor, int chunks)
+    {
+        final int [] order = IndirectSort.mergesort(0, patterns.length,
+            new IndirectComparator()
+            {
+                public int compare(int a, int b)
+                {
+                    return compareLexicographically(patterns[a], patterns[b]);
+                }
+            });
+
+        chunks = Math.max(1, Math.min(chunks, patterns.length));
+        if (executor == null || chunks == 1)
+        {
+            findSorted(patterns, order, 0, patterns.length, lower, upper);
+            return;
+        }
+
+        final ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int c = 0; c < chunks; c++)
+        {
+            final int from = (int) ((long) patterns.length * c / chunks);
+            final int to = (int) ((long) patterns.length * (c + 1) / chunks);
+            futures.add(executor.submit(new Callable<Void>()
+            {
+                public Void call()
+                {
+                    findSorted(patterns, order, from, to, lower, upper);
+                    return null;
+                }
+            }));
+        }
+
+        try
+        {
+            for (Future<Void> f : futures)
+            {
+                f.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while searching.", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new RuntimeException("Batch search failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Count occurrences of many patterns at once.
+     * 
+     * @see #findAll(int[][], int[], int[], ExecutorService, int)
+     */
+    public int [] countAll(int [][] patterns, ExecutorService executor, int chunks)
+    {
+        final int [] lower = new int [patterns.length];
+        final int [] upper = new int [patterns.length];
+        findAll(patterns, lower, upper, executor, chunks);
+        for (int i = 0; i < upper.length; i++)
+        {
+            upper[i] -= lower[i];
+        }
+        return upper;
+    }
+
+    /**
+     * @see #countAll(int[][], ExecutorService, int)
+     */
+    public int [] countAll(CharSequence [] patterns, ExecutorService executor, int chunks)
+    {
+        final int [][] p = new int [patterns.length][];
+        for (int i = 0; i < p.length; i++)
+        {
+            p[i] = Tools.toArray(patterns[i]);
+        }
+        return countAll(p, executor, chunks);
+    }
+
+    /**
+     * Find intervals for patterns <code>order[from..to)</code>, sorted lexicographically.
+     * <code>lo[d], hi[d]</code> hold the interval of the previous pattern's prefix of
+     * length <code>d</code>, for all <code>d <= depth</code>.
+     */
+    private void findSorted(int [][] patterns, int [] order, int from, int to,
+        int [] lower, int [] upper)
+    {
+        int maxLength = 0;
+        for (int i = from; i < to; i++)
+        {
+            maxLength = Math.max(maxLength, patterns[order[i]].length);
+        }
+
+        final int [] lo = new int [maxLength + 1];
+        final int [] hi = new int [maxLength + 1];
+        lo[0] = 0;
+        hi[0] = length;
+
+        int depth = 0;
+        int [] previous = null;
+        for (int i = from; i < to; i++)
+        {
+            final int [] pattern = patterns[order[i]];
+
+            int d = 0;
+            if (previous != null)
+            {
+                final int max = Math.min(depth, Math.min(previous.length, pattern.length));
+                while (d < max && previous[d] == pattern[d])
+                {
+                    d++;
+                }
+            }
+
+            while (d < pattern.length && lo[d] < hi[d])
+            {
+                final int symbol = pattern[d];
+                final int a = symbolBound(lo[d], hi[d], d, symbol, false);
+                final int b = symbolBound(a, hi[d], d, symbol, true);
+                d++;
+                lo[d] = a;
+                hi[d] = b;
+            }
+
+            /*
+             * An empty interval of a prefix is also the (empty) interval of the
+             * pattern, located at the same insertion point.
+             */
+            lower[order[i]] = lo[d];
+            upper[order[i]] = hi[d];
+            depth = d;
+            previous = pattern;
+        }
+    }
+
+    /**
+     * Binary search for the first suffix in <code>[from, to)</code> with a symbol at
+     * offset <code>d</code> not smaller (or greater, if <code>strict</code>) than
+     * <code>symbol</code>. All suffixes in the range must share a prefix of
+     * <code>d</code> symbols. A suffix shorter than <code>d + 1</code> symbols is smaller
+     * than any symbol.
+     */
+    private int symbolBound(int from, int to, int d, int symbol, boolean strict)
+    {
+        while (from < to)
+        {
+            final int mid = (from + to) >>> 1;
+            final int pos = sa[mid] + d;
+            final boolean before = pos >= length
+                || (strict ? input[start + pos] <= symbol : input[start + pos] < symbol);
+            if (before) from = mid + 1;
+            else to = mid;
+        }
+        return from;
+    }
+
+    private static int compareLexicographically(int [] a, int [] b)
+    {
+        final int max = Math.min(a.length, b.length);
+        for (int i = 0; i < max; i++)
+        {
+            if (a[i] != b[i]) return a[i] < b[i] ? -1 : 1;
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * @return Returns an iterator over suffixes in the given interval of the suffix
+     *         array.
+     */
+    Iterator<IntCursor> positions(final int from, final int to)
+    {
+        return new Iterator<IntCursor>()
+        {
+            private final IntCursor cursor = new IntCursor();
+            private int next = from;
+
+            public boolean hasNext()
+            {
+                return next < to;
+            }
+
+            public IntCursor next()
+            {
+                if (next >= to) throw new NoSuchElementException();
+                cursor.index = next;
+                cursor.value = sa[next++];
+                return cursor;
+            }
+
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Binary search for the boundary between suffixes on the "left" side of the pattern
+     * and those on the right side. Suffixes smaller than the pattern are always on the
+     * left, suffixes greater than the pattern are always on the right. Suffixes
+     * beginning with the pattern are on the left for the upper bound and on the right for
+     * the lower bound.
+     * <p>
+     * The search maintains <code>l</code> and <code>r</code>, the LCPs of the pattern
+     * and suffixes at <code>L</code> and <code>R</code>, and compares symbols only past
+     * <code>max(l, r)</code>, using the LCP-LR arrays to decide the remaining cases.
+     */
+    private int search(int [] pattern, int pstart, int plength, boolean upper)
+    {
+        final int n = length;
+        if (n == 0) return 0;
+
+        int L = 0, R = n - 1;
+        int l = match(sa[L], pattern, pstart, plength, 0);
+        if (!isLeft(sa[L], l, pattern, pstart, plength, upper)) return 0;
+        int r = match(sa[R], pattern, pstart, plength, 0);
+        if (isLeft(sa[R], r, pattern, pstart, plength, upper)) return n;
+
+        while (R - L > 1)
+        {
+            final int M = (L + R) >>> 1;
+            if (l >= r)
+            {
+                final int lcpLM = llcp[M];
+                if (lcpLM > l)
+                {
+                    L = M;
+                    continue;
+                }
+                else if (lcpLM < l)
+                {
+                    R = M;
+                    r = lcpLM;
+                    continue;
+                }
+            }
+            else
+            {
+                final int lcpMR = rlcp[M];
+                if (lcpMR > r)
+                {
+                    R = M;
+                    continue;
+                }
+                else if (lcpMR < r)
+                {
+                    L = M;
+                    l = lcpMR;
+                    continue;
+                }
+            }
+
+            final int k = match(sa[M], pattern, pstart, plength, Math.max(l, r));
+            if (isLeft(sa[M], k, pattern, pstart, plength, upper))
+            {
+                L = M;
+                l = k;
+            }
+            else
+            {
+                R = M;
+                r = k;
+            }
+        }
+        return R;
+    }
+
+    /**
+     * @return Returns the length of the common prefix of the pattern and the given
+     *         suffix, knowing that it is at least <code>from</code>.
+     */
+    private int match(int suffix, int [] pattern, int pstart, int plength, int from)
+    {
+        final int max = Math.min(plength, length - suffix);
+        final int offset = start + suffix;
+        int k = from;
+        while (k < max && input[offset + k] == pattern[pstart + k])
+        {
+            k++;
+        }
+        return k;
+    }
+
+    /**
+     * @return Returns <code>true</code> if the suffix with a common prefix of
+     *         <code>k</code> symbols with the pattern is on the left side of the search.
+     */
+    private boolean isLeft(int suffix, int k, int [] pattern, int pstart, int plength,
+        boolean upper)
+    {
+        if (k == plength) return upper;
+        if (suffix + k == length) return true;
+        return input[start + suffix + k] < pattern[pstart + k];
+    }
+
+    /**
+     * Fill in the LCP-LR arrays for the search interval <code>(L, R)</code> and return
+     * the LCP of suffixes <code>L</code> and <code>R</code>.
+     */
+    private int computeLcpLR(int [] lcp, int L, int R)
+    {
+        if (R - L == 1)
+        {
+            return lcp[R];
+        }
+
+        final int M = (L + R) >>> 1;
+        llcp[M] = computeLcpLR(lcp, L, M);
+        rlcp[M] = computeLcpLR(lcp, M, R);
+        return Math.min(llcp[M], rlcp[M]);
+    }
+}
@@ -1,16 +1,23 @@
 package org.jsuffixarrays;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.common.collect.Lists;
 
-/*
- * TODO: ultimately, this class should be "intelligent" enough to pick the best
- * algorithm, depending on the distribution and properties of the input (alphabet size,
- * symbols distribution, etc.).
- */
-
 /**
  * <p>
  * Factory-like methods for constructing suffix arrays for various data types. Whenever
@@ -32,6 +39,28 @@ public final class SuffixArrays
      */
     final static int MAX_EXTRA_TRAILING_SPACE = DeepShallow.OVERSHOOT;
 
+    /**
+     * Minimum suffix array length for which {@link #computeISA(int[], int, ForkJoinPool)}
+     * splits the work.
+     */
+    private final static int PARALLEL_ISA_THRESHOLD = 1 << 16;
+
+    /**
+     * @see #defaultAlgorithm()
+     */
+    private final static ISuffixArrayBuilder DEFAULT_ALGORITHM = Algorithm.ADAPTIVE
+        .getThreadSafeInstance();
+
+    /**
+     * Processes a single input of a batch.
+     * 
+     * @see SuffixArrays#createAll(List, Algorithm, boolean, ExecutorService, int)
+     */
+    private interface IBatchProcedure
+    {
+        void apply(BatchWorker worker, int index);
+    }
+
     /*
 	 * 
 	 */
@@ -57,6 +86,67 @@ public final class SuffixArrays
         return new CharSequenceAdapter(builder).buildSuffixArray(s);
     }
 
+    /**
+     * Create a suffix array for a sequence of bytes (unsigned 8-bit symbols) with the
+     * default byte algorithm ({@link DivSufSort}). Bytes are read in place, without
+     * widening them to an <code>int[]</code>; the returned suffix array is exactly
+     * <code>length</code> elements long.
+     */
+    public static int [] create(byte [] input, int start, int length)
+    {
+        return create(input, start, length, defaultByteAlgorithm(length));
+    }
+
+    /**
+     * Create a suffix array for a sequence of bytes, using the provided algorithm.
+     */
+    public static int [] create(byte [] input, int start, int length,
+        IByteSuffixArrayBuilder builder)
+    {
+        return builder.buildSuffixArray(input, start, length);
+    }
+
+    /**
+     * Create a suffix array for the bytes of a file with the default byte algorithm.
+     * 
+     * @see #create(File, IByteSuffixArrayBuilder)
+     */
+    public static int [] create(File file) throws IOException
+    {
+        return create(file, defaultByteAlgorithm(file.length()));
+    }
+
+    /**
+     * Create a suffix array for the bytes of a file (unsigned 8-bit symbols), using the
+     * provided algorithm. The file is memory-mapped and read in place, so only the suffix
+     * array itself is allocated on the heap.
+     * 
+     * @throws IOException If the file cannot be read or is longer than
+     *             {@link Integer#MAX_VALUE} bytes.
+     */
+    public static int [] create(File file, IByteSuffixArrayBuilder builder)
+        throws IOException
+    {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try
+        {
+            final FileChannel channel = raf.getChannel();
+            final long length = channel.size();
+            if (length > Integer.MAX_VALUE)
+            {
+                throw new IOException("File too large for a suffix array (" + length
+                    + " bytes): " + file);
+            }
+
+            final ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, length);
+            return builder.buildSuffixArray(buffer, 0, (int) length);
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
     /**
      * Create a suffix array and an LCP array for a given character sequence.
      * 
@@ -74,10 +164,20 @@ public final class SuffixArrays
      * @see #computeLCP(int[], int, int, int[])
      */
     public static SuffixData createWithLCP(CharSequence s, ISuffixArrayBuilder builder)
+    {
+        return createWithLCP(s, builder, defaultLCPAlgorithm());
+    }
+
+    /**
+     * Create a suffix array and an LCP array for a given character sequence, use the
+     * given algorithms for building the suffix array and the LCP array.
+     */
+    public static SuffixData createWithLCP(CharSequence s, ISuffixArrayBuilder builder,
+        ILCPBuilder lcpBuilder)
     {
         final CharSequenceAdapter adapter = new CharSequenceAdapter(builder);
         final int [] sa = adapter.buildSuffixArray(s);
-        final int [] lcp = computeLCP(adapter.input, 0, s.length(), sa);
+        final int [] lcp = lcpBuilder.buildLCP(adapter.input, 0, s.length(), sa);
         return new SuffixData(sa, lcp);
     }
 
@@ -97,9 +197,22 @@ public final class SuffixArrays
      */
     public static SuffixData createWithLCP(int [] input, int start, int length,
         ISuffixArrayBuilder builder)
+    {
+        return createWithLCP(input, start, length, builder, defaultLCPAlgorithm());
+    }
+
+    /**
+     * Create a suffix array and an LCP array for a given input sequence of symbols, using
+     * custom suffix array and LCP array building strategies.
+     * 
+     * @see KasaiLCP
+     * @see PhiLCP
+     */
+    public static SuffixData createWithLCP(int [] input, int start, int length,
+        ISuffixArrayBuilder builder, ILCPBuilder lcpBuilder)
     {
         final int [] sa = builder.buildSuffixArray(input, start, length);
-        final int [] lcp = computeLCP(input, start, length, sa);
+        final int [] lcp = lcpBuilder.buildLCP(input, start, length, sa);
         return new SuffixData(sa, lcp);
     }
 
@@ -146,12 +259,519 @@ public final class SuffixArrays
     }
 
     /**
-     * @return Return a new instance of the default algorithm for use in other methods. At
-     * the moment {@link QSufSort} is used.
+     * Compute the inverse suffix array: the rank of every suffix, so that
+     * <code>isa[sa[i]] == i</code>. Chunks of the suffix array are inverted in parallel
+     * (every chunk writes to distinct elements of the result).
+     * 
+     * @param pool The pool to run in or <code>null</code> to compute in the calling
+     *            thread.
+     */
+    public static int [] computeISA(final int [] sa, int length, ForkJoinPool pool)
+    {
+        final int [] isa = new int [length];
+        final int chunks = (pool == null || length < PARALLEL_ISA_THRESHOLD ? 1 : pool
+            .getParallelism());
+        Tools.parallelFor(pool, 0, length, chunks, new Tools.IRangeProcedure()
+        {
+            public void apply(int chunk, int from, int to)
+            {
+                for (int i = from; i < to; i++)
+                {
+                    isa[sa[i]] = i;
+                }
+            }
+        });
+        return isa;
+    }
+
+    /**
+     * Merge suffix arrays (and LCP arrays) of two sequences <code>A</code> and
+     * <code>B</code>, without sorting suffixes again. Suffixes are ordered as in a
+     * generalized suffix array of <code>{A, B}</code>: a suffix that ends at the end of
+     * its sequence is smaller than its extensions and a suffix of <code>A</code> is
+     * smaller than an equal suffix of <code>B</code>. This is the suffix array of the
+     * concatenation <code>AB</code> if <code>A</code> ends with a unique symbol smaller
+     * than all others.
+     * <p>
+     * Takes <code>O(|B| sigma)</code> time for the merge for alphabets of up to 256
+     * symbols (with sampled symbol counts over the Burrows-Wheeler transform of
+     * <code>A</code>) and <code>O(|B| log sigma)</code> time for larger ones (with a
+     * wavelet matrix of the transform), plus the time to build the transform and its
+     * index, and a few temporary arrays of <code>|A|</code> and <code>|B|</code>
+     * elements, so the longer of the two sequences should be <code>A</code>.
+     * 
+     * @param dataA Suffix array (and, optionally, LCP array) of <code>A</code>.
+     * @param dataB Suffix array (and, optionally, LCP array) of <code>B</code>.
+     * @return Returns the merged suffix data. Suffixes of <code>B</code> are at positions
+     *         shifted by <code>aLength</code>. The LCP array is computed only if both
+     *         inputs have one, LCP values do not extend past the end of either sequence.
+     */
+    public static SuffixData merge(int [] a, int aStart, int aLength, SuffixData dataA,
+        int [] b, int bStart, int bLength, SuffixData dataB)
+    {
+        return SuffixArrayMerger.merge(a, aStart, aLength, dataA.getSuffixArray(), dataA
+            .getLCP(), b, bStart, bLength, dataB.getSuffixArray(), dataB.getLCP());
+    }
+
+    /**
+     * Merge suffix arrays (and LCP arrays) of two character sequences.
+     * 
+     * @see #merge(int[], int, int, SuffixData, int[], int, int, SuffixData)
+     */
+    public static SuffixData merge(CharSequence a, SuffixData dataA, CharSequence b,
+        SuffixData dataB)
+    {
+        final int [] x = Tools.toArray(a);
+        final int [] y = Tools.toArray(b);
+        return merge(x, 0, x.length, dataA, y, 0, y.length, dataB);
+    }
+
+    /**
+     * Create a long-indexed suffix array and an LCP array for a given input sequence of
+     * symbols, using {@link LongSAIS}.
+     */
+    public static LongSuffixData createWithLCP(ILongArray input, long start, long length)
+    {
+        return createWithLCP(input, start, length, new LongSAIS());
+    }
+
+    /**
+     * Create a long-indexed suffix array and an LCP array for a given input sequence of
+     * symbols and a custom suffix array building strategy.
+     */
+    public static LongSuffixData createWithLCP(ILongArray input, long start, long length,
+        ILongSuffixArrayBuilder builder)
+    {
+        final ILongArray sa = builder.buildSuffixArray(input, start, length);
+        final ILongArray lcp = computeLCP(input, start, length, sa);
+        return new LongSuffixData(sa, lcp);
+    }
+
+    /**
+     * Create a long-indexed suffix array and an LCP array for a given input sequence of
+     * symbols, storing them in the provided arrays. With {@link BufferLongArray}s this
+     * creates a heap-neutral (off-heap or memory-mapped) index; the <code>int</code>
+     * builders ({@link ISuffixArrayBuilder}) cannot write off-heap. The LCP array is
+     * computed with
+     * {@link #computeLCP(ILongArray, long, long, ILongArray, ILongArray)}, see there for
+     * its temporary memory.
+     * 
+     * @param sa Output array for the suffix array, at least <code>length</code>
+     *            elements.
+     * @param lcp Output array for the LCP array, at least <code>length</code> elements.
+     */
+    public static LongSuffixData createWithLCP(ILongArray input, long start, long length,
+        ILongSuffixArrayBuilder builder, ILongArray sa, ILongArray lcp)
+    {
+        builder.buildSuffixArray(input, start, length, sa);
+        computeLCP(input, start, length, sa, lcp);
+        return new LongSuffixData(sa, lcp);
+    }
+
+    /**
+     * Calculate longest prefix (LCP) array for an existing long-indexed suffix array and
+     * input. The semantics are identical to {@link #computeLCP(int[], int, int, int[])}.
+     */
+    public static ILongArray computeLCP(ILongArray input, final long start,
+        final long length, ILongArray sa)
+    {
+        final ILongArray lcp = new PagedLongArray(length);
+        computeLCP(input, start, length, sa, lcp, new PagedLongArray(length));
+        return lcp;
+    }
+
+    /**
+     * Calculate longest prefix (LCP) array for an existing long-indexed suffix array and
+     * input, storing it in <code>lcp</code>. The temporary rank array is allocated in
+     * direct memory so that the heap is not used even for very large inputs: it takes
+     * <code>4 * length</code> bytes (<code>8 * length</code> above
+     * {@link Integer#MAX_VALUE} elements), which must fit in the JVM's direct memory
+     * limit (<code>-XX:MaxDirectMemorySize</code>, the maximum heap size by default).
+     * To place it elsewhere (a memory-mapped file, for example), use
+     * {@link #computeLCP(ILongArray, long, long, ILongArray, ILongArray, ILongArray)}.
+     */
+    public static ILongArray computeLCP(ILongArray input, final long start,
+        final long length, ILongArray sa, ILongArray lcp)
+    {
+        final ILongArray rank = BufferLongArray.allocateDirect(length,
+            length <= Integer.MAX_VALUE ? 4 : 8);
+        return computeLCP(input, start, length, sa, lcp, rank);
+    }
+
+    /**
+     * Calculate longest prefix (LCP) array for an existing long-indexed suffix array and
+     * input, storing it in <code>lcp</code>, with Kasai's algorithm.
+     * 
+     * @param rank Temporary array for suffix ranks, at least <code>length</code>
+     *            elements, capable of storing values up to <code>length - 1</code>. Its
+     *            contents are overwritten.
+     */
+    public static ILongArray computeLCP(ILongArray input, final long start,
+        final long length, ILongArray sa, ILongArray lcp, ILongArray rank)
+    {
+        for (long i = 0; i < length; i++)
+            rank.set(sa.get(i), i);
+        long h = 0;
+        for (long i = 0; i < length; i++)
+        {
+            final long k = rank.get(i);
+            if (k == 0)
+            {
+                lcp.set(k, -1);
+            }
+            else
+            {
+                final long j = sa.get(k - 1);
+                while (i + h < length && j + h < length
+                    && input.get(start + i + h) == input.get(start + j + h))
+                {
+                    h++;
+                }
+                lcp.set(k, h);
+            }
+            if (h > 0) h--;
+        }
+        return lcp;
+    }
+
+    /**
+     * Create the Burrows-Wheeler transform of a given character sequence, using
+     * {@link SAIS} (directly, without materializing the suffix array).
+     * 
+     * @see BWTData
+     */
+    public static BWTData createBWT(CharSequence s)
+    {
+        return createBWT(s, new SAIS());
+    }
+
+    /**
+     * Create the Burrows-Wheeler transform of a given character sequence, using the
+     * provided suffix array building strategy. Symbols of the transform are the
+     * sequence's characters.
+     * 
+     * @see #createBWT(int[], int, int, ISuffixArrayBuilder)
+     */
+    public static BWTData createBWT(CharSequence s, ISuffixArrayBuilder builder)
+    {
+        final int [] input = Tools.toArray(s, MAX_EXTRA_TRAILING_SPACE);
+
+        if (builder instanceof IBWTBuilder)
+        {
+            return ((IBWTBuilder) builder).buildBWT(input, 0, s.length());
+        }
+        return createBWT(input, 0, s.length(), new DensePositiveDecorator(builder));
+    }
+
+    /**
+     * Create the Burrows-Wheeler transform of a given input sequence of symbols, using
+     * {@link SAIS} (directly, without materializing the suffix array). Negative symbols
+     * are remapped (in place) for the construction and restored afterwards.
+     * 
+     * @see BWTData
+     */
+    public static BWTData createBWT(int [] input, int start, int length)
+    {
+        if (length == 0 || Tools.minmax(input, start, length).min >= 0)
+        {
+            return new SAIS().buildBWT(input, start, length);
+        }
+
+        final ISymbolMapper mapper = DensePositiveDecorator.createMapper(input, start,
+            length);
+        mapper.map(input, start, length);
+        final BWTData bwt;
+        try
+        {
+            bwt = new SAIS().buildBWT(input, start, length);
+        }
+        finally
+        {
+            mapper.undo(input, start, length);
+        }
+        mapper.undo(bwt.getBWT(), 0, length);
+        return bwt;
+    }
+
+    /**
+     * Create the Burrows-Wheeler transform of a given input sequence of symbols, using
+     * the provided suffix array building strategy. If the builder implements
+     * {@link IBWTBuilder}, the transform is computed directly. Otherwise the suffix array
+     * is built and converted into the transform in place, so no extra memory is used
+     * beyond the suffix array itself.
+     */
+    public static BWTData createBWT(int [] input, int start, int length,
+        ISuffixArrayBuilder builder)
+    {
+        if (builder instanceof IBWTBuilder)
+        {
+            return ((IBWTBuilder) builder).buildBWT(input, start, length);
+        }
+
+        final int [] sa = builder.buildSuffixArray(input, start, length);
+        final int primaryIndex = toBWT(input, start, length, sa);
+        return new BWTData(sa, length, primaryIndex);
+    }
+
+    /**
+     * Convert a suffix array into the Burrows-Wheeler transform, in place.
+     * 
+     * @return Returns the primary index.
+     * @see BWTData
+     */
+    static int toBWT(int [] input, int start, int length, int [] sa)
+    {
+        /*
+         * Row 0 of the (virtual) sorted rotations matrix starts with the sentinel, row i + 1
+         * corresponds to suffix sa[i]. Skipping the sentinel's row shifts entries before it
+         * by one, so the conversion goes backwards (the input is read before it is
+         * overwritten).
+         */
+        int primaryIndex = 0;
+        boolean sentinel = false;
+        for (int i = length - 1; i >= 0; i--)
+        {
+            final int suffix = sa[i];
+            if (suffix == 0)
+            {
+                primaryIndex = i + 1;
+                sentinel = true;
+                continue;
+            }
+            sa[sentinel ? i + 1 : i] = input[start + suffix - 1];
+        }
+        if (length > 0)
+        {
+            sa[0] = input[start + length - 1];
+        }
+        return primaryIndex;
+    }
+
+    /**
+     * Restore the original sequence from its Burrows-Wheeler transform.
+     * 
+     * @see #inverseBWT(int[], int, int)
+     */
+    public static int [] inverseBWT(BWTData bwt)
+    {
+        return inverseBWT(bwt.getBWT(), bwt.length(), bwt.getPrimaryIndex());
+    }
+
+    /**
+     * Restore the original sequence from its Burrows-Wheeler transform (with the
+     * conventions described in {@link BWTData}), by following the <i>last-to-first</i>
+     * mapping from the sentinel's row. Requires one temporary array of
+     * <code>length + 1</code> elements (and a mapped copy of the transform if the range
+     * of symbols is large).
+     */
+    public static int [] inverseBWT(int [] bwt, int length, int primaryIndex)
+    {
+        if (length == 0) return new int [0];
+        Tools.assertAlways(primaryIndex > 0 && primaryIndex <= length,
+            "primary index out of range");
+
+        final MinMax minmax = Tools.minmax(bwt, 0, length);
+        if (minmax.range() > DensePositiveDecorator.DENSE_RANGE_LIMIT)
+        {
+            final ISymbolMapper mapper = new SparseAlphabetMapper(bwt, 0, length);
+            final int [] codes = Arrays.copyOf(bwt, length);
+            mapper.map(codes, 0, length);
+            final int [] output = inverseBWT(codes, length, primaryIndex);
+            mapper.undo(output, 0, length);
+            return output;
+        }
+        final int [] output = new int [length];
+
+        /*
+         * Starting positions of symbol buckets in the first column. Row 0 belongs to the
+         * sentinel.
+         */
+        final int min = minmax.min;
+        final int [] buckets = new int [(int) minmax.range() + 1];
+        for (int i = 0; i < length; i++)
+        {
+            buckets[bwt[i] - min]++;
+        }
+        for (int c = 0, sum = 1; c < buckets.length; c++)
+        {
+            final int count = buckets[c];
+            buckets[c] = sum;
+            sum += count;
+        }
+
+        // Last-to-first mapping for rows of the full matrix (sentinel's row excluded).
+        final int [] lf = new int [length + 1];
+        for (int row = 0; row <= length; row++)
+        {
+            if (row == primaryIndex) continue;
+            final int symbol = bwt[row < primaryIndex ? row : row - 1];
+            lf[row] = buckets[symbol - min]++;
+        }
+
+        for (int i = length - 1, row = 0; i >= 0; i--)
+        {
+            output[i] = bwt[row < primaryIndex ? row : row - 1];
+            row = lf[row];
+        }
+        return output;
+    }
+
+    /**
+     * Create suffix arrays (and optionally LCP arrays) for many character sequences at
+     * once, using the default algorithm.
+     * 
+     * @see #createAll(List, Algorithm, boolean, ExecutorService, int)
+     */
+    public static List<SuffixData> createAll(List<? extends CharSequence> inputs,
+        boolean withLCP, ExecutorService executor, int workers)
+    {
+        return createAll(inputs, Algorithm.ADAPTIVE, withLCP, executor, workers);
+    }
+
+    /**
+     * Create suffix arrays (and optionally LCP arrays) for many character sequences at
+     * once. Inputs are processed by <code>workers</code> tasks submitted to
+     * <code>executor</code>, each task taking the next unprocessed input until none are
+     * left. Every task keeps its own builder instances, {@link Workspace} and symbol
+     * buffer, so per-input setup is limited to the returned arrays.
+     * <p>
+     * Characters of each sequence are mapped to a dense alphabet
+     * <code>1...distinct</code> (preserving their order) before the suffix array is
+     * built; the constraints of <code>algorithm</code> apply to the mapped symbols.
+     * 
+     * @param withLCP If <code>false</code>, {@link SuffixData#getLCP()} of the results
+     *            is <code>null</code>.
+     * @param executor The executor to run the tasks on or <code>null</code> to process
+     *            all inputs on the calling thread.
+     * @param workers Number of tasks to process the inputs with.
+     * @return Returns the results in the order of inputs. Suffix and LCP arrays are
+     *         exactly as long as the corresponding inputs.
+     */
+    public static List<SuffixData> createAll(final List<? extends CharSequence> inputs,
+        final Algorithm algorithm, final boolean withLCP, ExecutorService executor,
+        int workers)
+    {
+        final SuffixData [] results = new SuffixData [inputs.size()];
+        runAll(results.length, executor, workers, new IBatchProcedure()
+        {
+            public void apply(BatchWorker worker, int index)
+            {
+                results[index] = worker.build(inputs.get(index));
+            }
+        }, algorithm, withLCP);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Create suffix arrays (and optionally LCP arrays) for many slices of symbols at
+     * once. Slice <code>i</code> is <code>inputs[i]</code>, starting at
+     * <code>starts[i]</code> and <code>lengths[i]</code> symbols long; the constraints of
+     * <code>algorithm</code> (trailing cells, symbol range) apply to each slice, except for
+     * {@link Algorithm#ADAPTIVE}, which accepts any input.
+     * 
+     * @see #createAll(List, Algorithm, boolean, ExecutorService, int)
+     */
+    public static List<SuffixData> createAll(final int [][] inputs, final int [] starts,
+        final int [] lengths, Algorithm algorithm, boolean withLCP,
+        ExecutorService executor, int workers)
+    {
+        Tools.assertAlways(inputs.length == starts.length
+            && inputs.length == lengths.length, "inputs, starts and lengths must be aligned");
+
+        final SuffixData [] results = new SuffixData [inputs.length];
+        runAll(results.length, executor, workers, new IBatchProcedure()
+        {
+            public void apply(BatchWorker worker, int index)
+            {
+                results[index] = worker.build(inputs[index], starts[index], lengths[index]);
+            }
+        }, algorithm, withLCP);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Apply the procedure to indexes <code>0...count-1</code>, with
+     * <code>workers</code> tasks pulling indexes from a shared counter.
+     */
+    private static void runAll(final int count, ExecutorService executor, int workers,
+        final IBatchProcedure procedure, final Algorithm algorithm, final boolean withLCP)
+    {
+        workers = Math.max(1, Math.min(workers, count));
+        if (executor == null || workers == 1)
+        {
+            final BatchWorker worker = new BatchWorker(algorithm, withLCP);
+            for (int i = 0; i < count; i++)
+            {
+                procedure.apply(worker, i);
+            }
+            return;
+        }
+
+        final AtomicInteger next = new AtomicInteger();
+        final ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int w = 0; w < workers; w++)
+        {
+            futures.add(executor.submit(new Callable<Void>()
+            {
+                public Void call()
+                {
+                    final BatchWorker worker = new BatchWorker(algorithm, withLCP);
+                    int i;
+                    while ((i = next.getAndIncrement()) < count)
+                    {
+                        procedure.apply(worker, i);
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        try
+        {
+            for (Future<Void> f : futures)
+            {
+                f.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while building suffix arrays.", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new RuntimeException("Batch construction failed.", e.getCause());
+        }
+    }
+
+    /**
+     * @return Return the default algorithm for use in other methods. At the moment
+     * {@link AdaptiveBuilder} is used (it picks the algorithm depending on the input), one
+     * instance per thread, so its algorithm instances and workspace are reused between
+     * calls. The returned builder is thread-safe.
+     */
+    static ISuffixArrayBuilder defaultAlgorithm()
+    {
+        return DEFAULT_ALGORITHM;
+    }
+
+    /**
+     * @return Return a new instance of the default algorithm for byte inputs of the given
+     * length: {@link DivSufSort}, or {@link SAIS} for inputs shorter than two bytes
+     * (which DivSufSort does not accept).
+     */
+    private static IByteSuffixArrayBuilder defaultByteAlgorithm(long length)
+    {
+        return length < 2 ? new SAIS() : new DivSufSort();
+    }
+
+    /**
+     * @return Return a new instance of the default LCP algorithm for use in other
+     * methods. At the moment {@link PhiLCP} is used.
      */
-    private static ISuffixArrayBuilder defaultAlgorithm()
+    private static ILCPBuilder defaultLCPAlgorithm()
     {
-        return new QSufSort();
+        return new PhiLCP();
     }
 
     /**
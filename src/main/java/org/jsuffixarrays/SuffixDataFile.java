@@ -0,0 +1,481 @@
+package org.jsuffixarrays;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.zip.CRC32;
+
+/**
+ * A versioned binary file format for suffix indexes (text, suffix array, LCP array and an
+ * optional inverse suffix array), designed for zero-copy loading.
+ * <p>
+ * The file starts with a fixed-size header:
+ * <ul>
+ * <li>magic number (<code>JSAF</code>), format version, flags, element width of the index
+ * sections and symbol width of the text (5 ints),</li>
+ * <li>sequence length (long),</li>
+ * <li>a table of four sections: text, suffix array, LCP, inverse suffix array (offset,
+ * byte length and CRC32 of each section; 3 longs per section),</li>
+ * <li>CRC32 of all the preceding header bytes (long).</li>
+ * </ul>
+ * All values are little-endian and every section starts at an offset aligned to
+ * {@link #ALIGNMENT} bytes. Index sections store 4-byte integers, or 8-byte longs for
+ * sequences of <code>2^31</code> symbols or more. The text takes the fewest bytes per
+ * symbol its alphabet needs: 1 or 2 (unsigned, so character sequences take at most 2), 4
+ * or 8. Elements are stored exactly as {@link BufferLongArray} reads them, so
+ * {@link #map(File, boolean)} only maps the file's regions: there is no copying and no
+ * per-element decoding.
+ */
+public final class SuffixDataFile
+{
+    /** File magic: <code>JSAF</code>. */
+    final static int MAGIC = 0x4641534a;
+
+    /** Current version of the format (version 1 had no text width). */
+    final static int VERSION = 2;
+
+    /** Section alignment (a typical memory page size). */
+    final static int ALIGNMENT = 4096;
+
+    /** Flag: the file contains an inverse suffix array. */
+    final static int FLAG_INVERSE_SA = 1;
+
+    /** Header size in bytes: 5 ints, 1 long, 4 x 3 section longs, header CRC. */
+    final static int HEADER_SIZE = 5 * 4 + 8 + 4 * 3 * 8 + 8;
+
+    private final static int TEXT = 0, SA = 1, LCP = 2, ISA = 3, SECTIONS = 4;
+
+    /** Write buffer size (in elements). */
+    private final static int BUFFER_ELEMENTS = 1 << 14;
+
+    /**
+     * A read-only {@link ILongArray} view of a slice of an <code>int[]</code>.
+     */
+    private final static class IntArrayView implements ILongArray
+    {
+        private final int [] array;
+        private final int start;
+        private final int length;
+
+        IntArrayView(int [] array, int start, int length)
+        {
+            this.array = array;
+            this.start = start;
+            this.length = length;
+        }
+
+        /*
+         * 
+         */
+        @Override
+        public long length()
+        {
+            return length;
+        }
+
+        /*
+         * 
+         */
+        @Override
+        public long get(long index)
+        {
+            return array[start + (int) index];
+        }
+
+        /*
+         * 
+         */
+        @Override
+        public void set(long index, long value)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * A read-only {@link ILongArray} view of a {@link CharSequence}.
+     */
+    private final static class CharSequenceView implements ILongArray
+    {
+        private final CharSequence text;
+
+        CharSequenceView(CharSequence text)
+        {
+            this.text = text;
+        }
+
+        /*
+         * 
+         */
+        @Override
+        public long length()
+        {
+            return text.length();
+        }
+
+        /*
+         * 
+         */
+        @Override
+        public long get(long index)
+        {
+            return text.charAt((int) index);
+        }
+
+        /*
+         * 
+         */
+        @Override
+        public void set(long index, long value)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private SuffixDataFile()
+    {
+        // no instances.
+    }
+
+    /**
+     * Save a character sequence and its suffix data.
+     * 
+     * @see #write(File, int[], int, int, SuffixData, boolean)
+     */
+    public static void write(File file, CharSequence text, SuffixData data,
+        boolean withInverse) throws IOException
+    {
+        final int length = text.length();
+        write(file, new CharSequenceView(text), 0, length, suffixData(data, length),
+            withInverse, 4);
+    }
+
+    /**
+     * Save a sequence of symbols and its suffix data.
+     * 
+     * @param file The output file (overwritten).
+     * @param input The input sequence of symbols.
+     * @param start The starting index (inclusive) in <code>input</code>.
+     * @param length Number of symbols.
+     * @param data Suffix array and LCP array for the given sequence.
+     * @param withInverse If <code>true</code>, the inverse suffix array is computed and
+     *            saved too.
+     */
+    public static void write(File file, int [] input, int start, int length,
+        SuffixData data, boolean withInverse) throws IOException
+    {
+        write(file, new IntArrayView(input, start, length), 0, length, suffixData(data,
+            length), withInverse, 4);
+    }
+
+    /**
+     * Save a long-indexed sequence of symbols and its suffix data (for example, of
+     * {@link ExternalSuffixArrayBuilder} or {@link LongSAIS}). Index sections take 8 bytes
+     * per element if the sequence is <code>2^31</code> symbols or longer.
+     * 
+     * @param data Suffix array and LCP array for the given sequence.
+     * @see #write(File, int[], int, int, SuffixData, boolean)
+     */
+    public static void write(File file, ILongArray input, long start, long length,
+        LongSuffixData data, boolean withInverse) throws IOException
+    {
+        Tools.assertAlways(data.getLCP() != null, "LCP array required");
+        Tools.assertAlways(data.getSuffixArray().length() >= length
+            && data.getLCP().length() >= length, "suffix data shorter than the input");
+        write(file, input, start, length, data, withInverse, length <= Integer.MAX_VALUE
+            ? 4 : 8);
+    }
+
+    /*
+     * 
+     */
+    private static LongSuffixData suffixData(SuffixData data, int length)
+    {
+        final int [] sa = data.getSuffixArray();
+        final int [] lcp = data.getLCP();
+        Tools.assertAlways(sa.length >= length && lcp.length >= length,
+            "suffix data shorter than the input");
+        return new LongSuffixData(new IntArrayView(sa, 0, length), new IntArrayView(lcp,
+            0, length));
+    }
+
+    /**
+     * Save an index with elements of index sections of the given width (4 or 8).
+     */
+    static void write(File file, ILongArray input, long start, long length,
+        LongSuffixData data, boolean withInverse, int width) throws IOException
+    {
+        final int textWidth = symbolWidth(input, start, length);
+
+        final long [] offsets = new long [SECTIONS];
+        final long [] sizes = new long [SECTIONS];
+        final long [] checksums = new long [SECTIONS];
+
+        long offset = align(HEADER_SIZE);
+        for (int s = 0; s < SECTIONS; s++)
+        {
+            if (s == ISA && !withInverse) continue;
+            offsets[s] = offset;
+            sizes[s] = length * (s == TEXT ? textWidth : width);
+            offset = align(offset + sizes[s]);
+        }
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try
+        {
+            raf.setLength(0);
+            final FileChannel channel = raf.getChannel();
+            final ILongArray sa = data.getSuffixArray();
+            checksums[TEXT] = writeSection(channel, offsets[TEXT], input, start, length,
+                textWidth);
+            checksums[SA] = writeSection(channel, offsets[SA], sa, 0, length, width);
+            checksums[LCP] = writeSection(channel, offsets[LCP], data.getLCP(), 0, length,
+                width);
+            if (withInverse)
+            {
+                // Permuted in place, in the mapped section (it may not fit in the heap).
+                final BufferLongArray isa = BufferLongArray.map(channel,
+                    MapMode.READ_WRITE, offsets[ISA], length, width);
+                for (long i = 0; i < length; i++)
+                {
+                    isa.set(sa.get(i), i);
+                }
+                isa.force();
+                checksums[ISA] = checksum(channel, offsets[ISA], sizes[ISA]);
+            }
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(
+                ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(withInverse ? FLAG_INVERSE_SA : 0);
+            header.putInt(width);
+            header.putInt(textWidth);
+            header.putLong(length);
+            for (int s = 0; s < SECTIONS; s++)
+            {
+                header.putLong(offsets[s]);
+                header.putLong(sizes[s]);
+                header.putLong(checksums[s]);
+            }
+            header.putLong(crc(header.array(), 0, header.position()));
+            header.flip();
+            write(channel, header, 0);
+            channel.force(true);
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+    /**
+     * Memory-map an index saved with one of the <code>write</code> methods.
+     * The header is always validated. Section checksums are only verified if requested,
+     * because it requires reading the entire file.
+     * 
+     * @throws IOException If the file cannot be read, is not a suffix index file, has an
+     *             unsupported version or fails checksum verification.
+     */
+    public static MappedSuffixData map(File file, boolean verifyChecksums)
+        throws IOException
+    {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try
+        {
+            final FileChannel channel = raf.getChannel();
+            if (channel.size() < HEADER_SIZE)
+            {
+                throw new IOException("Not a suffix index file (too short): " + file);
+            }
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(
+                ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining())
+            {
+                if (channel.read(header, header.position()) < 0)
+                {
+                    throw new IOException("Unexpected end of file: " + file);
+                }
+            }
+            header.flip();
+
+            if (header.getInt() != MAGIC)
+            {
+                throw new IOException("Not a suffix index file (magic mismatch): " + file);
+            }
+            final int version = header.getInt();
+            if (version != VERSION)
+            {
+                throw new IOException("Unsupported suffix index version " + version
+                    + " (expected " + VERSION + "): " + file);
+            }
+            final int flags = header.getInt();
+            final int width = header.getInt();
+            if (width != 4 && width != 8)
+            {
+                throw new IOException("Unsupported suffix index element width " + width
+                    + " (expected 4 or 8): " + file);
+            }
+            final int textWidth = header.getInt();
+            if (textWidth != 1 && textWidth != 2 && textWidth != 4 && textWidth != 8)
+            {
+                throw new IOException("Unsupported suffix index symbol width " + textWidth
+                    + " (expected 1, 2, 4 or 8): " + file);
+            }
+            final long length = header.getLong();
+
+            final long [] offsets = new long [SECTIONS];
+            final long [] sizes = new long [SECTIONS];
+            final long [] checksums = new long [SECTIONS];
+            for (int s = 0; s < SECTIONS; s++)
+            {
+                offsets[s] = header.getLong();
+                sizes[s] = header.getLong();
+                checksums[s] = header.getLong();
+            }
+            if (header.getLong() != crc(header.array(), 0, HEADER_SIZE - 8))
+            {
+                throw new IOException("Suffix index header checksum mismatch: " + file);
+            }
+
+            final BufferLongArray [] sections = new BufferLongArray [SECTIONS];
+            for (int s = 0; s < SECTIONS; s++)
+            {
+                if (s == ISA && (flags & FLAG_INVERSE_SA) == 0) continue;
+                final int w = (s == TEXT ? textWidth : width);
+                if (sizes[s] != length * w || offsets[s] + sizes[s] > channel.size())
+                {
+                    throw new IOException("Corrupted suffix index section " + s + ": "
+                        + file);
+                }
+                sections[s] = BufferLongArray.map(channel, MapMode.READ_ONLY, offsets[s],
+                    length, w);
+                if (verifyChecksums && checksum(channel, offsets[s], sizes[s]) != checksums[s])
+                {
+                    throw new IOException("Suffix index section " + s
+                        + " checksum mismatch: " + file);
+                }
+            }
+
+            return new MappedSuffixData(length, sections[TEXT], sections[SA],
+                sections[LCP], sections[ISA]);
+        }
+        finally
+        {
+            // Mapped buffers remain valid after the channel is closed.
+            raf.close();
+        }
+    }
+
+    /*
+     * Write a section of elements of the given width, return its CRC32.
+     */
+    private static long writeSection(FileChannel channel, long offset, ILongArray data,
+        long start, long length, int width) throws IOException
+    {
+        final CRC32 crc = new CRC32();
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_ELEMENTS * width).order(
+            ByteOrder.LITTLE_ENDIAN);
+        for (long i = 0; i < length;)
+        {
+            buffer.clear();
+            final long end = i + Math.min(BUFFER_ELEMENTS, length - i);
+            for (; i < end; i++)
+            {
+                final long v = data.get(start + i);
+                switch (width)
+                {
+                    case 8:
+                        buffer.putLong(v);
+                        break;
+                    case 4:
+                        buffer.putInt((int) v);
+                        break;
+                    case 2:
+                        buffer.putChar((char) v);
+                        break;
+                    default:
+                        buffer.put((byte) v);
+                }
+            }
+            buffer.flip();
+            crc.update(buffer.array(), 0, buffer.limit());
+            offset += write(channel, buffer, offset);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * @return Returns the fewest bytes per symbol that store a slice of a sequence: 1 or
+     *         2 (unsigned), 4 or 8 (signed).
+     */
+    static int symbolWidth(ILongArray input, long start, long length)
+    {
+        long min = 0, max = 0;
+        for (long i = start; i < start + length; i++)
+        {
+            final long v = input.get(i);
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+
+        if (min >= 0 && max <= 0xff) return 1;
+        if (min >= 0 && max <= 0xffff) return 2;
+        if (min >= Integer.MIN_VALUE && max <= Integer.MAX_VALUE) return 4;
+        return 8;
+    }
+
+    /*
+     * Compute the CRC32 of a region of the file.
+     */
+    private static long checksum(FileChannel channel, long offset, long size)
+        throws IOException
+    {
+        final CRC32 crc = new CRC32();
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_ELEMENTS * 4);
+        for (long remaining = size; remaining > 0;)
+        {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), remaining));
+            while (buffer.hasRemaining())
+            {
+                if (channel.read(buffer, offset + buffer.position()) < 0)
+                {
+                    throw new IOException("Unexpected end of file.");
+                }
+            }
+            crc.update(buffer.array(), 0, buffer.limit());
+            offset += buffer.limit();
+            remaining -= buffer.limit();
+        }
+        return crc.getValue();
+    }
+
+    private static int write(FileChannel channel, ByteBuffer buffer, long offset)
+        throws IOException
+    {
+        final int size = buffer.remaining();
+        while (buffer.hasRemaining())
+        {
+            offset += channel.write(buffer, offset);
+        }
+        return size;
+    }
+
+    private static long crc(byte [] bytes, int offset, int length)
+    {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return crc.getValue();
+    }
+
+    private static long align(long offset)
+    {
+        return (offset + ALIGNMENT - 1) & ~(long) (ALIGNMENT - 1);
+    }
+}
@@ -0,0 +1,104 @@
+package org.jsuffixarrays;
+
+import com.google.common.base.Supplier;
+
+/**
+ * A thread-safe {@link ISuffixArrayBuilder} for builders that keep per-build state in
+ * instance fields (for example {@link DivSufSort}, {@link QSufSort}, {@link BPR} or
+ * {@link DeepShallow}). Each calling thread gets its own instance of the delegate, created
+ * on first use and reused for subsequent calls, so a single instance of this class can be
+ * shared by any number of threads.
+ * <p>
+ * If the delegate implements {@link IWorkspaceSuffixArrayBuilder}, each thread also keeps a
+ * {@link Workspace} so that scratch arrays are reused between calls, up to the retention
+ * limit given in the constructor.
+ *
+ * @see Algorithm#getThreadSafeInstance()
+ */
+public final class ThreadLocalBuilder implements ISuffixArrayBuilder
+{
+    /** Default per-thread workspace retention limit (bytes). */
+    public final static long DEFAULT_RETAINED_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * Per-thread state.
+     */
+    private final static class Slot
+    {
+        final ISuffixArrayBuilder builder;
+        final Workspace workspace;
+
+        Slot(ISuffixArrayBuilder builder, Workspace workspace)
+        {
+            this.builder = builder;
+            this.workspace = workspace;
+        }
+    }
+
+    private final ThreadLocal<Slot> slots;
+
+    /**
+     * @param factory Creates a new delegate instance for each thread.
+     */
+    public ThreadLocalBuilder(Supplier<? extends ISuffixArrayBuilder> factory)
+    {
+        this(factory, DEFAULT_RETAINED_BYTES);
+    }
+
+    /**
+     * @param factory Creates a new delegate instance for each thread.
+     * @param maxRetainedBytes The retention limit of each thread's {@link Workspace}.
+     */
+    public ThreadLocalBuilder(final Supplier<? extends ISuffixArrayBuilder> factory,
+        final long maxRetainedBytes)
+    {
+        this.slots = new ThreadLocal<Slot>()
+        {
+            @Override
+            protected Slot initialValue()
+            {
+                final ISuffixArrayBuilder builder = factory.get();
+                return new Slot(builder,
+                    builder instanceof IWorkspaceSuffixArrayBuilder ? new Workspace(
+                        maxRetainedBytes) : null);
+            }
+        };
+    }
+
+    /*
+     *
+     */
+    @Override
+    public int [] buildSuffixArray(int [] input, int start, int length)
+    {
+        final Slot slot = slots.get();
+        if (slot.workspace != null)
+        {
+            return ((IWorkspaceSuffixArrayBuilder) slot.builder).buildSuffixArray(input,
+                start, length, null, slot.workspace);
+        }
+        return slot.builder.buildSuffixArray(input, start, length);
+    }
+
+    /**
+     * Same as {@link IWorkspaceSuffixArrayBuilder#buildSuffixArray(int[], int, int, int[], Workspace)}
+     * with the calling thread's workspace. Falls back to a copy of
+     * {@link #buildSuffixArray(int[], int, int)} if the delegate does not support
+     * workspaces.
+     *
+     * @param output The output array, at least <code>length</code> elements long.
+     */
+    public int [] buildSuffixArray(int [] input, int start, int length, int [] output)
+    {
+        final Slot slot = slots.get();
+        if (slot.workspace != null)
+        {
+            return ((IWorkspaceSuffixArrayBuilder) slot.builder).buildSuffixArray(input,
+                start, length, output, slot.workspace);
+        }
+
+        final int [] sa = slot.builder.buildSuffixArray(input, start, length);
+        System.arraycopy(sa, 0, output, 0, length);
+        return output;
+    }
+}
@@ -1,10 +1,29 @@
 package org.jsuffixarrays;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
 /**
  * Utility methods used throughout entire project.
  */
 final class Tools
 {
+    /**
+     * A procedure applied to a contiguous range of indices.
+     * 
+     * @see Tools#parallelFor(ForkJoinPool, int, int, int, IRangeProcedure)
+     */
+    interface IRangeProcedure
+    {
+        /**
+         * @param chunk Sequential number of the chunk (from zero).
+         * @param from Start index (inclusive).
+         * @param to End index (exclusive).
+         */
+        void apply(int chunk, int from, int to);
+    }
+
     private Tools()
     {
         // No instances.
@@ -90,6 +109,28 @@ final class Tools
         return new MinMax(min, max);
     }
 
+    /**
+     * @return Returns the characters of a sequence as symbols of a new array.
+     */
+    static int [] toArray(CharSequence s)
+    {
+        return toArray(s, 0);
+    }
+
+    /**
+     * @return Returns the characters of a sequence as symbols of a new array, followed by
+     *         <code>extraSpace</code> zeros.
+     */
+    static int [] toArray(CharSequence s, int extraSpace)
+    {
+        final int [] array = new int [s.length() + extraSpace];
+        for (int i = s.length() - 1; i >= 0; i--)
+        {
+            array[i] = s.charAt(i);
+        }
+        return array;
+    }
+
     /**
      * Throw {@link AssertionError} if a condition is <code>false</code>. This should
      * be called when the assertion must be always verified (as in the case of verifying
@@ -104,4 +145,52 @@ final class Tools
             throw new AssertionError(msg);
         }
     }
+
+    /**
+     * Split <code>[from, to)</code> into <code>chunks</code> contiguous, roughly
+     * equal ranges and apply the procedure to each of them in <code>pool</code>. Returns
+     * when all chunks have been processed. If <code>pool</code> is <code>null</code> or
+     * there is just one chunk, the procedure is applied in the calling thread.
+     */
+    static void parallelFor(ForkJoinPool pool, final int from, final int to,
+        final int chunks, final IRangeProcedure procedure)
+    {
+        if (pool == null || chunks <= 1 || to - from < chunks)
+        {
+            procedure.apply(0, from, to);
+            return;
+        }
+
+        final RecursiveAction [] tasks = new RecursiveAction [chunks];
+        for (int c = 0; c < chunks; c++)
+        {
+            final int chunk = c;
+            final int a = from + (int) ((long) (to - from) * c / chunks);
+            final int b = from + (int) ((long) (to - from) * (c + 1) / chunks);
+            tasks[c] = new RecursiveAction()
+            {
+                @Override
+                protected void compute()
+                {
+                    procedure.apply(chunk, a, b);
+                }
+            };
+        }
+
+        if (ForkJoinTask.getPool() == pool)
+        {
+            ForkJoinTask.invokeAll(tasks);
+        }
+        else
+        {
+            pool.invoke(new RecursiveAction()
+            {
+                @Override
+                protected void compute()
+                {
+                    invokeAll(tasks);
+                }
+            });
+        }
+    }
 }
@@ -1,14 +1,24 @@
 package org.jsuffixarrays;
 
 import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntStack;
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongStack;
 
 /**
  * Suffix array traversal routines (emulating corresponding suffix tree traversals).
  */
 public final class Traversals
 {
+    /** Minimum sequence length for which parallel traversals split the work. */
+    final static int PARALLEL_THRESHOLD = 1 << 16;
+
+    /** Number of chunks per thread of the pool in parallel traversals. */
+    private final static int CHUNKS_PER_THREAD = 4;
+
     /**
      * Visitor interface for post-order traversal methods in {@link Traversals}.
      */
@@ -25,6 +35,19 @@ public final class Traversals
         public void visitNode(int start, int length, boolean leaf);
     }
 
+    /**
+     * Visitor interface for post-order traversal of long-indexed suffix arrays.
+     * 
+     * @see Traversals#postorder(long, ILongArray, ILongArray, ILongPostOrderVisitor)
+     */
+    public interface ILongPostOrderVisitor
+    {
+        /**
+         * @see IPostOrderVisitor#visitNode(int, int, boolean)
+         */
+        public void visitNode(long start, long length, boolean leaf);
+    }
+
     /**
      * Visitor interface for post-order traversal methods that compute an aggregated value
      * during the traversal.
@@ -59,6 +82,89 @@ public final class Traversals
         public void visitNode(int start, int length, boolean leaf, E value);
     }
 
+    /**
+     * A computing visitor with primitive <code>int</code> values (no boxing).
+     * 
+     * @see IPostOrderComputingVisitor
+     * @see Traversals#postorder(int, int[], int[], int, IPostOrderIntComputingVisitor)
+     */
+    public interface IPostOrderIntComputingVisitor
+    {
+        /**
+         * @see IPostOrderComputingVisitor#aggregate(Object, Object)
+         */
+        public int aggregate(int value1, int value2);
+
+        /**
+         * @see IPostOrderComputingVisitor#leafValue(int, int, int)
+         */
+        public int leafValue(int saIndex, int symbolIndex, int length);
+
+        /**
+         * @see IPostOrderComputingVisitor#visitNode(int, int, boolean, Object)
+         */
+        public void visitNode(int start, int length, boolean leaf, int value);
+    }
+
+    /**
+     * A computing visitor with primitive <code>long</code> values (no boxing).
+     * 
+     * @see IPostOrderComputingVisitor
+     * @see Traversals#postorder(int, int[], int[], long, IPostOrderLongComputingVisitor)
+     */
+    public interface IPostOrderLongComputingVisitor
+    {
+        /**
+         * @see IPostOrderComputingVisitor#aggregate(Object, Object)
+         */
+        public long aggregate(long value1, long value2);
+
+        /**
+         * @see IPostOrderComputingVisitor#leafValue(int, int, int)
+         */
+        public long leafValue(int saIndex, int symbolIndex, int length);
+
+        /**
+         * @see IPostOrderComputingVisitor#visitNode(int, int, boolean, Object)
+         */
+        public void visitNode(int start, int length, boolean leaf, long value);
+    }
+
+    /**
+     * A computing visitor with several <code>long</code> counters per node (for example
+     * leaf counts and symbol frequencies), stored in primitive arrays, one per counter.
+     * 
+     * @see IPostOrderComputingVisitor
+     * @see Traversals#postorder(int, int[], int[], long[],
+     *      IPostOrderMultiComputingVisitor)
+     */
+    public interface IPostOrderMultiComputingVisitor
+    {
+        /**
+         * Aggregate two values of a counter.
+         * 
+         * @see IPostOrderComputingVisitor#aggregate(Object, Object)
+         */
+        public long aggregate(int counter, long value1, long value2);
+
+        /**
+         * Compute initial values of all counters for a leaf node.
+         * 
+         * @param values Output array for the values, one per counter.
+         * @see IPostOrderComputingVisitor#leafValue(int, int, int)
+         */
+        public void leafValues(int saIndex, int symbolIndex, int length, long [] values);
+
+        /**
+         * Visits a node in the (virtual) suffix tree.
+         * 
+         * @param values Aggregated values of all counters for all sub-nodes of the given
+         *            node. The array is reused and valid only during this call.
+         * @see IPostOrderComputingVisitor#visitNode(int, int, boolean, Object)
+         */
+        public void visitNode(int start, int length, boolean leaf, long [] values);
+    }
+
     /**
      * <p>
      * Post-order traversal of all branching nodes in a suffix tree (emulated using a
@@ -192,4 +298,764 @@ public final class Traversals
             }
         }
     }
+
+    /**
+     * Post-order traversal with aggregation of primitive <code>int</code> values. Node
+     * entries and their values share a single primitive stack, so the traversal does not
+     * allocate anything except for growing the stack.
+     * 
+     * @see #postorder(int, int[], int[], Object, IPostOrderComputingVisitor)
+     */
+    public static void postorder(final int sequenceLength, int [] sa, int [] lcp,
+        int epsilon, IPostOrderIntComputingVisitor visitor)
+    {
+        assert sequenceLength <= sa.length && sequenceLength <= lcp.length : "Input sequence length larger than suffix array or the LCP.";
+
+        // Entries of (index, height, value).
+        final IntStack stack = new IntStack();
+
+        // Push the stack bottom marker (sentinel).
+        stack.push(-1, -1, epsilon);
+
+        // Process every leaf.
+        int top_h;
+        for (int i = 0; i <= sequenceLength; i++)
+        {
+            final int h = (sequenceLength == i ? -1 : lcp[i]);
+            int ci = epsilon;
+
+            while (true)
+            {
+                final int size = stack.size();
+                top_h = stack.get(size - 2);
+                if (top_h <= h) break;
+
+                // Visit the node and remove it from the end of the stack.
+                final int top_i = stack.get(size - 3);
+                final boolean leaf = (top_i < 0);
+                ci = visitor.aggregate(stack.get(size - 1), ci);
+                stack.discard(3);
+
+                visitor.visitNode(sa[leaf ? -(top_i + 1) : top_i], top_h, leaf, ci);
+            }
+
+            if (top_h < h)
+            {
+                stack.push(i, h, ci);
+            }
+            else
+            {
+                assert top_h == h;
+                final int index = stack.size() - 1;
+                stack.set(index, visitor.aggregate(ci, stack.get(index)));
+            }
+
+            if (i < sequenceLength)
+            {
+                // Mark leaf nodes in the stack.
+                final int length = sequenceLength - sa[i];
+                stack.push(-(i + 1), length, visitor.leafValue(i, sa[i], length));
+            }
+        }
+    }
+
+    /**
+     * Post-order traversal with aggregation of primitive <code>long</code> values.
+     * 
+     * @see #postorder(int, int[], int[], int, IPostOrderIntComputingVisitor)
+     */
+    public static void postorder(final int sequenceLength, int [] sa, int [] lcp,
+        long epsilon, IPostOrderLongComputingVisitor visitor)
+    {
+        assert sequenceLength <= sa.length && sequenceLength <= lcp.length : "Input sequence length larger than suffix array or the LCP.";
+
+        // Entries of (index, height, value).
+        final LongStack stack = new LongStack();
+
+        // Push the stack bottom marker (sentinel).
+        stack.push(-1, -1, epsilon);
+
+        // Process every leaf.
+        int top_h;
+        for (int i = 0; i <= sequenceLength; i++)
+        {
+            final int h = (sequenceLength == i ? -1 : lcp[i]);
+            long ci = epsilon;
+
+            while (true)
+            {
+                final int size = stack.size();
+                top_h = (int) stack.get(size - 2);
+                if (top_h <= h) break;
+
+                // Visit the node and remove it from the end of the stack.
+                final int top_i = (int) stack.get(size - 3);
+                final boolean leaf = (top_i < 0);
+                ci = visitor.aggregate(stack.get(size - 1), ci);
+                stack.discard(3);
+
+                visitor.visitNode(sa[leaf ? -(top_i + 1) : top_i], top_h, leaf, ci);
+            }
+
+            if (top_h < h)
+            {
+                stack.push(i, h, ci);
+            }
+            else
+            {
+                assert top_h == h;
+                final int index = stack.size() - 1;
+                stack.set(index, visitor.aggregate(ci, stack.get(index)));
+            }
+
+            if (i < sequenceLength)
+            {
+                // Mark leaf nodes in the stack.
+                final int length = sequenceLength - sa[i];
+                stack.push(-(i + 1), length, visitor.leafValue(i, sa[i], length));
+            }
+        }
+    }
+
+    /**
+     * Post-order traversal with aggregation of several primitive <code>long</code>
+     * counters. Values of every counter are kept in a separate primitive stack, parallel
+     * to the stack of node entries.
+     * 
+     * @param epsilon "Zero" values (epsilon) of all counters, its length is the number of
+     *            counters.
+     * @see #postorder(int, int[], int[], int, IPostOrderIntComputingVisitor)
+     */
+    public static void postorder(final int sequenceLength, int [] sa, int [] lcp,
+        long [] epsilon, IPostOrderMultiComputingVisitor visitor)
+    {
+        assert sequenceLength <= sa.length && sequenceLength <= lcp.length : "Input sequence length larger than suffix array or the LCP.";
+
+        final int counters = epsilon.length;
+        final IntStack stack = new IntStack();
+        final LongStack [] values = new LongStack [counters];
+        final long [] ci = new long [counters];
+        for (int k = 0; k < counters; k++)
+        {
+            values[k] = new LongStack();
+        }
+
+        // Push the stack bottom marker (sentinel).
+        stack.push(-1, -1);
+        for (int k = 0; k < counters; k++)
+        {
+            values[k].push(epsilon[k]);
+        }
+
+        // Process every leaf.
+        int top_h;
+        for (int i = 0; i <= sequenceLength; i++)
+        {
+            final int h = (sequenceLength == i ? -1 : lcp[i]);
+            System.arraycopy(epsilon, 0, ci, 0, counters);
+
+            while (true)
+            {
+                top_h = stack.get(stack.size() - 1);
+                if (top_h <= h) break;
+
+                // Visit the node and remove it from the end of the stack.
+                final int top_i = stack.get(stack.size() - 2);
+                final boolean leaf = (top_i < 0);
+                stack.discard(2);
+                for (int k = 0; k < counters; k++)
+                {
+                    ci[k] = visitor.aggregate(k, values[k].pop(), ci[k]);
+                }
+
+                visitor.visitNode(sa[leaf ? -(top_i + 1) : top_i], top_h, leaf, ci);
+            }
+
+            if (top_h < h)
+            {
+                stack.push(i, h);
+                for (int k = 0; k < counters; k++)
+                {
+                    values[k].push(ci[k]);
+                }
+            }
+            else
+            {
+                assert top_h == h;
+                for (int k = 0; k < counters; k++)
+                {
+                    final int index = values[k].size() - 1;
+                    values[k].set(index, visitor.aggregate(k, ci[k], values[k].get(index)));
+                }
+            }
+
+            if (i < sequenceLength)
+            {
+                // Mark leaf nodes in the stack.
+                final int length = sequenceLength - sa[i];
+                stack.push(-(i + 1), length);
+                visitor.leafValues(i, sa[i], length, ci);
+                for (int k = 0; k < counters; k++)
+                {
+                    values[k].push(ci[k]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parallel post-order traversal.
+     * 
+     * @see #postorder(ForkJoinPool, int, int[], int[], Object, IPostOrderComputingVisitor)
+     */
+    public static void postorder(ForkJoinPool pool, final int sequenceLength, int [] sa,
+        int [] lcp, final IPostOrderVisitor visitor)
+    {
+        postorder(pool, sequenceLength, sa, lcp, null,
+            new IPostOrderComputingVisitor<Object>()
+            {
+                public Object aggregate(Object value1, Object value2)
+                {
+                    return null;
+                }
+
+                public Object leafValue(int saIndex, int symbolIndex, int length)
+                {
+                    return null;
+                }
+
+                public void visitNode(int start, int length, boolean leaf, Object value)
+                {
+                    visitor.visitNode(start, length, leaf);
+                }
+            });
+    }
+
+    /**
+     * <p>
+     * Parallel post-order traversal with aggregation. The suffix array is cut into chunks,
+     * at the smallest LCP values near equally spaced positions (so chunks are mostly
+     * whole subtrees), and every chunk is traversed on the pool with its own stack. Nodes
+     * within a chunk are visited there; the remaining work for nodes spanning several
+     * chunks (the bottom of a chunk's stack and the stack operations that reach below it)
+     * is recorded and replayed on one thread, in chunk order, once all chunks are done.
+     * <p>
+     * The same nodes are visited with the same leaf flags and values as in
+     * {@link #postorder(int, int[], int[], Object, IPostOrderComputingVisitor)}, and each
+     * value is aggregated in the same order, so the aggregation function need not be
+     * symmetric. Every node is still visited after all of its descendants, but nodes in
+     * different chunks are visited in no particular order and concurrently: the visitor
+     * must be thread-safe. Inputs shorter than {@link #PARALLEL_THRESHOLD} (or with no
+     * pool) are traversed on the calling thread.
+     * 
+     * @param pool The pool to run the traversal in or <code>null</code>.
+     * @see #postorder(int, int[], int[], Object, IPostOrderComputingVisitor)
+     */
+    public static <E> void postorder(ForkJoinPool pool, final int sequenceLength,
+        final int [] sa, final int [] lcp, final E epsilon,
+        final IPostOrderComputingVisitor<E> visitor)
+    {
+        assert sequenceLength <= sa.length && sequenceLength <= lcp.length : "Input sequence length larger than suffix array or the LCP.";
+
+        final int chunks = chunks(pool, sequenceLength);
+        if (chunks <= 1)
+        {
+            postorder(sequenceLength, sa, lcp, epsilon, visitor);
+            return;
+        }
+        postorder(pool, chunks, sequenceLength, lcp, new ObjectPartialTraversal<E>(
+            sequenceLength, sa, lcp, epsilon, visitor));
+    }
+
+    /**
+     * Parallel post-order traversal with aggregation of primitive <code>long</code>
+     * values: values are kept in primitive stacks, so, unlike
+     * {@link #postorder(ForkJoinPool, int, int[], int[], Object, IPostOrderComputingVisitor)}
+     * , the traversal does not box them.
+     * 
+     * @see #postorder(ForkJoinPool, int, int[], int[], Object, IPostOrderComputingVisitor)
+     */
+    public static void postorder(ForkJoinPool pool, final int sequenceLength,
+        final int [] sa, final int [] lcp, final long epsilon,
+        final IPostOrderLongComputingVisitor visitor)
+    {
+        assert sequenceLength <= sa.length && sequenceLength <= lcp.length : "Input sequence length larger than suffix array or the LCP.";
+
+        final int chunks = chunks(pool, sequenceLength);
+        if (chunks <= 1)
+        {
+            postorder(sequenceLength, sa, lcp, epsilon, visitor);
+            return;
+        }
+        postorder(pool, chunks, sequenceLength, lcp, new LongPartialTraversal(
+            sequenceLength, sa, lcp, epsilon, visitor));
+    }
+
+    /**
+     * Parallel post-order traversal with aggregation of primitive <code>int</code>
+     * values (carried as <code>long</code> values between chunks, without boxing).
+     * 
+     * @see #postorder(ForkJoinPool, int, int[], int[], long, IPostOrderLongComputingVisitor)
+     */
+    public static void postorder(ForkJoinPool pool, final int sequenceLength,
+        final int [] sa, final int [] lcp, final int epsilon,
+        final IPostOrderIntComputingVisitor visitor)
+    {
+        if (chunks(pool, sequenceLength) <= 1)
+        {
+            postorder(sequenceLength, sa, lcp, epsilon, visitor);
+            return;
+        }
+        postorder(pool, sequenceLength, sa, lcp, (long) epsilon,
+            new IPostOrderLongComputingVisitor()
+            {
+                public long aggregate(long value1, long value2)
+                {
+                    return visitor.aggregate((int) value1, (int) value2);
+                }
+
+                public long leafValue(int saIndex, int symbolIndex, int length)
+                {
+                    return visitor.leafValue(saIndex, symbolIndex, length);
+                }
+
+                public void visitNode(int start, int length, boolean leaf, long value)
+                {
+                    visitor.visitNode(start, length, leaf, (int) value);
+                }
+            });
+    }
+
+    /**
+     * @return Returns the number of chunks of a parallel traversal (1 for a sequential
+     *         traversal).
+     */
+    private static int chunks(ForkJoinPool pool, int sequenceLength)
+    {
+        return (pool == null || sequenceLength < PARALLEL_THRESHOLD ? 1 : pool
+            .getParallelism()
+            * CHUNKS_PER_THREAD);
+    }
+
+    /**
+     * Cut the suffix array into chunks, traverse them on the pool with copies of
+     * <code>bottom</code> and replay their operations on <code>bottom</code>.
+     */
+    private static void postorder(ForkJoinPool pool, final int chunks,
+        int sequenceLength, int [] lcp, final PartialTraversal bottom)
+    {
+        // Move every cut to the smallest LCP value in a window around it.
+        final int [] cuts = new int [chunks + 1];
+        final int window = sequenceLength / chunks / 4;
+        for (int c = 1; c < chunks; c++)
+        {
+            final int target = (int) ((long) sequenceLength * c / chunks);
+            final int from = Math.max(cuts[c - 1] + 1, target - window);
+            final int to = Math.min(sequenceLength - 1, target + window);
+            int cut = from;
+            for (int i = from + 1; i <= to; i++)
+            {
+                if (lcp[i] < lcp[cut]) cut = i;
+            }
+            cuts[c] = cut;
+        }
+        cuts[chunks] = sequenceLength;
+
+        final PartialTraversal [] partials = new PartialTraversal [chunks];
+        Tools.parallelFor(pool, 0, chunks, chunks, new Tools.IRangeProcedure()
+        {
+            public void apply(int chunk, int from, int to)
+            {
+                for (int c = from; c < to; c++)
+                {
+                    partials[c] = bottom.newPartial();
+                    partials[c].traverse(cuts[c], cuts[c + 1]);
+                }
+            }
+        });
+
+        // Replay the chunks' operations on the bottom of the stack.
+        bottom.pushBottom();
+        for (PartialTraversal partial : partials)
+        {
+            bottom.replay(partial);
+        }
+    }
+
+    /**
+     * Post-order traversal of all branching nodes in a suffix tree emulated using a
+     * long-indexed suffix array and LCP array (these can be stored off-heap or in
+     * memory-mapped files, see {@link BufferLongArray}).
+     * 
+     * @see #postorder(int, int[], int[], IPostOrderVisitor)
+     */
+    public static void postorder(final long sequenceLength, ILongArray sa, ILongArray lcp,
+        ILongPostOrderVisitor visitor)
+    {
+        assert sequenceLength <= sa.length() && sequenceLength <= lcp.length() : "Input sequence length larger than suffix array or the LCP.";
+
+        final LongStack stack = new LongStack();
+
+        // Push the stack bottom marker (sentinel).
+        stack.push(-1, -1);
+
+        // Process every leaf.
+        long top_h;
+        for (long i = 0; i <= sequenceLength; i++)
+        {
+            final long h = (sequenceLength == i ? -1 : lcp.get(i));
+
+            while (true)
+            {
+                top_h = stack.get(stack.size() - 1);
+                if (top_h <= h) break;
+
+                // Visit the node and remove it from the end of the stack.
+                final long top_i = stack.get(stack.size() - 2);
+                final boolean leaf = (top_i < 0);
+                stack.discard(2);
+
+                visitor.visitNode(sa.get(leaf ? -(top_i + 1) : top_i), top_h, leaf);
+            }
+
+            if (top_h < h)
+            {
+                stack.push(i, h);
+            }
+
+            if (i < sequenceLength)
+            {
+                // Mark leaf nodes in the stack.
+                stack.push(-(i + 1), sequenceLength - sa.get(i));
+            }
+        }
+    }
+
+    /**
+     * Traversal of a chunk of the suffix array, for the parallel <code>postorder</code>
+     * methods. Nodes on the chunk's own stack are visited as in the sequential traversal;
+     * iterations that find this stack empty would continue on the stack of the preceding
+     * chunks and are recorded as (index, height, value) events instead. Subclasses keep
+     * the values (parallel to the stack of entries) and the value carried by the current
+     * iteration.
+     */
+    private abstract static class PartialTraversal
+    {
+        final int sequenceLength;
+        final int [] sa;
+        final int [] lcp;
+
+        /** The stack of (index, height) entries. */
+        final IntStack stack = new IntStack();
+
+        /** Recorded (index, height) events. */
+        final IntArrayList events = new IntArrayList();
+
+        PartialTraversal(int sequenceLength, int [] sa, int [] lcp)
+        {
+            this.sequenceLength = sequenceLength;
+            this.sa = sa;
+            this.lcp = lcp;
+        }
+
+        /**
+         * @return Returns an empty traversal with the same input and visitor.
+         */
+        abstract PartialTraversal newPartial();
+
+        /** Set the carried value to epsilon. */
+        abstract void resetValue();
+
+        /** Set the carried value to the value of event <code>k</code> of a traversal. */
+        abstract void loadEvent(PartialTraversal other, int k);
+
+        /** Record the carried value as the value of a new event. */
+        abstract void recordEvent();
+
+        /** Push the carried value. */
+        abstract void pushValue();
+
+        /** Push a leaf's value. */
+        abstract void pushLeafValue(int saIndex, int symbolIndex, int length);
+
+        /** Pop the top value and aggregate the carried value into it (the result). */
+        abstract void popAndAggregate();
+
+        /** Aggregate the carried value into the top value. */
+        abstract void aggregateIntoTop();
+
+        /** Visit a node with the carried value. */
+        abstract void visit(int start, int length, boolean leaf);
+
+        /** Push all values of another traversal. */
+        abstract void pushValues(PartialTraversal other);
+
+        /**
+         * Push the sentinel entry (with epsilon) of the bottom of the stack.
+         */
+        void pushBottom()
+        {
+            stack.push(-1, -1);
+            resetValue();
+            pushValue();
+        }
+
+        /**
+         * Traverse suffixes <code>[from, to)</code>, including the final iteration if
+         * <code>to</code> is the end of the suffix array.
+         */
+        void traverse(int from, int to)
+        {
+            final int last = (to == sequenceLength ? to : to - 1);
+            for (int i = from; i <= last; i++)
+            {
+                final int h = (sequenceLength == i ? -1 : lcp[i]);
+                resetValue();
+                visitAbove(h);
+
+                if (stack.size() == 0)
+                {
+                    events.add(i, h);
+                    recordEvent();
+                }
+                else
+                {
+                    pushOrAggregate(i, h);
+                }
+
+                if (i < sequenceLength)
+                {
+                    // Mark leaf nodes in the stack.
+                    stack.push(-(i + 1), sequenceLength - sa[i]);
+                    pushLeafValue(i, sa[i], sequenceLength - sa[i]);
+                }
+            }
+        }
+
+        /**
+         * Apply the events of the next chunk to this stack and push its remaining
+         * entries.
+         */
+        void replay(PartialTraversal next)
+        {
+            for (int k = 0; k < next.events.size() / 2; k++)
+            {
+                final int h = next.events.get(2 * k + 1);
+                loadEvent(next, k);
+                visitAbove(h);
+                pushOrAggregate(next.events.get(2 * k), h);
+            }
+            for (int k = 0; k < next.stack.size(); k++)
+            {
+                stack.push(next.stack.get(k));
+            }
+            pushValues(next);
+        }
+
+        /**
+         * Visit and remove the entries higher than <code>h</code>, aggregating their
+         * values with the carried value.
+         */
+        private void visitAbove(int h)
+        {
+            while (stack.size() > 0)
+            {
+                final int top_h = stack.get(stack.size() - 1);
+                if (top_h <= h) break;
+
+                // Visit the node and remove it from the end of the stack.
+                final int top_i = stack.get(stack.size() - 2);
+                final boolean leaf = (top_i < 0);
+                stack.discard(2);
+
+                popAndAggregate();
+                visit(sa[leaf ? -(top_i + 1) : top_i], top_h, leaf);
+            }
+        }
+
+        private void pushOrAggregate(int i, int h)
+        {
+            final int top_h = stack.get(stack.size() - 1);
+            if (top_h < h)
+            {
+                stack.push(i, h);
+                pushValue();
+            }
+            else
+            {
+                assert top_h == h;
+                aggregateIntoTop();
+            }
+        }
+    }
+
+    /**
+     * A partial traversal with object values.
+     */
+    private final static class ObjectPartialTraversal<E> extends PartialTraversal
+    {
+        final E epsilon;
+        final IPostOrderComputingVisitor<E> visitor;
+
+        final ArrayList<E> values = new ArrayList<E>();
+        final ArrayList<E> eventValues = new ArrayList<E>();
+        E ci;
+
+        ObjectPartialTraversal(int sequenceLength, int [] sa, int [] lcp, E epsilon,
+            IPostOrderComputingVisitor<E> visitor)
+        {
+            super(sequenceLength, sa, lcp);
+            this.epsilon = epsilon;
+            this.visitor = visitor;
+        }
+
+        @Override
+        PartialTraversal newPartial()
+        {
+            return new ObjectPartialTraversal<E>(sequenceLength, sa, lcp, epsilon, visitor);
+        }
+
+        @Override
+        void resetValue()
+        {
+            ci = epsilon;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void loadEvent(PartialTraversal other, int k)
+        {
+            ci = ((ObjectPartialTraversal<E>) other).eventValues.get(k);
+        }
+
+        @Override
+        void recordEvent()
+        {
+            eventValues.add(ci);
+        }
+
+        @Override
+        void pushValue()
+        {
+            values.add(ci);
+        }
+
+        @Override
+        void pushLeafValue(int saIndex, int symbolIndex, int length)
+        {
+            values.add(visitor.leafValue(saIndex, symbolIndex, length));
+        }
+
+        @Override
+        void popAndAggregate()
+        {
+            ci = visitor.aggregate(values.remove(values.size() - 1), ci);
+        }
+
+        @Override
+        void aggregateIntoTop()
+        {
+            final int index = values.size() - 1;
+            values.set(index, visitor.aggregate(ci, values.get(index)));
+        }
+
+        @Override
+        void visit(int start, int length, boolean leaf)
+        {
+            visitor.visitNode(start, length, leaf, ci);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void pushValues(PartialTraversal other)
+        {
+            values.addAll(((ObjectPartialTraversal<E>) other).values);
+        }
+    }
+
+    /**
+     * A partial traversal with primitive <code>long</code> values.
+     */
+    private final static class LongPartialTraversal extends PartialTraversal
+    {
+        final long epsilon;
+        final IPostOrderLongComputingVisitor visitor;
+
+        final LongStack values = new LongStack();
+        final LongArrayList eventValues = new LongArrayList();
+        long ci;
+
+        LongPartialTraversal(int sequenceLength, int [] sa, int [] lcp, long epsilon,
+            IPostOrderLongComputingVisitor visitor)
+        {
+            super(sequenceLength, sa, lcp);
+            this.epsilon = epsilon;
+            this.visitor = visitor;
+        }
+
+        @Override
+        PartialTraversal newPartial()
+        {
+            return new LongPartialTraversal(sequenceLength, sa, lcp, epsilon, visitor);
+        }
+
+        @Override
+        void resetValue()
+        {
+            ci = epsilon;
+        }
+
+        @Override
+        void loadEvent(PartialTraversal other, int k)
+        {
+            ci = ((LongPartialTraversal) other).eventValues.get(k);
+        }
+
+        @Override
+        void recordEvent()
+        {
+            eventValues.add(ci);
+        }
+
+        @Override
+        void pushValue()
+        {
+            values.push(ci);
+        }
+
+        @Override
+        void pushLeafValue(int saIndex, int symbolIndex, int length)
+        {
+            values.push(visitor.leafValue(saIndex, symbolIndex, length));
+        }
+
+        @Override
+        void popAndAggregate()
+        {
+            ci = visitor.aggregate(values.pop(), ci);
+        }
+
+        @Override
+        void aggregateIntoTop()
+        {
+            final int index = values.size() - 1;
+            values.set(index, visitor.aggregate(ci, values.get(index)));
+        }
+
+        @Override
+        void visit(int start, int length, boolean leaf)
+        {
+            visitor.visitNode(start, length, leaf, ci);
+        }
+
+        @Override
+        void pushValues(PartialTraversal other)
+        {
+            final LongStack next = ((LongPartialTraversal) other).values;
+            for (int k = 0; k < next.size(); k++)
+            {
+                values.push(next.get(k));
+            }
+        }
+    }
 }
@@ -0,0 +1,118 @@
+package org.jsuffixarrays;
+
+/**
+ * A wavelet matrix over a sequence of symbols from <code>[0, sigma)</code>, supporting
+ * <code>access</code> and <code>rank</code> in <code>O(log sigma)</code> time. Takes
+ * <code>n * ceil(log2(sigma))</code> bits plus the overhead of {@link RankBitVector}s.
+ * <p>
+ * The structure comes from <tt>F. Claude and G. Navarro. The wavelet matrix. In Proc.
+ * 19th Symposium on String Processing and Information Retrieval (SPIRE ’12), pages
+ * 167–179. Springer-Verlag LNCS n. 7608, 2012.</tt>
+ */
+final class WaveletMatrix
+{
+    private final RankBitVector [] levels;
+
+    /**
+     * Number of zeros at each level.
+     */
+    private final int [] zeros;
+
+    /**
+     * Build the matrix. The content of <code>symbols</code> is destroyed.
+     */
+    WaveletMatrix(int [] symbols, int length, int sigma)
+    {
+        final int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(sigma - 1));
+        this.levels = new RankBitVector [bits];
+        this.zeros = new int [bits];
+
+        int [] current = symbols;
+        int [] next = new int [length];
+        for (int level = 0; level < bits; level++)
+        {
+            final int shift = bits - 1 - level;
+            final long [] words = RankBitVector.words(length);
+            int z = 0;
+            for (int i = 0; i < length; i++)
+            {
+                if (((current[i] >>> shift) & 1) == 0) z++;
+                else RankBitVector.set(words, i);
+            }
+
+            // Stable partition: zeros first, then ones.
+            for (int i = 0, zi = 0, oi = z; i < length; i++)
+            {
+                final int s = current[i];
+                if (((s >>> shift) & 1) == 0) next[zi++] = s;
+                else next[oi++] = s;
+            }
+
+            levels[level] = new RankBitVector(words, length);
+            zeros[level] = z;
+
+            final int [] tmp = current;
+            current = next;
+            next = tmp;
+        }
+    }
+
+    /**
+     * @return The symbol at position <code>i</code>.
+     */
+    int access(int i)
+    {
+        int symbol = 0;
+        for (int level = 0; level < levels.length; level++)
+        {
+            final RankBitVector bv = levels[level];
+            if (bv.get(i))
+            {
+                symbol = (symbol << 1) | 1;
+                i = zeros[level] + bv.rank1(i);
+            }
+            else
+            {
+                symbol <<= 1;
+                i = bv.rank0(i);
+            }
+        }
+        return symbol;
+    }
+
+    /**
+     * @return Number of occurrences of <code>symbol</code> in <code>[0, i)</code>.
+     */
+    int rank(int symbol, int i)
+    {
+        int b = 0, e = i;
+        for (int level = 0; level < levels.length; level++)
+        {
+            final RankBitVector bv = levels[level];
+            if (((symbol >>> (levels.length - 1 - level)) & 1) != 0)
+            {
+                b = zeros[level] + bv.rank1(b);
+                e = zeros[level] + bv.rank1(e);
+            }
+            else
+            {
+                b = bv.rank0(b);
+                e = bv.rank0(e);
+            }
+        }
+        return e - b;
+    }
+
+    /**
+     * @return Approximate memory used by this structure, in bytes.
+     */
+    long sizeInBytes()
+    {
+        long size = 4L * zeros.length;
+        for (RankBitVector bv : levels)
+        {
+            size += bv.sizeInBytes();
+        }
+        return size;
+    }
+}
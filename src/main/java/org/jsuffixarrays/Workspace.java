@@ -0,0 +1,109 @@
+package org.jsuffixarrays;
+
+import java.util.ArrayList;
+
+/**
+ * A pool of scratch <code>int[]</code> arrays that builders implementing
+ * {@link IWorkspaceSuffixArrayBuilder} borrow their temporary arrays from and return them
+ * to when done. Reusing one workspace across many calls (for example, when building
+ * suffix arrays of many small documents) removes most per-call allocations.
+ * <p>
+ * Borrowed arrays are at least as long as requested and their contents are undefined.
+ * Released arrays are kept for reuse until their total size exceeds the workspace's
+ * retention limit; any array exceeding it is left to the garbage collector.
+ * <p>
+ * Workspaces are not thread-safe; use one per thread.
+ */
+public final class Workspace
+{
+    /** Free arrays, sorted by increasing length. */
+    private final ArrayList<int []> free = new ArrayList<int []>();
+
+    /** Maximum number of bytes retained in {@link #free}. */
+    private final long maxRetainedBytes;
+
+    /** Number of bytes currently retained in {@link #free}. */
+    private long retainedBytes;
+
+    /**
+     * Workspace retaining any number of released arrays.
+     */
+    public Workspace()
+    {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maxRetainedBytes The maximum total size (in bytes) of the released arrays
+     *            kept for reuse.
+     */
+    public Workspace(long maxRetainedBytes)
+    {
+        Tools.assertAlways(maxRetainedBytes >= 0, "retention limit must be >= 0");
+        this.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    /**
+     * Borrow an array of at least <code>length</code> elements. The smallest free array
+     * that is large enough is returned; if there is none, a new array of exactly
+     * <code>length</code> elements is allocated. The contents of the returned array are
+     * undefined.
+     */
+    public int [] borrow(int length)
+    {
+        int lo = 0, hi = free.size();
+        while (lo < hi)
+        {
+            final int mid = (lo + hi) >>> 1;
+            if (free.get(mid).length < length) lo = mid + 1;
+            else hi = mid;
+        }
+
+        if (lo < free.size())
+        {
+            final int [] array = free.remove(lo);
+            retainedBytes -= 4L * array.length;
+            return array;
+        }
+        return new int [length];
+    }
+
+    /**
+     * Return an array (borrowed or not) to this workspace. The caller must not use the
+     * array afterwards.
+     */
+    public void release(int [] array)
+    {
+        if (array == null || retainedBytes + 4L * array.length > maxRetainedBytes)
+        {
+            return;
+        }
+
+        int lo = 0, hi = free.size();
+        while (lo < hi)
+        {
+            final int mid = (lo + hi) >>> 1;
+            if (free.get(mid).length < array.length) lo = mid + 1;
+            else hi = mid;
+        }
+        free.add(lo, array);
+        retainedBytes += 4L * array.length;
+    }
+
+    /**
+     * @return Returns the total size (in bytes) of the arrays currently kept for reuse.
+     */
+    public long retainedBytes()
+    {
+        return retainedBytes;
+    }
+
+    /**
+     * Drop all the arrays kept for reuse.
+     */
+    public void clear()
+    {
+        free.clear();
+        retainedBytes = 0;
+    }
+}
@@ -0,0 +1,120 @@
+package org.jsuffixarrays;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link AdaptiveBuilder}.
+ */
+public class AdaptiveBuilderTest extends SuffixArrayBuilderTestBase
+{
+    /*
+     *
+     */
+    @Override
+    protected ISuffixArrayBuilder getInstance()
+    {
+        return new AdaptiveBuilder();
+    }
+
+    @Test
+    public void smallAlphabetSelectsBPR()
+    {
+        final int [] input = random(new Random(0x1234), 100000, 4, 1024);
+        assertSelected(new AdaptiveBuilder(), input, 100000, BPR.class);
+    }
+
+    @Test
+    public void smallAlphabetWithoutTrailingSpaceSkipsBPR()
+    {
+        final int [] input = random(new Random(0x1234), 100000, 4, 0);
+        assertSelected(new AdaptiveBuilder(), input, 100000, SAIS.class);
+    }
+
+    @Test
+    public void unaryInputSkipsBPR()
+    {
+        final int [] input = new int [10 + 1024];
+        Arrays.fill(input, 0, 10, 7);
+        assertSelected(new AdaptiveBuilder(), input, 10, SAIS.class);
+    }
+
+    @Test
+    public void largeAlphabetSelectsDivSufSort()
+    {
+        final int [] input = random(new Random(0x1234), 100000, 200, 0);
+        assertSelected(new AdaptiveBuilder(), input, 100000, DivSufSort.class);
+    }
+
+    @Test
+    public void repetitiveSelectsSAIS()
+    {
+        final int [] input = new int [100000 + 1024];
+        final int [] period = random(new Random(0x1234), 1000, 200, 0);
+        for (int i = 0; i < 100000; i++)
+        {
+            input[i] = period[i % period.length];
+        }
+        Assert.assertTrue(
+            AdaptiveBuilder.distinctRatio(input, 0, 100000) < AdaptiveBuilder.REPETITIVE_RATIO);
+        assertSelected(new AdaptiveBuilder(), input, 100000, SAIS.class);
+    }
+
+    @Test
+    public void memoryBudgetRespected()
+    {
+        final int [] input = random(new Random(0x1234), 100000, 4, 1024);
+        assertSelected(new AdaptiveBuilder(5L * 100000), input, 100000, SAIS.class);
+    }
+
+    @Test
+    public void negativeSymbolsRemapped()
+    {
+        final int [] input = random(new Random(0x1234), 1000, 100, 0);
+        input[10] = -5;
+        assertSelected(new AdaptiveBuilder(), input, 1000, DensePositiveDecorator.class);
+
+        final int [] sa = new AdaptiveBuilder().buildSuffixArray(input, 0, 1000);
+        final int [] expected = new DensePositiveDecorator(new SAIS()).buildSuffixArray(
+            input, 0, 1000);
+        Assert.assertEquals(sa, expected);
+    }
+
+    @Test
+    public void delegatesReused()
+    {
+        final AdaptiveBuilder builder = new AdaptiveBuilder();
+        final int [] bytes = random(new Random(0x1234), 1000, 200, 0);
+        final int [] small = random(new Random(0x1234), 1000, 4, 1024);
+        for (int [] input : new int [][] {bytes, small})
+        {
+            Assert.assertSame(builder.select(input, 0, 1000), builder.select(input, 0,
+                1000));
+        }
+
+        // The workspace variant writes to the given output.
+        final int [] output = new int [1000];
+        Assert.assertSame(builder.buildSuffixArray(bytes, 0, 1000, output,
+            new Workspace()), output);
+        Assert.assertEquals(output, new SAIS().buildSuffixArray(bytes, 0, 1000));
+    }
+
+    private static void assertSelected(AdaptiveBuilder builder, int [] input, int length,
+        Class<?> expected)
+    {
+        Assert.assertEquals(builder.select(input, 0, length).getClass(), expected);
+    }
+
+    private static int [] random(Random rnd, int length, int alphabet, int trailing)
+    {
+        final int [] input = new int [length + trailing];
+        for (int i = 0; i < length; i++)
+        {
+            input[i] = 1 + rnd.nextInt(alphabet - 1);
+        }
+        return input;
+    }
+}
@@ -0,0 +1,105 @@
+package org.jsuffixarrays;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the Burrows-Wheeler transform methods in {@link SuffixArrays}.
+ */
+public class BWTTest
+{
+    @Test
+    public void mississippi()
+    {
+        // BWT of "mississippi$" is "ipssm$pissii".
+        for (ISuffixArrayBuilder builder : new ISuffixArrayBuilder [] {
+            new SAIS(), new QSufSort(), Algorithm.SKEW.getDecoratedInstance()})
+        {
+            final BWTData bwt = SuffixArrays.createBWT("mississippi", builder);
+            Assert.assertEquals(bwt.length(), 11);
+            Assert.assertEquals(bwt.getPrimaryIndex(), 5);
+            Assert.assertEquals(toString(bwt), "ipssmpissii");
+            Assert.assertEquals(SuffixArrays.inverseBWT(bwt), toArray("mississippi"));
+        }
+    }
+
+    @Test
+    public void trivialInputs()
+    {
+        final BWTData empty = SuffixArrays.createBWT("");
+        Assert.assertEquals(empty.length(), 0);
+        Assert.assertEquals(SuffixArrays.inverseBWT(empty).length, 0);
+
+        final BWTData single = SuffixArrays.createBWT("x");
+        Assert.assertEquals(single.getPrimaryIndex(), 1);
+        Assert.assertEquals(SuffixArrays.inverseBWT(single), toArray("x"));
+    }
+
+    /**
+     * The direct (SAIS) and suffix-array based paths must agree; the inverse must restore
+     * the input. Also checks the public SAIS transform for int arrays.
+     */
+    @Test
+    public void randomRoundTrip()
+    {
+        final Random rnd = new Random(0xb0b0b0b0);
+        for (int round = 0; round < 30; round++)
+        {
+            final int size = 1 + rnd.nextInt(5000);
+            final int [] input = SuffixArrayBuilderTestBase.generateRandom(rnd, size + 7,
+                new MinMax(-3, rnd.nextInt(200) - 2));
+            final int [] copy = input.clone();
+
+            final BWTData direct = SuffixArrays.createBWT(input, 7, size);
+            Assert.assertEquals(input, copy);
+            final BWTData viaSA = SuffixArrays.createBWT(input, 7, size,
+                new DensePositiveDecorator(new DivSufSortWrapper()));
+            Assert.assertEquals(direct.getPrimaryIndex(), viaSA.getPrimaryIndex());
+            Assert.assertEquals(Arrays.copyOf(viaSA.getBWT(), size), direct.getBWT());
+
+            Assert.assertEquals(SuffixArrays.inverseBWT(direct), Arrays.copyOfRange(
+                input, 7, 7 + size));
+        }
+
+        final int [] input = new int [] {2, 0, 1, 2, 0, 1, 1, 0};
+        final int n = input.length - 1;
+        final int [] U = new int [n];
+        final int pidx = SAIS.bwtransform(input, U, new int [n], n, 3);
+        final BWTData expected = SuffixArrays.createBWT(input, 0, n,
+            new DensePositiveDecorator(new QSufSort()));
+        Assert.assertEquals(pidx, expected.getPrimaryIndex());
+        Assert.assertEquals(U, Arrays.copyOf(expected.getBWT(), n));
+    }
+
+    /**
+     * DivSufSort with a dense alphabet shifted to non-negative values.
+     */
+    private static final class DivSufSortWrapper implements ISuffixArrayBuilder
+    {
+        public int [] buildSuffixArray(int [] input, int start, int length)
+        {
+            if (length < 2) return new NaiveSort().buildSuffixArray(input, start, length);
+            return new DivSufSort(Tools.max(input, start, length) + 1).buildSuffixArray(
+                input, start, length);
+        }
+    }
+
+    private static int [] toArray(String s)
+    {
+        final int [] a = new int [s.length()];
+        for (int i = 0; i < a.length; i++)
+            a[i] = s.charAt(i);
+        return a;
+    }
+
+    private static String toString(BWTData bwt)
+    {
+        final StringBuilder b = new StringBuilder();
+        for (int i = 0; i < bwt.length(); i++)
+            b.append((char) bwt.getBWT()[i]);
+        return b.toString();
+    }
+}
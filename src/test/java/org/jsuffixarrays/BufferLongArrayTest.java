@@ -0,0 +1,188 @@
+package org.jsuffixarrays;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link BufferLongArray} and off-heap suffix data.
+ */
+public class BufferLongArrayTest
+{
+    /**
+     * Elements spanning many small pages, all widths (1- and 2-byte elements are
+     * unsigned).
+     */
+    @Test
+    public void directGetSet()
+    {
+        for (int width : new int [] {4, 8})
+        {
+            final BufferLongArray a = BufferLongArray.allocateDirect(1000, width, 6);
+            Assert.assertEquals(a.length(), 1000);
+            for (int i = 0; i < 1000; i++)
+            {
+                a.set(i, -i * 3);
+            }
+            for (int i = 0; i < 1000; i++)
+            {
+                Assert.assertEquals(a.get(i), -i * 3);
+            }
+        }
+
+        for (int width : new int [] {1, 2})
+        {
+            final long max = (1L << (8 * width)) - 1;
+            final BufferLongArray a = BufferLongArray.allocateDirect(1000, width, 6);
+            for (int i = 0; i < 1000; i++)
+            {
+                a.set(i, (i * 37) & max);
+            }
+            for (int i = 0; i < 1000; i++)
+            {
+                Assert.assertEquals(a.get(i), (i * 37) & max);
+            }
+        }
+    }
+
+    /**
+     * Build the suffix array and LCP directly into memory-mapped files, re-map them and
+     * compare with the on-heap version, including a post-order traversal.
+     */
+    @Test
+    public void mappedSuffixData() throws IOException
+    {
+        final Random rnd = new Random(0x11223344);
+        final int size = 5000;
+        final int [] input = SuffixArrayBuilderTestBase.generateRandom(rnd, size,
+            new MinMax(0, 3));
+        final PagedLongArray longInput = new PagedLongArray(size);
+        for (int i = 0; i < size; i++)
+        {
+            longInput.set(i, input[i]);
+        }
+
+        final File file = File.createTempFile("suffixdata", ".bin");
+        try
+        {
+            final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try
+            {
+                final FileChannel channel = raf.getChannel();
+                final BufferLongArray sa = BufferLongArray.map(channel,
+                    MapMode.READ_WRITE, 0, size, 4, 10);
+                final BufferLongArray lcp = BufferLongArray.map(channel,
+                    MapMode.READ_WRITE, 4L * size, size, 4, 10);
+                SuffixArrays.createWithLCP(longInput, 0, size, new LongSAIS(), sa, lcp);
+                sa.force();
+                lcp.force();
+            }
+            finally
+            {
+                raf.close();
+            }
+
+            final RandomAccessFile ro = new RandomAccessFile(file, "r");
+            try
+            {
+                final FileChannel channel = ro.getChannel();
+                final BufferLongArray sa = BufferLongArray.map(channel, MapMode.READ_ONLY,
+                    0, size, 4);
+                final BufferLongArray lcp = BufferLongArray.map(channel,
+                    MapMode.READ_ONLY, 4L * size, size, 4);
+
+                final SuffixData expected = SuffixArrays.createWithLCP(input, 0, size,
+                    new SAIS());
+                for (int i = 0; i < size; i++)
+                {
+                    Assert.assertEquals(sa.get(i), expected.getSuffixArray()[i]);
+                    Assert.assertEquals(lcp.get(i), expected.getLCP()[i]);
+                }
+
+                final ArrayList<String> expectedNodes = new ArrayList<String>();
+                Traversals.postorder(size, expected.getSuffixArray(), expected.getLCP(),
+                    new Traversals.IPostOrderVisitor()
+                    {
+                        public void visitNode(int start, int length, boolean leaf)
+                        {
+                            expectedNodes.add(Arrays.toString(new Object [] {start, length, leaf}));
+                        }
+                    });
+
+                final ArrayList<String> actualNodes = new ArrayList<String>();
+                Traversals.postorder((long) size, sa, lcp,
+                    new Traversals.ILongPostOrderVisitor()
+                    {
+                        public void visitNode(long start, long length, boolean leaf)
+                        {
+                            actualNodes.add(Arrays.toString(new Object [] {(int) start, (int) length, leaf}));
+                        }
+                    });
+                Assert.assertEquals(actualNodes, expectedNodes);
+            }
+            finally
+            {
+                ro.close();
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    /**
+     * LCP array with the temporary rank array in a memory-mapped file.
+     */
+    @Test
+    public void mappedRanks() throws IOException
+    {
+        final Random rnd = new Random(0x5a4c);
+        final int size = 5000;
+        final int [] input = SuffixArrayBuilderTestBase.generateRandom(rnd, size,
+            new MinMax(0, 3));
+        final PagedLongArray longInput = new PagedLongArray(size);
+        for (int i = 0; i < size; i++)
+        {
+            longInput.set(i, input[i]);
+        }
+        final ILongArray sa = new LongSAIS().buildSuffixArray(longInput, 0, size);
+
+        final File file = File.createTempFile("ranks", ".bin");
+        try
+        {
+            final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try
+            {
+                final BufferLongArray rank = BufferLongArray.map(raf.getChannel(),
+                    MapMode.READ_WRITE, 0, size, 4, 10);
+                final ILongArray lcp = SuffixArrays.computeLCP(longInput, 0, size, sa,
+                    new PagedLongArray(size), rank);
+
+                final int [] expected = SuffixArrays.createWithLCP(input, 0, size,
+                    new SAIS()).getLCP();
+                for (int i = 0; i < size; i++)
+                {
+                    Assert.assertEquals(lcp.get(i), expected[i]);
+                    Assert.assertEquals(sa.get(rank.get(i)), i);
+                }
+            }
+            finally
+            {
+                raf.close();
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
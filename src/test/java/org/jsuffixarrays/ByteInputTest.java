@@ -0,0 +1,105 @@
+package org.jsuffixarrays;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link IByteSuffixArrayBuilder} implementations and the byte entry points in
+ * {@link SuffixArrays}.
+ */
+public class ByteInputTest
+{
+    @Test
+    public void sameAsIntInput()
+    {
+        final Random rnd = new Random(0xbadcafe);
+        for (int round = 0; round < 50; round++)
+        {
+            final int length = 2 + rnd.nextInt(5000);
+            final int start = rnd.nextInt(10);
+            final byte [] bytes = new byte [start + length + rnd.nextInt(10)];
+            final int alphabet = 1 + rnd.nextInt(256);
+            for (int i = 0; i < bytes.length; i++)
+            {
+                bytes[i] = (byte) (128 + rnd.nextInt(alphabet));
+            }
+
+            final int [] expected = new SAIS().buildSuffixArray(widen(bytes), start, length);
+
+            final ByteBuffer heap = ByteBuffer.wrap(bytes);
+            final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes);
+            for (IByteSuffixArrayBuilder builder : new IByteSuffixArrayBuilder [] {
+                new SAIS(), new SAIS(2), new DivSufSort(), new DivSufSort(256, 2)})
+            {
+                Assert.assertEquals(builder.buildSuffixArray(bytes, start, length), expected);
+                Assert.assertEquals(builder.buildSuffixArray(heap, start, length), expected);
+                Assert.assertEquals(builder.buildSuffixArray(direct, start, length),
+                    expected);
+            }
+            Assert.assertEquals(direct.position(), bytes.length);
+        }
+    }
+
+    @Test
+    public void shortInputs()
+    {
+        final byte [] bytes = new byte [] {5};
+        Assert.assertEquals(new SAIS().buildSuffixArray(bytes, 0, 0), new int [0]);
+        Assert.assertEquals(new SAIS().buildSuffixArray(bytes, 0, 1), new int [] {0});
+        Assert.assertEquals(SuffixArrays.create(bytes, 0, 1), new int [] {0});
+    }
+
+    @Test(expectedExceptions = AssertionError.class)
+    public void alphabetSizeChecked()
+    {
+        new DivSufSort(100).buildSuffixArray(new byte [] {1, 2, (byte) 200}, 0, 3);
+    }
+
+    @Test
+    public void memoryMappedFile() throws IOException
+    {
+        final byte [] bytes = new byte [10000];
+        new Random(0x1234).nextBytes(bytes);
+
+        final File file = File.createTempFile("bytes", ".bin");
+        try
+        {
+            final FileOutputStream os = new FileOutputStream(file);
+            try
+            {
+                os.write(bytes);
+            }
+            finally
+            {
+                os.close();
+            }
+
+            final int [] expected = new SAIS().buildSuffixArray(widen(bytes), 0,
+                bytes.length);
+            Assert.assertEquals(SuffixArrays.create(file), expected);
+            Assert.assertEquals(SuffixArrays.create(file, new SAIS()), expected);
+            Assert.assertEquals(SuffixArrays.create(bytes, 0, bytes.length), expected);
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    private static int [] widen(byte [] bytes)
+    {
+        final int [] input = new int [bytes.length];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            input[i] = bytes[i] & 0xff;
+        }
+        return input;
+    }
+}
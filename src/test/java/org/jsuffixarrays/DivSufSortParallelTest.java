@@ -0,0 +1,56 @@
+package org.jsuffixarrays;
+
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeSuite;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link DivSufSort} with concurrent sorting of type B* buckets.
+ */
+public class DivSufSortParallelTest extends SuffixArrayBuilderTestBase
+{
+    private final int alphabetSize = 256;
+
+    @BeforeSuite
+    public void setupForConstraints()
+    {
+        smallAlphabet = new MinMax(1, 10);
+        largeAlphabet = new MinMax(1, alphabetSize - 1);
+    }
+
+    /*
+     * 
+     */
+    @Override
+    protected ISuffixArrayBuilder getInstance()
+    {
+        return new DivSufSort(alphabetSize, 4);
+    }
+
+    /**
+     * The parallel variant must produce exactly the same array as the sequential one.
+     */
+    @Test
+    public void sameAsSequential()
+    {
+        final Random rnd = new Random(0x11223344);
+        final int size = 200000;
+        for (MinMax alphabet : new MinMax []
+        {
+            new MinMax(0, 3), new MinMax(0, 255)
+        })
+        {
+            final int [] input = generateRandom(rnd, size, alphabet);
+
+            // Make the input repetitive so that buckets require deeper sorting.
+            System.arraycopy(input, 0, input, size / 2, size / 4);
+
+            final int [] expected = new DivSufSort(alphabetSize).buildSuffixArray(input,
+                0, size);
+            final int [] actual = getInstance().buildSuffixArray(input, 0, size);
+            Assert.assertEquals(actual, expected);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.jsuffixarrays;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.jsuffixarrays.EnhancedSuffixArray.Interval;
+
+/**
+ * Tests for {@link EnhancedSuffixArray}.
+ */
+public class EnhancedSuffixArrayTest
+{
+    @Test
+    public void mississippi()
+    {
+        final String text = "mississippi";
+        final EnhancedSuffixArray esa = new EnhancedSuffixArray(text, SuffixArrays
+            .createWithLCP(text));
+
+        final Interval root = esa.root();
+        Assert.assertEquals(root.depth(), 0);
+        Assert.assertEquals(root.size(), text.length());
+        Assert.assertNull(esa.parent(root));
+        Assert.assertNull(esa.suffixLink(root));
+        Assert.assertEquals(esa.children(root).size(), 4);
+
+        final Interval i = esa.child(root, 'i');
+        Assert.assertEquals(i.depth(), 1);
+        Assert.assertEquals(i.size(), 4);
+        Assert.assertNull(esa.child(root, 'x'));
+
+        final Interval issi = esa.child(i, 's');
+        Assert.assertEquals(issi.depth(), 4);
+        Assert.assertEquals(issi.size(), 2);
+        Assert.assertEquals(esa.parent(issi), i);
+
+        final Interval ssi = esa.suffixLink(issi);
+        Assert.assertEquals(ssi.depth(), 3);
+        Assert.assertEquals(ssi.size(), 2);
+        Assert.assertEquals(esa.suffixLink(ssi).depth(), 2);
+        Assert.assertEquals(esa.suffixLink(i), root);
+
+        final int [] interval = new int [2];
+        Assert.assertEquals(esa.find("issi", interval), 2);
+        Assert.assertEquals(interval, new int [] {issi.lower(), issi.upper()});
+        Assert.assertEquals(esa.count("ssi"), 2);
+        Assert.assertEquals(esa.count("mississippi"), 1);
+        Assert.assertEquals(esa.count("mississippis"), 0);
+        Assert.assertEquals(esa.count("sp"), 0);
+        Assert.assertEquals(esa.count(""), text.length());
+    }
+
+    @Test
+    public void emptyInput()
+    {
+        final EnhancedSuffixArray esa = new EnhancedSuffixArray("", SuffixArrays
+            .createWithLCP(""));
+        Assert.assertNull(esa.root());
+        Assert.assertEquals(esa.count("a"), 0);
+    }
+
+    @Test
+    public void repeatedSymbol()
+    {
+        final String text = "aaaa";
+        final EnhancedSuffixArray esa = new EnhancedSuffixArray(text, SuffixArrays
+            .createWithLCP(text));
+
+        // All suffixes share "a"; the shortest one is a leaf with an empty edge.
+        final Interval root = esa.root();
+        Assert.assertEquals(root.depth(), 1);
+        final List<Interval> children = esa.children(root);
+        Assert.assertEquals(children.size(), 2);
+        Assert.assertTrue(children.get(0).isLeaf());
+        Assert.assertEquals(children.get(0).depth(), 1);
+        Assert.assertEquals(esa.child(root, 'a'), children.get(1));
+        Assert.assertEquals(esa.count("aaa"), 2);
+        Assert.assertEquals(esa.count("aaaaa"), 0);
+    }
+
+    /**
+     * Compare pattern matching with {@link SuffixArraySearcher}.
+     */
+    @Test
+    public void randomAgainstSearcher()
+    {
+        final Random rnd = new Random(0xe5a);
+        for (int round = 0; round < 100; round++)
+        {
+            final int alphabet = 1 + rnd.nextInt(1 + round % 10);
+            final int [] input = SuffixArrayBuilderTestBase.generateRandom(rnd,
+                1 + rnd.nextInt(300), new MinMax(1, alphabet));
+            final SuffixData data = SuffixArrays.createWithLCP(input, 0, input.length);
+            final EnhancedSuffixArray esa = new EnhancedSuffixArray(input, 0,
+                input.length, data);
+            final SuffixArraySearcher searcher = new SuffixArraySearcher(input, 0,
+                input.length, data);
+
+            final int [] expected = new int [2];
+            final int [] actual = new int [2];
+            for (int i = 0; i < 50; i++)
+            {
+                final int [] pattern;
+                if (rnd.nextBoolean())
+                {
+                    final int from = rnd.nextInt(input.length);
+                    pattern = new int [rnd.nextInt(input.length - from + 1)];
+                    System.arraycopy(input, from, pattern, 0, pattern.length);
+                }
+                else
+                {
+                    pattern = SuffixArrayBuilderTestBase.generateRandom(rnd,
+                        rnd.nextInt(5), new MinMax(1, alphabet + 1));
+                }
+
+                final int count = searcher.find(pattern, 0, pattern.length, expected);
+                Assert.assertEquals(esa.find(pattern, 0, pattern.length, actual), count);
+                if (count > 0)
+                {
+                    Assert.assertEquals(actual, expected);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visit all nodes top-down and check them against the input and a bottom-up
+     * traversal.
+     */
+    @Test
+    public void allNodes()
+    {
+        final Random rnd = new Random(0xa11);
+        for (int round = 0; round < 50; round++)
+        {
+            // A unique terminator makes the suffix tree well defined.
+            final int [] input = SuffixArrayBuilderTestBase.generateRandom(rnd,
+                1 + rnd.nextInt(200), new MinMax(1, 1 + round % 5));
+            input[input.length - 1] = 0;
+            final int n = input.length;
+            final SuffixData data = SuffixArrays.createWithLCP(input, 0, n);
+            final int [] sa = data.getSuffixArray();
+            final int [] isa = new int [n + 1];
+            for (int i = 0; i < n; i++)
+            {
+                isa[sa[i]] = i;
+            }
+            final EnhancedSuffixArray esa = new EnhancedSuffixArray(input, 0, n, data);
+
+            final int [] internal = new int [1];
+            Traversals.postorder(n, sa, data.getLCP(), new Traversals.IPostOrderVisitor()
+            {
+                public void visitNode(int start, int length, boolean leaf)
+                {
+                    if (!leaf) internal[0]++;
+                }
+            });
+
+            int internalNodes = 0;
+            final List<Interval> stack = new ArrayList<Interval>();
+            stack.add(esa.root());
+            while (!stack.isEmpty())
+            {
+                final Interval node = stack.remove(stack.size() - 1);
+                if (!node.isLeaf()) internalNodes++;
+
+                final List<Interval> children = esa.children(node);
+                int lower = node.lower();
+                for (Interval child : children)
+                {
+                    Assert.assertEquals(child.lower(), lower);
+                    lower = child.upper();
+                    Assert.assertTrue(child.depth() > node.depth());
+                    Assert.assertEquals(esa.parent(child), node);
+                    Assert.assertEquals(esa.child(node, input[sa[child.lower()]
+                        + node.depth()]), child);
+                    stack.add(child);
+                }
+                if (!node.isLeaf())
+                {
+                    Assert.assertEquals(lower, node.upper());
+                    Assert.assertTrue(children.size() >= 2);
+                }
+
+                // The suffix link covers exactly the suffixes one symbol shorter.
+                final Interval link = esa.suffixLink(node);
+                if (link != null)
+                {
+                    Assert.assertEquals(link.depth(), node.depth() - 1);
+                    Assert.assertEquals(link.size() >= node.size(), true);
+                    for (int k = node.lower(); k < node.upper(); k++)
+                    {
+                        final int r = isa[sa[k] + 1];
+                        Assert.assertTrue(r >= link.lower() && r < link.upper());
+                    }
+                }
+            }
+            Assert.assertEquals(internalNodes, internal[0]);
+        }
+    }
+}
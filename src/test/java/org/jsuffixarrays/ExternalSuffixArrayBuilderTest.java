@@ -0,0 +1,122 @@
+package org.jsuffixarrays;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link ExternalSuffixArrayBuilder}.
+ */
+public class ExternalSuffixArrayBuilderTest
+{
+    @Test
+    public void randomAgainstInMemory() throws IOException
+    {
+        final Random rnd = new Random(0xe87e54a1);
+        for (int round = 0; round < 30; round++)
+        {
+            final byte [] bytes = new byte [rnd.nextInt(3000)];
+            final int alphabet = 1 + rnd.nextInt(rnd.nextBoolean() ? 3 : 256);
+            for (int i = 0; i < bytes.length; i++)
+            {
+                bytes[i] = (byte) (250 + rnd.nextInt(alphabet));
+            }
+            check(bytes, 1 + rnd.nextInt(1 << 16), round % 2 == 0);
+        }
+    }
+
+    /**
+     * Periodic inputs need many doubling iterations (and keep few suffixes finished).
+     */
+    @Test
+    public void repetitive() throws IOException
+    {
+        final byte [] bytes = new byte [5000];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            bytes[i] = (byte) (i % 13 == 12 ? 'b' : 'a');
+        }
+        check(bytes, 4096, true);
+
+        final byte [] unary = new byte [1000];
+        check(unary, 1, true);
+    }
+
+    @Test
+    public void trivialInputs() throws IOException
+    {
+        check(new byte [0], 1024, true);
+        check(new byte [] {42}, 1024, true);
+    }
+
+    private void check(byte [] bytes, long budget, boolean withLCP) throws IOException
+    {
+        // Test methods run in parallel, each check gets its own directory.
+        final File dir = File.createTempFile("external", "");
+        Assert.assertTrue(dir.delete() && dir.mkdir());
+        try
+        {
+            check(dir, bytes, budget, withLCP);
+        }
+        finally
+        {
+            for (File f : dir.listFiles())
+            {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    private void check(File dir, byte [] bytes, long budget, boolean withLCP)
+        throws IOException
+    {
+        final File input = new File(dir, "input");
+        final FileOutputStream os = new FileOutputStream(input);
+        try
+        {
+            os.write(bytes);
+        }
+        finally
+        {
+            os.close();
+        }
+
+        final File saFile = new File(dir, "sa");
+        final File lcpFile = withLCP ? new File(dir, "lcp") : null;
+        final LongSuffixData data = new ExternalSuffixArrayBuilder(dir, budget).build(
+            input, saFile, lcpFile);
+
+        final int [] text = new int [bytes.length];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            text[i] = bytes[i] & 0xff;
+        }
+        final int [] sa = new SAIS().buildSuffixArray(text, 0, text.length);
+        final int [] lcp = SuffixArrays.computeLCP(text, 0, text.length, sa);
+
+        Assert.assertEquals(data.getSuffixArray().length(), bytes.length);
+        for (int i = 0; i < sa.length; i++)
+        {
+            Assert.assertEquals(data.getSuffixArray().get(i), sa[i]);
+        }
+        if (withLCP)
+        {
+            for (int i = 0; i < lcp.length; i++)
+            {
+                Assert.assertEquals(data.getLCP().get(i), lcp[i]);
+            }
+        }
+        else
+        {
+            Assert.assertNull(data.getLCP());
+        }
+
+        // Only the input and outputs are left.
+        Assert.assertEquals(dir.listFiles().length, withLCP ? 3 : 2);
+    }
+}
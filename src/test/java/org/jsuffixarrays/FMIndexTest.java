@@ -0,0 +1,96 @@
+package org.jsuffixarrays;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link FMIndex}, against {@link SuffixArraySearcher}.
+ */
+public class FMIndexTest
+{
+    @Test
+    public void mississippi()
+    {
+        final FMIndex index = new FMIndex("mississippi", 3);
+        Assert.assertEquals(index.count("ssi"), 2);
+        Assert.assertEquals(index.count("i"), 4);
+        Assert.assertEquals(index.count("mississippi"), 1);
+        Assert.assertEquals(index.count("x"), 0);
+        Assert.assertEquals(index.count(""), 11);
+
+        final int [] positions = index.locate("ssi");
+        Arrays.sort(positions);
+        Assert.assertEquals(positions, new int [] {2, 5});
+
+        final StringBuilder b = new StringBuilder();
+        for (int c : index.extract(0, 11))
+            b.append((char) c);
+        Assert.assertEquals(b.toString(), "mississippi");
+    }
+
+    /**
+     * Random inputs (with negative and sparse symbols), different sampling rates.
+     */
+    @Test
+    public void randomAgainstSearcher()
+    {
+        final Random rnd = new Random(0xf00dface);
+        for (int round = 0; round < 20; round++)
+        {
+            final int size = 1 + rnd.nextInt(3000);
+            final int [] input = SuffixArrayBuilderTestBase.generateRandom(rnd, size + 1,
+                new MinMax(-2, 1 + rnd.nextInt(20)));
+            if (round % 5 == 0)
+            {
+                for (int i = 0; i < size; i++)
+                    input[i] *= 100000000;
+            }
+            final int rate = 1 + rnd.nextInt(40);
+
+            final SuffixData data = SuffixArrays.createWithLCP(input, 0, size,
+                new NaiveSort());
+            final SuffixArraySearcher searcher = new SuffixArraySearcher(input, 0, size,
+                data);
+            final FMIndex index = new FMIndex(input.clone(), 0, size, new NaiveSort(),
+                rate);
+            Assert.assertEquals(index.length(), size);
+
+            for (int q = 0; q < 50; q++)
+            {
+                final int from = rnd.nextInt(size);
+                final int len = rnd.nextInt(Math.min(size - from, 10) + 1);
+                final int [] pattern = Arrays.copyOfRange(input, from, from + len);
+                if (rnd.nextInt(4) == 0 && len > 0) pattern[len - 1] += 1;
+
+                final int [] interval = new int [2];
+                final int count = searcher.find(pattern, 0, len, interval);
+                Assert.assertEquals(index.count(pattern, 0, len), count);
+
+                final int [] expected = Arrays.copyOfRange(data.getSuffixArray(),
+                    interval[0], interval[1]);
+                Assert.assertEquals(index.locate(pattern, 0, len), expected);
+
+                Assert.assertEquals(index.extract(from, from + len), Arrays.copyOfRange(
+                    input, from, from + len));
+            }
+            Assert.assertEquals(index.extract(0, size), Arrays.copyOf(input, size));
+        }
+    }
+
+    /**
+     * A byte alphabet with sparse sampling takes about a byte per symbol.
+     */
+    @Test
+    public void compressedSize()
+    {
+        final Random rnd = new Random(0x12121212);
+        final int size = 200000;
+        final int [] input = SuffixArrayBuilderTestBase.generateRandom(rnd, size,
+            new MinMax(0, 255));
+        final FMIndex index = new FMIndex(input, 0, size, new SAIS(), 64);
+        Assert.assertTrue(index.sizeInBytes() < 1.35 * size, "" + index.sizeInBytes());
+    }
+}
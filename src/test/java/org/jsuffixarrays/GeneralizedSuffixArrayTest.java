@@ -0,0 +1,223 @@
+package org.jsuffixarrays;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link GeneralizedSuffixArray}.
+ */
+public class GeneralizedSuffixArrayTest
+{
+    @Test
+    public void documentListing()
+    {
+        final GeneralizedSuffixArray gsa = new GeneralizedSuffixArray(Arrays.asList(
+            "banana", "ananas", "nab", ""));
+
+        Assert.assertEquals(gsa.documents(), 4);
+        Assert.assertEquals(gsa.length(), 15);
+        Assert.assertEquals(gsa.listDocuments("an"), new int [] {0, 1});
+        Assert.assertEquals(gsa.listDocuments("nab"), new int [] {2});
+        Assert.assertEquals(gsa.listDocuments("a"), new int [] {0, 1, 2});
+        Assert.assertEquals(gsa.listDocuments("ab"), new int [] {2});
+        Assert.assertEquals(gsa.listDocuments("anab"), new int [0]);
+        Assert.assertEquals(gsa.listDocuments("x"), new int [0]);
+
+        final int [] interval = new int [2];
+        Assert.assertEquals(gsa.find("ana", interval), 4);
+        Assert.assertEquals(gsa.find("as", interval), 1);
+        Assert.assertEquals(gsa.find("sb", interval), 0);
+    }
+
+    @Test
+    public void longestCommonSubstring()
+    {
+        final GeneralizedSuffixArray gsa = new GeneralizedSuffixArray(Arrays.asList(
+            "xabcdey", "zzbcdezz", "abcd", "cde"));
+
+        // "bcde" in documents 0 and 1.
+        Assert.assertEquals(gsa.longestCommonSubstring(2)[2], 4);
+        // "bcd" in 0, 1 and 2; "cd" in all.
+        Assert.assertEquals(gsa.longestCommonSubstring(3)[2], 3);
+        final int [] all = gsa.longestCommonSubstring(4);
+        Assert.assertEquals(all[2], 2);
+        Assert.assertEquals(substring(new String [] {"xabcdey", "zzbcdezz", "abcd", "cde"},
+            all), "cd");
+        Assert.assertEquals(gsa.longestCommonSubstring(1), new int [] {1, 0, 8});
+        Assert.assertNull(gsa.longestCommonSubstring(5));
+    }
+
+    @Test
+    public void randomAgainstBruteForce()
+    {
+        final Random rnd = new Random(0x11223344);
+        for (int round = 0; round < 50; round++)
+        {
+            final int n = 1 + rnd.nextInt(6);
+            final int [][] docs = new int [n][];
+            for (int d = 0; d < n; d++)
+            {
+                docs[d] = new int [rnd.nextInt(30)];
+                for (int i = 0; i < docs[d].length; i++)
+                {
+                    docs[d][i] = -2 + rnd.nextInt(1 + rnd.nextInt(4));
+                }
+            }
+
+            final GeneralizedSuffixArray gsa = new GeneralizedSuffixArray(docs);
+            final int [] sa = gsa.getSuffixArray();
+            final int [] lcp = gsa.getLCP();
+            final int [] ids = gsa.getDocumentIds();
+
+            // Suffixes in order, LCPs within documents.
+            for (int i = 0; i < sa.length; i++)
+            {
+                final int [] suffix = suffix(gsa, docs, ids[i], sa[i]);
+                if (i > 0)
+                {
+                    final int [] prev = suffix(gsa, docs, ids[i - 1], sa[i - 1]);
+                    final int c = compare(prev, suffix);
+                    Assert.assertTrue(c < 0 || (c == 0 && ids[i - 1] < ids[i]));
+                    Assert.assertEquals(lcp[i], commonPrefix(prev, suffix));
+                }
+                else
+                {
+                    Assert.assertEquals(lcp[i], -1);
+                }
+            }
+
+            // Longest common substring, for every k.
+            for (int k = 2; k <= n; k++)
+            {
+                final int [] lcs = gsa.longestCommonSubstring(k);
+                Assert.assertEquals(lcs[2], bruteForceLCS(docs, k));
+                final int [] s = Arrays.copyOfRange(docs[lcs[0]], lcs[1], lcs[1] + lcs[2]);
+                Assert.assertTrue(documentsContaining(docs, s).size() >= k);
+            }
+
+            // Document listing of random patterns.
+            for (int j = 0; j < 20; j++)
+            {
+                final int [] pattern = new int [1 + rnd.nextInt(3)];
+                for (int i = 0; i < pattern.length; i++)
+                {
+                    pattern[i] = -2 + rnd.nextInt(4);
+                }
+                final TreeSet<Integer> expected = documentsContaining(docs, pattern);
+                final int [] actual = gsa.listDocuments(pattern, 0, pattern.length);
+                Assert.assertEquals(actual.length, expected.size());
+                int k = 0;
+                for (int d : expected)
+                {
+                    Assert.assertEquals(actual[k++], d);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void mergeEqualsRebuild()
+    {
+        final Random rnd = new Random(0x6e26e);
+        for (int round = 0; round < 50; round++)
+        {
+            // Large symbol ranges (sparse alphabets) in some rounds.
+            final int range = (round % 3 == 0 ? Integer.MAX_VALUE : 4);
+            final int [][] docs = new int [rnd.nextInt(8)][];
+            for (int d = 0; d < docs.length; d++)
+            {
+                docs[d] = new int [rnd.nextInt(20)];
+                for (int i = 0; i < docs[d].length; i++)
+                {
+                    docs[d][i] = rnd.nextInt(range) - range / 2;
+                }
+            }
+
+            final int split = rnd.nextInt(docs.length + 1);
+            final GeneralizedSuffixArray merged = GeneralizedSuffixArray.merge(
+                new GeneralizedSuffixArray(Arrays.copyOfRange(docs, 0, split)),
+                new GeneralizedSuffixArray(Arrays.copyOfRange(docs, split, docs.length)));
+            final GeneralizedSuffixArray expected = new GeneralizedSuffixArray(docs);
+
+            Assert.assertEquals(merged.documents(), docs.length);
+            Assert.assertEquals(merged.getSuffixArray(), expected.getSuffixArray());
+            Assert.assertEquals(merged.getLCP(), expected.getLCP());
+            Assert.assertEquals(merged.getDocumentIds(), expected.getDocumentIds());
+            for (int d = 0; d < docs.length; d++)
+            {
+                Assert.assertEquals(merged.getDocument(d), docs[d]);
+            }
+        }
+    }
+
+    private static int [] suffix(GeneralizedSuffixArray gsa, int [][] docs, int doc,
+        int position)
+    {
+        final int offset = position - gsa.getDocumentStart(doc);
+        return Arrays.copyOfRange(docs[doc], offset, docs[doc].length);
+    }
+
+    private static String substring(String [] docs, int [] lcs)
+    {
+        return docs[lcs[0]].substring(lcs[1], lcs[1] + lcs[2]);
+    }
+
+    private static int compare(int [] a, int [] b)
+    {
+        for (int i = 0; i < Math.min(a.length, b.length); i++)
+        {
+            if (a[i] != b[i]) return a[i] < b[i] ? -1 : 1;
+        }
+        return a.length - b.length;
+    }
+
+    private static int commonPrefix(int [] a, int [] b)
+    {
+        int i = 0;
+        while (i < a.length && i < b.length && a[i] == b[i])
+            i++;
+        return i;
+    }
+
+    private static TreeSet<Integer> documentsContaining(int [][] docs, int [] pattern)
+    {
+        final TreeSet<Integer> result = new TreeSet<Integer>();
+        for (int d = 0; d < docs.length; d++)
+        {
+            for (int i = 0; i + pattern.length <= docs[d].length; i++)
+            {
+                if (Arrays.equals(Arrays.copyOfRange(docs[d], i, i + pattern.length),
+                    pattern))
+                {
+                    result.add(d);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int bruteForceLCS(int [][] docs, int k)
+    {
+        int best = 0;
+        for (int [] doc : docs)
+        {
+            for (int i = 0; i < doc.length; i++)
+            {
+                for (int j = i + best + 1; j <= doc.length; j++)
+                {
+                    if (documentsContaining(docs, Arrays.copyOfRange(doc, i, j)).size() < k)
+                    {
+                        break;
+                    }
+                    best = j - i;
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,106 @@
+package org.jsuffixarrays;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link LCPRangeMinimum}.
+ */
+public class LCPRangeMinimumTest
+{
+    /**
+     * Compare range minima of random arrays with a scan, for short ranges (within and
+     * across blocks) and long ones (across superblocks).
+     */
+    @Test
+    public void randomRangesAgainstScan()
+    {
+        final Random rnd = new Random(0x3a9);
+        for (int length : new int [] {1, 2, 63, 64, 65, 1000, 1024 * 5 + 17, 70000})
+        {
+            // Few distinct values, so that there are ties and long runs.
+            final int [] values = new int [length];
+            for (int i = 0; i < length; i++)
+            {
+                values[i] = (i % 1000 < 500 ? rnd.nextInt(4) : 100 - i % 100);
+            }
+            values[0] = -1;
+            final LCPRangeMinimum rmq = new LCPRangeMinimum(new SuffixData(
+                new int [length], values), length, null);
+
+            for (int q = 0; q < 2000; q++)
+            {
+                final int from = rnd.nextInt(length);
+                final int to = Math.min(length - 1, from
+                    + rnd.nextInt(q % 2 == 0 ? 130 : length));
+                int min = values[from];
+                for (int i = from + 1; i <= to; i++)
+                {
+                    min = Math.min(min, values[i]);
+                }
+                Assert.assertEquals(rmq.min(from, to), min, from + ".." + to);
+            }
+        }
+    }
+
+    /**
+     * Compare the LCP of random pairs of suffixes with a symbol-by-symbol comparison.
+     */
+    @Test
+    public void lcpOfSuffixes()
+    {
+        final Random rnd = new Random(0x1ce);
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try
+        {
+            for (int alphabet : new int [] {1, 4})
+            {
+                final int length = 70000;
+                final int [] input = new int [length];
+                for (int i = 0; i < length; i++)
+                {
+                    input[i] = 1 + rnd.nextInt(alphabet);
+                }
+                final SuffixData data = SuffixArrays.createWithLCP(input, 0, length);
+                final LCPRangeMinimum rmq = new LCPRangeMinimum(data, length, pool);
+
+                final int [] isa = rmq.getInverseSuffixArray();
+                for (int i = 0; i < length; i++)
+                {
+                    Assert.assertEquals(data.getSuffixArray()[isa[i]], i);
+                }
+
+                for (int q = 0; q < 1000; q++)
+                {
+                    final int i = rnd.nextInt(length);
+                    final int j = (q % 10 == 0 ? i : rnd.nextInt(length));
+                    int expected = 0;
+                    while (i + expected < length && j + expected < length
+                        && input[i + expected] == input[j + expected])
+                    {
+                        expected++;
+                    }
+                    Assert.assertEquals(rmq.lcp(i, j), expected);
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void inverseSuffixArray()
+    {
+        final int [] sa = SuffixArrays.create("abracadabra");
+        final int [] isa = SuffixArrays.computeISA(sa, 11, null);
+        for (int i = 0; i < 11; i++)
+        {
+            Assert.assertEquals(isa[sa[i]], i);
+        }
+    }
+}
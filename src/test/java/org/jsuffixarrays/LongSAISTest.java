@@ -0,0 +1,80 @@
+package org.jsuffixarrays;
+
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link LongSAIS} and long-indexed arrays.
+ */
+public class LongSAISTest
+{
+    /**
+     * Compare against the <code>int</code> version of SA-IS, use small pages so that
+     * arrays span many pages.
+     */
+    @Test
+    public void sameAsSAIS()
+    {
+        final Random rnd = new Random(0x11223344);
+        final int pageBits = 6;
+        for (MinMax alphabet : new MinMax []
+        {
+            new MinMax(0, 3), new MinMax(0, 255), new MinMax(0, 5000)
+        })
+        {
+            for (int size : new int [] {1, 2, 17, 1000, 20000})
+            {
+                final int [] input = SuffixArrayBuilderTestBase.generateRandom(rnd, size,
+                    alphabet);
+                if (size > 4)
+                {
+                    System.arraycopy(input, 0, input, size / 2, size / 4);
+                }
+
+                final int start = 3;
+                final PagedLongArray longInput = new PagedLongArray(size + start, pageBits);
+                for (int i = 0; i < size; i++)
+                {
+                    longInput.set(start + i, input[i]);
+                }
+
+                final int [] expected = SuffixArrays.createWithLCP(input, 0, size,
+                    new SAIS()).getSuffixArray();
+                final LongSuffixData actual = SuffixArrays.createWithLCP(longInput,
+                    start, size, new LongSAIS(pageBits));
+                final int [] expectedLCP = SuffixArrays.computeLCP(input, 0, size,
+                    expected);
+
+                Assert.assertEquals(actual.getSuffixArray().length(), size);
+                for (int i = 0; i < size; i++)
+                {
+                    Assert.assertEquals(actual.getSuffixArray().get(i), expected[i]);
+                    Assert.assertEquals(actual.getLCP().get(i), expectedLCP[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Byte input stored in pages.
+     */
+    @Test
+    public void pagedByteInput()
+    {
+        final String input = "mississippi";
+        final PagedByteArray bytes = new PagedByteArray(input.length(), 2);
+        for (int i = 0; i < input.length(); i++)
+        {
+            bytes.set(i, input.charAt(i));
+        }
+
+        final ILongArray sa = new LongSAIS(2).buildSuffixArray(bytes, 0, input.length());
+        final long [] expected = {10, 7, 4, 1, 0, 9, 8, 6, 3, 5, 2};
+        for (int i = 0; i < expected.length; i++)
+        {
+            Assert.assertEquals(sa.get(i), expected[i]);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.jsuffixarrays;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link PhiLCP}, against {@link KasaiLCP}.
+ */
+public class PhiLCPTest
+{
+    @Test
+    public void mississippi()
+    {
+        final SuffixData expected = SuffixArrays.createWithLCP("mississippi",
+            new QSufSort(), new KasaiLCP());
+        final SuffixData actual = SuffixArrays.createWithLCP("mississippi",
+            new QSufSort(), new PhiLCP());
+        Assert.assertEquals(actual.getLCP(), expected.getLCP());
+    }
+
+    /**
+     * Random and repetitive inputs at an offset, all variants (with and without a work
+     * buffer, single- and multi-threaded).
+     */
+    @Test
+    public void sameAsKasai()
+    {
+        final Random rnd = new Random(0x1234abcd);
+        final int size = 2 * PhiLCP.PARALLEL_THRESHOLD + 17;
+        for (int alphabet : new int [] {1, 2, 4, 255})
+        {
+            final int [] input = SuffixArrayBuilderTestBase.generateRandom(rnd,
+                size + 5, new MinMax(1, alphabet));
+            if (alphabet == 2)
+            {
+                // Long repeats.
+                for (int i = 5 + 1000; i < input.length; i++)
+                    input[i] = input[i - 1000];
+            }
+
+            final int [] sa = new DivSufSort().buildSuffixArray(input, 5, size);
+            final int [] expected = new KasaiLCP().buildLCP(input, 5, size, sa);
+
+            Assert.assertEquals(new PhiLCP().buildLCP(input, 5, size, sa), expected);
+            final int [] lcp = new int [size];
+            new PhiLCP().buildLCP(input, 5, size, sa, lcp, null);
+            Assert.assertEquals(lcp, expected);
+            Arrays.fill(lcp, 0);
+            new PhiLCP(3).buildLCP(input, 5, size, sa, lcp, new int [size + 10]);
+            Assert.assertEquals(lcp, expected);
+            new PhiLCP(4).buildLCP(input, 5, size, sa, lcp, null);
+            Assert.assertEquals(lcp, expected);
+        }
+    }
+}
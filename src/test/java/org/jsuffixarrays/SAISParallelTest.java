@@ -0,0 +1,50 @@
+package org.jsuffixarrays;
+
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeSuite;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the parallel variant of {@link SAIS}.
+ */
+public class SAISParallelTest extends SuffixArrayBuilderTestBase {
+    @BeforeSuite
+    public void setupForConstraints() {
+        smallAlphabet = new MinMax(1, 10);
+        largeAlphabet = new MinMax(1, 1000);
+    }
+
+    /*
+     * 
+     */
+    @Override
+    protected ISuffixArrayBuilder getInstance() {
+        // Parallel routines regardless of the number of processors of the test machine.
+        return new SAIS(4, 4);
+    }
+
+    /**
+     * Inputs large enough to use the parallel routines (including the recursion and
+     * bucket computations for large alphabets) must yield the same result as the
+     * sequential version.
+     */
+    @Test
+    public void sameAsSequential() {
+        final Random rnd = new Random(0x11223344);
+        final int size = 300000;
+        for (MinMax alphabet : new MinMax [] {
+            new MinMax(0, 3), new MinMax(0, 255), new MinMax(0, 100000)
+        }) {
+            final int [] input = generateRandom(rnd, size, alphabet);
+
+            // Make the input repetitive so that the reduced problem needs recursion.
+            System.arraycopy(input, 0, input, size / 3, size / 3);
+
+            final int [] expected = new SAIS().buildSuffixArray(input, 0, size);
+            final int [] actual = getInstance().buildSuffixArray(input, 0, size);
+            Assert.assertEquals(actual, expected);
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package org.jsuffixarrays;
 
 import org.testng.annotations.BeforeSuite;
-import org.testng.annotations.Test;
 
 /**
  * Tests for {@link SAIS}.
@@ -20,13 +19,4 @@ public class SAISTest extends SuffixArrayBuilderTestBase {
     protected ISuffixArrayBuilder getInstance() {
         return new SAIS();
     }
-
-    /*
-     * 
-     */
-    @Override
-    @Test(enabled = false)
-    public void sameResultWithArraySlice() {
-        // Ignore this test, requires start == 0
-    }
 }
@@ -0,0 +1,128 @@
+package org.jsuffixarrays;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link SegmentedIndex}.
+ */
+public class SegmentedIndexTest
+{
+    @Test
+    public void smallBatches()
+    {
+        final SegmentedIndex index = new SegmentedIndex(null, 2);
+        Assert.assertEquals(index.add(Arrays.asList("banana", "ananas")), 0);
+        Assert.assertEquals(index.add(Arrays.asList("nab")), 2);
+        Assert.assertEquals(index.add(new ArrayList<String>()), 3);
+        Assert.assertEquals(index.add(Arrays.asList("", "cabana")), 3);
+
+        Assert.assertEquals(index.documents(), 5);
+        Assert.assertEquals(index.count("ana"), 5);
+        Assert.assertEquals(index.count("x"), 0);
+        Assert.assertEquals(index.listDocuments("ab"), new int [] {2, 4});
+        Assert.assertEquals(index.listDocuments("an"), new int [] {0, 1, 4});
+
+        // Small segments are all in tier 0 and merged pairwise.
+        Assert.assertEquals(index.segments(), 1);
+    }
+
+    @Test
+    public void tiers()
+    {
+        Assert.assertEquals(SegmentedIndex.tier(0, 10), 0);
+        Assert.assertEquals(SegmentedIndex.tier(SegmentedIndex.FLOOR_SIZE * 10 - 1, 10), 0);
+        Assert.assertEquals(SegmentedIndex.tier(SegmentedIndex.FLOOR_SIZE * 10, 10), 1);
+        Assert.assertEquals(SegmentedIndex.tier(SegmentedIndex.FLOOR_SIZE * 100, 10), 2);
+    }
+
+    @Test
+    public void synchronousMerges()
+    {
+        check(null, 0x5e65e6);
+    }
+
+    @Test
+    public void backgroundMerges()
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            check(executor, 0xbac6);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void rejectedMerges()
+    {
+        // Merges rejected by a shut down executor run on the adding thread.
+        final ExecutorService executor = Executors.newFixedThreadPool(1);
+        executor.shutdown();
+        check(executor, 0x5b07);
+    }
+
+    /**
+     * Add random batches and compare queries with a generalized suffix array of all
+     * documents.
+     */
+    private void check(ExecutorService executor, long seed)
+    {
+        final Random rnd = new Random(seed);
+        final SegmentedIndex index = new SegmentedIndex(executor, 3);
+        final List<String> all = new ArrayList<String>();
+        for (int batch = 0; batch < 60; batch++)
+        {
+            final List<String> docs = new ArrayList<String>();
+            final int count = 1 + rnd.nextInt(batch % 10 == 0 ? 100 : 5);
+            for (int i = 0; i < count; i++)
+            {
+                docs.add(randomString(rnd, rnd.nextInt(40), "abc"));
+            }
+            Assert.assertEquals(index.add(docs), all.size());
+            all.addAll(docs);
+
+            final GeneralizedSuffixArray expected = new GeneralizedSuffixArray(all);
+            final int [] interval = new int [2];
+            for (int i = 0; i < 10; i++)
+            {
+                // Queries may run concurrently with merges.
+                final String pattern = randomString(rnd, 1 + rnd.nextInt(4), "abcd");
+                Assert.assertEquals(index.count(pattern), expected.find(pattern, interval));
+                Assert.assertEquals(index.listDocuments(pattern), expected
+                    .listDocuments(pattern));
+            }
+        }
+
+        try
+        {
+            index.waitForMerges();
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+        Assert.assertEquals(index.documents(), all.size());
+        Assert.assertTrue(index.segments() < 10, "segments: " + index.segments());
+    }
+
+    private static String randomString(Random rnd, int length, String alphabet)
+    {
+        final StringBuilder b = new StringBuilder();
+        for (int i = 0; i < length; i++)
+        {
+            b.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+        }
+        return b.toString();
+    }
+}
@@ -0,0 +1,108 @@
+package org.jsuffixarrays;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link SparseAlphabetMapper} and the large-alphabet paths using it.
+ */
+public class SparseAlphabetMapperTest
+{
+    @Test
+    public void codesPreserveOrder()
+    {
+        final int [] input = new int [] {
+            7, Integer.MAX_VALUE, Integer.MIN_VALUE, -1, 7, 0, Integer.MIN_VALUE};
+        final SparseAlphabetMapper mapper = new SparseAlphabetMapper(input, 1, 5);
+
+        Assert.assertEquals(mapper.symbols(), 5);
+        Assert.assertEquals(mapper.code(Integer.MIN_VALUE), 1);
+        Assert.assertEquals(mapper.code(-1), 2);
+        Assert.assertEquals(mapper.code(0), 3);
+        Assert.assertEquals(mapper.code(7), 4);
+        Assert.assertEquals(mapper.code(Integer.MAX_VALUE), 5);
+        Assert.assertEquals(mapper.code(8), 0);
+
+        final int [] copy = input.clone();
+        mapper.map(copy, 1, 5);
+        Assert.assertEquals(copy, new int [] {7, 5, 1, 2, 4, 3, Integer.MIN_VALUE});
+        mapper.undo(copy, 1, 5);
+        Assert.assertEquals(copy, input);
+    }
+
+    /**
+     * Symbols spanning the whole int range, compared against a suffix array of the same
+     * input scaled down to a small range.
+     */
+    @Test
+    public void fullRangeDecorator()
+    {
+        final Random rnd = new Random(0x5ba45ba4);
+        for (int round = 0; round < 20; round++)
+        {
+            final int length = 1 + rnd.nextInt(3000);
+            final int [] small = new int [length];
+            final int [] large = new int [length + 5];
+            final int [] symbols = sortedDistinct(rnd, 1 + rnd.nextInt(100));
+            for (int i = 0; i < length; i++)
+            {
+                small[i] = rnd.nextInt(symbols.length);
+                large[i + 5] = symbols[small[i]];
+            }
+            final int [] copy = large.clone();
+
+            final int [] expected = new SAIS().buildSuffixArray(small, 0, length);
+            final int [] actual = new DensePositiveDecorator(new SAIS()).buildSuffixArray(
+                large, 5, length);
+            Assert.assertEquals(actual, expected);
+            Assert.assertEquals(large, copy);
+
+            final BWTData bwt = SuffixArrays.createBWT(large, 5, length);
+            Assert.assertEquals(large, copy);
+            Assert.assertEquals(SuffixArrays.inverseBWT(bwt),
+                Arrays.copyOfRange(large, 5, 5 + length));
+        }
+    }
+
+    @Test
+    public void fullRangeGeneralizedSuffixArray()
+    {
+        final int [] symbols = sortedDistinct(new Random(0x1234), 3);
+        final int [][] docs = new int [][] {
+            {symbols[0], symbols[1], symbols[2]}, {symbols[1], symbols[2]}, {symbols[2]}};
+        final GeneralizedSuffixArray gsa = new GeneralizedSuffixArray(docs);
+
+        Assert.assertEquals(gsa.listDocuments(new int [] {symbols[2]}, 0, 1),
+            new int [] {0, 1, 2});
+        Assert.assertEquals(gsa.listDocuments(new int [] {symbols[1], symbols[2]}, 0, 2),
+            new int [] {0, 1});
+        Assert.assertEquals(gsa.listDocuments(new int [] {symbols[0] + 1}, 0, 1),
+            new int [0]);
+        Assert.assertEquals(gsa.longestCommonSubstring(2)[2], 2);
+    }
+
+    /**
+     * @return Sorted distinct symbols from the whole int range, including both extremes.
+     */
+    private static int [] sortedDistinct(Random rnd, int count)
+    {
+        final int [] symbols = new int [count + 2];
+        symbols[0] = Integer.MIN_VALUE;
+        symbols[1] = Integer.MAX_VALUE;
+        for (int i = 2; i < symbols.length; i++)
+        {
+            symbols[i] = rnd.nextInt();
+        }
+        Arrays.sort(symbols);
+
+        int unique = 0;
+        for (int i = 0; i < symbols.length; i++)
+        {
+            if (i == 0 || symbols[i] != symbols[i - 1]) symbols[unique++] = symbols[i];
+        }
+        return Arrays.copyOf(symbols, unique);
+    }
+}
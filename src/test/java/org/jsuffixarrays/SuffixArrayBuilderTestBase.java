@@ -170,7 +170,7 @@ public abstract class SuffixArrayBuilderTestBase
     {
         for (int j = 0; j < input.length; j++)
         {
-            input[j] = rnd.nextInt(alphabet.range() + 1) + alphabet.min;
+            input[j] = rnd.nextInt((int) alphabet.range() + 1) + alphabet.min;
         }
     }
 
@@ -0,0 +1,120 @@
+package org.jsuffixarrays;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link SuffixArrays#merge(int[], int, int, SuffixData, int[], int, int,
+ * SuffixData)}.
+ */
+public class SuffixArrayMergerTest
+{
+    @Test
+    public void randomAgainstRebuild()
+    {
+        final Random rnd = new Random(0x3e263e);
+        for (int round = 0; round < 200; round++)
+        {
+            // Small, byte and large alphabets (see SuffixArrayMerger).
+            final int alphabet = 1 + rnd.nextInt(new int [] {3, 100, 1000} [round % 3]);
+            final int maxLength = (alphabet > 256 ? 3000 : 300);
+            final int [] a = SuffixArrayBuilderTestBase.generateRandom(rnd,
+                rnd.nextInt(maxLength), new MinMax(1, alphabet));
+            final int [] b = SuffixArrayBuilderTestBase.generateRandom(rnd,
+                rnd.nextInt(maxLength), new MinMax(1, alphabet + rnd.nextInt(3)));
+            check(a, b);
+        }
+    }
+
+    @Test
+    public void repetitive()
+    {
+        final int [] a = new int [500];
+        final int [] b = new int [333];
+        Arrays.fill(a, 7);
+        Arrays.fill(b, 7);
+        check(a, b);
+        check(b, a);
+
+        for (int i = 0; i < a.length; i++)
+            a[i] = 10 + i % 5;
+        for (int i = 0; i < b.length; i++)
+            b[i] = 10 + i % 3;
+        check(a, b);
+        check(b, a);
+    }
+
+    @Test
+    public void emptyInputs()
+    {
+        check(new int [0], new int [0]);
+        check(new int [0], new int [] {3, 1, 3});
+        check(new int [] {3, 1, 3}, new int [0]);
+    }
+
+    @Test
+    public void concatenation()
+    {
+        final String a = "mississippi$";
+        final String b = "banana";
+        final SuffixData merged = SuffixArrays.merge(a, SuffixArrays.createWithLCP(a), b,
+            SuffixArrays.createWithLCP(b));
+        final SuffixData expected = SuffixArrays.createWithLCP(a + b);
+        final int n = a.length() + b.length();
+        Assert.assertEquals(merged.getSuffixArray(), Arrays.copyOf(expected
+            .getSuffixArray(), n));
+        Assert.assertEquals(merged.getLCP(), Arrays.copyOf(expected.getLCP(), n));
+    }
+
+    @Test
+    public void withoutLCP()
+    {
+        final int [] a = new int [] {2, 1, 2, 1};
+        final int [] b = new int [] {1, 2};
+        final SuffixData merged = SuffixArrays.merge(a, 0, a.length, new SuffixData(
+            new SAIS().buildSuffixArray(a, 0, a.length), null), b, 0, b.length,
+            SuffixArrays.createWithLCP(b, 0, b.length));
+        Assert.assertNull(merged.getLCP());
+        Assert.assertEquals(merged.getSuffixArray(), new int [] {3, 4, 1, 5, 2, 0});
+    }
+
+    /**
+     * Compare with the suffix array of <code>A 0 B 1</code> (with symbols shifted above
+     * both separators), without the separator suffixes.
+     */
+    private static void check(int [] a, int [] b)
+    {
+        final int [] dataA = Arrays.copyOf(a, a.length
+            + SuffixArrays.MAX_EXTRA_TRAILING_SPACE);
+        final int [] dataB = Arrays.copyOf(b, b.length
+            + SuffixArrays.MAX_EXTRA_TRAILING_SPACE);
+        final SuffixData merged = SuffixArrays.merge(a, 0, a.length, SuffixArrays
+            .createWithLCP(dataA, 0, a.length), b, 0, b.length, SuffixArrays
+            .createWithLCP(dataB, 0, b.length));
+
+        final int n = a.length + b.length + 2;
+        final int [] text = new int [n];
+        for (int i = 0; i < a.length; i++)
+            text[i] = a[i] + 2;
+        text[a.length] = 0;
+        for (int i = 0; i < b.length; i++)
+            text[a.length + 1 + i] = b[i] + 2;
+        text[n - 1] = 1;
+
+        final int [] sa = new SAIS().buildSuffixArray(text, 0, n);
+        final int [] lcp = SuffixArrays.computeLCP(text, 0, n, sa);
+        final int [] expectedSA = new int [n - 2];
+        final int [] expectedLCP = new int [n - 2];
+        for (int i = 2; i < n; i++)
+        {
+            expectedSA[i - 2] = sa[i] > a.length ? sa[i] - 1 : sa[i];
+            expectedLCP[i - 2] = (i == 2 ? -1 : lcp[i]);
+        }
+
+        Assert.assertEquals(merged.getSuffixArray(), expectedSA);
+        Assert.assertEquals(merged.getLCP(), expectedLCP);
+    }
+}
@@ -0,0 +1,190 @@
+package org.jsuffixarrays;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.cursors.IntCursor;
+
+/**
+ * Tests for {@link SuffixArraySearcher}.
+ */
+public class SuffixArraySearcherTest
+{
+    @Test
+    public void mississippi()
+    {
+        final String text = "mississippi";
+        final SuffixArraySearcher searcher = new SuffixArraySearcher(text, SuffixArrays
+            .createWithLCP(text));
+
+        Assert.assertEquals(searcher.count("ssi"), 2);
+        Assert.assertEquals(searcher.count("i"), 4);
+        Assert.assertEquals(searcher.count("mississippi"), 1);
+        Assert.assertEquals(searcher.count("mississippis"), 0);
+        Assert.assertEquals(searcher.count("x"), 0);
+        Assert.assertEquals(searcher.count("a"), 0);
+        Assert.assertEquals(searcher.count(""), text.length());
+
+        final int [] interval = new int [2];
+        Assert.assertEquals(searcher.find("issi", interval), 2);
+        Assert.assertEquals(interval[1] - interval[0], 2);
+
+        Assert.assertEquals(positions(searcher.positions("ssi")), new int [] {5, 2});
+        Assert.assertEquals(positions(searcher.positions("pp")), new int [] {8});
+    }
+
+    @Test
+    public void emptyInput()
+    {
+        final SuffixArraySearcher searcher = new SuffixArraySearcher(new int [0], 0, 0,
+            new SuffixData(new int [0], new int [0]));
+        Assert.assertEquals(searcher.count(new int [] {1}, 0, 1), 0);
+    }
+
+    /**
+     * Compare counts and positions against a naive scan, for random inputs (at a non-zero
+     * offset) and patterns, both occurring and not occurring in the input.
+     */
+    @Test
+    public void randomAgainstNaive()
+    {
+        final Random rnd = new Random(0xdeadbeef);
+        for (int round = 0; round < 50; round++)
+        {
+            final int size = 1 + rnd.nextInt(2000);
+            final int alphabet = 1 + rnd.nextInt(5);
+            final int [] input = SuffixArrayBuilderTestBase.generateRandom(rnd,
+                size + 3, new MinMax(1, alphabet));
+            final SuffixData data = SuffixArrays.createWithLCP(input, 3, size);
+            final SuffixArraySearcher searcher = new SuffixArraySearcher(input, 3, size,
+                data);
+
+            for (int q = 0; q < 100; q++)
+            {
+                final int [] pattern;
+                if (rnd.nextBoolean())
+                {
+                    final int from = rnd.nextInt(size);
+                    final int len = rnd.nextInt(Math.min(size - from, 20) + 1);
+                    pattern = Arrays.copyOfRange(input, 3 + from, 3 + from + len);
+                }
+                else
+                {
+                    pattern = SuffixArrayBuilderTestBase.generateRandom(rnd, rnd
+                        .nextInt(10), new MinMax(0, alphabet + 1));
+                }
+
+                final IntArrayList expected = new IntArrayList();
+                for (int i = 0; i < size; i++)
+                {
+                    if (occursAt(input, 3 + i, 3 + size, pattern)) expected.add(i);
+                }
+
+                Assert.assertEquals(searcher.count(pattern, 0, pattern.length), expected
+                    .size());
+                final int [] actual = positions(searcher.positions(pattern, 0,
+                    pattern.length));
+                Arrays.sort(actual);
+                Assert.assertEquals(actual, expected.toArray());
+            }
+        }
+    }
+
+    /**
+     * Batch lookups (sequential and in parallel chunks) must return the same intervals as
+     * individual searches, including duplicated and non-occurring patterns.
+     */
+    @Test
+    public void batchSameAsSingle()
+    {
+        final Random rnd = new Random(0xcafebabe);
+        final int size = 5000;
+        final int [] input = SuffixArrayBuilderTestBase.generateRandom(rnd, size,
+            new MinMax(1, 4));
+        final SuffixArraySearcher searcher = new SuffixArraySearcher(input, 0, size,
+            SuffixArrays.createWithLCP(input, 0, size));
+
+        final int [][] patterns = new int [3000][];
+        for (int i = 0; i < patterns.length; i++)
+        {
+            if (i > 0 && rnd.nextInt(10) == 0)
+            {
+                patterns[i] = patterns[rnd.nextInt(i)];
+            }
+            else if (rnd.nextBoolean())
+            {
+                final int from = rnd.nextInt(size);
+                final int len = rnd.nextInt(Math.min(size - from, 15) + 1);
+                patterns[i] = Arrays.copyOfRange(input, from, from + len);
+            }
+            else
+            {
+                patterns[i] = SuffixArrayBuilderTestBase.generateRandom(rnd, rnd
+                    .nextInt(12), new MinMax(0, 5));
+            }
+        }
+
+        final int [] expectedLower = new int [patterns.length];
+        final int [] expectedUpper = new int [patterns.length];
+        final int [] interval = new int [2];
+        for (int i = 0; i < patterns.length; i++)
+        {
+            searcher.find(patterns[i], 0, patterns[i].length, interval);
+            expectedLower[i] = interval[0];
+            expectedUpper[i] = interval[1];
+        }
+
+        final int [] lower = new int [patterns.length];
+        final int [] upper = new int [patterns.length];
+        searcher.findAll(patterns, lower, upper);
+        Assert.assertEquals(lower, expectedLower);
+        Assert.assertEquals(upper, expectedUpper);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            Arrays.fill(lower, -1);
+            Arrays.fill(upper, -1);
+            searcher.findAll(patterns, lower, upper, executor, 7);
+            Assert.assertEquals(lower, expectedLower);
+            Assert.assertEquals(upper, expectedUpper);
+
+            final int [] counts = searcher.countAll(patterns, executor, 4);
+            for (int i = 0; i < patterns.length; i++)
+            {
+                Assert.assertEquals(counts[i], expectedUpper[i] - expectedLower[i]);
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private static boolean occursAt(int [] input, int at, int end, int [] pattern)
+    {
+        if (at + pattern.length > end) return false;
+        for (int i = 0; i < pattern.length; i++)
+        {
+            if (input[at + i] != pattern[i]) return false;
+        }
+        return true;
+    }
+
+    private static int [] positions(Iterator<IntCursor> i)
+    {
+        final IntArrayList list = new IntArrayList();
+        while (i.hasNext())
+        {
+            list.add(i.next().value);
+        }
+        return list.toArray();
+    }
+}
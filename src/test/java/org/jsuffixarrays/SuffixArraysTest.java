@@ -1,6 +1,11 @@
 package org.jsuffixarrays;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -32,6 +37,108 @@ public class SuffixArraysTest
         }
     }
 
+    /**
+     * Batch construction must give the same results as building each input separately,
+     * in input order, with and without an executor.
+     */
+    @Test
+    public void createAllCharSequences()
+    {
+        final Random rnd = new Random(0x11223344);
+        final List<String> inputs = new ArrayList<String>();
+        for (int i = 0; i < 300; i++)
+        {
+            final StringBuilder b = new StringBuilder();
+            final int alphabet = 1 + rnd.nextInt(i % 3 == 0 ? 4 : 300);
+            for (int j = rnd.nextInt(i % 10 == 0 ? 3 : 500); j > 0; j--)
+            {
+                b.append((char) ('a' + rnd.nextInt(alphabet)));
+            }
+            inputs.add(b.toString());
+        }
+
+        final List<SuffixData> expected = new ArrayList<SuffixData>();
+        for (String s : inputs)
+        {
+            expected.add(s.length() == 0 ? null : SuffixArrays.createWithLCP(s, new SAIS()));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            for (Algorithm algorithm : new Algorithm [] {
+                Algorithm.ADAPTIVE, Algorithm.SAIS, Algorithm.QSUFSORT, Algorithm.SKEW,
+                Algorithm.DIVSUFSORT})
+            {
+                final List<SuffixData> sequential = SuffixArrays.createAll(inputs,
+                    algorithm, true, null, 1);
+                final List<SuffixData> parallel = SuffixArrays.createAll(inputs, algorithm,
+                    false, executor, 4);
+                for (int i = 0; i < inputs.size(); i++)
+                {
+                    final String s = inputs.get(i);
+                    final int [] sa = sequential.get(i).getSuffixArray();
+                    Assert.assertEquals(sa.length, s.length());
+                    Assert.assertEquals(parallel.get(i).getSuffixArray(), sa);
+                    Assert.assertNull(parallel.get(i).getLCP());
+                    if (expected.get(i) != null)
+                    {
+                        Assert.assertEquals(sa, Arrays.copyOf(expected.get(i)
+                            .getSuffixArray(), s.length()));
+                        Assert.assertEquals(sequential.get(i).getLCP(), Arrays.copyOf(
+                            expected.get(i).getLCP(), s.length()));
+                    }
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void createAllSlices()
+    {
+        final Random rnd = new Random(0x11223344);
+        final int count = 100;
+        final int [][] inputs = new int [count][];
+        final int [] starts = new int [count];
+        final int [] lengths = new int [count];
+        for (int i = 0; i < count; i++)
+        {
+            starts[i] = rnd.nextInt(5);
+            lengths[i] = rnd.nextInt(1000);
+            inputs[i] = SuffixArrayBuilderTestBase.generateRandom(rnd, starts[i]
+                + lengths[i], new MinMax(-100, 100));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            for (Algorithm algorithm : new Algorithm [] {
+                Algorithm.ADAPTIVE, Algorithm.DIVSUFSORT})
+            {
+                final List<SuffixData> results = SuffixArrays.createAll(inputs, starts,
+                    lengths, algorithm, true, executor, 2);
+                for (int i = 0; i < count; i++)
+                {
+                    if (lengths[i] == 0) continue;
+                    final SuffixData expected = SuffixArrays.createWithLCP(inputs[i],
+                        starts[i], lengths[i]);
+                    Assert.assertEquals(results.get(i).getSuffixArray(), Arrays.copyOf(
+                        expected.getSuffixArray(), lengths[i]));
+                    Assert.assertEquals(results.get(i).getLCP(), Arrays.copyOf(expected
+                        .getLCP(), lengths[i]));
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
     private int prefixLength(int [] input, int i, int j)
     {
         int prefix = 0;
@@ -0,0 +1,261 @@
+package org.jsuffixarrays;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link SuffixDataFile}.
+ */
+public class SuffixDataFileTest
+{
+    /**
+     * Save and map back an index, with and without the inverse suffix array.
+     */
+    @Test
+    public void roundTrip() throws IOException
+    {
+        final Random rnd = new Random(0x55667788);
+        final int size = 20000;
+        final int [] input = SuffixArrayBuilderTestBase.generateRandom(rnd, size + 10,
+            new MinMax(1, 20));
+        final SuffixData data = SuffixArrays.createWithLCP(input, 5, size, new SAIS());
+
+        for (boolean withInverse : new boolean [] {false, true})
+        {
+            final File file = File.createTempFile("suffixdata", ".idx");
+            try
+            {
+                SuffixDataFile.write(file, input, 5, size, data, withInverse);
+
+                final MappedSuffixData mapped = SuffixDataFile.map(file, true);
+                Assert.assertEquals(mapped.length(), size);
+                final ILongArray sa = mapped.getSuffixData().getSuffixArray();
+                final ILongArray lcp = mapped.getSuffixData().getLCP();
+                for (int i = 0; i < size; i++)
+                {
+                    Assert.assertEquals(mapped.getText().get(i), input[5 + i]);
+                    Assert.assertEquals(sa.get(i), data.getSuffixArray()[i]);
+                    Assert.assertEquals(lcp.get(i), data.getLCP()[i]);
+                }
+
+                final ILongArray isa = mapped.getInverseSuffixArray();
+                if (withInverse)
+                {
+                    for (int i = 0; i < size; i++)
+                    {
+                        Assert.assertEquals(isa.get(sa.get(i)), i);
+                    }
+                }
+                else
+                {
+                    Assert.assertNull(isa);
+                }
+            }
+            finally
+            {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Save and map back a long-indexed byte sequence, with 4- and 8-byte index sections
+     * and the inverse suffix array (permuted in the mapped file).
+     */
+    @Test
+    public void longRoundTrip() throws IOException
+    {
+        final Random rnd = new Random(0x11223344);
+        final int size = 5000;
+        final PagedByteArray input = new PagedByteArray(size, 10);
+        for (int i = 0; i < size; i++)
+        {
+            input.set(i, rnd.nextInt(4));
+        }
+        final LongSuffixData data = SuffixArrays.createWithLCP(input, 0, size);
+
+        for (int width : new int [] {4, 8})
+        {
+            final File file = File.createTempFile("suffixdata", ".idx");
+            try
+            {
+                SuffixDataFile.write(file, input, 0, size, data, true, width);
+
+                final MappedSuffixData mapped = SuffixDataFile.map(file, true);
+                Assert.assertEquals(((BufferLongArray) mapped.getText()).width(), 1);
+                final ILongArray sa = mapped.getSuffixData().getSuffixArray();
+                final ILongArray lcp = mapped.getSuffixData().getLCP();
+                final ILongArray isa = mapped.getInverseSuffixArray();
+                Assert.assertEquals(((BufferLongArray) sa).width(), width);
+                for (int i = 0; i < size; i++)
+                {
+                    Assert.assertEquals(mapped.getText().get(i), input.get(i));
+                    Assert.assertEquals(sa.get(i), data.getSuffixArray().get(i));
+                    Assert.assertEquals(lcp.get(i), data.getLCP().get(i));
+                    Assert.assertEquals(isa.get(sa.get(i)), i);
+                }
+            }
+            finally
+            {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * The text takes the fewest bytes its symbols need.
+     */
+    @Test
+    public void symbolWidths() throws IOException
+    {
+        final String [] texts = {"banana", "\u0431\u0430\u043d\u0430\u043d\u0430"};
+        final int [] widths = {1, 2};
+        for (int t = 0; t < texts.length; t++)
+        {
+            final File file = File.createTempFile("suffixdata", ".idx");
+            try
+            {
+                SuffixDataFile.write(file, texts[t], SuffixArrays.createWithLCP(texts[t]),
+                    false);
+                final ILongArray text = SuffixDataFile.map(file, true).getText();
+                Assert.assertEquals(((BufferLongArray) text).width(), widths[t]);
+                for (int i = 0; i < texts[t].length(); i++)
+                {
+                    Assert.assertEquals(text.get(i), texts[t].charAt(i));
+                }
+            }
+            finally
+            {
+                file.delete();
+            }
+        }
+
+        final int [] negative = {-3, 5, -3, 5, 0};
+        final File file = File.createTempFile("suffixdata", ".idx");
+        try
+        {
+            SuffixDataFile.write(file, negative, 0, negative.length, SuffixArrays
+                .createWithLCP(negative, 0, negative.length), false);
+            final ILongArray text = SuffixDataFile.map(file, true).getText();
+            Assert.assertEquals(((BufferLongArray) text).width(), 4);
+            Assert.assertEquals(text.get(0), -3);
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    /**
+     * A corrupted section is detected when checksums are verified (and only then).
+     */
+    @Test
+    public void corruptedSection() throws IOException
+    {
+        final String text = "mississippi";
+        final SuffixData data = SuffixArrays.createWithLCP(text);
+
+        final File file = File.createTempFile("suffixdata", ".idx");
+        try
+        {
+            SuffixDataFile.write(file, text, data, false);
+
+            final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try
+            {
+                raf.seek(SuffixDataFile.ALIGNMENT);
+                raf.write('x');
+            }
+            finally
+            {
+                raf.close();
+            }
+
+            Assert.assertEquals(SuffixDataFile.map(file, false).getText().get(0), 'x');
+            try
+            {
+                SuffixDataFile.map(file, true);
+                Assert.fail("Expected a checksum mismatch.");
+            }
+            catch (IOException e)
+            {
+                // Expected.
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    /**
+     * Element widths other than 4 and 8 bytes are rejected.
+     */
+    @Test
+    public void invalidWidth() throws IOException
+    {
+        final String text = "mississippi";
+        final File file = File.createTempFile("suffixdata", ".idx");
+        try
+        {
+            SuffixDataFile.write(file, text, SuffixArrays.createWithLCP(text), false);
+
+            final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try
+            {
+                // Magic, version and flags come first; little-endian width of 3.
+                raf.seek(3 * 4);
+                raf.write(new byte [] {3, 0, 0, 0});
+            }
+            finally
+            {
+                raf.close();
+            }
+
+            try
+            {
+                SuffixDataFile.map(file, false);
+                Assert.fail("Expected an invalid width.");
+            }
+            catch (IOException e)
+            {
+                Assert.assertTrue(e.getMessage().contains("width"), e.getMessage());
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    /**
+     * Files that are not suffix indexes are rejected.
+     */
+    @Test(expectedExceptions = IOException.class)
+    public void notAnIndex() throws IOException
+    {
+        final File file = File.createTempFile("suffixdata", ".idx");
+        try
+        {
+            final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try
+            {
+                raf.setLength(SuffixDataFile.HEADER_SIZE);
+            }
+            finally
+            {
+                raf.close();
+            }
+            SuffixDataFile.map(file, false);
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.jsuffixarrays;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeSuite;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link ThreadLocalBuilder}.
+ */
+public class ThreadLocalBuilderTest extends SuffixArrayBuilderTestBase
+{
+    @BeforeSuite
+    public void setupForConstraints()
+    {
+        smallAlphabet = new MinMax(1, 10);
+        largeAlphabet = new MinMax(1, 255);
+    }
+
+    /*
+     *
+     */
+    @Override
+    protected ISuffixArrayBuilder getInstance()
+    {
+        return Algorithm.DIVSUFSORT.getThreadSafeInstance();
+    }
+
+    @Test
+    public void sharedBetweenThreads() throws Exception
+    {
+        for (Algorithm algorithm : new Algorithm [] {
+            Algorithm.DIVSUFSORT, Algorithm.QSUFSORT, Algorithm.BPR, Algorithm.DEEP_SHALLOW,
+            Algorithm.SKEW, Algorithm.SKEW_D, Algorithm.ADAPTIVE})
+        {
+            checkConcurrent(algorithm.getThreadSafeInstance());
+        }
+    }
+
+    private static void checkConcurrent(final ISuffixArrayBuilder shared) throws Exception
+    {
+        final int threads = 4;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < threads; t++)
+            {
+                final Random rnd = new Random(t);
+                futures.add(executor.submit(new Callable<Void>()
+                {
+                    public Void call()
+                    {
+                        for (int round = 0; round < 50; round++)
+                        {
+                            final int length = 2 + rnd.nextInt(1000);
+                            final int [] input = new int [length
+                                + SuffixArrays.MAX_EXTRA_TRAILING_SPACE];
+                            for (int i = 0; i < length; i++)
+                            {
+                                input[i] = 1 + rnd.nextInt(1 + rnd.nextInt(200));
+                            }
+
+                            final int [] expected = new SAIS().buildSuffixArray(input, 0,
+                                length);
+                            final int [] actual = shared.buildSuffixArray(input, 0, length);
+                            Assert.assertEquals(Arrays.copyOf(actual, length), expected);
+                        }
+                        return null;
+                    }
+                }));
+            }
+
+            for (Future<?> f : futures)
+            {
+                f.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+}
@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -125,4 +127,216 @@ public class TraversalsTest
 
         Assert.assertEquals(expected, actual);
     }
+
+    /**
+     * Primitive computing traversals must visit the same nodes with the same values as
+     * the generic one (here: leaf counts and sums of suffix lengths).
+     */
+    @Test
+    public void postorderPrimitiveAggregation()
+    {
+        final Random rnd = new Random(0x5eed);
+        for (int round = 0; round < 50; round++)
+        {
+            final StringBuilder b = new StringBuilder();
+            final int length = rnd.nextInt(200);
+            for (int i = 0; i < length; i++)
+            {
+                b.append((char) ('a' + rnd.nextInt(1 + round % 4)));
+            }
+            final String input = b.toString();
+            final SuffixData sd = SuffixArrays.createWithLCP(input);
+            final int [] sa = sd.getSuffixArray();
+            final int [] lcp = sd.getLCP();
+
+            final List<String> expected = new ArrayList<String>();
+            Traversals.postorder(length, sa, lcp, 0L,
+                new Traversals.IPostOrderComputingVisitor<Long>()
+                {
+                    public Long aggregate(Long value1, Long value2)
+                    {
+                        return value1 + value2;
+                    }
+
+                    public Long leafValue(int saIndex, int symbolIndex, int length)
+                    {
+                        return (long) length;
+                    }
+
+                    public void visitNode(int start, int length, boolean leaf, Long value)
+                    {
+                        expected.add(start + "," + length + "," + leaf + "," + value);
+                    }
+                });
+
+            final List<String> actualLong = new ArrayList<String>();
+            Traversals.postorder(length, sa, lcp, 0L,
+                new Traversals.IPostOrderLongComputingVisitor()
+                {
+                    public long aggregate(long value1, long value2)
+                    {
+                        return value1 + value2;
+                    }
+
+                    public long leafValue(int saIndex, int symbolIndex, int length)
+                    {
+                        return length;
+                    }
+
+                    public void visitNode(int start, int length, boolean leaf, long value)
+                    {
+                        actualLong.add(start + "," + length + "," + leaf + "," + value);
+                    }
+                });
+            Assert.assertEquals(actualLong, expected);
+
+            final List<String> actualInt = new ArrayList<String>();
+            Traversals.postorder(length, sa, lcp, 0,
+                new Traversals.IPostOrderIntComputingVisitor()
+                {
+                    public int aggregate(int value1, int value2)
+                    {
+                        return value1 + value2;
+                    }
+
+                    public int leafValue(int saIndex, int symbolIndex, int length)
+                    {
+                        return length;
+                    }
+
+                    public void visitNode(int start, int length, boolean leaf, int value)
+                    {
+                        actualInt.add(start + "," + length + "," + leaf + "," + value);
+                    }
+                });
+            Assert.assertEquals(actualInt, expected);
+
+            // Leaf counts and maximum suffix lengths along with the sums.
+            final List<String> actualMulti = new ArrayList<String>();
+            Traversals.postorder(length, sa, lcp, new long [] {0, 0, 0},
+                new Traversals.IPostOrderMultiComputingVisitor()
+                {
+                    public long aggregate(int counter, long value1, long value2)
+                    {
+                        return counter == 2 ? Math.max(value1, value2) : value1 + value2;
+                    }
+
+                    public void leafValues(int saIndex, int symbolIndex, int length,
+                        long [] values)
+                    {
+                        values[0] = length;
+                        values[1] = 1;
+                        values[2] = length;
+                    }
+
+                    public void visitNode(int start, int length, boolean leaf,
+                        long [] values)
+                    {
+                        Assert.assertTrue(values[1] >= 1);
+                        Assert.assertTrue(values[2] >= length);
+                        actualMulti.add(start + "," + length + "," + leaf + "," + values[0]);
+                    }
+                });
+            Assert.assertEquals(actualMulti, expected);
+        }
+    }
+
+    /**
+     * Parallel traversal must visit the same nodes with the same values as the
+     * sequential one. The aggregation (leftmost suffix index) is not symmetric.
+     */
+    @Test
+    public void parallelPostorder()
+    {
+        final Random rnd = new Random(0x9a7a);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            final int length = Traversals.PARALLEL_THRESHOLD + 1000;
+            for (int alphabet : new int [] {1, 4, 26})
+            {
+                final int [] input = new int [length];
+                for (int i = 0; i < length; i++)
+                {
+                    // A periodic part for deep subtrees spanning chunks.
+                    input[i] = (i < length / 3 ? i % 7 : rnd.nextInt(alphabet));
+                }
+                final SuffixData sd = SuffixArrays.createWithLCP(input, 0, length);
+                final int [] sa = sd.getSuffixArray();
+                final int [] lcp = sd.getLCP();
+
+                final List<String> expected = new ArrayList<String>();
+                Traversals.postorder(length, sa, lcp, -1, leftmost(expected));
+                final List<String> actual = Collections
+                    .synchronizedList(new ArrayList<String>());
+                Traversals.postorder(pool, length, sa, lcp, -1, leftmost(actual));
+                Collections.sort(expected);
+                Collections.sort(actual);
+                Assert.assertEquals(actual, expected);
+
+                final List<String> nodes = Collections
+                    .synchronizedList(new ArrayList<String>());
+                Traversals.postorder(pool, length, sa, lcp,
+                    new Traversals.IPostOrderVisitor()
+                    {
+                        public void visitNode(int start, int length, boolean leaf)
+                        {
+                            nodes.add(start + "," + length + "," + leaf);
+                        }
+                    });
+                Assert.assertEquals(nodes.size(), expected.size());
+
+                // Primitive values (not boxed) in parallel.
+                final List<String> ints = Collections
+                    .synchronizedList(new ArrayList<String>());
+                Traversals.postorder(pool, length, sa, lcp, -1,
+                    new Traversals.IPostOrderIntComputingVisitor()
+                    {
+                        public int aggregate(int value1, int value2)
+                        {
+                            return value1 == -1 ? value2 : value1;
+                        }
+
+                        public int leafValue(int saIndex, int symbolIndex, int length)
+                        {
+                            return saIndex;
+                        }
+
+                        public void visitNode(int start, int length, boolean leaf,
+                            int value)
+                        {
+                            ints.add(start + "," + length + "," + leaf + "," + value);
+                        }
+                    });
+                Collections.sort(ints);
+                Assert.assertEquals(ints, expected);
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    private static Traversals.IPostOrderComputingVisitor<Integer> leftmost(
+        final List<String> visits)
+    {
+        return new Traversals.IPostOrderComputingVisitor<Integer>()
+        {
+            public Integer aggregate(Integer value1, Integer value2)
+            {
+                return value1 == -1 ? value2 : value1;
+            }
+
+            public Integer leafValue(int saIndex, int symbolIndex, int length)
+            {
+                return saIndex;
+            }
+
+            public void visitNode(int start, int length, boolean leaf, Integer value)
+            {
+                visits.add(start + "," + length + "," + leaf + "," + value);
+            }
+        };
+    }
 }
@@ -0,0 +1,108 @@
+package org.jsuffixarrays;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link Workspace} and {@link IWorkspaceSuffixArrayBuilder}s.
+ */
+public class WorkspaceTest
+{
+    @Test
+    public void borrowSmallestFit()
+    {
+        final Workspace workspace = new Workspace();
+        final int [] a = new int [10];
+        final int [] b = new int [100];
+        workspace.release(b);
+        workspace.release(a);
+        Assert.assertEquals(workspace.retainedBytes(), 4 * 110);
+
+        Assert.assertSame(workspace.borrow(5), a);
+        Assert.assertSame(workspace.borrow(5), b);
+        Assert.assertEquals(workspace.borrow(5).length, 5);
+        Assert.assertEquals(workspace.retainedBytes(), 0);
+    }
+
+    @Test
+    public void retentionLimit()
+    {
+        final Workspace workspace = new Workspace(4 * 50);
+        workspace.release(new int [100]);
+        Assert.assertEquals(workspace.retainedBytes(), 0);
+        workspace.release(new int [50]);
+        Assert.assertEquals(workspace.retainedBytes(), 4 * 50);
+        workspace.clear();
+        Assert.assertEquals(workspace.retainedBytes(), 0);
+    }
+
+    @Test
+    public void divSufSort()
+    {
+        checkReuse(new DivSufSort(), new MinMax(0, 255), 0);
+    }
+
+    @Test
+    public void qsufsort()
+    {
+        checkReuse(new QSufSort(), new MinMax(0, 255), 1);
+        checkReuse(new QSufSort(false), new MinMax(0, 255), 1);
+    }
+
+    @Test
+    public void skew()
+    {
+        checkReuse(new Skew(), new MinMax(1, 1000), 3);
+        // Highly repetitive input, forces recursion.
+        checkReuse(new Skew(), new MinMax(1, 2), 3);
+    }
+
+    @Test
+    public void bpr()
+    {
+        checkReuse(new BPR(), new MinMax(0, 3), BPR.KBS_STRING_EXTENSION_SIZE);
+        checkReuse(new BPR(), new MinMax(0, 50), BPR.KBS_STRING_EXTENSION_SIZE);
+        checkReuse(new BPR(false), new MinMax(0, 10), BPR.KBS_STRING_EXTENSION_SIZE);
+    }
+
+    /**
+     * Build suffix arrays of many inputs of varying length with a single workspace and
+     * dirty output arrays of varying size; compare against {@link SAIS}.
+     */
+    private static void checkReuse(IWorkspaceSuffixArrayBuilder builder, MinMax alphabet,
+        int extraCells)
+    {
+        final Random rnd = new Random(0xdeadbeef);
+        final Workspace workspace = new Workspace();
+        for (int round = 0; round < 50; round++)
+        {
+            final int length = 2 + rnd.nextInt(round < 25 ? 50 : 2000);
+            final int start = rnd.nextInt(10);
+            final int [] input = new int [start + length + extraCells];
+            for (int i = 0; i < length; i++)
+            {
+                input[start + i] = alphabet.min
+                    + rnd.nextInt(alphabet.max - alphabet.min + 1);
+            }
+
+            final int [] expected = new SAIS().buildSuffixArray(input.clone(), start, length);
+            Assert.assertEquals(Arrays.copyOf(builder.buildSuffixArray(input.clone(), start,
+                length), length), expected);
+
+            final int [] output = new int [length + rnd.nextInt(3)];
+            Arrays.fill(output, -1);
+            final int [] copy = input.clone();
+            Assert.assertSame(
+                builder.buildSuffixArray(copy, start, length, output, workspace), output);
+            Assert.assertEquals(Arrays.copyOf(output, length), Arrays.copyOf(expected,
+                length));
+
+            Assert.assertEquals(Arrays.copyOf(builder.buildSuffixArray(input.clone(),
+                start, length, null, workspace), length), Arrays.copyOf(expected, length));
+        }
+        Assert.assertTrue(workspace.retainedBytes() > 0);
+    }
+}